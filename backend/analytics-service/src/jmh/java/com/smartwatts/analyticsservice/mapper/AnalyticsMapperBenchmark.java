@@ -0,0 +1,75 @@
+package com.smartwatts.analyticsservice.mapper;
+
+import com.smartwatts.analyticsservice.dto.EnergyAnalyticsDto;
+import com.smartwatts.analyticsservice.model.EnergyAnalytics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.beans.BeanUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the generated AnalyticsMapper and {@code BeanUtils.copyProperties} on one populated object.
+ * Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+public class AnalyticsMapperBenchmark {
+
+    private EnergyAnalytics analytics;
+    private EnergyAnalyticsDto analyticsDto;
+
+    @Setup
+    public void setUp() {
+        analytics = new EnergyAnalytics();
+        analytics.setId(UUID.randomUUID());
+        analytics.setUserId(UUID.randomUUID());
+        analytics.setDeviceId(UUID.randomUUID());
+        analytics.setAnalyticsDate(LocalDateTime.now());
+        analytics.setPeriodType(EnergyAnalytics.PeriodType.DAILY);
+        analytics.setStartTime(LocalDateTime.now().minusDays(1));
+        analytics.setEndTime(LocalDateTime.now());
+        analytics.setTotalConsumptionKwh(new BigDecimal("42.75"));
+        analytics.setPeakConsumptionKw(new BigDecimal("6.20"));
+        analytics.setAverageConsumptionKw(new BigDecimal("1.78"));
+        analytics.setTotalCost(new BigDecimal("2992.50"));
+        analytics.setCostPerKwh(new BigDecimal("70.00"));
+        analytics.setEfficiencyScore(new BigDecimal("82.50"));
+        analyticsDto = AnalyticsMapper.INSTANCE.toDto(analytics);
+    }
+
+    @Benchmark
+    public EnergyAnalyticsDto beanUtilsToDto() {
+        EnergyAnalyticsDto dto = new EnergyAnalyticsDto();
+        BeanUtils.copyProperties(analytics, dto);
+        return dto;
+    }
+
+    @Benchmark
+    public EnergyAnalyticsDto mapperToDto() {
+        return AnalyticsMapper.INSTANCE.toDto(analytics);
+    }
+
+    @Benchmark
+    public EnergyAnalytics beanUtilsToEntity() {
+        EnergyAnalytics entity = new EnergyAnalytics();
+        BeanUtils.copyProperties(analyticsDto, entity);
+        return entity;
+    }
+
+    @Benchmark
+    public EnergyAnalytics mapperToEntity() {
+        return AnalyticsMapper.INSTANCE.toEntity(analyticsDto);
+    }
+}
@@ -0,0 +1,41 @@
+package com.smartwatts.analyticsservice.mapper;
+
+import com.smartwatts.analyticsservice.dto.EnergyAnalyticsDto;
+import com.smartwatts.analyticsservice.dto.ReportDto;
+import com.smartwatts.analyticsservice.dto.UsagePatternDto;
+import com.smartwatts.analyticsservice.dto.WeatherDataDto;
+import com.smartwatts.analyticsservice.model.EnergyAnalytics;
+import com.smartwatts.analyticsservice.model.Report;
+import com.smartwatts.analyticsservice.model.UsagePattern;
+import com.smartwatts.analyticsservice.model.WeatherData;
+import org.mapstruct.Builder;
+import org.mapstruct.Mapper;
+import org.mapstruct.ReportingPolicy;
+import org.mapstruct.factory.Mappers;
+
+/**
+ * Entity/DTO conversions for analytics, usage patterns, reports and weather data, generated at
+ * compile time instead of copied reflectively. Properties that only exist on one side are left
+ * untouched.
+ */
+@Mapper(unmappedTargetPolicy = ReportingPolicy.IGNORE, builder = @Builder(disableBuilder = true))
+public interface AnalyticsMapper {
+
+    AnalyticsMapper INSTANCE = Mappers.getMapper(AnalyticsMapper.class);
+
+    EnergyAnalyticsDto toDto(EnergyAnalytics analytics);
+
+    EnergyAnalytics toEntity(EnergyAnalyticsDto analyticsDto);
+
+    UsagePatternDto toDto(UsagePattern pattern);
+
+    UsagePattern toEntity(UsagePatternDto patternDto);
+
+    ReportDto toDto(Report report);
+
+    Report toEntity(ReportDto reportDto);
+
+    WeatherDataDto toDto(WeatherData weatherData);
+
+    WeatherData toEntity(WeatherDataDto weatherDataDto);
+}
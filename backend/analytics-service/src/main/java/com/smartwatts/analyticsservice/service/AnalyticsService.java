@@ -9,9 +9,9 @@ import com.smartwatts.analyticsservice.model.Report;
 import com.smartwatts.analyticsservice.repository.EnergyAnalyticsRepository;
 import com.smartwatts.analyticsservice.repository.UsagePatternRepository;
 import com.smartwatts.analyticsservice.repository.ReportRepository;
+import com.smartwatts.analyticsservice.mapper.AnalyticsMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.BeanUtils;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -38,8 +38,7 @@ public class AnalyticsService {
     public EnergyAnalyticsDto createEnergyAnalytics(EnergyAnalyticsDto analyticsDto) {
         log.info("Creating energy analytics for user: {}, period: {}", analyticsDto.getUserId(), analyticsDto.getPeriodType());
         
-        EnergyAnalytics analytics = new EnergyAnalytics();
-        BeanUtils.copyProperties(analyticsDto, analytics);
+        EnergyAnalytics analytics = AnalyticsMapper.INSTANCE.toEntity(analyticsDto);
         
         // Calculate derived fields if not provided
         if (analytics.getEfficiencyScore() == null) {
@@ -126,8 +125,7 @@ public class AnalyticsService {
     public UsagePatternDto createUsagePattern(UsagePatternDto patternDto) {
         log.info("Creating usage pattern for user: {}, type: {}", patternDto.getUserId(), patternDto.getPatternType());
         
-        UsagePattern pattern = new UsagePattern();
-        BeanUtils.copyProperties(patternDto, pattern);
+        UsagePattern pattern = AnalyticsMapper.INSTANCE.toEntity(patternDto);
         
         // Use PatternAnalysisService for pattern analysis
         if (pattern.getPatternType() != null) {
@@ -234,8 +232,7 @@ public class AnalyticsService {
     public ReportDto generateReport(ReportDto reportDto) {
         log.info("Generating report for user: {}, type: {}", reportDto.getUserId(), reportDto.getReportType());
         
-        Report report = new Report();
-        BeanUtils.copyProperties(reportDto, report);
+        Report report = AnalyticsMapper.INSTANCE.toEntity(reportDto);
         
         report.setGeneratedAt(LocalDateTime.now());
         report.setGeneratedBy(reportDto.getGeneratedBy());
@@ -387,21 +384,15 @@ public class AnalyticsService {
     }
     
     private EnergyAnalyticsDto convertToDto(EnergyAnalytics analytics) {
-        EnergyAnalyticsDto dto = new EnergyAnalyticsDto();
-        BeanUtils.copyProperties(analytics, dto);
-        return dto;
+        return AnalyticsMapper.INSTANCE.toDto(analytics);
     }
     
     private UsagePatternDto convertToDto(UsagePattern pattern) {
-        UsagePatternDto dto = new UsagePatternDto();
-        BeanUtils.copyProperties(pattern, dto);
-        return dto;
+        return AnalyticsMapper.INSTANCE.toDto(pattern);
     }
     
     private ReportDto convertToDto(Report report) {
-        ReportDto dto = new ReportDto();
-        BeanUtils.copyProperties(report, dto);
-        return dto;
+        return AnalyticsMapper.INSTANCE.toDto(report);
     }
     
     // Dashboard-specific methods
@@ -3,9 +3,9 @@ package com.smartwatts.analyticsservice.service;
 import com.smartwatts.analyticsservice.dto.WeatherDataDto;
 import com.smartwatts.analyticsservice.model.WeatherData;
 import com.smartwatts.analyticsservice.repository.WeatherDataRepository;
+import com.smartwatts.analyticsservice.mapper.AnalyticsMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -38,8 +38,7 @@ public class WeatherService {
     public WeatherDataDto createWeatherData(WeatherDataDto weatherDataDto) {
         log.info("Creating weather data for location: {}", weatherDataDto.getLocationName());
         
-        WeatherData weatherData = new WeatherData();
-        BeanUtils.copyProperties(weatherDataDto, weatherData);
+        WeatherData weatherData = AnalyticsMapper.INSTANCE.toEntity(weatherDataDto);
         
         WeatherData savedWeatherData = weatherDataRepository.save(weatherData);
         log.info("Weather data created with ID: {}", savedWeatherData.getId());
@@ -231,8 +230,6 @@ public class WeatherService {
     }
     
     private WeatherDataDto convertToDto(WeatherData weatherData) {
-        WeatherDataDto dto = new WeatherDataDto();
-        BeanUtils.copyProperties(weatherData, dto);
-        return dto;
+        return AnalyticsMapper.INSTANCE.toDto(weatherData);
     }
 } 
\ No newline at end of file
@@ -0,0 +1,109 @@
+package com.smartwatts.analyticsservice.mapper;
+
+import com.smartwatts.analyticsservice.dto.EnergyAnalyticsDto;
+import com.smartwatts.analyticsservice.dto.WeatherDataDto;
+import com.smartwatts.analyticsservice.model.EnergyAnalytics;
+import com.smartwatts.analyticsservice.model.WeatherData;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalyticsMapperTest {
+
+    private final AnalyticsMapper mapper = AnalyticsMapper.INSTANCE;
+
+    @Test
+    void analyticsRoundTrip_PreservesEveryField() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        EnergyAnalyticsDto analyticsDto = EnergyAnalyticsDto.builder()
+                .id(UUID.randomUUID())
+                .userId(UUID.randomUUID())
+                .deviceId(UUID.randomUUID())
+                .analyticsDate(now)
+                .periodType(EnergyAnalytics.PeriodType.DAILY)
+                .startTime(now.minusDays(1))
+                .endTime(now)
+                .totalConsumptionKwh(new BigDecimal("42.750"))
+                .peakConsumptionKw(new BigDecimal("5.200"))
+                .averageConsumptionKw(new BigDecimal("1.781"))
+                .totalCost(new BigDecimal("2992.50"))
+                .costPerKwh(new BigDecimal("70.00"))
+                .efficiencyScore(new BigDecimal("82.50"))
+                .carbonFootprintKg(new BigDecimal("18.120"))
+                .peakHoursCount(6)
+                .offPeakHoursCount(12)
+                .nightHoursCount(6)
+                .peakConsumptionKwh(new BigDecimal("20.100"))
+                .offPeakConsumptionKwh(new BigDecimal("15.400"))
+                .nightConsumptionKwh(new BigDecimal("7.250"))
+                .savingsPotential(new BigDecimal("310.00"))
+                .optimizationRecommendations("Shift laundry to off-peak hours")
+                .anomalyCount(1)
+                .qualityScore(new BigDecimal("0.98"))
+                .dataPointsCount(1440)
+                .completenessPercentage(new BigDecimal("99.93"))
+                .metadata("{\"source\":\"rollups\"}")
+                .createdAt(now)
+                .updatedAt(now.plusSeconds(1))
+                .build();
+
+        // When
+        EnergyAnalytics analytics = mapper.toEntity(analyticsDto);
+        EnergyAnalyticsDto restored = mapper.toDto(analytics);
+
+        // Then
+        assertEquals(analyticsDto, restored);
+    }
+
+    @Test
+    void weatherRoundTrip_PreservesEveryField() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        WeatherDataDto weatherDto = WeatherDataDto.builder()
+                .id(UUID.randomUUID())
+                .locationName("Lagos")
+                .latitude(new BigDecimal("6.524379"))
+                .longitude(new BigDecimal("3.379206"))
+                .weatherDate(now)
+                .temperatureCelsius(new BigDecimal("31.5"))
+                .humidityPercentage(new BigDecimal("78.0"))
+                .pressureHpa(new BigDecimal("1011.2"))
+                .windSpeedMs(new BigDecimal("3.4"))
+                .windDirectionDegrees(new BigDecimal("220.0"))
+                .cloudCoverPercentage(new BigDecimal("40.0"))
+                .solarRadiationWm2(new BigDecimal("640.0"))
+                .weatherCondition("cloudy")
+                .weatherDescription("Scattered clouds")
+                .visibilityMeters(10000)
+                .uvIndex(new BigDecimal("8.0"))
+                .dewPointCelsius(new BigDecimal("26.9"))
+                .feelsLikeCelsius(new BigDecimal("37.2"))
+                .precipitationMm(new BigDecimal("0.0"))
+                .snowMm(new BigDecimal("0.0"))
+                .dataSource("openweathermap")
+                .forecastHours(0)
+                .confidenceScore(new BigDecimal("0.90"))
+                .metadata("{\"station\":\"DNMM\"}")
+                .createdAt(now)
+                .updatedAt(now.plusSeconds(1))
+                .build();
+
+        // When
+        WeatherData weatherData = mapper.toEntity(weatherDto);
+        WeatherDataDto restored = mapper.toDto(weatherData);
+
+        // Then
+        assertEquals(weatherDto, restored);
+    }
+
+    @Test
+    void toDto_NullSource_ReturnsNull() {
+        assertNull(mapper.toDto((EnergyAnalytics) null));
+        assertNull(mapper.toEntity((WeatherDataDto) null));
+    }
+}
@@ -0,0 +1,75 @@
+package com.smartwatts.billingservice.mapper;
+
+import com.smartwatts.billingservice.dto.BillDto;
+import com.smartwatts.billingservice.model.Bill;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.beans.BeanUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the generated BillingMapper and {@code BeanUtils.copyProperties} on one populated object.
+ * Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+public class BillingMapperBenchmark {
+
+    private Bill bill;
+    private BillDto billDto;
+
+    @Setup
+    public void setUp() {
+        bill = new Bill();
+        bill.setId(UUID.randomUUID());
+        bill.setUserId(UUID.randomUUID());
+        bill.setBillNumber("BILL-2024-000001");
+        bill.setBillType(Bill.BillType.GRID_ELECTRICITY);
+        bill.setBillingPeriodStart(LocalDateTime.now().minusMonths(1));
+        bill.setBillingPeriodEnd(LocalDateTime.now());
+        bill.setDueDate(LocalDateTime.now().plusDays(14));
+        bill.setTotalConsumptionKwh(new BigDecimal("412.50"));
+        bill.setTotalAmount(new BigDecimal("28875.00"));
+        bill.setTaxAmount(new BigDecimal("2165.63"));
+        bill.setFinalAmount(new BigDecimal("31040.63"));
+        bill.setBalanceDue(new BigDecimal("31040.63"));
+        bill.setMeterNumber("MTR-0001");
+        billDto = BillingMapper.INSTANCE.toDto(bill);
+    }
+
+    @Benchmark
+    public BillDto beanUtilsToDto() {
+        BillDto dto = new BillDto();
+        BeanUtils.copyProperties(bill, dto);
+        return dto;
+    }
+
+    @Benchmark
+    public BillDto mapperToDto() {
+        return BillingMapper.INSTANCE.toDto(bill);
+    }
+
+    @Benchmark
+    public Bill beanUtilsToEntity() {
+        Bill entity = new Bill();
+        BeanUtils.copyProperties(billDto, entity);
+        return entity;
+    }
+
+    @Benchmark
+    public Bill mapperToEntity() {
+        return BillingMapper.INSTANCE.toEntity(billDto);
+    }
+}
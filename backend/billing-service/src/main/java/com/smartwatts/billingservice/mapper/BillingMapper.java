@@ -0,0 +1,40 @@
+package com.smartwatts.billingservice.mapper;
+
+import com.smartwatts.billingservice.dto.BillDto;
+import com.smartwatts.billingservice.dto.BillItemDto;
+import com.smartwatts.billingservice.dto.TariffDto;
+import com.smartwatts.billingservice.dto.TokenDto;
+import com.smartwatts.billingservice.model.Bill;
+import com.smartwatts.billingservice.model.BillItem;
+import com.smartwatts.billingservice.model.Tariff;
+import com.smartwatts.billingservice.model.Token;
+import org.mapstruct.Builder;
+import org.mapstruct.Mapper;
+import org.mapstruct.ReportingPolicy;
+import org.mapstruct.factory.Mappers;
+
+/**
+ * Entity/DTO conversions for bills, bill items, tariffs and tokens, generated at compile time
+ * instead of copied reflectively. Properties that only exist on one side are left untouched.
+ */
+@Mapper(unmappedTargetPolicy = ReportingPolicy.IGNORE, builder = @Builder(disableBuilder = true))
+public interface BillingMapper {
+
+    BillingMapper INSTANCE = Mappers.getMapper(BillingMapper.class);
+
+    BillDto toDto(Bill bill);
+
+    Bill toEntity(BillDto billDto);
+
+    BillItemDto toDto(BillItem item);
+
+    BillItem toEntity(BillItemDto itemDto);
+
+    TariffDto toDto(Tariff tariff);
+
+    Tariff toEntity(TariffDto tariffDto);
+
+    TokenDto toDto(Token token);
+
+    Token toEntity(TokenDto tokenDto);
+}
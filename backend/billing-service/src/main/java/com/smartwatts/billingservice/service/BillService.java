@@ -4,9 +4,9 @@ import com.smartwatts.billingservice.dto.BillDto;
 import com.smartwatts.billingservice.model.Bill;
 import com.smartwatts.billingservice.repository.BillRepository;
 import com.smartwatts.billingservice.repository.TariffRepository;
+import com.smartwatts.billingservice.mapper.BillingMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.BeanUtils;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -44,8 +44,7 @@ public class BillService {
     public BillDto createBill(BillDto billDto) {
         log.info("Creating bill for user: {}", billDto.getUserId());
         
-        Bill bill = new Bill();
-        BeanUtils.copyProperties(billDto, bill);
+        Bill bill = BillingMapper.INSTANCE.toEntity(billDto);
         
         // Calculate bill amounts
         calculateBillAmounts(bill);
@@ -162,8 +161,6 @@ public class BillService {
     }
     
     private BillDto convertToDto(Bill bill) {
-        BillDto dto = new BillDto();
-        BeanUtils.copyProperties(bill, dto);
-        return dto;
+        return BillingMapper.INSTANCE.toDto(bill);
     }
 } 
\ No newline at end of file
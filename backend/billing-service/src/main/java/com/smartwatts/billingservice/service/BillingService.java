@@ -10,9 +10,9 @@ import com.smartwatts.billingservice.model.Tariff;
 import com.smartwatts.billingservice.repository.BillRepository;
 import com.smartwatts.billingservice.repository.BillItemRepository;
 import com.smartwatts.billingservice.repository.TariffRepository;
+import com.smartwatts.billingservice.mapper.BillingMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.BeanUtils;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -40,8 +40,7 @@ public class BillingService {
     public BillDto createBill(BillDto billDto) {
         log.info("Creating bill for user: {}, type: {}", billDto.getUserId(), billDto.getBillType());
         
-        Bill bill = new Bill();
-        BeanUtils.copyProperties(billDto, bill);
+        Bill bill = BillingMapper.INSTANCE.toEntity(billDto);
         
         // Generate bill number if not provided
         if (bill.getBillNumber() == null || bill.getBillNumber().isEmpty()) {
@@ -227,8 +226,7 @@ public class BillingService {
     public BillItemDto createBillItem(BillItemDto itemDto) {
         log.info("Creating bill item for bill: {}", itemDto.getBillId());
         
-        BillItem item = new BillItem();
-        BeanUtils.copyProperties(itemDto, item);
+        BillItem item = BillingMapper.INSTANCE.toEntity(itemDto);
         
         // Calculate totals if not provided
         if (item.getSubtotal() == null) {
@@ -283,8 +281,7 @@ public class BillingService {
     public TariffDto createTariff(TariffDto tariffDto) {
         log.info("Creating tariff: {}", tariffDto.getTariffName());
         
-        Tariff tariff = new Tariff();
-        BeanUtils.copyProperties(tariffDto, tariff);
+        Tariff tariff = BillingMapper.INSTANCE.toEntity(tariffDto);
         
         Tariff savedTariff = tariffRepository.save(tariff);
         log.info("Tariff created with ID: {}", savedTariff.getId());
@@ -380,21 +377,15 @@ public class BillingService {
     }
     
     private BillDto convertToDto(Bill bill) {
-        BillDto dto = new BillDto();
-        BeanUtils.copyProperties(bill, dto);
-        return dto;
+        return BillingMapper.INSTANCE.toDto(bill);
     }
     
     private BillItemDto convertToDto(BillItem item) {
-        BillItemDto dto = new BillItemDto();
-        BeanUtils.copyProperties(item, dto);
-        return dto;
+        return BillingMapper.INSTANCE.toDto(item);
     }
     
     private TariffDto convertToDto(Tariff tariff) {
-        TariffDto dto = new TariffDto();
-        BeanUtils.copyProperties(tariff, dto);
-        return dto;
+        return BillingMapper.INSTANCE.toDto(tariff);
     }
     
     // Nigerian-specific methods
@@ -3,9 +3,9 @@ package com.smartwatts.billingservice.service;
 import com.smartwatts.billingservice.dto.TariffDto;
 import com.smartwatts.billingservice.model.Tariff;
 import com.smartwatts.billingservice.repository.TariffRepository;
+import com.smartwatts.billingservice.mapper.BillingMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.BeanUtils;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -27,8 +27,7 @@ public class TariffService {
     public TariffDto createTariff(TariffDto tariffDto) {
         log.info("Creating tariff: {}", tariffDto.getTariffCode());
         
-        Tariff tariff = new Tariff();
-        BeanUtils.copyProperties(tariffDto, tariff);
+        Tariff tariff = BillingMapper.INSTANCE.toEntity(tariffDto);
         
         // Set default values
         if (tariff.getStatus() == null) {
@@ -150,8 +149,6 @@ public class TariffService {
     }
     
     private TariffDto convertToDto(Tariff tariff) {
-        TariffDto dto = new TariffDto();
-        BeanUtils.copyProperties(tariff, dto);
-        return dto;
+        return BillingMapper.INSTANCE.toDto(tariff);
     }
 } 
\ No newline at end of file
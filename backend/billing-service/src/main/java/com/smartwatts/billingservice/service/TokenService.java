@@ -3,9 +3,9 @@ package com.smartwatts.billingservice.service;
 import com.smartwatts.billingservice.dto.TokenDto;
 import com.smartwatts.billingservice.model.Token;
 import com.smartwatts.billingservice.repository.TokenRepository;
+import com.smartwatts.billingservice.mapper.BillingMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.BeanUtils;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -28,8 +28,7 @@ public class TokenService {
     public TokenDto createToken(TokenDto tokenDto) {
         log.info("Creating token for user: {}", tokenDto.getUserId());
         
-        Token token = new Token();
-        BeanUtils.copyProperties(tokenDto, token);
+        Token token = BillingMapper.INSTANCE.toEntity(tokenDto);
         
         // Set default values
         if (token.getStatus() == null) {
@@ -160,8 +159,6 @@ public class TokenService {
     }
     
     private TokenDto convertToDto(Token token) {
-        TokenDto dto = new TokenDto();
-        BeanUtils.copyProperties(token, dto);
-        return dto;
+        return BillingMapper.INSTANCE.toDto(token);
     }
 } 
\ No newline at end of file
@@ -0,0 +1,114 @@
+package com.smartwatts.billingservice.mapper;
+
+import com.smartwatts.billingservice.dto.BillDto;
+import com.smartwatts.billingservice.dto.TokenDto;
+import com.smartwatts.billingservice.model.Bill;
+import com.smartwatts.billingservice.model.Token;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BillingMapperTest {
+
+    private final BillingMapper mapper = BillingMapper.INSTANCE;
+
+    @Test
+    void billRoundTrip_PreservesEveryField() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        BillDto billDto = BillDto.builder()
+                .id(UUID.randomUUID())
+                .userId(UUID.randomUUID())
+                .billNumber("BILL-2024-0001")
+                .billTitle("January electricity")
+                .billType(Bill.BillType.GRID_ELECTRICITY)
+                .status(Bill.BillStatus.ISSUED)
+                .billingPeriodStart(now.minusDays(31))
+                .billingPeriodEnd(now.minusDays(1))
+                .dueDate(now.plusDays(14))
+                .issuedDate(now)
+                .totalConsumptionKwh(new BigDecimal("412.500"))
+                .totalAmount(new BigDecimal("28875.00"))
+                .taxAmount(new BigDecimal("2165.63"))
+                .discountAmount(new BigDecimal("0.00"))
+                .finalAmount(new BigDecimal("31040.63"))
+                .amountPaid(new BigDecimal("10000.00"))
+                .balanceDue(new BigDecimal("21040.63"))
+                .currency("NGN")
+                .exchangeRate(BigDecimal.ONE)
+                .meterNumber("MTR-0001")
+                .accountNumber("ACC-123456")
+                .customerName("Ada Obi")
+                .isRecurring(true)
+                .recurringFrequency("MONTHLY")
+                .nextBillingDate(now.plusDays(30))
+                .isEstimated(false)
+                .isDisputed(false)
+                .metadata("{\"tariffBand\":\"A\"}")
+                .createdAt(now)
+                .updatedAt(now.plusSeconds(1))
+                .build();
+
+        // When
+        Bill bill = mapper.toEntity(billDto);
+        BillDto restored = mapper.toDto(bill);
+
+        // Then
+        assertEquals(billDto, restored);
+    }
+
+    @Test
+    void tokenRoundTrip_PreservesEveryField() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        TokenDto tokenDto = TokenDto.builder()
+                .id(UUID.randomUUID())
+                .userId(UUID.randomUUID())
+                .deviceId(UUID.randomUUID())
+                .tokenCode("1234-5678-9012-3456-7890")
+                .meterNumber("MTR-0001")
+                .amountPaid(new BigDecimal("5000.00"))
+                .unitsPurchased(new BigDecimal("71.429"))
+                .unitsConsumed(new BigDecimal("10.000"))
+                .unitsRemaining(new BigDecimal("61.429"))
+                .ratePerUnit(new BigDecimal("70.00"))
+                .status(Token.TokenStatus.ACTIVE)
+                .purchaseDate(now.minusDays(2))
+                .activationDate(now.minusDays(1))
+                .expiryDate(now.plusDays(365))
+                .paymentMethod("CARD")
+                .transactionReference("TXN-0001")
+                .discoReference("IKEDC-0001")
+                .notes("Top-up")
+                .createdAt(now)
+                .updatedAt(now.plusSeconds(1))
+                .build();
+
+        // When
+        Token token = mapper.toEntity(tokenDto);
+        TokenDto restored = mapper.toDto(token);
+
+        // Then
+        assertEquals(tokenDto, restored);
+    }
+
+    @Test
+    void toEntity_NullProperties_OverrideEntityDefaults() {
+        // Given
+        BillDto billDto = BillDto.builder()
+                .billNumber("BILL-2024-0001")
+                .build();
+
+        // When
+        Bill bill = mapper.toEntity(billDto);
+
+        // Then
+        assertNull(bill.getStatus());
+        assertNull(bill.getCurrency());
+        assertNull(bill.getIsRecurring());
+    }
+}
@@ -0,0 +1,73 @@
+package com.smartwatts.deviceservice.mapper;
+
+import com.smartwatts.deviceservice.dto.DeviceDto;
+import com.smartwatts.deviceservice.model.Device;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.beans.BeanUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the generated DeviceMapper and {@code BeanUtils.copyProperties} on one populated object.
+ * Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+public class DeviceMapperBenchmark {
+
+    private Device device;
+    private DeviceDto deviceDto;
+
+    @Setup
+    public void setUp() {
+        device = new Device();
+        device.setId(UUID.randomUUID());
+        device.setUserId(UUID.randomUUID());
+        device.setDeviceId("SMART-METER-001");
+        device.setName("Main meter");
+        device.setDescription("Main distribution board meter");
+        device.setDeviceType(Device.DeviceType.SMART_METER);
+        device.setConnectionString("tcp://192.168.1.20:502");
+        device.setIpAddress("192.168.1.20");
+        device.setPort(502);
+        device.setMqttTopic("smartwatts/meters/001");
+        device.setModbusAddress(1);
+        deviceDto = DeviceMapper.INSTANCE.toDto(device);
+    }
+
+    @Benchmark
+    public DeviceDto beanUtilsToDto() {
+        DeviceDto dto = new DeviceDto();
+        BeanUtils.copyProperties(device, dto);
+        return dto;
+    }
+
+    @Benchmark
+    public DeviceDto mapperToDto() {
+        return DeviceMapper.INSTANCE.toDto(device);
+    }
+
+    @Benchmark
+    public Device beanUtilsToEntity() {
+        Device entity = new Device();
+        BeanUtils.copyProperties(deviceDto, entity);
+        return entity;
+    }
+
+    @Benchmark
+    public Device mapperToEntity() {
+        return DeviceMapper.INSTANCE.toEntity(deviceDto);
+    }
+}
@@ -0,0 +1,63 @@
+package com.smartwatts.deviceservice.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.NonNull;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Collections;
+
+/**
+ * Authenticates edge gateways by their ID and key headers as ROLE_GATEWAY, with the gateway ID
+ * as principal. Requests without the headers are left to the JWT filter.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class GatewayAuthenticationFilter extends OncePerRequestFilter {
+
+    public static final String GATEWAY_ID_HEADER = "X-Gateway-Id";
+    public static final String GATEWAY_KEY_HEADER = "X-Gateway-Key";
+
+    private final GatewayKeys gatewayKeys;
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        final String gatewayId = request.getHeader(GATEWAY_ID_HEADER);
+        final String gatewayKey = request.getHeader(GATEWAY_KEY_HEADER);
+
+        if (gatewayId == null || gatewayKey == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        if (!gatewayKeys.matches(gatewayId, gatewayKey)) {
+            log.warn("Gateway Filter: Rejected credentials of gateway {}", gatewayId);
+            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            return;
+        }
+
+        UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                gatewayId,
+                null,
+                Collections.singletonList(new SimpleGrantedAuthority("ROLE_GATEWAY"))
+        );
+        SecurityContextHolder.getContext().setAuthentication(authToken);
+        log.debug("Gateway Filter: Authenticated gateway {}", gatewayId);
+
+        filterChain.doFilter(request, response);
+    }
+}
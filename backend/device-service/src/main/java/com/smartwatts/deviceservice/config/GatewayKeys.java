@@ -0,0 +1,36 @@
+package com.smartwatts.deviceservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keys of the edge gateways allowed to pull the device trust snapshot, by gateway ID.
+ * A gateway authenticates with its key, and auth secrets in its snapshot are MAC'ed under it.
+ */
+@Component
+@ConfigurationProperties(prefix = "smartwatts.security.gateways")
+@Data
+public class GatewayKeys {
+
+    private Map<String, String> keys = new HashMap<>();
+
+    /**
+     * Key of a gateway, or null if the gateway is unknown
+     */
+    public String keyOf(String gatewayId) {
+        String key = keys.get(gatewayId);
+        return key == null || key.isEmpty() ? null : key;
+    }
+
+    public boolean matches(String gatewayId, String presentedKey) {
+        String key = keyOf(gatewayId);
+        return key != null && presentedKey != null && MessageDigest.isEqual(
+                key.getBytes(StandardCharsets.UTF_8), presentedKey.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -42,6 +42,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             return;
         }
 
+        // Gateways authenticate with their own credentials
+        if (SecurityContextHolder.getContext().getAuthentication() != null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             log.debug("JWT Filter: No valid Authorization header");
             response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
@@ -1,14 +1,19 @@
 package com.smartwatts.deviceservice.controller;
 
+import com.smartwatts.deviceservice.dto.DeviceTrustDto;
 import com.smartwatts.deviceservice.dto.DeviceVerificationRequestDto;
 import com.smartwatts.deviceservice.dto.DeviceVerificationReviewDto;
 import com.smartwatts.deviceservice.model.Device;
 import com.smartwatts.deviceservice.service.DeviceVerificationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
@@ -148,6 +153,24 @@ public class DeviceVerificationController {
         }
     }
 
+    /**
+     * Get device trust snapshot, optionally only devices changed since a time (Gateway endpoint)
+     */
+    @GetMapping("/trust-snapshot")
+    @PreAuthorize("hasRole('GATEWAY')")
+    public ResponseEntity<List<DeviceTrustDto>> getTrustSnapshot(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+            Authentication authentication) {
+        log.debug("Fetching device trust snapshot since {} for gateway {}", since, authentication.getName());
+        
+        try {
+            return ResponseEntity.ok(deviceVerificationService.getTrustSnapshot(since, authentication.getName()));
+        } catch (Exception e) {
+            log.error("Error fetching device trust snapshot: {}", e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     /**
      * Get verification statistics (Admin endpoint)
      */
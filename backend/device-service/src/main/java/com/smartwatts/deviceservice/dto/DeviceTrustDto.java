@@ -0,0 +1,36 @@
+package com.smartwatts.deviceservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * What an edge gateway needs to verify a device's messages locally
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DeviceTrustDto {
+    
+    private UUID id;
+    
+    private String deviceId;
+    
+    // Owner of the device, which gateways attach to the readings they forward
+    private UUID userId;
+    
+    private boolean canSendData;
+    
+    // Whether the device is verified, which is all an auth secret check requires
+    private boolean verified;
+    
+    // Hex HMAC-SHA256 of the device auth secret under the requesting gateway's key, null if the device has none
+    private String authSecretMac;
+    
+    private LocalDateTime updatedAt;
+}
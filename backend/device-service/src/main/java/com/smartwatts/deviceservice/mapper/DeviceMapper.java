@@ -0,0 +1,39 @@
+package com.smartwatts.deviceservice.mapper;
+
+import com.smartwatts.deviceservice.dto.DeviceConfigurationDto;
+import com.smartwatts.deviceservice.dto.DeviceDto;
+import com.smartwatts.deviceservice.dto.DeviceEventDto;
+import com.smartwatts.deviceservice.model.Device;
+import com.smartwatts.deviceservice.model.DeviceConfiguration;
+import com.smartwatts.deviceservice.model.DeviceEvent;
+import org.mapstruct.Builder;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.ReportingPolicy;
+import org.mapstruct.factory.Mappers;
+
+/**
+ * Entity/DTO conversions for devices, their configuration and events, generated at compile time
+ * instead of copied reflectively. Properties that only exist on one side are left untouched.
+ */
+@Mapper(unmappedTargetPolicy = ReportingPolicy.IGNORE, builder = @Builder(disableBuilder = true))
+public interface DeviceMapper {
+
+    DeviceMapper INSTANCE = Mappers.getMapper(DeviceMapper.class);
+
+    DeviceDto toDto(Device device);
+
+    /**
+     * Trust level and verification status are owned by the verification workflow and never taken
+     * from a client payload
+     */
+    @Mapping(target = "trustLevel", ignore = true)
+    @Mapping(target = "verificationStatus", ignore = true)
+    Device toEntity(DeviceDto deviceDto);
+
+    DeviceConfigurationDto toDto(DeviceConfiguration config);
+
+    DeviceConfiguration toEntity(DeviceConfigurationDto configDto);
+
+    DeviceEventDto toDto(DeviceEvent event);
+}
@@ -78,6 +78,9 @@ public interface DeviceRepository extends JpaRepository<Device, UUID> {
     @Query("SELECT d FROM Device d WHERE d.deviceAuthSecret = :authSecret")
     Optional<Device> findByDeviceAuthSecret(@Param("authSecret") String authSecret);
     
+    @Query("SELECT d FROM Device d WHERE d.updatedAt > :since")
+    List<Device> findUpdatedSince(@Param("since") LocalDateTime since);
+    
     @Query("SELECT d FROM Device d WHERE d.userId = :userId AND d.trustLevel = :trustLevel")
     List<Device> findByUserIdAndTrustLevel(@Param("userId") UUID userId, @Param("trustLevel") Device.TrustLevel trustLevel);
     
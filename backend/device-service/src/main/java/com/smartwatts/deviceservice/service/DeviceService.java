@@ -9,9 +9,9 @@ import com.smartwatts.deviceservice.model.DeviceEvent;
 import com.smartwatts.deviceservice.repository.DeviceRepository;
 import com.smartwatts.deviceservice.repository.DeviceConfigurationRepository;
 import com.smartwatts.deviceservice.repository.DeviceEventRepository;
+import com.smartwatts.deviceservice.mapper.DeviceMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.BeanUtils;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -48,8 +48,7 @@ public class DeviceService {
             throw new RuntimeException("Device already registered for this user");
         }
         
-        Device device = new Device();
-        BeanUtils.copyProperties(deviceDto, device);
+        Device device = DeviceMapper.INSTANCE.toEntity(deviceDto);
         
         // Set default values
         if (device.getStatus() == null) {
@@ -242,8 +241,7 @@ public class DeviceService {
     public DeviceConfigurationDto saveDeviceConfiguration(DeviceConfigurationDto configDto) {
         log.info("Saving device configuration for device: {}, key: {}", configDto.getDeviceId(), configDto.getConfigKey());
         
-        DeviceConfiguration config = new DeviceConfiguration();
-        BeanUtils.copyProperties(configDto, config);
+        DeviceConfiguration config = DeviceMapper.INSTANCE.toEntity(configDto);
         
         config.setLastUpdated(LocalDateTime.now());
         
@@ -294,21 +292,15 @@ public class DeviceService {
     }
     
     private DeviceDto convertToDto(Device device) {
-        DeviceDto dto = new DeviceDto();
-        BeanUtils.copyProperties(device, dto);
-        return dto;
+        return DeviceMapper.INSTANCE.toDto(device);
     }
     
     private DeviceConfigurationDto convertToDto(DeviceConfiguration config) {
-        DeviceConfigurationDto dto = new DeviceConfigurationDto();
-        BeanUtils.copyProperties(config, dto);
-        return dto;
+        return DeviceMapper.INSTANCE.toDto(config);
     }
     
     private DeviceEventDto convertToDto(DeviceEvent event) {
-        DeviceEventDto dto = new DeviceEventDto();
-        BeanUtils.copyProperties(event, dto);
-        return dto;
+        return DeviceMapper.INSTANCE.toDto(event);
     }
 
     /**
@@ -0,0 +1,72 @@
+package com.smartwatts.deviceservice.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.UUID;
+
+/**
+ * Tells energy-service to drop its cached verification decision for a device
+ * whenever the device's verification status or auth secret changes.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DeviceVerificationChangeNotifier {
+
+    static final String SERVICE_TOKEN_HEADER = "X-Service-Token";
+
+    private final RestTemplate restTemplate;
+
+    @Value("${smartwatts.energy-service.url:http://energy-service:8082}")
+    private String energyServiceUrl;
+
+    @Value("${smartwatts.security.device-verification.cache-invalidation.enabled:true}")
+    private boolean invalidationEnabled;
+
+    // Authenticates the invalidation, which energy-service only accepts from services and admins
+    @Value("${smartwatts.security.service-token:}")
+    private String serviceToken;
+
+    /**
+     * Notify energy-service that a device's verification changed.
+     * When called inside a transaction the notification is sent after commit, so energy-service
+     * never re-reads the old status and caches it again.
+     */
+    public void verificationChanged(UUID deviceId) {
+        if (!invalidationEnabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    sendInvalidation(deviceId);
+                }
+            });
+        } else {
+            sendInvalidation(deviceId);
+        }
+    }
+
+    private void sendInvalidation(UUID deviceId) {
+        try {
+            String url = energyServiceUrl + "/api/v1/energy/device-verification/" + deviceId + "/invalidate";
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(SERVICE_TOKEN_HEADER, serviceToken);
+            restTemplate.exchange(url, HttpMethod.POST, new HttpEntity<>(headers), Void.class);
+            log.debug("Invalidated energy-service verification cache for device {}", deviceId);
+        } catch (Exception e) {
+            // Energy-service entries expire on their own TTL, so a missed invalidation only delays the change
+            log.warn("Failed to invalidate energy-service verification cache for device {}: {}", deviceId, e.getMessage());
+        }
+    }
+}
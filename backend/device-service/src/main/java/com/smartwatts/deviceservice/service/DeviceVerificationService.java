@@ -1,5 +1,7 @@
 package com.smartwatts.deviceservice.service;
 
+import com.smartwatts.deviceservice.config.GatewayKeys;
+import com.smartwatts.deviceservice.dto.DeviceTrustDto;
 import com.smartwatts.deviceservice.model.Device;
 import com.smartwatts.deviceservice.repository.DeviceRepository;
 import lombok.RequiredArgsConstructor;
@@ -7,10 +9,16 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.time.LocalDateTime;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -19,6 +27,8 @@ public class DeviceVerificationService {
 
     private final DeviceRepository deviceRepository;
     private final DeviceEventService eventService;
+    private final DeviceVerificationChangeNotifier verificationChangeNotifier;
+    private final GatewayKeys gatewayKeys;
 
     /**
      * Submit a device for verification
@@ -89,6 +99,7 @@ public class DeviceVerificationService {
                 "Device verification approved" : "Device verification rejected";
         
         eventService.logDeviceVerificationEvent(deviceId, status, eventMessage);
+        verificationChangeNotifier.verificationChanged(deviceId);
         
         return savedDevice;
     }
@@ -152,6 +163,49 @@ public class DeviceVerificationService {
         return false;
     }
 
+    /**
+     * Verification state of all devices, or of those changed after {@code since}, for an edge gateway
+     * that verifies messages against a local trust store. Auth secrets are only sent as HMAC-SHA256
+     * under the gateway's own key, so one gateway's snapshot is no use for another. Owners are
+     * included because the gateway attaches them to the readings it uplinks.
+     */
+    @Transactional(readOnly = true)
+    public List<DeviceTrustDto> getTrustSnapshot(LocalDateTime since, String gatewayId) {
+        String gatewayKey = gatewayKeys.keyOf(gatewayId);
+        if (gatewayKey == null) {
+            throw new IllegalArgumentException("Unknown gateway: " + gatewayId);
+        }
+        List<Device> devices = since == null ? deviceRepository.findAll() : deviceRepository.findUpdatedSince(since);
+        return devices.stream()
+                .map(device -> DeviceTrustDto.builder()
+                        .id(device.getId())
+                        .deviceId(device.getDeviceId())
+                        .userId(device.getUserId())
+                        .canSendData(Boolean.TRUE.equals(device.getIsVerified())
+                                && device.getVerificationStatus() == Device.VerificationStatus.APPROVED)
+                        .verified(Boolean.TRUE.equals(device.getIsVerified()))
+                        .authSecretMac(macAuthSecret(device.getDeviceAuthSecret(), gatewayKey))
+                        .updatedAt(device.getUpdatedAt())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Hex HMAC-SHA256 of an auth secret under a gateway key, as compared by that gateway
+     */
+    static String macAuthSecret(String authSecret, String gatewayKey) {
+        if (authSecret == null || authSecret.isEmpty()) {
+            return null;
+        }
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(gatewayKey.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return HexFormat.of().formatHex(mac.doFinal(authSecret.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+
     /**
      * Generate unique device auth secret
      */
@@ -170,7 +224,9 @@ public class DeviceVerificationService {
         device.setVerificationStatus(Device.VerificationStatus.UNDER_REVIEW);
         device.setVerificationReviewer(reviewerId);
         
-        return deviceRepository.save(device);
+        Device savedDevice = deviceRepository.save(device);
+        verificationChangeNotifier.verificationChanged(deviceId);
+        return savedDevice;
     }
 
     /**
@@ -196,6 +252,7 @@ public class DeviceVerificationService {
         String authSecret = generateDeviceAuthSecret();
         device.setDeviceAuthSecret(authSecret);
         deviceRepository.save(device);
+        verificationChangeNotifier.verificationChanged(deviceId);
         
         return authSecret;
     }
@@ -0,0 +1,83 @@
+package com.smartwatts.deviceservice.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GatewayAuthenticationFilterTest {
+
+    private GatewayAuthenticationFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        GatewayKeys gatewayKeys = new GatewayKeys();
+        gatewayKeys.setKeys(Map.of("gateway-1", "gateway-key-1"));
+        filter = new GatewayAuthenticationFilter(gatewayKeys);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void doFilter_ValidKey_AuthenticatesAsGateway() throws Exception {
+        // Given
+        MockHttpServletRequest request = gatewayRequest("gateway-1", "gateway-key-1");
+        MockFilterChain chain = new MockFilterChain();
+
+        // When
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        // Then
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertEquals("gateway-1", authentication.getName());
+        assertTrue(authentication.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_GATEWAY")));
+        assertNotNull(chain.getRequest());
+    }
+
+    @Test
+    void doFilter_WrongKey_RejectsRequest() throws Exception {
+        // Given
+        MockHttpServletRequest request = gatewayRequest("gateway-1", "gateway-key-2");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        // When
+        filter.doFilter(request, response, chain);
+
+        // Then
+        assertEquals(401, response.getStatus());
+        assertNull(chain.getRequest());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    @Test
+    void doFilter_NoGatewayHeaders_LeavesRequestToJwtFilter() throws Exception {
+        // Given
+        MockFilterChain chain = new MockFilterChain();
+
+        // When
+        filter.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(), chain);
+
+        // Then
+        assertNotNull(chain.getRequest());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    private static MockHttpServletRequest gatewayRequest(String gatewayId, String gatewayKey) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/device-verification/trust-snapshot");
+        request.addHeader(GatewayAuthenticationFilter.GATEWAY_ID_HEADER, gatewayId);
+        request.addHeader(GatewayAuthenticationFilter.GATEWAY_KEY_HEADER, gatewayKey);
+        return request;
+    }
+}
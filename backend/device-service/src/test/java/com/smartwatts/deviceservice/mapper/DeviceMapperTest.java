@@ -0,0 +1,54 @@
+package com.smartwatts.deviceservice.mapper;
+
+import com.smartwatts.deviceservice.dto.DeviceDto;
+import com.smartwatts.deviceservice.model.Device;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeviceMapperTest {
+
+    private final DeviceMapper mapper = DeviceMapper.INSTANCE;
+
+    @Test
+    void toDto_ExposesTrustLevelAndVerificationStatus() {
+        // Given
+        Device device = new Device();
+        device.setId(UUID.randomUUID());
+        device.setDeviceId("SMART-METER-001");
+        device.setDeviceType(Device.DeviceType.SMART_METER);
+        device.setTrustLevel(Device.TrustLevel.OEM_LOCKED);
+        device.setVerificationStatus(Device.VerificationStatus.APPROVED);
+
+        // When
+        DeviceDto dto = mapper.toDto(device);
+
+        // Then
+        assertEquals(device.getId(), dto.getId());
+        assertEquals("SMART-METER-001", dto.getDeviceId());
+        assertEquals(Device.DeviceType.SMART_METER, dto.getDeviceType());
+        assertEquals("OEM_LOCKED", dto.getTrustLevel());
+        assertEquals("APPROVED", dto.getVerificationStatus());
+    }
+
+    @Test
+    void toEntity_IgnoresClientSuppliedTrustFields() {
+        // Given
+        DeviceDto deviceDto = DeviceDto.builder()
+                .deviceId("SMART-METER-001")
+                .deviceType(Device.DeviceType.SMART_METER)
+                .trustLevel("OEM_LOCKED")
+                .verificationStatus("APPROVED")
+                .build();
+
+        // When
+        Device device = mapper.toEntity(deviceDto);
+
+        // Then
+        assertEquals("SMART-METER-001", device.getDeviceId());
+        assertEquals(Device.TrustLevel.UNVERIFIED, device.getTrustLevel());
+        assertEquals(Device.VerificationStatus.PENDING, device.getVerificationStatus());
+    }
+}
@@ -1,5 +1,7 @@
 package com.smartwatts.deviceservice.service;
 
+import com.smartwatts.deviceservice.config.GatewayKeys;
+import com.smartwatts.deviceservice.dto.DeviceTrustDto;
 import com.smartwatts.deviceservice.model.Device;
 import com.smartwatts.deviceservice.repository.DeviceRepository;
 
@@ -10,7 +12,12 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -27,6 +34,12 @@ class DeviceVerificationServiceTest {
     @Mock
     private DeviceEventService eventService;
 
+    @Mock
+    private DeviceVerificationChangeNotifier verificationChangeNotifier;
+
+    @Mock
+    private GatewayKeys gatewayKeys;
+
     @InjectMocks
     private DeviceVerificationService deviceVerificationService;
 
@@ -259,4 +272,52 @@ class DeviceVerificationServiceTest {
         assertEquals(32, secret1.length());
         assertEquals(32, secret2.length());
     }
+
+    @Test
+    void getTrustSnapshot_ChangedDevices_ReturnsSecretsMacedUnderGatewayKey() throws Exception {
+        // Given
+        LocalDateTime since = LocalDateTime.now().minusMinutes(5);
+        testDevice.setIsVerified(true);
+        testDevice.setVerificationStatus(Device.VerificationStatus.APPROVED);
+        testDevice.setDeviceAuthSecret("SW_0123456789abcdef");
+        when(gatewayKeys.keyOf("gateway-1")).thenReturn("gateway-key-1");
+        when(deviceRepository.findUpdatedSince(since)).thenReturn(List.of(testDevice));
+
+        // When
+        List<DeviceTrustDto> snapshot = deviceVerificationService.getTrustSnapshot(since, "gateway-1");
+
+        // Then
+        assertEquals(1, snapshot.size());
+        DeviceTrustDto trust = snapshot.get(0);
+        assertEquals(deviceId, trust.getId());
+        assertEquals("TEST_DEVICE_001", trust.getDeviceId());
+        assertEquals(userId, trust.getUserId());
+        assertTrue(trust.isCanSendData());
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec("gateway-key-1".getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        assertEquals(HexFormat.of().formatHex(mac.doFinal("SW_0123456789abcdef".getBytes(StandardCharsets.UTF_8))),
+                trust.getAuthSecretMac());
+        verify(deviceRepository, never()).findAll();
+    }
+
+    @Test
+    void getTrustSnapshot_Full_UnverifiedDeviceCannotSend() {
+        // Given
+        when(gatewayKeys.keyOf("gateway-1")).thenReturn("gateway-key-1");
+        when(deviceRepository.findAll()).thenReturn(List.of(testDevice));
+
+        // When
+        List<DeviceTrustDto> snapshot = deviceVerificationService.getTrustSnapshot(null, "gateway-1");
+
+        // Then
+        assertFalse(snapshot.get(0).isCanSendData());
+        assertNull(snapshot.get(0).getAuthSecretMac());
+    }
+
+    @Test
+    void getTrustSnapshot_UnknownGateway_ThrowsException() {
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> deviceVerificationService.getTrustSnapshot(null, "gateway-2"));
+        verifyNoInteractions(deviceRepository);
+    }
 }
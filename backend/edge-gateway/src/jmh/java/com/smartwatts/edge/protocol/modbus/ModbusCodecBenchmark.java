@@ -0,0 +1,71 @@
+package com.smartwatts.edge.protocol.modbus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the table CRC against the bitwise loop it replaced, and measures request encoding and
+ * response decoding for a full 125-register read
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ModbusCodecBenchmark {
+
+    private static final int QUANTITY = ModbusCodec.MAX_READ_REGISTERS;
+
+    private final byte[] request = new byte[ModbusCodec.MAX_FRAME_BYTES];
+    private final byte[] response = new byte[ModbusCodec.responseLength(ModbusCodec.READ_HOLDING_REGISTERS, QUANTITY)];
+    private final int[] registers = new int[QUANTITY];
+
+    @Setup
+    public void setUp() {
+        response[0] = 1;
+        response[1] = ModbusCodec.READ_HOLDING_REGISTERS;
+        response[2] = (byte) (QUANTITY * 2);
+        for (int i = 0; i < QUANTITY * 2; i++) {
+            response[3 + i] = (byte) (i * 31);
+        }
+        Crc16.append(response, 0, response.length - 2);
+    }
+
+    @Benchmark
+    public int crcTable() {
+        return Crc16.compute(response, 0, response.length - 2);
+    }
+
+    @Benchmark
+    public int crcBitwise() {
+        int crc = 0xFFFF;
+        for (int i = 0; i < response.length - 2; i++) {
+            crc ^= (response[i] & 0xFF);
+            for (int j = 0; j < 8; j++) {
+                if ((crc & 0x0001) != 0) {
+                    crc = (crc >> 1) ^ 0xA001;
+                } else {
+                    crc = crc >> 1;
+                }
+            }
+        }
+        return crc;
+    }
+
+    @Benchmark
+    public int encodeRead() {
+        return ModbusCodec.encodeRead(request, 0, 1, ModbusCodec.READ_HOLDING_REGISTERS, 0, QUANTITY);
+    }
+
+    @Benchmark
+    public int[] decodeRegisters() throws ModbusException {
+        ModbusCodec.decodeRegisters(response, 0, response.length, 1, ModbusCodec.READ_HOLDING_REGISTERS,
+                QUANTITY, registers, 0);
+        return registers;
+    }
+}
@@ -12,8 +12,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Edge ML Controller for TensorFlow Lite Inference and ML Analytics
@@ -234,7 +236,8 @@ public class EdgeMLController {
     }
     
     /**
-     * Perform batch ML inference on multiple data points
+     * Perform batch ML inference on multiple data points. All data points are submitted before any
+     * result is awaited, so points for the same model run together in micro-batches.
      */
     @PostMapping("/inference/batch")
     public ResponseEntity<Map<String, Object>> performBatchInference(
@@ -251,11 +254,14 @@ public class EdgeMLController {
             Map<String, Object> results = new HashMap<>();
             results.put("timestamp", java.time.LocalDateTime.now());
             results.put("total_processed", batchData.size());
-            results.put("results", new HashMap<>());
+            Map<String, Object> resultsMap = new HashMap<>();
+            results.put("results", resultsMap);
             
             int successCount = 0;
             int errorCount = 0;
             
+            // Submit every data point first
+            Map<String, CompletableFuture<Map<String, Object>>> submitted = new LinkedHashMap<>();
             for (int i = 0; i < batchData.size(); i++) {
                 Map<String, Object> dataPoint = batchData.get(i);
                 String dataId = (String) dataPoint.getOrDefault("id", "data_" + i);
@@ -263,7 +269,6 @@ public class EdgeMLController {
                 try {
                     // Process based on type
                     String type = (String) dataPoint.get("type");
-                    Map<String, Object> result = new HashMap<>();
                     
                     switch (type) {
                         case "energy_forecast":
@@ -276,11 +281,14 @@ public class EdgeMLController {
                                     .mapToDouble(Double::doubleValue)
                                     .toArray();
                             
-                            EnergyPrediction prediction = tensorFlowLiteService.forecastEnergyConsumption(
-                                    historicalArray, factors != null ? factors : new HashMap<>());
-                            
-                            result.put("type", "energy_forecast");
-                            result.put("prediction", prediction);
+                            submitted.put(dataId, tensorFlowLiteService.forecastEnergyConsumptionAsync(
+                                    historicalArray, factors != null ? factors : new HashMap<>())
+                                    .thenApply(prediction -> {
+                                        Map<String, Object> result = new HashMap<>();
+                                        result.put("type", "energy_forecast");
+                                        result.put("prediction", prediction);
+                                        return result;
+                                    }));
                             break;
                             
                         case "anomaly_detection":
@@ -293,37 +301,45 @@ public class EdgeMLController {
                                     .mapToDouble(Double::doubleValue)
                                     .toArray();
                             
-                            AnomalyDetection anomaly = tensorFlowLiteService.detectAnomaly(
-                                    consumptionArray, context != null ? context : new HashMap<>());
-                            
-                            result.put("type", "anomaly_detection");
-                            result.put("anomaly", anomaly);
+                            submitted.put(dataId, tensorFlowLiteService.detectAnomalyAsync(
+                                    consumptionArray, context != null ? context : new HashMap<>())
+                                    .thenApply(anomaly -> {
+                                        Map<String, Object> result = new HashMap<>();
+                                        result.put("type", "anomaly_detection");
+                                        result.put("anomaly", anomaly);
+                                        return result;
+                                    }));
                             break;
                             
                         default:
+                            Map<String, Object> result = new HashMap<>();
                             result.put("error", "Unknown inference type: " + type);
+                            resultsMap.put(dataId, result);
                             errorCount++;
                             break;
                     }
                     
-                    if (!result.containsKey("error")) {
-                        successCount++;
-                    }
-                    
-                    @SuppressWarnings("unchecked")
-                    Map<String, Object> resultsMap = (Map<String, Object>) results.get("results");
-                    resultsMap.put(dataId, result);
-                    
                 } catch (Exception e) {
                     Map<String, Object> errorResult = new HashMap<>();
                     errorResult.put("error", e.getMessage());
-                    @SuppressWarnings("unchecked")
-                    Map<String, Object> resultsMap = (Map<String, Object>) results.get("results");
                     resultsMap.put(dataId, errorResult);
                     errorCount++;
                 }
             }
             
+            // Then collect the results as their batches complete
+            for (Map.Entry<String, CompletableFuture<Map<String, Object>>> entry : submitted.entrySet()) {
+                try {
+                    resultsMap.put(entry.getKey(), entry.getValue().join());
+                    successCount++;
+                } catch (Exception e) {
+                    Map<String, Object> errorResult = new HashMap<>();
+                    errorResult.put("error", e.getMessage());
+                    resultsMap.put(entry.getKey(), errorResult);
+                    errorCount++;
+                }
+            }
+            
             results.put("success_count", successCount);
             results.put("error_count", errorCount);
             
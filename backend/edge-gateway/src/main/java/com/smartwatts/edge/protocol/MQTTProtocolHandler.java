@@ -3,6 +3,7 @@ package com.smartwatts.edge.protocol;
 import com.smartwatts.edge.model.DeviceReading;
 import com.smartwatts.edge.model.DeviceCommand;
 import com.smartwatts.edge.service.EdgeSecurityService;
+import com.smartwatts.edge.storage.TelemetryOutbox;
 import org.eclipse.paho.client.mqttv3.*;
 import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
 import org.slf4j.Logger;
@@ -13,7 +14,12 @@ import org.springframework.stereotype.Component;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
 @Component
@@ -39,12 +45,26 @@ public class MQTTProtocolHandler {
     private MqttClient mqttClient;
     private final ConcurrentHashMap<String, Consumer<DeviceReading>> deviceCallbacks = new ConcurrentHashMap<>();
     
+    private final ConcurrentHashMap<String, AtomicLong> decodeErrors = new ConcurrentHashMap<>();
+    
     // Security service for device validation
     private final EdgeSecurityService edgeSecurityService;
     
+    private final MqttPayloadDecoder payloadDecoder;
+    
+    // Workers that verify, decode and dispatch off the MQTT callback thread
+    private final MqttMessagePipeline messagePipeline;
+    
+    // Durable queue of accepted readings waiting to be uplinked
+    private final TelemetryOutbox telemetryOutbox;
+    
     @Autowired
-    public MQTTProtocolHandler(EdgeSecurityService edgeSecurityService) {
+    public MQTTProtocolHandler(EdgeSecurityService edgeSecurityService, MqttPayloadDecoder payloadDecoder,
+                               MqttMessagePipeline messagePipeline, TelemetryOutbox telemetryOutbox) {
         this.edgeSecurityService = edgeSecurityService;
+        this.payloadDecoder = payloadDecoder;
+        this.messagePipeline = messagePipeline;
+        this.telemetryOutbox = telemetryOutbox;
     }
     
     @PostConstruct
@@ -52,6 +72,9 @@ public class MQTTProtocolHandler {
         try {
             logger.info("Initializing MQTT protocol handler...");
             
+            // Start the workers before any message can arrive
+            messagePipeline.start(this::processMessage);
+            
             // Create MQTT client
             mqttClient = new MqttClient(brokerUrl, clientId, new MemoryPersistence());
             
@@ -120,30 +143,18 @@ public class MQTTProtocolHandler {
     }
     
     /**
-     * Handle incoming MQTT messages
+     * Handle incoming MQTT messages on the callback thread: only route them to a worker, so a slow
+     * device verification never stalls the connection
      */
     private void handleIncomingMessage(String topic, MqttMessage message) {
         try {
-            String payload = new String(message.getPayload());
-            logger.debug("Received MQTT message on topic {}: {}", topic, payload);
+            byte[] payload = message.getPayload();
+            logger.debug("Received MQTT message on topic {}: {} bytes", topic, payload.length);
             
             // Parse topic to extract device ID and message type
             String[] topicParts = topic.split("/");
             if (topicParts.length >= 4) {
-                String deviceId = topicParts[2];
-                String messageType = topicParts[3];
-                
-                switch (messageType) {
-                    case "data":
-                        handleDeviceData(deviceId, payload);
-                        break;
-                    case "status":
-                        handleDeviceStatus(deviceId, payload);
-                        break;
-                    case "alerts":
-                        handleDeviceAlert(deviceId, payload);
-                        break;
-                }
+                messagePipeline.submit(topicParts[2], topicParts[3], payload);
             }
             
         } catch (Exception e) {
@@ -151,10 +162,28 @@ public class MQTTProtocolHandler {
         }
     }
     
+    /**
+     * Process a queued message on its device's worker thread
+     */
+    private void processMessage(MqttMessagePipeline.InboundMessage message) {
+        String deviceId = message.deviceId();
+        switch (message.messageType()) {
+            case "data":
+                handleDeviceData(deviceId, message.payload());
+                break;
+            case "status":
+                handleDeviceStatus(deviceId, new String(message.payload(), StandardCharsets.UTF_8));
+                break;
+            case "alerts":
+                handleDeviceAlert(deviceId, new String(message.payload(), StandardCharsets.UTF_8));
+                break;
+        }
+    }
+    
     /**
      * Handle device data messages
      */
-    private void handleDeviceData(String deviceId, String payload) {
+    private void handleDeviceData(String deviceId, byte[] payload) {
         try {
             // Security validation: Check if device can send data
             if (!edgeSecurityService.canDeviceSendData(deviceId)) {
@@ -164,8 +193,20 @@ public class MQTTProtocolHandler {
                 return;
             }
             
-            // Extract and validate device auth secret if present
-            String authSecret = edgeSecurityService.extractDeviceAuthSecret(payload);
+            // Decode the reading and its auth secret in one pass over the payload bytes
+            MqttPayloadDecoder.DecodedReading decoded;
+            try {
+                decoded = payloadDecoder.decode(payload);
+            } catch (IOException e) {
+                decodeErrors.computeIfAbsent(deviceId, id -> new AtomicLong()).incrementAndGet();
+                logger.warn("Device {} sent an undecodable reading: {}", deviceId, e.getMessage());
+                edgeSecurityService.logSecurityEvent(deviceId, "MQTT_DATA_MALFORMED", 
+                    "Undecodable reading payload: " + e.getMessage(), false);
+                return;
+            }
+            
+            // Validate device auth secret if present
+            String authSecret = decoded.authSecret();
             if (authSecret != null && !edgeSecurityService.validateDeviceAuthSecret(deviceId, authSecret)) {
                 logger.warn("Device {} provided invalid auth secret - blocking message", deviceId);
                 edgeSecurityService.logSecurityEvent(deviceId, "MQTT_AUTH_FAILED", 
@@ -173,11 +214,14 @@ public class MQTTProtocolHandler {
                 return;
             }
             
-            // Parse device reading from JSON payload
-            // This would use Jackson ObjectMapper in production
-            DeviceReading reading = parseDeviceReading(payload);
+            DeviceReading reading = decoded.reading();
             reading.setDeviceId(deviceId);
             
+            // Persist for uplink before anything else sees the reading
+            if (!telemetryOutbox.append(reading)) {
+                logger.warn("Telemetry outbox full, reading from {} will not be uplinked", deviceId);
+            }
+            
             // Notify registered callbacks
             Consumer<DeviceReading> callback = deviceCallbacks.get(deviceId);
             if (callback != null) {
@@ -281,6 +325,22 @@ public class MQTTProtocolHandler {
         return mqttClient != null && mqttClient.isConnected();
     }
     
+    /**
+     * Number of undecodable reading payloads per device since startup
+     */
+    public Map<String, Long> getDecodeErrors() {
+        Map<String, Long> errors = new TreeMap<>();
+        decodeErrors.forEach((deviceId, count) -> errors.put(deviceId, count.get()));
+        return errors;
+    }
+    
+    /**
+     * Queue depths, drops and lag of the processing pipeline
+     */
+    public Map<String, Object> getPipelineStats() {
+        return messagePipeline.getStats();
+    }
+    
     /**
      * Get connection statistics
      */
@@ -300,20 +360,6 @@ public class MQTTProtocolHandler {
         }
     }
     
-    /**
-     * Parse device reading from JSON (simplified for demo)
-     */
-    private DeviceReading parseDeviceReading(String payload) {
-        // In production, use Jackson ObjectMapper
-        DeviceReading reading = new DeviceReading();
-        reading.setTimestamp(java.time.LocalDateTime.now());
-        reading.setEnergyConsumption(Math.random() * 100); // Demo value
-        reading.setVoltage(240.0);
-        reading.setCurrent(50.0);
-        reading.setPowerFactor(0.95);
-        return reading;
-    }
-    
     /**
      * Serialize command to JSON (simplified for demo)
      */
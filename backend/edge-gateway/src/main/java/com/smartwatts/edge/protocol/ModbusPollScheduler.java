@@ -0,0 +1,448 @@
+package com.smartwatts.edge.protocol;
+
+import com.smartwatts.edge.protocol.modbus.RtuFrameAssembler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Polls Modbus devices according to their bus topology.
+ *
+ * Every bus (one RS485 serial port, or one Modbus TCP endpoint) gets its own lane: a thread that
+ * owns the bus and talks to one device at a time. Lanes run in parallel, so a slow serial line
+ * never delays another port or a TCP meter. Within a lane each device is polled at its own
+ * interval; when several polls are due at once the highest priority goes first. On serial lanes
+ * the Modbus RTU silent interval of 3.5 character times, derived from the baud rate, is kept
+ * between the end of one exchange and the start of the next; it follows the baud rate of the
+ * device that joined the bus last. One-off exchanges such as register writes are queued ahead of
+ * polls on the same lane. A lane whose last device is cancelled and that has no exchange pending is
+ * stopped and removed.
+ *
+ * The achieved poll period and the latency of each poll are published per bus as
+ * {@code smartwatts.edge.modbus.poll.*} histograms. They are not tagged by device, since a site
+ * with hundreds of meters would publish a histogram series set per meter.
+ */
+@Component
+public class ModbusPollScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModbusPollScheduler.class);
+
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentHashMap<String, Lane> lanes = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Lane> deviceLanes = new ConcurrentHashMap<>();
+    // Threads of retired lanes that may still be finishing a poll; a new lane on the bus waits for them
+    private final ConcurrentHashMap<String, Thread> retiringThreads = new ConcurrentHashMap<>();
+
+    private volatile DevicePoller poller;
+    private volatile boolean running = true;
+    private final Counter failures;
+    private final Counter overruns;
+
+    /**
+     * Performs one poll of a device on its bus lane
+     */
+    @FunctionalInterface
+    public interface DevicePoller {
+        void poll(String deviceId) throws Exception;
+    }
+
+    public ModbusPollScheduler(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.failures = Counter.builder("smartwatts.edge.modbus.poll.failures")
+                .description("Modbus polls that threw an exception")
+                .register(meterRegistry);
+        this.overruns = Counter.builder("smartwatts.edge.modbus.poll.overruns")
+                .description("Modbus polls that started a full interval or more behind schedule")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Set the poller and let lanes start polling. Devices scheduled earlier wait until this.
+     */
+    public void start(DevicePoller poller) {
+        this.poller = poller;
+        lanes.values().forEach(Lane::signal);
+    }
+
+    /**
+     * Silent interval to keep between RTU frames at the given baud rate
+     */
+    static long silentIntervalNanos(int baudRate) {
+        return RtuFrameAssembler.silentIntervalNanos(baudRate);
+    }
+
+    /**
+     * Poll a device on a bus, replacing any earlier schedule for it
+     *
+     * @param bus        lane key; devices sharing a key are never polled concurrently
+     * @param baudRate   serial baud rate, or 0 for Modbus TCP
+     * @param intervalMs time between polls of this device
+     * @param priority   higher values are polled first when several polls are due
+     */
+    public void schedule(String deviceId, String bus, int baudRate, long intervalMs, int priority) {
+        PollEntry entry = new PollEntry(deviceId, TimeUnit.MILLISECONDS.toNanos(Math.max(1, intervalMs)),
+                priority, System.nanoTime());
+        Lane previous = deviceLanes.remove(deviceId);
+        if (previous != null) {
+            previous.remove(deviceId);
+        }
+        // Added under the map's lock for the bus, so the lane cannot be retired in between
+        lanes.compute(bus, (key, lane) -> {
+            Lane target = lane != null ? lane : new Lane(key, baudRate, retiringThreads.remove(key));
+            target.add(entry, baudRate);
+            deviceLanes.put(deviceId, target);
+            return target;
+        });
+        if (previous != null && !previous.bus.equals(bus)) {
+            retireIfIdle(previous);
+        }
+        logger.debug("Scheduled Modbus device {} on {} every {} ms, priority {}", deviceId, bus, intervalMs, priority);
+    }
+
+    /**
+     * Stop polling a device
+     */
+    public void cancel(String deviceId) {
+        Lane lane = deviceLanes.remove(deviceId);
+        if (lane != null) {
+            lane.remove(deviceId);
+            retireIfIdle(lane);
+        }
+    }
+
+    /**
+     * Run a one-off exchange on a bus, ahead of any pending polls
+     */
+    public <T> CompletableFuture<T> submit(String bus, int baudRate, Callable<T> exchange) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        if (!running) {
+            result.completeExceptionally(new IllegalStateException("Modbus poll scheduler is shut down"));
+            return result;
+        }
+        Runnable task = () -> {
+            try {
+                result.complete(exchange.call());
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        };
+        lanes.compute(bus, (key, lane) -> {
+            Lane target = lane != null ? lane : new Lane(key, baudRate, retiringThreads.remove(key));
+            target.execute(task);
+            return target;
+        });
+        return result;
+    }
+
+    /**
+     * Stop and remove a lane that has no devices and no exchanges left
+     */
+    private void retireIfIdle(Lane lane) {
+        lanes.computeIfPresent(lane.bus, (key, current) -> {
+            if (current != lane || !lane.stopIfIdle()) {
+                return current;
+            }
+            retiringThreads.put(key, lane.thread);
+            return null;
+        });
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        List<Map<String, Object>> busStats = new ArrayList<>();
+        lanes.values().forEach(lane -> busStats.add(lane.getStats()));
+        stats.put("buses", busStats);
+        stats.put("devices", deviceLanes.size());
+        stats.put("failures", (long) failures.count());
+        stats.put("overruns", (long) overruns.count());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        lanes.values().forEach(lane -> lane.thread.interrupt());
+        for (Lane lane : lanes.values()) {
+            try {
+                lane.thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    private static final class PollEntry {
+        private final String deviceId;
+        private final long intervalNanos;
+        private final int priority;
+        private long dueNanos;
+        private long lastStartNanos;
+        private volatile boolean cancelled;
+
+        private PollEntry(String deviceId, long intervalNanos, int priority, long dueNanos) {
+            this.deviceId = deviceId;
+            this.intervalNanos = intervalNanos;
+            this.priority = priority;
+            this.dueNanos = dueNanos;
+        }
+    }
+
+    private final class Lane implements Runnable {
+        private final String bus;
+        private volatile long silentIntervalNanos;
+        private final Thread thread;
+        private final Thread predecessor;
+        private final Timer cycle;
+        private final Timer latency;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition changed = lock.newCondition();
+        // Polls not yet due, earliest first
+        private final PriorityQueue<PollEntry> waiting =
+                new PriorityQueue<>(Comparator.comparingLong((PollEntry e) -> e.dueNanos));
+        // Polls already due, highest priority first, then oldest
+        private final PriorityQueue<PollEntry> ready = new PriorityQueue<>(
+                Comparator.comparingInt((PollEntry e) -> -e.priority).thenComparingLong(e -> e.dueNanos));
+        private final Map<String, PollEntry> entries = new LinkedHashMap<>();
+        private final Queue<Runnable> exchanges = new ArrayDeque<>();
+        private long lastFrameEndNanos;
+        private volatile long polls;
+        private boolean retired;
+
+        private Lane(String bus, int baudRate, Thread predecessor) {
+            this.bus = bus;
+            this.predecessor = predecessor;
+            this.silentIntervalNanos = silentIntervalNanos(baudRate);
+            this.cycle = Timer.builder("smartwatts.edge.modbus.poll.cycle")
+                    .description("Achieved time between successive polls of the same device")
+                    .tag("bus", bus)
+                    .publishPercentileHistogram()
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry);
+            this.latency = Timer.builder("smartwatts.edge.modbus.poll.latency")
+                    .description("Time to poll one Modbus device, from request to decoded response")
+                    .tag("bus", bus)
+                    .publishPercentileHistogram()
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry);
+            this.thread = new Thread(this, "modbus-bus-" + bus);
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        private void add(PollEntry entry, int baudRate) {
+            lock.lock();
+            try {
+                silentIntervalNanos = silentIntervalNanos(baudRate);
+                entries.put(entry.deviceId, entry);
+                waiting.add(entry);
+                changed.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void remove(String deviceId) {
+            lock.lock();
+            try {
+                PollEntry entry = entries.remove(deviceId);
+                if (entry != null) {
+                    // A poll in flight sees the flag and is not rescheduled
+                    entry.cancelled = true;
+                    waiting.remove(entry);
+                    ready.remove(entry);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void execute(Runnable exchange) {
+            lock.lock();
+            try {
+                exchanges.add(exchange);
+                changed.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Stop the lane thread if nothing is left to do; a poll or exchange in flight completes first
+         */
+        private boolean stopIfIdle() {
+            lock.lock();
+            try {
+                if (!entries.isEmpty() || !exchanges.isEmpty()) {
+                    return false;
+                }
+                retired = true;
+                changed.signal();
+            } finally {
+                lock.unlock();
+            }
+            meterRegistry.remove(cycle);
+            meterRegistry.remove(latency);
+            logger.debug("Retired idle Modbus lane {}", bus);
+            return true;
+        }
+
+        private void signal() {
+            lock.lock();
+            try {
+                changed.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void run() {
+            if (predecessor != null) {
+                try {
+                    predecessor.join();
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            while (running && !Thread.currentThread().isInterrupted()) {
+                Runnable exchange;
+                PollEntry entry;
+                lock.lock();
+                try {
+                    if (retired) {
+                        break;
+                    }
+                    exchange = exchanges.poll();
+                    entry = exchange == null ? nextDue() : null;
+                    if (exchange == null && entry == null) {
+                        continue;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } finally {
+                    lock.unlock();
+                }
+                awaitSilentInterval();
+                if (exchange != null) {
+                    exchange.run();
+                } else {
+                    poll(entry);
+                }
+                lastFrameEndNanos = System.nanoTime();
+                if (exchange != null) {
+                    // A lane opened only for exchanges is not kept once they are done
+                    retireIfIdle(this);
+                }
+            }
+            retiringThreads.remove(bus, thread);
+            logger.debug("Modbus lane {} stopped", bus);
+        }
+
+        /**
+         * Wait until a poll is due or an exchange arrives; called with the lock held
+         *
+         * @return the poll to run, or null if the caller should look again
+         */
+        private PollEntry nextDue() throws InterruptedException {
+            long now = System.nanoTime();
+            while (!waiting.isEmpty() && waiting.peek().dueNanos - now <= 0) {
+                ready.add(waiting.poll());
+            }
+            if (!ready.isEmpty() && poller != null) {
+                return ready.poll();
+            }
+            if (waiting.isEmpty() || poller == null) {
+                changed.await();
+            } else {
+                changed.awaitNanos(waiting.peek().dueNanos - now);
+            }
+            return null;
+        }
+
+        private void awaitSilentInterval() {
+            long interval = silentIntervalNanos;
+            long remaining = lastFrameEndNanos + interval - System.nanoTime();
+            while (interval > 0 && remaining > 0) {
+                LockSupport.parkNanos(remaining);
+                remaining = lastFrameEndNanos + interval - System.nanoTime();
+            }
+        }
+
+        private void poll(PollEntry entry) {
+            if (entry.cancelled) {
+                return;
+            }
+            long start = System.nanoTime();
+            if (entry.lastStartNanos != 0) {
+                cycle.record(start - entry.lastStartNanos, TimeUnit.NANOSECONDS);
+            }
+            if (start - entry.dueNanos >= entry.intervalNanos) {
+                overruns.increment();
+            }
+            entry.lastStartNanos = start;
+            try {
+                poller.poll(entry.deviceId);
+            } catch (Exception e) {
+                failures.increment();
+                logger.error("Failed to poll Modbus device {} on {}", entry.deviceId, bus, e);
+            } finally {
+                long end = System.nanoTime();
+                latency.record(end - start, TimeUnit.NANOSECONDS);
+                polls++;
+                // Keep the device's phase; a lane that fell behind polls once and does not catch up
+                entry.dueNanos += entry.intervalNanos;
+                if (entry.dueNanos - end < 0) {
+                    entry.dueNanos = end;
+                }
+                lock.lock();
+                try {
+                    if (!entry.cancelled) {
+                        waiting.add(entry);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        private Map<String, Object> getStats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("bus", bus);
+            stats.put("silentIntervalMicros", TimeUnit.NANOSECONDS.toMicros(silentIntervalNanos));
+            lock.lock();
+            try {
+                stats.put("devices", entries.size());
+                stats.put("due", ready.size());
+                stats.put("pendingExchanges", exchanges.size());
+            } finally {
+                lock.unlock();
+            }
+            stats.put("polls", polls);
+            stats.put("meanCycleMs", cycle.mean(TimeUnit.MILLISECONDS));
+            stats.put("maxCycleMs", cycle.max(TimeUnit.MILLISECONDS));
+            return stats;
+        }
+    }
+}
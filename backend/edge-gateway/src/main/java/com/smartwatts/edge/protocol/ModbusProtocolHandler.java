@@ -2,6 +2,11 @@ package com.smartwatts.edge.protocol;
 
 import com.smartwatts.edge.model.DeviceReading;
 import com.smartwatts.edge.model.DeviceCommand;
+import com.smartwatts.edge.protocol.modbus.ModbusCodec;
+import com.smartwatts.edge.protocol.modbus.ModbusException;
+import com.smartwatts.edge.protocol.modbus.ReadPlan;
+import com.smartwatts.edge.protocol.modbus.ReadPlanner;
+import com.smartwatts.edge.protocol.modbus.RegisterPoint;
 import com.smartwatts.edge.service.RS485SerialService;
 // Modbus dependencies will be available at runtime
 // import com.digitalpetri.modbus.master.ModbusTcpMaster;
@@ -19,16 +24,26 @@ import org.springframework.stereotype.Component;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Component
 public class ModbusProtocolHandler {
     
     private static final Logger logger = LoggerFactory.getLogger(ModbusProtocolHandler.class);
     
+    // Requests are encoded into a buffer per thread; lane threads live as long as the handler
+    private static final ThreadLocal<byte[]> REQUEST_BUFFER =
+            ThreadLocal.withInitial(() -> new byte[ModbusCodec.MAX_FRAME_BYTES]);
+    
     @Autowired(required = false)
     private RS485SerialService rs485Service;
     
@@ -47,15 +62,38 @@ public class ModbusProtocolHandler {
     @Value("${edge.modbus.slave.port:5020}")
     private int slavePort;
     
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+    @Value("${edge.modbus.polling.default-interval-ms:30000}")
+    private long defaultPollIntervalMs;
+    
+    @Value("${edge.modbus.rtu.response-timeout-ms:1000}")
+    private long rtuResponseTimeoutMs;
+    
+    @Value("${edge.modbus.planner.max-gap-registers:8}")
+    private int maxGapRegisters;
+    
+    // Per-bus lanes that serialize each serial port and poll buses in parallel
+    private final ModbusPollScheduler pollScheduler;
+    
     private final ConcurrentHashMap<String, ModbusDeviceConfig> deviceConfigs = new ConcurrentHashMap<>();
     
+    // Outstanding RTU request per serial port; the port's lane never has more than one
+    private final ConcurrentHashMap<String, PendingResponse> pendingResponses = new ConcurrentHashMap<>();
+    private final Set<String> listenedPorts = ConcurrentHashMap.newKeySet();
+    
+    // Read plans of devices with a register map, rebuilt when the device's register map changes
+    private final ConcurrentHashMap<String, PlannedDevice> readPlans = new ConcurrentHashMap<>();
+    
     // Modbus masters for different protocols (will be initialized at runtime)
     private Object tcpMaster;
     // Note: rtuMaster field reserved for future RTU master implementation
     @SuppressWarnings("unused")
     private Object rtuMaster;
     
+    @Autowired
+    public ModbusProtocolHandler(ModbusPollScheduler pollScheduler) {
+        this.pollScheduler = pollScheduler;
+    }
+    
     @PostConstruct
     public void initialize() {
         try {
@@ -69,8 +107,8 @@ public class ModbusProtocolHandler {
             // Initialize Modbus RTU master (RS485)
             initializeModbusRtuMaster();
             
-            // Schedule device polling
-            scheduleDevicePolling();
+            // Start polling registered devices on their bus lanes
+            pollScheduler.start(this::pollDevice);
             
             logger.info("Modbus protocol handler initialized successfully");
         } catch (Exception e) {
@@ -107,33 +145,28 @@ public class ModbusProtocolHandler {
     }
     
     /**
-     * Schedule periodic polling of Modbus devices
+     * Poll one registered Modbus device; runs on the lane of the device's bus
      */
-    private void scheduleDevicePolling() {
-        scheduler.scheduleAtFixedRate(() -> {
-            try {
-                pollAllDevices();
-            } catch (Exception e) {
-                logger.error("Error during device polling", e);
-            }
-        }, 10, 30, TimeUnit.SECONDS); // Start after 10s, poll every 30s
+    private void pollDevice(String deviceId) {
+        ModbusDeviceConfig config = deviceConfigs.get(deviceId);
+        if (config == null) {
+            return;
+        }
+        DeviceReading reading = readDeviceData(deviceId, config);
+        if (reading != null) {
+            // Process the reading (would integrate with device service)
+            logger.debug("Polled device {}: {} kWh", deviceId, reading.getEnergyConsumption());
+        }
     }
     
     /**
-     * Poll all registered Modbus devices
+     * Lane key of the bus a device sits on: its serial port, or its TCP endpoint
      */
-    private void pollAllDevices() {
-        deviceConfigs.forEach((deviceId, config) -> {
-            try {
-                DeviceReading reading = readDeviceData(deviceId, config);
-                if (reading != null) {
-                    // Process the reading (would integrate with device service)
-                    logger.debug("Polled device {}: {} kWh", deviceId, reading.getEnergyConsumption());
-                }
-            } catch (Exception e) {
-                logger.error("Failed to poll device {}", deviceId, e);
-            }
-        });
+    static String busKey(ModbusDeviceConfig config) {
+        if (config.isRtuMode()) {
+            return "rtu:" + config.getSerialPort();
+        }
+        return "tcp:" + config.getHost() + ":" + config.getPort();
     }
     
     /**
@@ -141,17 +174,12 @@ public class ModbusProtocolHandler {
      */
     public DeviceReading readDeviceData(String deviceId, ModbusDeviceConfig config) {
         try {
-            int[] registers = null;
-            
-            // Determine communication method based on device configuration
-            if (config.isRtuMode()) {
-                // Use RS485 serial communication for RTU mode
-                registers = readModbusRTUData(deviceId, config);
-            } else {
-                // Use TCP communication
-                registers = readModbusTcpData(deviceId, config);
+            if (!config.getRegisters().isEmpty()) {
+                return readPlannedData(deviceId, config);
             }
             
+            int[] registers = readRegisters(deviceId, config, 3, config.getStartAddress(), config.getRegisterCount());
+            
             if (registers != null && registers.length > 0) {
                 return parseModbusResponse(deviceId, registers, config);
             }
@@ -165,178 +193,142 @@ public class ModbusProtocolHandler {
     }
     
     /**
-     * Read data using Modbus RTU over RS485
+     * Read a device's register map with the fewest requests and decode it into a reading
      */
-    private int[] readModbusRTUData(String deviceId, ModbusDeviceConfig config) {
-        try {
-            // REAL Modbus RTU communication
-            byte[] request = createModbusRTURequest(
-                config.getUnitId(), 
-                3, // Read Holding Registers
-                config.getStartAddress(), 
-                config.getRegisterCount()
-            );
-            
-            // Send request via RS485
-            if (rs485Service == null) {
-                logger.warn("RS485 service not available, cannot send Modbus RTU request to device {}", deviceId);
-                return null;
-            }
-            boolean success = rs485Service.sendDataToDevice(deviceId, request);
-            if (!success) {
-                logger.warn("Failed to send Modbus RTU request to device {}", deviceId);
-                return null;
-            }
-            
-            // Wait for response
-            Thread.sleep(200);
-            
-            // Read response
-            byte[] response = readModbusRTUResponse(deviceId, config);
-            if (response != null && response.length > 0) {
-                return parseModbusRTUResponse(response, config.getRegisterCount());
-            }
-            
-            return null;
-        } catch (Exception e) {
-            logger.error("Failed to read Modbus RTU data for device {}", deviceId, e);
+    private DeviceReading readPlannedData(String deviceId, ModbusDeviceConfig config) {
+        ReadPlan plan = getReadPlan(deviceId, config);
+        int[][] blocks = new int[plan.getBlockCount()][];
+        boolean anyRead = false;
+        for (int block = 0; block < blocks.length; block++) {
+            blocks[block] = readRegisters(deviceId, config, plan.getFunctionCode(block),
+                    plan.getStartAddress(block), plan.getRegisterCount(block));
+            anyRead |= blocks[block] != null;
+        }
+        if (!anyRead) {
             return null;
         }
-    }
-    
-    /**
-     * Create Modbus RTU request
-     */
-    private byte[] createModbusRTURequest(int unitId, int functionCode, int startAddress, int quantity) {
-        byte[] request = new byte[8];
-        request[0] = (byte) unitId;
-        request[1] = (byte) functionCode;
-        request[2] = (byte) (startAddress >> 8);
-        request[3] = (byte) (startAddress & 0xFF);
-        request[4] = (byte) (quantity >> 8);
-        request[5] = (byte) (quantity & 0xFF);
         
-        // Calculate CRC
-        int crc = calculateCRC16(request, 0, 6);
-        request[6] = (byte) (crc & 0xFF);
-        request[7] = (byte) (crc >> 8);
-        
-        return request;
+        DeviceReading reading = new DeviceReading();
+        reading.setDeviceId(deviceId);
+        reading.setTimestamp(java.time.LocalDateTime.now());
+        plan.decode(blocks, reading);
+        return reading;
     }
     
     /**
-     * Read Modbus RTU response
+     * Read plan for a device, planned again only when its register map differs from the one the
+     * plan was made for, whether the config was replaced or its registers were changed in place
      */
-    private byte[] readModbusRTUResponse(String deviceId, ModbusDeviceConfig config) {
-        try {
-            // This would read from the RS485 service's response buffer
-            // For now, we'll simulate a response
-            return simulateModbusRTUResponse(config);
-        } catch (Exception e) {
-            logger.error("Failed to read Modbus RTU response from device {}", deviceId, e);
-            return null;
+    private ReadPlan getReadPlan(String deviceId, ModbusDeviceConfig config) {
+        PlannedDevice planned = readPlans.get(deviceId);
+        List<RegisterPoint> registers = config.getRegisters();
+        if (planned == null || !planned.registers().equals(registers)) {
+            planned = new PlannedDevice(List.copyOf(registers), ReadPlanner.plan(registers, maxGapRegisters));
+            readPlans.put(deviceId, planned);
+            logger.info("Planned {} register values of Modbus device {} into {} requests, {} bus characters per poll instead of {}",
+                    config.getRegisters().size(), deviceId, planned.plan().getBlockCount(),
+                    planned.plan().getBusCharacters(), planned.plan().getUnplannedBusCharacters());
         }
+        return planned.plan();
     }
     
     /**
-     * Simulate Modbus RTU response (in production, this would be real data)
+     * Read a block of registers over the device's transport
      */
-    private byte[] simulateModbusRTUResponse(ModbusDeviceConfig config) {
-        int byteCount = config.getRegisterCount() * 2;
-        byte[] response = new byte[5 + byteCount + 2]; // Unit ID + Function Code + Byte Count + Data + CRC
-        
-        response[0] = (byte) config.getUnitId();
-        response[1] = 3; // Function Code
-        response[2] = (byte) byteCount;
-        
-        // Generate mock register data
-        for (int i = 0; i < config.getRegisterCount(); i++) {
-            int value = (int) (Math.random() * 1000);
-            response[3 + i * 2] = (byte) (value >> 8);
-            response[4 + i * 2] = (byte) (value & 0xFF);
+    private int[] readRegisters(String deviceId, ModbusDeviceConfig config, int functionCode, int startAddress,
+                                int quantity) {
+        if (config.isRtuMode()) {
+            // Use RS485 serial communication for RTU mode
+            return readModbusRTUData(deviceId, config, functionCode, startAddress, quantity);
         }
-        
-        // Calculate CRC
-        int crc = calculateCRC16(response, 0, response.length - 2);
-        response[response.length - 2] = (byte) (crc & 0xFF);
-        response[response.length - 1] = (byte) (crc >> 8);
-        
-        return response;
+        // Use TCP communication
+        return readModbusTcpData(deviceId, quantity);
     }
     
     /**
-     * Parse Modbus RTU response
+     * Read data using Modbus RTU over RS485
      */
-    private int[] parseModbusRTUResponse(byte[] response, int expectedRegisters) {
+    private int[] readModbusRTUData(String deviceId, ModbusDeviceConfig config, int functionCode, int startAddress,
+                                    int quantity) {
         try {
-            if (response.length < 5) {
-                logger.warn("Invalid Modbus RTU response: too short");
-                return null;
-            }
-            
-            // Validate response
-            int functionCode = response[1] & 0xFF;
-            int byteCount = response[2] & 0xFF;
-            
-            if (functionCode != 3) {
-                logger.warn("Invalid Modbus RTU response: wrong function code {}", functionCode);
+            // Send request via RS485
+            if (rs485Service == null) {
+                logger.warn("RS485 service not available, cannot send Modbus RTU request to device {}", deviceId);
                 return null;
             }
             
-            if (byteCount != expectedRegisters * 2) {
-                logger.warn("Invalid Modbus RTU response: wrong byte count {}", byteCount);
-                return null;
+            // REAL Modbus RTU communication
+            byte[] request = REQUEST_BUFFER.get();
+            int length = ModbusCodec.encodeRead(request, 0, config.getUnitId(), functionCode, startAddress, quantity);
+            byte[] response = exchangeRTU(deviceId, config, request, length);
+            if (response != null && response.length > 0) {
+                int[] registers = new int[quantity];
+                ModbusCodec.decodeRegisters(response, 0, response.length, config.getUnitId(), functionCode,
+                        quantity, registers, 0);
+                return registers;
             }
             
-            // Validate CRC
-            int crc = calculateCRC16(response, 0, response.length - 2);
-            int receivedCRC = ((response[response.length - 2] & 0xFF) << 8) | (response[response.length - 1] & 0xFF);
-            
-            if (crc != receivedCRC) {
-                logger.warn("Invalid Modbus RTU response: CRC mismatch");
+            return null;
+        } catch (ModbusException e) {
+            logger.warn("Invalid Modbus RTU response from device {}: {}", deviceId, e.getMessage());
+            return null;
+        } catch (Exception e) {
+            logger.error("Failed to read Modbus RTU data for device {}", deviceId, e);
+            return null;
+        }
+    }
+    
+    /**
+     * Send an RTU request and wait for its response frame. The port's frame assembler hands over
+     * whole frames, so this completes as soon as the response is complete instead of after a fixed
+     * delay. Must run on the lane of the device's serial port, which keeps a single request
+     * outstanding per port.
+     */
+    private byte[] exchangeRTU(String deviceId, ModbusDeviceConfig config, byte[] request, int requestLength)
+            throws InterruptedException {
+        String port = config.getSerialPort();
+        if (port == null) {
+            logger.warn("No serial port configured for Modbus RTU device {}", deviceId);
+            return null;
+        }
+        listenOn(port);
+        PendingResponse pending = new PendingResponse(request[0] & 0xFF, request[1] & 0xFF, new CompletableFuture<>());
+        pendingResponses.put(port, pending);
+        try {
+            if (!rs485Service.sendDataToDevice(deviceId, request, requestLength)) {
+                logger.warn("Failed to send Modbus RTU request to device {}", deviceId);
                 return null;
             }
-            
-            // Parse register values
-            int[] registers = new int[expectedRegisters];
-            for (int i = 0; i < expectedRegisters; i++) {
-                int highByte = response[3 + i * 2] & 0xFF;
-                int lowByte = response[4 + i * 2] & 0xFF;
-                registers[i] = (highByte << 8) | lowByte;
-            }
-            
-            return registers;
-            
-        } catch (Exception e) {
-            logger.error("Failed to parse Modbus RTU response", e);
+            return pending.response().get(rtuResponseTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            logger.warn("No Modbus RTU response from device {} within {} ms", deviceId, rtuResponseTimeoutMs);
+            return null;
+        } catch (ExecutionException e) {
+            logger.error("Modbus RTU exchange with device {} failed", deviceId, e.getCause());
             return null;
+        } finally {
+            pendingResponses.remove(port, pending);
         }
     }
     
     /**
-     * Calculate CRC16 for Modbus RTU
+     * Route frames received on a serial port to the request they answer
      */
-    private int calculateCRC16(byte[] data, int offset, int length) {
-        int crc = 0xFFFF;
-        
-        for (int i = offset; i < offset + length; i++) {
-            crc ^= (data[i] & 0xFF);
-            for (int j = 0; j < 8; j++) {
-                if ((crc & 0x0001) != 0) {
-                    crc = (crc >> 1) ^ 0xA001;
-                } else {
-                    crc = crc >> 1;
+    private void listenOn(String port) {
+        if (listenedPorts.add(port)) {
+            rs485Service.registerDataCallback(port, frame -> {
+                PendingResponse pending = pendingResponses.get(port);
+                if (pending != null && pending.answeredBy(frame)) {
+                    pending.response().complete(frame);
                 }
-            }
+            });
         }
-        
-        return crc;
     }
     
     /**
      * Read data using Modbus TCP
      */
-    private int[] readModbusTcpData(String deviceId, ModbusDeviceConfig config) {
+    private int[] readModbusTcpData(String deviceId, int quantity) {
         try {
             if (tcpMaster == null) {
                 logger.warn("Modbus TCP master not available for device {}", deviceId);
@@ -344,9 +336,9 @@ public class ModbusProtocolHandler {
             }
             
             // Simulate TCP data reading for now
-            logger.debug("Simulating Modbus TCP read for device {}: {} registers", deviceId, config.getRegisterCount());
+            logger.debug("Simulating Modbus TCP read for device {}: {} registers", deviceId, quantity);
             
-            int[] registers = new int[config.getRegisterCount()];
+            int[] registers = new int[quantity];
             for (int i = 0; i < registers.length; i++) {
                 registers[i] = (int) (Math.random() * 1000); // Mock data
             }
@@ -366,32 +358,28 @@ public class ModbusProtocolHandler {
             ModbusDeviceConfig modbusConfig = (ModbusDeviceConfig) config;
             int controlValue = parseCommandToModbusValue(command);
             int controlAddress = modbusConfig.getControlAddress();
-            
-            // Create Modbus RTU write request
-            byte[] request = createModbusRTUWriteRequest(
-                modbusConfig.getUnitId(),
-                6, // Write Single Register
-                controlAddress,
-                controlValue
-            );
+            String busKey = busKey(modbusConfig);
             
             // Send request via RS485
             if (rs485Service == null) {
                 logger.warn("RS485 service not available, cannot send Modbus RTU write request to device {}", deviceId);
                 return false;
             }
-            boolean success = rs485Service.sendDataToDevice(deviceId, request);
-            if (!success) {
-                logger.warn("Failed to send Modbus RTU write request to device {}", deviceId);
-                return false;
-            }
             
-            // Wait for response
-            Thread.sleep(200);
+            // Writes share the bus with polls, so they run on its lane ahead of pending polls. The
+            // lane may first finish one poll in flight, hence twice the response timeout.
+            byte[] response = pollScheduler.submit(busKey, modbusConfig.getBaudRate(), () -> {
+                        // Create Modbus RTU write single register request
+                        byte[] request = REQUEST_BUFFER.get();
+                        int length = ModbusCodec.encodeWriteSingleRegister(request, 0, modbusConfig.getUnitId(),
+                                controlAddress, controlValue);
+                        return exchangeRTU(deviceId, modbusConfig, request, length);
+                    })
+                    .get(2 * rtuResponseTimeoutMs, TimeUnit.MILLISECONDS);
             
-            // Read and validate response
-            byte[] response = readModbusRTUResponse(deviceId, modbusConfig);
-            if (response != null && validateModbusWriteResponse(response, modbusConfig.getUnitId(), controlAddress, controlValue)) {
+            // Validate response
+            if (response != null && validateModbusWriteResponse(deviceId, response, modbusConfig.getUnitId(),
+                    controlAddress, controlValue)) {
                 logger.info("Command sent successfully to Modbus device {}: {}", deviceId, command.getCommand());
                 return true;
             } else {
@@ -405,75 +393,17 @@ public class ModbusProtocolHandler {
         }
     }
     
-    /**
-     * Create Modbus RTU write single register request
-     */
-    private byte[] createModbusRTUWriteRequest(int unitId, int functionCode, int address, int value) {
-        byte[] request = new byte[8];
-        request[0] = (byte) unitId;
-        request[1] = (byte) functionCode;
-        request[2] = (byte) (address >> 8);
-        request[3] = (byte) (address & 0xFF);
-        request[4] = (byte) (value >> 8);
-        request[5] = (byte) (value & 0xFF);
-        
-        // Calculate CRC
-        int crc = calculateCRC16(request, 0, 6);
-        request[6] = (byte) (crc & 0xFF);
-        request[7] = (byte) (crc >> 8);
-        
-        return request;
-    }
-    
     /**
      * Validate Modbus write response
      */
-    private boolean validateModbusWriteResponse(byte[] response, int expectedUnitId, int expectedAddress, int expectedValue) {
+    private boolean validateModbusWriteResponse(String deviceId, byte[] response, int expectedUnitId,
+                                                int expectedAddress, int expectedValue) {
         try {
-            if (response.length < 8) {
-                logger.warn("Invalid Modbus write response: too short");
-                return false;
-            }
-            
-            // Validate response
-            int unitId = response[0] & 0xFF;
-            int functionCode = response[1] & 0xFF;
-            int address = ((response[2] & 0xFF) << 8) | (response[3] & 0xFF);
-            int value = ((response[4] & 0xFF) << 8) | (response[5] & 0xFF);
-            
-            if (unitId != expectedUnitId) {
-                logger.warn("Invalid Modbus write response: wrong unit ID {}", unitId);
-                return false;
-            }
-            
-            if (functionCode != 6) {
-                logger.warn("Invalid Modbus write response: wrong function code {}", functionCode);
-                return false;
-            }
-            
-            if (address != expectedAddress) {
-                logger.warn("Invalid Modbus write response: wrong address {}", address);
-                return false;
-            }
-            
-            if (value != expectedValue) {
-                logger.warn("Invalid Modbus write response: wrong value {}", value);
-                return false;
-            }
-            
-            // Validate CRC
-            int crc = calculateCRC16(response, 0, response.length - 2);
-            int receivedCRC = ((response[response.length - 2] & 0xFF) << 8) | (response[response.length - 1] & 0xFF);
-            
-            if (crc != receivedCRC) {
-                logger.warn("Invalid Modbus write response: CRC mismatch");
-                return false;
-            }
-            
+            ModbusCodec.decodeWriteResponse(response, 0, response.length, expectedUnitId,
+                    ModbusCodec.WRITE_SINGLE_REGISTER, expectedAddress, expectedValue);
             return true;
-            
-        } catch (Exception e) {
-            logger.error("Failed to validate Modbus write response", e);
+        } catch (ModbusException e) {
+            logger.warn("Invalid Modbus write response from device {}: {}", deviceId, e.getMessage());
             return false;
         }
     }
@@ -483,6 +413,9 @@ public class ModbusProtocolHandler {
      */
     public void registerDevice(String deviceId, ModbusDeviceConfig config) {
         deviceConfigs.put(deviceId, config);
+        long interval = config.getPollIntervalMs() > 0 ? config.getPollIntervalMs() : defaultPollIntervalMs;
+        pollScheduler.schedule(deviceId, busKey(config), config.isRtuMode() ? config.getBaudRate() : 0,
+                interval, config.getPriority());
         logger.info("Registered Modbus device: {} at {}:{}", deviceId, config.getHost(), config.getPort());
     }
     
@@ -491,6 +424,8 @@ public class ModbusProtocolHandler {
      */
     public void unregisterDevice(String deviceId) {
         deviceConfigs.remove(deviceId);
+        readPlans.remove(deviceId);
+        pollScheduler.cancel(deviceId);
         logger.info("Unregistered Modbus device: {}", deviceId);
     }
     
@@ -563,16 +498,64 @@ public class ModbusProtocolHandler {
         return deviceConfigs;
     }
     
+    /**
+     * Per-bus polling statistics
+     */
+    public Map<String, Object> getPollingStats() {
+        return pollScheduler.getStats();
+    }
+    
+    /**
+     * Requests and bus time per poll of planned devices, against one request per register value
+     */
+    public Map<String, Object> getReadPlanStats() {
+        Map<String, Object> devices = new LinkedHashMap<>();
+        long busCharacters = 0;
+        long unplannedBusCharacters = 0;
+        for (Map.Entry<String, PlannedDevice> entry : readPlans.entrySet()) {
+            ReadPlan plan = entry.getValue().plan();
+            devices.put(entry.getKey(), plan.getStats());
+            busCharacters += plan.getBusCharacters();
+            unplannedBusCharacters += plan.getUnplannedBusCharacters();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("devices", devices);
+        stats.put("busCharactersPerCycle", busCharacters);
+        stats.put("unplannedBusCharactersPerCycle", unplannedBusCharacters);
+        stats.put("busTimeSavedPercent", unplannedBusCharacters == 0 ? 0.0
+                : 100.0 * (unplannedBusCharacters - busCharacters) / unplannedBusCharacters);
+        return stats;
+    }
+    
     @PreDestroy
     public void cleanup() {
         try {
-            scheduler.shutdown();
+            if (rs485Service != null) {
+                listenedPorts.forEach(rs485Service::unregisterDataCallback);
+            }
+            listenedPorts.clear();
             logger.info("Modbus protocol handler cleaned up");
         } catch (Exception e) {
             logger.error("Failed to cleanup Modbus protocol handler", e);
         }
     }
     
+    /**
+     * Read plan together with a copy of the register map it was planned from
+     */
+    private record PlannedDevice(List<RegisterPoint> registers, ReadPlan plan) {
+    }
+    
+    /**
+     * Outstanding RTU request, answered by the next frame from its unit with its function code or
+     * the exception variant of it
+     */
+    private record PendingResponse(int unitId, int functionCode, CompletableFuture<byte[]> response) {
+        private boolean answeredBy(byte[] frame) {
+            return frame.length >= 2 && (frame[0] & 0xFF) == unitId && (frame[1] & 0x7F) == functionCode;
+        }
+    }
+    
     /**
      * Configuration class for Modbus devices
      */
@@ -589,8 +572,16 @@ public class ModbusProtocolHandler {
         private String deviceType = "INVERTER";
         private String manufacturer = "UNKNOWN";
         private String model = "UNKNOWN";
+        private long pollIntervalMs = 0; // 0 uses edge.modbus.polling.default-interval-ms
+        private int priority = 0; // higher is polled first when polls are due together
+        // Values to read; when empty, registerCount registers from startAddress are read instead
+        private List<RegisterPoint> registers = new ArrayList<>();
         
         // Constructor, getters, and setters
+        // For JSON binding, e.g. POST /modbus/devices with a "registers" array
+        public ModbusDeviceConfig() {
+        }
+        
         public ModbusDeviceConfig(String host, int port, int unitId, int startAddress, int registerCount, int controlAddress) {
             this.host = host;
             this.port = port;
@@ -624,6 +615,9 @@ public class ModbusProtocolHandler {
         public String getDeviceType() { return deviceType; }
         public String getManufacturer() { return manufacturer; }
         public String getModel() { return model; }
+        public long getPollIntervalMs() { return pollIntervalMs; }
+        public int getPriority() { return priority; }
+        public List<RegisterPoint> getRegisters() { return registers; }
         
         // Setters
         public void setHost(String host) { this.host = host; }
@@ -638,5 +632,8 @@ public class ModbusProtocolHandler {
         public void setDeviceType(String deviceType) { this.deviceType = deviceType; }
         public void setManufacturer(String manufacturer) { this.manufacturer = manufacturer; }
         public void setModel(String model) { this.model = model; }
+        public void setPollIntervalMs(long pollIntervalMs) { this.pollIntervalMs = pollIntervalMs; }
+        public void setPriority(int priority) { this.priority = priority; }
+        public void setRegisters(List<RegisterPoint> registers) { this.registers = registers != null ? registers : new ArrayList<>(); }
     }
 }
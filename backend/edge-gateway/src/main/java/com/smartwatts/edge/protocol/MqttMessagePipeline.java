@@ -0,0 +1,196 @@
+package com.smartwatts.edge.protocol;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands MQTT messages from Paho's single callback thread to a pool of workers.
+ *
+ * Messages are sharded by device ID onto fixed-size ring buffers, each drained by one worker
+ * thread, so messages of one device are processed in arrival order while a device whose
+ * verification is slow only holds up its own shard. Enqueueing never blocks the callback: when a
+ * shard is full the incoming message is dropped and counted.
+ *
+ * Queue depth, drops and the lag from arrival to the end of processing are published as
+ * {@code smartwatts.edge.mqtt.*} metrics.
+ */
+@Component
+public class MqttMessagePipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(MqttMessagePipeline.class);
+
+    @Value("${edge.mqtt.pipeline.workers:4}")
+    private int workers;
+
+    @Value("${edge.mqtt.pipeline.queue-capacity:2048}")
+    private int queueCapacity;
+
+    private final MeterRegistry meterRegistry;
+
+    private volatile Shard[] shards = new Shard[0];
+    private Counter received;
+    private Counter dropped;
+    private Counter failed;
+    private Timer lag;
+
+    /**
+     * A message waiting for a worker
+     */
+    public record InboundMessage(String deviceId, String messageType, byte[] payload, long receivedNanos) {
+    }
+
+    /**
+     * Processes one message on a worker thread
+     */
+    @FunctionalInterface
+    public interface MessageHandler {
+        void handle(InboundMessage message) throws Exception;
+    }
+
+    public MqttMessagePipeline(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Start the workers. Messages submitted before this are rejected.
+     */
+    public synchronized void start(MessageHandler handler) {
+        if (shards.length > 0) {
+            return;
+        }
+        received = Counter.builder("smartwatts.edge.mqtt.received")
+                .description("MQTT messages accepted into the processing pipeline")
+                .register(meterRegistry);
+        dropped = Counter.builder("smartwatts.edge.mqtt.dropped")
+                .description("MQTT messages dropped because their shard's queue was full")
+                .register(meterRegistry);
+        failed = Counter.builder("smartwatts.edge.mqtt.failed")
+                .description("MQTT messages whose processing threw an exception")
+                .register(meterRegistry);
+        lag = Timer.builder("smartwatts.edge.mqtt.lag")
+                .description("Time from message arrival to the end of its processing")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Shard[] started = new Shard[Math.max(1, workers)];
+        for (int i = 0; i < started.length; i++) {
+            Shard shard = new Shard(i, handler);
+            Gauge.builder("smartwatts.edge.mqtt.queue.depth", shard.queue, BlockingQueue::size)
+                    .description("MQTT messages waiting for a worker")
+                    .tag("shard", String.valueOf(i))
+                    .register(meterRegistry);
+            started[i] = shard;
+            shard.thread.start();
+        }
+        shards = started;
+        logger.info("MQTT pipeline started with {} workers, {} messages per queue", started.length, queueCapacity);
+    }
+
+    /**
+     * Queue a message for its device's worker without blocking
+     *
+     * @return false if the message was dropped
+     */
+    public boolean submit(String deviceId, String messageType, byte[] payload) {
+        Shard[] current = shards;
+        if (current.length == 0) {
+            logger.warn("MQTT pipeline not running, dropping message from {}", deviceId);
+            return false;
+        }
+        Shard shard = current[Math.floorMod(deviceId.hashCode(), current.length)];
+        if (!shard.queue.offer(new InboundMessage(deviceId, messageType, payload, System.nanoTime()))) {
+            dropped.increment();
+            logger.debug("MQTT queue {} full, dropping {} message from {}", shard.index, messageType, deviceId);
+            return false;
+        }
+        received.increment();
+        return true;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        Shard[] current = shards;
+        List<Integer> depths = new ArrayList<>(current.length);
+        for (Shard shard : current) {
+            depths.add(shard.queue.size());
+        }
+        stats.put("workers", current.length);
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("queueDepths", depths);
+        if (received != null) {
+            stats.put("received", (long) received.count());
+            stats.put("dropped", (long) dropped.count());
+            stats.put("failed", (long) failed.count());
+            stats.put("meanLagMs", lag.mean(TimeUnit.MILLISECONDS));
+            stats.put("maxLagMs", lag.max(TimeUnit.MILLISECONDS));
+        }
+        return stats;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        Shard[] stopped = shards;
+        shards = new Shard[0];
+        for (Shard shard : stopped) {
+            shard.thread.interrupt();
+        }
+        for (Shard shard : stopped) {
+            try {
+                shard.thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    private final class Shard implements Runnable {
+        private final int index;
+        private final MessageHandler handler;
+        private final BlockingQueue<InboundMessage> queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        private final Thread thread;
+
+        private Shard(int index, MessageHandler handler) {
+            this.index = index;
+            this.handler = handler;
+            this.thread = new Thread(this, "mqtt-worker-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                InboundMessage message;
+                try {
+                    message = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                try {
+                    handler.handle(message);
+                } catch (Exception e) {
+                    failed.increment();
+                    logger.error("Failed to process {} message from {}", message.messageType(), message.deviceId(), e);
+                } finally {
+                    lag.record(System.nanoTime() - message.receivedNanos(), TimeUnit.NANOSECONDS);
+                }
+            }
+            logger.debug("MQTT worker {} stopped with {} messages pending", index, queue.size());
+        }
+    }
+}
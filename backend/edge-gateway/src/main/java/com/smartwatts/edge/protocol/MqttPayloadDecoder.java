@@ -0,0 +1,150 @@
+package com.smartwatts.edge.protocol;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.smartwatts.edge.model.DeviceReading;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Decodes device reading payloads straight from the MQTT message bytes.
+ *
+ * JSON and CBOR payloads are read with Jackson's streaming parsers in a single pass, without
+ * building a String of the payload or a tree of it. Field names are matched against the parser's
+ * canonicalized symbol table, numbers are parsed from the raw bytes, and the device's
+ * {@code auth_secret} is picked up in the same pass. The factories are shared and recycle their
+ * parse buffers per thread, so a decode allocates little beyond the resulting reading.
+ *
+ * Both snake_case and camelCase field names are accepted; unknown fields are skipped. Known fields
+ * must hold scalar values, and nothing may follow the reading object.
+ */
+@Component
+public class MqttPayloadDecoder {
+
+    /** CBOR self-describe tag 55799, which some encoders prefix payloads with */
+    private static final int CBOR_SELF_DESCRIBE = 0xD9;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final CBORFactory cborFactory = new CBORFactory();
+
+    /**
+     * A decoded reading together with the auth secret the device sent along with it, if any
+     */
+    public record DecodedReading(DeviceReading reading, String authSecret) {
+    }
+
+    /**
+     * Decode a reading payload
+     *
+     * @throws IOException if the payload is not a well-formed JSON or CBOR object
+     */
+    public DecodedReading decode(byte[] payload) throws IOException {
+        if (payload == null || payload.length == 0) {
+            throw new IOException("Empty payload");
+        }
+        try (JsonParser parser = createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Payload is not an object");
+            }
+            DeviceReading reading = new DeviceReading();
+            String authSecret = null;
+            String fieldName;
+            while ((fieldName = parser.nextFieldName()) != null) {
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                switch (fieldName) {
+                    case "auth_secret", "authSecret" -> authSecret = readString(parser, fieldName);
+                    case "id", "reading_id", "readingId" -> reading.setId(readString(parser, fieldName));
+                    case "timestamp", "ts" -> reading.setTimestamp(readTimestamp(parser));
+                    case "energy_consumption", "energyConsumption", "energy" -> reading.setEnergyConsumption(readDouble(parser, fieldName));
+                    case "power_output", "powerOutput", "power" -> reading.setPowerOutput(readDouble(parser, fieldName));
+                    case "voltage" -> reading.setVoltage(readDouble(parser, fieldName));
+                    case "current" -> reading.setCurrent(readDouble(parser, fieldName));
+                    case "frequency" -> reading.setFrequency(readDouble(parser, fieldName));
+                    case "power_factor", "powerFactor" -> reading.setPowerFactor(readDouble(parser, fieldName));
+                    case "temperature" -> reading.setTemperature(readDouble(parser, fieldName));
+                    case "efficiency" -> reading.setEfficiency(readDouble(parser, fieldName));
+                    case "status" -> reading.setStatus(readString(parser, fieldName));
+                    case "location" -> reading.setLocation(readString(parser, fieldName));
+                    default -> parser.skipChildren();
+                }
+            }
+            if (parser.nextToken() != null) {
+                throw new IOException("Trailing content after the reading object");
+            }
+            if (reading.getTimestamp() == null) {
+                reading.setTimestamp(LocalDateTime.now());
+            }
+            return new DecodedReading(reading, authSecret);
+        }
+    }
+
+    private JsonParser createParser(byte[] payload) throws IOException {
+        int first = payload[0] & 0xFF;
+        // CBOR maps are major type 5 (0xA0-0xBF); JSON objects start with '{' or whitespace
+        if ((first >= 0xA0 && first <= 0xBF) || first == CBOR_SELF_DESCRIBE) {
+            return cborFactory.createParser(payload);
+        }
+        return jsonFactory.createParser(payload);
+    }
+
+    /**
+     * A scalar as text; objects and arrays are refused rather than read as null, so their contents
+     * are never mistaken for the reading's own fields
+     */
+    private String readString(JsonParser parser, String fieldName) throws IOException {
+        if (!parser.currentToken().isScalarValue()) {
+            throw new IOException("Field '" + fieldName + "' is not a scalar value");
+        }
+        return parser.getValueAsString();
+    }
+
+    private double readDouble(JsonParser parser, String fieldName) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+            return parser.getDoubleValue();
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            try {
+                return Double.parseDouble(parser.getText());
+            } catch (NumberFormatException e) {
+                // Reported below
+            }
+        }
+        throw new IOException("Field '" + fieldName + "' is not a number");
+    }
+
+    /**
+     * ISO-8601 date-time, with or without offset, or epoch seconds/milliseconds
+     */
+    private LocalDateTime readTimestamp(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+            long epoch = parser.getValueAsLong();
+            Instant instant = epoch > 100_000_000_000L ? Instant.ofEpochMilli(epoch) : Instant.ofEpochSecond(epoch);
+            return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+        }
+        String text = parser.getValueAsString();
+        if (text == null) {
+            throw new IOException("Field 'timestamp' is not a date-time");
+        }
+        try {
+            if (text.endsWith("Z") || text.lastIndexOf('+') > 10 || text.lastIndexOf('-') > 10) {
+                return OffsetDateTime.parse(text).atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+            }
+            return LocalDateTime.parse(text);
+        } catch (DateTimeParseException e) {
+            throw new IOException("Field 'timestamp' is not a date-time: " + text);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.smartwatts.edge.protocol.modbus;
+
+import java.nio.ByteBuffer;
+
+/**
+ * CRC-16/MODBUS (polynomial 0xA001 reflected, initial value 0xFFFF).
+ *
+ * Uses a 256-entry table, so each byte costs one lookup, one shift and two XORs instead of eight
+ * conditional shifts. The CRC is sent low byte first.
+ */
+public final class Crc16 {
+
+    private static final int[] TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < TABLE.length; i++) {
+            int crc = i;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 1) != 0 ? (crc >>> 1) ^ 0xA001 : crc >>> 1;
+            }
+            TABLE[i] = crc;
+        }
+    }
+
+    private Crc16() {
+    }
+
+    public static int compute(byte[] data, int offset, int length) {
+        int crc = 0xFFFF;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            crc = (crc >>> 8) ^ TABLE[(crc ^ data[i]) & 0xFF];
+        }
+        return crc;
+    }
+
+    /**
+     * CRC of bytes at absolute positions of a buffer, without moving its position
+     */
+    public static int compute(ByteBuffer data, int offset, int length) {
+        int crc = 0xFFFF;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            crc = (crc >>> 8) ^ TABLE[(crc ^ data.get(i)) & 0xFF];
+        }
+        return crc;
+    }
+
+    /**
+     * Write the CRC of {@code length} bytes right after them
+     *
+     * @return length of the frame including the CRC
+     */
+    public static int append(byte[] frame, int offset, int length) {
+        int crc = compute(frame, offset, length);
+        frame[offset + length] = (byte) crc;
+        frame[offset + length + 1] = (byte) (crc >>> 8);
+        return length + 2;
+    }
+
+    /**
+     * Whether the last two bytes of a frame are the CRC of the bytes before them
+     */
+    public static boolean matches(byte[] frame, int offset, int length) {
+        if (length < 3) {
+            return false;
+        }
+        int received = (frame[offset + length - 2] & 0xFF) | (frame[offset + length - 1] & 0xFF) << 8;
+        return compute(frame, offset, length - 2) == received;
+    }
+
+    public static boolean matches(ByteBuffer frame, int offset, int length) {
+        if (length < 3) {
+            return false;
+        }
+        int received = (frame.get(offset + length - 2) & 0xFF) | (frame.get(offset + length - 1) & 0xFF) << 8;
+        return compute(frame, offset, length - 2) == received;
+    }
+}
@@ -0,0 +1,271 @@
+package com.smartwatts.edge.protocol.modbus;
+
+/**
+ * Encodes Modbus RTU requests and decodes their responses.
+ *
+ * Requests are written into a buffer the caller owns, so a read loop can reuse one buffer for every
+ * request. Responses are checked for length, CRC, unit ID and function code before their data is
+ * decoded into caller-supplied arrays. An exception response raises a {@link ModbusException}
+ * carrying the device's exception code.
+ */
+public final class ModbusCodec {
+
+    public static final int READ_COILS = 1;
+    public static final int READ_DISCRETE_INPUTS = 2;
+    public static final int READ_HOLDING_REGISTERS = 3;
+    public static final int READ_INPUT_REGISTERS = 4;
+    public static final int WRITE_SINGLE_COIL = 5;
+    public static final int WRITE_SINGLE_REGISTER = 6;
+    public static final int WRITE_MULTIPLE_COILS = 15;
+    public static final int WRITE_MULTIPLE_REGISTERS = 16;
+
+    // Largest RTU frame: unit ID, 253-byte PDU and CRC
+    public static final int MAX_FRAME_BYTES = 256;
+
+    // Request of FC01 to FC06: unit ID, function code, two 16-bit fields and CRC
+    public static final int FIXED_REQUEST_BYTES = 8;
+
+    public static final int MAX_READ_REGISTERS = 125;
+    public static final int MAX_READ_BITS = 2000;
+    public static final int MAX_WRITE_REGISTERS = 123;
+    public static final int MAX_WRITE_COILS = 1968;
+
+    private ModbusCodec() {
+    }
+
+    /**
+     * Encode a request of FC01 to FC06, which all carry two 16-bit fields: an address and either a
+     * quantity or a value
+     *
+     * @return length of the request
+     */
+    public static int encodeRequest(byte[] dst, int offset, int unitId, int functionCode, int address, int field) {
+        if (functionCode < READ_COILS || functionCode > WRITE_SINGLE_REGISTER) {
+            throw new IllegalArgumentException("Not a fixed-length request function code: " + functionCode);
+        }
+        dst[offset] = (byte) unitId;
+        dst[offset + 1] = (byte) functionCode;
+        putShort(dst, offset + 2, address);
+        putShort(dst, offset + 4, field);
+        return Crc16.append(dst, offset, 6);
+    }
+
+    /**
+     * Encode a read of coils, discrete inputs, holding registers or input registers
+     *
+     * @return length of the request
+     */
+    public static int encodeRead(byte[] dst, int offset, int unitId, int functionCode, int address, int quantity) {
+        if (functionCode < READ_COILS || functionCode > READ_INPUT_REGISTERS) {
+            throw new IllegalArgumentException("Not a read function code: " + functionCode);
+        }
+        int max = functionCode <= READ_DISCRETE_INPUTS ? MAX_READ_BITS : MAX_READ_REGISTERS;
+        if (quantity < 1 || quantity > max) {
+            throw new IllegalArgumentException("Read quantity out of range: " + quantity);
+        }
+        checkRange(address, quantity);
+        return encodeRequest(dst, offset, unitId, functionCode, address, quantity);
+    }
+
+    public static int encodeWriteSingleCoil(byte[] dst, int offset, int unitId, int address, boolean on) {
+        return encodeRequest(dst, offset, unitId, WRITE_SINGLE_COIL, address, on ? 0xFF00 : 0x0000);
+    }
+
+    public static int encodeWriteSingleRegister(byte[] dst, int offset, int unitId, int address, int value) {
+        return encodeRequest(dst, offset, unitId, WRITE_SINGLE_REGISTER, address, value);
+    }
+
+    /**
+     * Encode a write of {@code count} coils taken from {@code values[from]} on
+     *
+     * @return length of the request
+     */
+    public static int encodeWriteMultipleCoils(byte[] dst, int offset, int unitId, int address,
+                                               boolean[] values, int from, int count) {
+        if (count < 1 || count > MAX_WRITE_COILS) {
+            throw new IllegalArgumentException("Coil count out of range: " + count);
+        }
+        checkRange(address, count);
+        int byteCount = (count + 7) / 8;
+        dst[offset] = (byte) unitId;
+        dst[offset + 1] = (byte) WRITE_MULTIPLE_COILS;
+        putShort(dst, offset + 2, address);
+        putShort(dst, offset + 4, count);
+        dst[offset + 6] = (byte) byteCount;
+        for (int i = 0; i < byteCount; i++) {
+            dst[offset + 7 + i] = 0;
+        }
+        for (int i = 0; i < count; i++) {
+            if (values[from + i]) {
+                dst[offset + 7 + i / 8] |= (byte) (1 << (i % 8));
+            }
+        }
+        return Crc16.append(dst, offset, 7 + byteCount);
+    }
+
+    /**
+     * Encode a write of {@code count} registers taken from {@code values[from]} on
+     *
+     * @return length of the request
+     */
+    public static int encodeWriteMultipleRegisters(byte[] dst, int offset, int unitId, int address,
+                                                   int[] values, int from, int count) {
+        if (count < 1 || count > MAX_WRITE_REGISTERS) {
+            throw new IllegalArgumentException("Register count out of range: " + count);
+        }
+        checkRange(address, count);
+        dst[offset] = (byte) unitId;
+        dst[offset + 1] = (byte) WRITE_MULTIPLE_REGISTERS;
+        putShort(dst, offset + 2, address);
+        putShort(dst, offset + 4, count);
+        dst[offset + 6] = (byte) (count * 2);
+        for (int i = 0; i < count; i++) {
+            putShort(dst, offset + 7 + i * 2, values[from + i]);
+        }
+        return Crc16.append(dst, offset, 7 + count * 2);
+    }
+
+    /**
+     * Length of the normal response to a request
+     *
+     * @param quantity registers or bits read; ignored for writes
+     */
+    public static int responseLength(int functionCode, int quantity) {
+        switch (functionCode) {
+            case READ_COILS:
+            case READ_DISCRETE_INPUTS:
+                return 5 + (quantity + 7) / 8;
+            case READ_HOLDING_REGISTERS:
+            case READ_INPUT_REGISTERS:
+                return 5 + quantity * 2;
+            case WRITE_SINGLE_COIL:
+            case WRITE_SINGLE_REGISTER:
+            case WRITE_MULTIPLE_COILS:
+            case WRITE_MULTIPLE_REGISTERS:
+                return 8;
+            default:
+                throw new IllegalArgumentException("Unsupported function code: " + functionCode);
+        }
+    }
+
+    /**
+     * Length of a response frame given its function code and the byte after it, or -1 if the
+     * function code does not determine it
+     */
+    public static int frameLength(int functionCode, int thirdByte) {
+        if ((functionCode & 0x80) != 0) {
+            return 5;
+        }
+        switch (functionCode) {
+            case READ_COILS:
+            case READ_DISCRETE_INPUTS:
+            case READ_HOLDING_REGISTERS:
+            case READ_INPUT_REGISTERS:
+                return 5 + (thirdByte & 0xFF);
+            case WRITE_SINGLE_COIL:
+            case WRITE_SINGLE_REGISTER:
+            case WRITE_MULTIPLE_COILS:
+            case WRITE_MULTIPLE_REGISTERS:
+                return 8;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Check a response frame's CRC, unit ID and function code
+     *
+     * @throws ModbusException if the frame is malformed, answers another request, or is an
+     *                         exception response
+     */
+    public static void checkResponse(byte[] frame, int offset, int length, int unitId, int functionCode)
+            throws ModbusException {
+        if (length < 5) {
+            throw new ModbusException("Response too short: " + length + " bytes");
+        }
+        if (!Crc16.matches(frame, offset, length)) {
+            throw new ModbusException("Response CRC mismatch");
+        }
+        int receivedUnitId = frame[offset] & 0xFF;
+        if (receivedUnitId != unitId) {
+            throw new ModbusException("Response from unit " + receivedUnitId + ", expected " + unitId);
+        }
+        int receivedFunctionCode = frame[offset + 1] & 0xFF;
+        if (receivedFunctionCode == (functionCode | 0x80)) {
+            int code = frame[offset + 2] & 0xFF;
+            throw new ModbusException("Device returned exception " + ModbusException.describe(code), code);
+        }
+        if (receivedFunctionCode != functionCode) {
+            throw new ModbusException("Response function code " + receivedFunctionCode + ", expected " + functionCode);
+        }
+    }
+
+    /**
+     * Decode an FC03 or FC04 response into {@code dst[dstOffset]} on
+     *
+     * @return number of registers decoded
+     */
+    public static int decodeRegisters(byte[] frame, int offset, int length, int unitId, int functionCode,
+                                      int quantity, int[] dst, int dstOffset) throws ModbusException {
+        checkResponse(frame, offset, length, unitId, functionCode);
+        int byteCount = frame[offset + 2] & 0xFF;
+        if (byteCount != quantity * 2 || length < 5 + byteCount) {
+            throw new ModbusException("Response byte count " + byteCount + ", expected " + quantity * 2);
+        }
+        for (int i = 0; i < quantity; i++) {
+            dst[dstOffset + i] = getShort(frame, offset + 3 + i * 2);
+        }
+        return quantity;
+    }
+
+    /**
+     * Decode an FC01 or FC02 response into {@code dst[dstOffset]} on
+     *
+     * @return number of bits decoded
+     */
+    public static int decodeBits(byte[] frame, int offset, int length, int unitId, int functionCode,
+                                 int quantity, boolean[] dst, int dstOffset) throws ModbusException {
+        checkResponse(frame, offset, length, unitId, functionCode);
+        int byteCount = frame[offset + 2] & 0xFF;
+        if (byteCount != (quantity + 7) / 8 || length < 5 + byteCount) {
+            throw new ModbusException("Response byte count " + byteCount + ", expected " + (quantity + 7) / 8);
+        }
+        for (int i = 0; i < quantity; i++) {
+            dst[dstOffset + i] = (frame[offset + 3 + i / 8] & (1 << (i % 8))) != 0;
+        }
+        return quantity;
+    }
+
+    /**
+     * Check the response to FC05, FC06, FC15 or FC16, which echoes the address and the value or
+     * quantity written
+     */
+    public static void decodeWriteResponse(byte[] frame, int offset, int length, int unitId, int functionCode,
+                                           int address, int field) throws ModbusException {
+        checkResponse(frame, offset, length, unitId, functionCode);
+        if (length < 8) {
+            throw new ModbusException("Write response too short: " + length + " bytes");
+        }
+        int echoedAddress = getShort(frame, offset + 2);
+        int echoedField = getShort(frame, offset + 4);
+        if (echoedAddress != address || echoedField != (field & 0xFFFF)) {
+            throw new ModbusException("Write response echoes " + echoedAddress + "=" + echoedField
+                    + ", expected " + address + "=" + (field & 0xFFFF));
+        }
+    }
+
+    private static void checkRange(int address, int quantity) {
+        if (address < 0 || address + quantity > 0x10000) {
+            throw new IllegalArgumentException("Address range out of bounds: " + address + "+" + quantity);
+        }
+    }
+
+    private static void putShort(byte[] dst, int offset, int value) {
+        dst[offset] = (byte) (value >> 8);
+        dst[offset + 1] = (byte) value;
+    }
+
+    private static int getShort(byte[] src, int offset) {
+        return (src[offset] & 0xFF) << 8 | (src[offset + 1] & 0xFF);
+    }
+}
@@ -0,0 +1,51 @@
+package com.smartwatts.edge.protocol.modbus;
+
+/**
+ * A Modbus response that could not be used: either the device answered with an exception code,
+ * or the frame itself was malformed
+ */
+public class ModbusException extends Exception {
+
+    private final int exceptionCode;
+
+    public ModbusException(String message) {
+        this(message, 0);
+    }
+
+    public ModbusException(String message, int exceptionCode) {
+        super(message);
+        this.exceptionCode = exceptionCode;
+    }
+
+    /**
+     * Exception code the device returned, or 0 if the frame was malformed
+     */
+    public int getExceptionCode() {
+        return exceptionCode;
+    }
+
+    /**
+     * Whether the device itself rejected the request, as opposed to a framing error
+     */
+    public boolean isDeviceException() {
+        return exceptionCode != 0;
+    }
+
+    /**
+     * Name of a Modbus exception code
+     */
+    public static String describe(int exceptionCode) {
+        switch (exceptionCode) {
+            case 1: return "ILLEGAL_FUNCTION";
+            case 2: return "ILLEGAL_DATA_ADDRESS";
+            case 3: return "ILLEGAL_DATA_VALUE";
+            case 4: return "SERVER_DEVICE_FAILURE";
+            case 5: return "ACKNOWLEDGE";
+            case 6: return "SERVER_DEVICE_BUSY";
+            case 8: return "MEMORY_PARITY_ERROR";
+            case 10: return "GATEWAY_PATH_UNAVAILABLE";
+            case 11: return "GATEWAY_TARGET_DEVICE_FAILED_TO_RESPOND";
+            default: return "UNKNOWN_" + exceptionCode;
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package com.smartwatts.edge.protocol.modbus;
+
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.InterfaceAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Sweeps hosts for Modbus TCP devices.
+ *
+ * All probes of a sweep share one selector on the calling thread. Each probe opens a non-blocking
+ * connection, sends an FC03 read of one register and waits for an answer. A host counts as a
+ * Modbus device only if it answers with a matching MBAP header and either the register or a
+ * Modbus exception; an open port that answers anything else does not. At most {@code maxInFlight}
+ * probes are open at once, new connections are paced to {@code connectsPerSecond}, and a host
+ * probed less than {@code hostIntervalMs} ago is skipped.
+ *
+ * Not thread-safe; run one sweep at a time.
+ */
+public final class ModbusTcpScanner {
+
+    // MBAP header: transaction ID, protocol ID, length, unit ID
+    private static final int MBAP_BYTES = 7;
+
+    // Largest Modbus TCP ADU
+    private static final int MAX_ADU_BYTES = 260;
+
+    private final int port;
+    private final int unitId;
+    private final int maxInFlight;
+    private final long connectIntervalNanos;
+    private final long hostIntervalNanos;
+    private final long timeoutNanos;
+    private final Map<InetAddress, Long> lastProbeNanos = new HashMap<>();
+    private int nextTransactionId;
+    private volatile SweepResult lastSweep;
+
+    /**
+     * Outcome of one sweep
+     */
+    public record SweepResult(int hosts, int skipped, int connected, int confirmed, int timedOut, long elapsedMs) {
+    }
+
+    public ModbusTcpScanner(int port, int unitId, int maxInFlight, int connectsPerSecond,
+                            long hostIntervalMs, long timeoutMs) {
+        if (maxInFlight < 1 || connectsPerSecond < 1) {
+            throw new IllegalArgumentException("maxInFlight and connectsPerSecond must be positive");
+        }
+        this.port = port;
+        this.unitId = unitId;
+        this.maxInFlight = maxInFlight;
+        this.connectIntervalNanos = TimeUnit.SECONDS.toNanos(1) / connectsPerSecond;
+        this.hostIntervalNanos = TimeUnit.MILLISECONDS.toNanos(hostIntervalMs);
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+    }
+
+    /**
+     * Probe every host and report each confirmed Modbus device as soon as it answers
+     *
+     * @param listener called on the sweeping thread for each confirmed host
+     */
+    public SweepResult scan(Iterable<InetAddress> hosts, Consumer<InetAddress> listener) throws IOException {
+        long start = System.nanoTime();
+        lastProbeNanos.values().removeIf(probed -> start - probed >= hostIntervalNanos);
+
+        Counts counts = new Counts();
+        ArrayDeque<Probe> probes = new ArrayDeque<>();
+        Iterator<InetAddress> pending = hosts.iterator();
+        long nextConnectNanos = start;
+
+        try (Selector selector = Selector.open()) {
+            while (true) {
+                long now = System.nanoTime();
+                while (probes.size() - counts.finished < maxInFlight && pending.hasNext() && now >= nextConnectNanos) {
+                    InetAddress host = pending.next();
+                    counts.hosts++;
+                    Long probed = lastProbeNanos.get(host);
+                    if (probed != null && now - probed < hostIntervalNanos) {
+                        counts.skipped++;
+                        continue;
+                    }
+                    lastProbeNanos.put(host, now);
+                    nextConnectNanos = Math.max(nextConnectNanos, now - connectIntervalNanos) + connectIntervalNanos;
+                    Probe probe = open(selector, host, now, counts);
+                    if (probe != null) {
+                        probes.add(probe);
+                    }
+                }
+
+                // Probes share one timeout, so the oldest is always the next to expire
+                while (!probes.isEmpty() && (probes.peek().done || probes.peek().deadlineNanos <= now)) {
+                    Probe probe = probes.poll();
+                    if (probe.done) {
+                        counts.finished--;
+                    } else {
+                        counts.timedOut++;
+                        probe.close();
+                    }
+                }
+                if (probes.isEmpty() && !pending.hasNext()) {
+                    break;
+                }
+
+                long wakeNanos = probes.isEmpty() ? nextConnectNanos : probes.peek().deadlineNanos;
+                if (pending.hasNext() && probes.size() - counts.finished < maxInFlight) {
+                    wakeNanos = Math.min(wakeNanos, nextConnectNanos);
+                }
+                long waitMs = TimeUnit.NANOSECONDS.toMillis(wakeNanos - now);
+                if (waitMs > 0) {
+                    selector.select(waitMs);
+                } else {
+                    selector.selectNow();
+                }
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handle((Probe) key.attachment(), key, counts, listener);
+                }
+            }
+        } finally {
+            for (Probe probe : probes) {
+                probe.close();
+            }
+        }
+
+        SweepResult result = new SweepResult(counts.hosts, counts.skipped, counts.connected, counts.confirmed,
+                counts.timedOut, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        lastSweep = result;
+        return result;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("port", port);
+        stats.put("maxInFlight", maxInFlight);
+        SweepResult sweep = lastSweep;
+        if (sweep != null) {
+            stats.put("lastSweepHosts", sweep.hosts());
+            stats.put("lastSweepSkipped", sweep.skipped());
+            stats.put("lastSweepConnected", sweep.connected());
+            stats.put("lastSweepConfirmed", sweep.confirmed());
+            stats.put("lastSweepTimedOut", sweep.timedOut());
+            stats.put("lastSweepMs", sweep.elapsedMs());
+        }
+        return stats;
+    }
+
+    /**
+     * Hosts of the IPv4 subnets on the gateway's up, non-loopback interfaces, excluding the
+     * gateway's own addresses
+     *
+     * @param minPrefixLength subnets wider than this are narrowed to the block of this size
+     *                        around the interface address
+     */
+    public static List<InetAddress> localHosts(int minPrefixLength) throws SocketException {
+        Set<InetAddress> hosts = new LinkedHashSet<>();
+        Set<InetAddress> own = new LinkedHashSet<>();
+        for (NetworkInterface networkInterface : Collections.list(NetworkInterface.getNetworkInterfaces())) {
+            if (!networkInterface.isUp() || networkInterface.isLoopback() || networkInterface.isPointToPoint()) {
+                continue;
+            }
+            for (InterfaceAddress address : networkInterface.getInterfaceAddresses()) {
+                if (address.getAddress() instanceof Inet4Address) {
+                    own.add(address.getAddress());
+                    hosts.addAll(subnetHosts((Inet4Address) address.getAddress(),
+                            address.getNetworkPrefixLength(), minPrefixLength));
+                }
+            }
+        }
+        hosts.removeAll(own);
+        return new ArrayList<>(hosts);
+    }
+
+    /**
+     * Host addresses of the subnet around an address, excluding the network and broadcast
+     * addresses and the address itself
+     */
+    public static List<InetAddress> subnetHosts(Inet4Address address, int prefixLength, int minPrefixLength) {
+        int prefix = Math.max(prefixLength, minPrefixLength);
+        if (prefix > 30) {
+            return List.of();
+        }
+        byte[] bytes = address.getAddress();
+        int self = (bytes[0] & 0xFF) << 24 | (bytes[1] & 0xFF) << 16 | (bytes[2] & 0xFF) << 8 | (bytes[3] & 0xFF);
+        int network = self & (-1 << (32 - prefix));
+        int size = 1 << (32 - prefix);
+        List<InetAddress> hosts = new ArrayList<>(size - 2);
+        for (int i = 1; i < size - 1; i++) {
+            int ip = network + i;
+            if (ip == self) {
+                continue;
+            }
+            try {
+                hosts.add(InetAddress.getByAddress(new byte[]{
+                        (byte) (ip >>> 24), (byte) (ip >>> 16), (byte) (ip >>> 8), (byte) ip}));
+            } catch (UnknownHostException e) {
+                // Four bytes are always a valid IPv4 address
+                throw new IllegalStateException(e);
+            }
+        }
+        return hosts;
+    }
+
+    private Probe open(Selector selector, InetAddress host, long now, Counts counts) {
+        SocketChannel channel = null;
+        try {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            Probe probe = new Probe(host, channel, now + timeoutNanos, request(nextTransactionId++ & 0xFFFF));
+            if (channel.connect(new InetSocketAddress(host, port))) {
+                counts.connected++;
+                channel.register(selector, SelectionKey.OP_WRITE, probe);
+            } else {
+                channel.register(selector, SelectionKey.OP_CONNECT, probe);
+            }
+            return probe;
+        } catch (IOException e) {
+            // Unreachable network or out of descriptors; the host is simply not found this sweep
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // Nothing to do
+                }
+            }
+            return null;
+        }
+    }
+
+    private void handle(Probe probe, SelectionKey key, Counts counts, Consumer<InetAddress> listener) {
+        try {
+            if (key.isConnectable()) {
+                if (!probe.channel.finishConnect()) {
+                    return;
+                }
+                counts.connected++;
+                key.interestOps(SelectionKey.OP_WRITE);
+            }
+            if (key.isValid() && key.isWritable()) {
+                probe.channel.write(probe.buffer);
+                if (!probe.buffer.hasRemaining()) {
+                    probe.buffer.clear();
+                    key.interestOps(SelectionKey.OP_READ);
+                }
+            } else if (key.isValid() && key.isReadable()) {
+                if (probe.channel.read(probe.buffer) < 0) {
+                    finish(probe, counts);
+                    return;
+                }
+                int answer = answer(probe);
+                if (answer > 0) {
+                    counts.confirmed++;
+                    finish(probe, counts);
+                    listener.accept(probe.host);
+                } else if (answer < 0) {
+                    finish(probe, counts);
+                }
+            }
+        } catch (IOException e) {
+            // Connection refused or reset
+            finish(probe, counts);
+        }
+    }
+
+    /**
+     * Close a probe before its deadline; it stays queued until it reaches the head
+     */
+    private static void finish(Probe probe, Counts counts) {
+        probe.close();
+        counts.finished++;
+    }
+
+    /**
+     * @return 1 if the buffer holds a Modbus answer to the probe, -1 if it cannot become one,
+     * 0 if more bytes are needed
+     */
+    private int answer(Probe probe) {
+        ByteBuffer buffer = probe.buffer;
+        if (buffer.position() < MBAP_BYTES + 1) {
+            return 0;
+        }
+        int length = buffer.getShort(4) & 0xFFFF;
+        if (buffer.getShort(0) != probe.transactionId || buffer.getShort(2) != 0
+                || length < 2 || MBAP_BYTES - 1 + length > MAX_ADU_BYTES) {
+            return -1;
+        }
+        int functionCode = buffer.get(7) & 0xFF;
+        if (functionCode != ModbusCodec.READ_HOLDING_REGISTERS
+                && functionCode != (ModbusCodec.READ_HOLDING_REGISTERS | 0x80)) {
+            return -1;
+        }
+        return buffer.position() >= MBAP_BYTES - 1 + length ? 1 : 0;
+    }
+
+    private ByteBuffer request(int transactionId) {
+        ByteBuffer request = ByteBuffer.allocate(MAX_ADU_BYTES);
+        request.putShort((short) transactionId)
+                .putShort((short) 0)
+                .putShort((short) 6)
+                .put((byte) unitId)
+                .put((byte) ModbusCodec.READ_HOLDING_REGISTERS)
+                .putShort((short) 0)
+                .putShort((short) 1);
+        return request.flip();
+    }
+
+    private static final class Counts {
+        int hosts;
+        int skipped;
+        int connected;
+        int confirmed;
+        int timedOut;
+        // Probes closed early but still queued
+        int finished;
+    }
+
+    private static final class Probe {
+        final InetAddress host;
+        final SocketChannel channel;
+        final long deadlineNanos;
+        final ByteBuffer buffer;
+        final short transactionId;
+        boolean done;
+
+        Probe(InetAddress host, SocketChannel channel, long deadlineNanos, ByteBuffer request) {
+            this.host = host;
+            this.channel = channel;
+            this.deadlineNanos = deadlineNanos;
+            this.buffer = request;
+            this.transactionId = request.getShort(0);
+        }
+
+        void close() {
+            done = true;
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Nothing to do
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.smartwatts.edge.protocol.modbus;
+
+import com.smartwatts.edge.model.DeviceReading;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The register reads that cover a device's register map, and where each value sits in them.
+ *
+ * Built once per device by {@link ReadPlanner}. Every value's block and offset are resolved up
+ * front into flat arrays, so decoding a poll only indexes into the block responses and writes
+ * primitives into the reading.
+ */
+public final class ReadPlan {
+
+    // Fixed cost of one exchange in character times: the request frame (unit ID, function code,
+    // address, quantity, CRC), the response frame without data (unit ID, function code, byte
+    // count, CRC) and the 3.5-character silent interval before each of them
+    static final int EXCHANGE_OVERHEAD_CHARACTERS = 8 + 5 + 7;
+
+    private final List<RegisterPoint> points;
+    private final int[] blockFunctionCodes;
+    private final int[] blockStarts;
+    private final int[] blockCounts;
+    private final int[] pointBlocks;
+    private final int[] pointOffsets;
+
+    ReadPlan(List<RegisterPoint> points, int[] blockFunctionCodes, int[] blockStarts, int[] blockCounts,
+             int[] pointBlocks, int[] pointOffsets) {
+        this.points = List.copyOf(points);
+        this.blockFunctionCodes = blockFunctionCodes;
+        this.blockStarts = blockStarts;
+        this.blockCounts = blockCounts;
+        this.pointBlocks = pointBlocks;
+        this.pointOffsets = pointOffsets;
+    }
+
+    public int getBlockCount() {
+        return blockStarts.length;
+    }
+
+    public int getFunctionCode(int block) {
+        return blockFunctionCodes[block];
+    }
+
+    public int getStartAddress(int block) {
+        return blockStarts[block];
+    }
+
+    public int getRegisterCount(int block) {
+        return blockCounts[block];
+    }
+
+    public List<RegisterPoint> getPoints() {
+        return points;
+    }
+
+    /**
+     * Decode every value whose block was read into the reading
+     *
+     * @param blockRegisters register words per block, in block order; a null entry marks a failed
+     *                       read, and its values are left untouched
+     * @return number of values decoded
+     */
+    public int decode(int[][] blockRegisters, DeviceReading reading) {
+        int decoded = 0;
+        for (int i = 0; i < pointBlocks.length; i++) {
+            int[] registers = blockRegisters[pointBlocks[i]];
+            if (registers == null) {
+                continue;
+            }
+            RegisterPoint point = points.get(i);
+            double value = rawValue(point, registers, pointOffsets[i]) * point.scale();
+            switch (point.field()) {
+                case ENERGY_CONSUMPTION -> reading.setEnergyConsumption(value);
+                case POWER_OUTPUT -> reading.setPowerOutput(value);
+                case VOLTAGE -> reading.setVoltage(value);
+                case CURRENT -> reading.setCurrent(value);
+                case FREQUENCY -> reading.setFrequency(value);
+                case POWER_FACTOR -> reading.setPowerFactor(value);
+                case TEMPERATURE -> reading.setTemperature(value);
+                case EFFICIENCY -> reading.setEfficiency(value);
+            }
+            decoded++;
+        }
+        return decoded;
+    }
+
+    private static double rawValue(RegisterPoint point, int[] registers, int offset) {
+        boolean swapBytes = point.byteOrder() == RegisterPoint.ByteOrder.LITTLE_ENDIAN;
+        int first = word(registers[offset], swapBytes);
+        if (point.type().getWords() == 1) {
+            return point.type() == RegisterPoint.DataType.INT16 ? (short) first : first;
+        }
+        int second = word(registers[offset + 1], swapBytes);
+        int bits = point.wordOrder() == RegisterPoint.WordOrder.BIG_ENDIAN
+                ? (first << 16) | second
+                : (second << 16) | first;
+        switch (point.type()) {
+            case UINT32:
+                return bits & 0xFFFFFFFFL;
+            case FLOAT32:
+                return Float.intBitsToFloat(bits);
+            default:
+                return bits;
+        }
+    }
+
+    private static int word(int register, boolean swapBytes) {
+        return swapBytes ? ((register & 0xFF) << 8) | ((register >>> 8) & 0xFF) : register & 0xFFFF;
+    }
+
+    /**
+     * Bus time of one poll using this plan, in character times
+     */
+    public long getBusCharacters() {
+        long characters = 0;
+        for (int count : blockCounts) {
+            characters += EXCHANGE_OVERHEAD_CHARACTERS + 2L * count;
+        }
+        return characters;
+    }
+
+    /**
+     * Bus time of one poll that reads every value with its own request, in character times
+     */
+    public long getUnplannedBusCharacters() {
+        long characters = 0;
+        for (RegisterPoint point : points) {
+            characters += EXCHANGE_OVERHEAD_CHARACTERS + 2L * point.type().getWords();
+        }
+        return characters;
+    }
+
+    public Map<String, Object> getStats() {
+        int registers = 0;
+        for (int count : blockCounts) {
+            registers += count;
+        }
+        int used = 0;
+        for (RegisterPoint point : points) {
+            used += point.type().getWords();
+        }
+        long busCharacters = getBusCharacters();
+        long unplannedBusCharacters = getUnplannedBusCharacters();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("values", points.size());
+        stats.put("requests", blockStarts.length);
+        stats.put("unplannedRequests", points.size());
+        stats.put("registersRead", registers);
+        stats.put("gapRegistersRead", Math.max(0, registers - used));
+        stats.put("busCharacters", busCharacters);
+        stats.put("unplannedBusCharacters", unplannedBusCharacters);
+        stats.put("busTimeSavedPercent", unplannedBusCharacters == 0 ? 0.0
+                : 100.0 * (unplannedBusCharacters - busCharacters) / unplannedBusCharacters);
+        return stats;
+    }
+}
@@ -0,0 +1,67 @@
+package com.smartwatts.edge.protocol.modbus;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Merges a device's register map into the fewest register reads.
+ *
+ * Values are sorted by function code and address and packed greedily: a value joins the current
+ * block when it uses the same function code, the block stays within the 125-register limit of
+ * FC03/FC04, and the registers skipped to reach it are no more than the gap tolerance. Each unused
+ * register read costs two characters on the bus, while another exchange costs about twenty in
+ * frame overhead and silent intervals before the device's turnaround time is even counted.
+ */
+public final class ReadPlanner {
+
+    /**
+     * Most registers a single FC03 or FC04 request may ask for
+     */
+    public static final int MAX_REGISTERS_PER_READ = 125;
+
+    private ReadPlanner() {
+    }
+
+    /**
+     * @param maxGap most unused registers read to join two values into one request
+     */
+    public static ReadPlan plan(List<RegisterPoint> points, int maxGap) {
+        List<RegisterPoint> sorted = new ArrayList<>(points);
+        sorted.sort(Comparator.comparingInt(RegisterPoint::functionCode).thenComparingInt(RegisterPoint::address));
+
+        int[] functionCodes = new int[sorted.size()];
+        int[] starts = new int[sorted.size()];
+        int[] counts = new int[sorted.size()];
+        int[] pointBlocks = new int[sorted.size()];
+        int[] pointOffsets = new int[sorted.size()];
+        int blocks = 0;
+        int blockEnd = 0;
+        for (int i = 0; i < sorted.size(); i++) {
+            RegisterPoint point = sorted.get(i);
+            int current = blocks - 1;
+            boolean joins = current >= 0
+                    && functionCodes[current] == point.functionCode()
+                    && point.address() - blockEnd <= Math.max(0, maxGap)
+                    && Math.max(blockEnd, point.end()) - starts[current] <= MAX_REGISTERS_PER_READ;
+            if (!joins) {
+                current = blocks++;
+                functionCodes[current] = point.functionCode();
+                starts[current] = point.address();
+                blockEnd = point.address();
+            }
+            blockEnd = Math.max(blockEnd, point.end());
+            counts[current] = blockEnd - starts[current];
+            pointBlocks[i] = current;
+            pointOffsets[i] = point.address() - starts[current];
+        }
+        return new ReadPlan(sorted, trim(functionCodes, blocks), trim(starts, blocks), trim(counts, blocks),
+                pointBlocks, pointOffsets);
+    }
+
+    private static int[] trim(int[] values, int length) {
+        int[] trimmed = new int[length];
+        System.arraycopy(values, 0, trimmed, 0, length);
+        return trimmed;
+    }
+}
@@ -0,0 +1,114 @@
+package com.smartwatts.edge.protocol.modbus;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+
+/**
+ * One value a device exposes in its register map
+ *
+ * @param field        reading field the decoded value is written to
+ * @param functionCode 3 for holding registers, 4 for input registers; 0 means 3
+ * @param address      first register of the value
+ * @param type         encoding of the value, which also fixes how many registers it spans
+ * @param scale        factor applied to the raw value, e.g. 0.1 for a value in tenths
+ * @param wordOrder    order of the two registers of a 32-bit value
+ * @param byteOrder    order of the two bytes within each register
+ */
+public record RegisterPoint(Field field, int functionCode, int address, DataType type, double scale,
+                            WordOrder wordOrder, ByteOrder byteOrder) {
+
+    @JsonCreator
+    public RegisterPoint {
+        if (functionCode == 0) {
+            functionCode = 3;
+        }
+        if (field == null || type == null) {
+            throw new IllegalArgumentException("Register point needs a field and a data type");
+        }
+        if (functionCode != 3 && functionCode != 4) {
+            throw new IllegalArgumentException("Unsupported function code for " + field + ": " + functionCode);
+        }
+        if (address < 0 || address + type.words > 0x10000) {
+            throw new IllegalArgumentException("Register address out of range for " + field + ": " + address);
+        }
+        if (scale == 0) {
+            scale = 1.0;
+        }
+        if (wordOrder == null) {
+            wordOrder = WordOrder.BIG_ENDIAN;
+        }
+        if (byteOrder == null) {
+            byteOrder = ByteOrder.BIG_ENDIAN;
+        }
+    }
+
+    public RegisterPoint(Field field, int functionCode, int address, DataType type, double scale,
+                         WordOrder wordOrder) {
+        this(field, functionCode, address, type, scale, wordOrder, ByteOrder.BIG_ENDIAN);
+    }
+
+    public RegisterPoint(Field field, int address, DataType type, double scale) {
+        this(field, 3, address, type, scale, WordOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Register after the last one this value occupies
+     */
+    public int end() {
+        return address + type.words;
+    }
+
+    /**
+     * Reading fields a register value can be decoded into
+     */
+    public enum Field {
+        ENERGY_CONSUMPTION,
+        POWER_OUTPUT,
+        VOLTAGE,
+        CURRENT,
+        FREQUENCY,
+        POWER_FACTOR,
+        TEMPERATURE,
+        EFFICIENCY
+    }
+
+    /**
+     * Register encodings and the number of 16-bit registers each spans
+     */
+    public enum DataType {
+        UINT16(1),
+        INT16(1),
+        UINT32(2),
+        INT32(2),
+        FLOAT32(2);
+
+        private final int words;
+
+        DataType(int words) {
+            this.words = words;
+        }
+
+        public int getWords() {
+            return words;
+        }
+    }
+
+    /**
+     * Which register of a 32-bit value holds the high word
+     */
+    public enum WordOrder {
+        // High word first, as the Modbus spec implies
+        BIG_ENDIAN,
+        // Low word first, used by many inverters and meters
+        LITTLE_ENDIAN
+    }
+
+    /**
+     * Which byte of a register holds its high byte
+     */
+    public enum ByteOrder {
+        // High byte first, as the Modbus spec requires
+        BIG_ENDIAN,
+        // Low byte first, sent by some devices that copy their memory layout onto the wire
+        LITTLE_ENDIAN
+    }
+}
@@ -0,0 +1,186 @@
+package com.smartwatts.edge.protocol.modbus;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reassembles Modbus RTU frames from the chunks a serial port read returns.
+ *
+ * A read may return part of a frame, or the tail of one frame and the head of the next. Bytes are
+ * appended to one reusable direct buffer, and frames are cut from its front by the length their
+ * function code implies: five bytes for an exception, the byte count plus five for FC01 to FC04,
+ * eight for FC05, FC06, FC15 and FC16. Frames of other function codes end at the 3.5-character
+ * silent interval. A partial frame of known length is kept across silences until it completes or
+ * the frame timeout passes, because USB-RS485 adapters hand bytes over in fragments several
+ * milliseconds apart, well beyond the silent interval. A frame whose CRC fails is not trusted to
+ * mark a boundary: the assembler drops one byte and looks for a frame at the next. The same goes for
+ * a frame that timed out incomplete, since a corrupt byte count may claim more bytes than were sent.
+ *
+ * Not thread-safe; each port's read loop owns one assembler.
+ */
+public final class RtuFrameAssembler {
+
+    // Bits per RTU character: start, 8 data, parity or second stop, stop
+    private static final int BITS_PER_CHARACTER = 11;
+
+    // Above 19200 baud the spec fixes the silent interval instead of scaling it
+    private static final long FIXED_SILENT_INTERVAL_NANOS = 1_750_000L;
+
+    private final long silentIntervalNanos;
+    private final long frameTimeoutNanos;
+    private final FrameListener listener;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(ModbusCodec.MAX_FRAME_BYTES * 2);
+    private long lastByteNanos;
+    private long frameStartNanos;
+    private long frames;
+    private long crcErrors;
+    private long discardedBytes;
+
+    /**
+     * Receives each complete frame with a valid CRC
+     */
+    @FunctionalInterface
+    public interface FrameListener {
+        /**
+         * @param frame read-only view of the frame, CRC included, valid only during the call
+         */
+        void onFrame(ByteBuffer frame);
+    }
+
+    /**
+     * @param frameTimeoutMillis how long a partial frame of known length may take to complete,
+     *                           usually the response timeout
+     */
+    public RtuFrameAssembler(int baudRate, long frameTimeoutMillis, FrameListener listener) {
+        this.silentIntervalNanos = silentIntervalNanos(baudRate);
+        this.frameTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(frameTimeoutMillis);
+        this.listener = listener;
+    }
+
+    /**
+     * Silent interval that separates RTU frames at the given baud rate
+     */
+    public static long silentIntervalNanos(int baudRate) {
+        if (baudRate <= 0) {
+            return 0L;
+        }
+        if (baudRate > 19200) {
+            return FIXED_SILENT_INTERVAL_NANOS;
+        }
+        return (long) Math.ceil(3.5 * BITS_PER_CHARACTER * TimeUnit.SECONDS.toNanos(1) / baudRate);
+    }
+
+    /**
+     * Append bytes read from the port
+     *
+     * @param nowNanos {@link System#nanoTime()} when the read returned
+     */
+    public void accept(byte[] data, int length, long nowNanos) {
+        idle(nowNanos);
+        if (buffer.position() == 0) {
+            frameStartNanos = nowNanos;
+        }
+        lastByteNanos = nowNanos;
+        int offset = 0;
+        while (offset < length) {
+            int count = Math.min(length - offset, buffer.remaining());
+            buffer.put(data, offset, count);
+            offset += count;
+            extractFrames(false);
+            if (!buffer.hasRemaining()) {
+                // No frame start found in a full buffer; keep only what could still begin one
+                discard(buffer.position() - (ModbusCodec.MAX_FRAME_BYTES - 1));
+            }
+        }
+    }
+
+    /**
+     * Close the pending frame if the line has been silent for the silent interval, or give up on it
+     * if its length is known and it did not complete within the frame timeout; complete frames
+     * behind it are still emitted
+     */
+    public void idle(long nowNanos) {
+        if (buffer.position() == 0 || nowNanos - lastByteNanos < silentIntervalNanos) {
+            return;
+        }
+        if (!pendingLengthUnknown() && nowNanos - frameStartNanos < frameTimeoutNanos) {
+            return;
+        }
+        extractFrames(true);
+        discard(buffer.position());
+    }
+
+    public long getFrames() {
+        return frames;
+    }
+
+    public long getCrcErrors() {
+        return crcErrors;
+    }
+
+    public long getDiscardedBytes() {
+        return discardedBytes;
+    }
+
+    /**
+     * Emit every frame at the front of the buffer
+     *
+     * @param silenceSeen whether the line went silent after the buffered bytes
+     */
+    private void extractFrames(boolean silenceSeen) {
+        while (buffer.position() >= 4) {
+            int length = ModbusCodec.frameLength(buffer.get(1) & 0xFF, buffer.get(2));
+            if (length < 0) {
+                if (!silenceSeen) {
+                    return;
+                }
+                length = buffer.position();
+            }
+            if (length > ModbusCodec.MAX_FRAME_BYTES) {
+                discard(1);
+                continue;
+            }
+            if (buffer.position() < length) {
+                if (!silenceSeen) {
+                    return;
+                }
+                // The line went quiet short of this length, so a frame may start at the next byte
+                discard(1);
+                continue;
+            }
+            if (!Crc16.matches(buffer, 0, length)) {
+                crcErrors++;
+                discard(1);
+                continue;
+            }
+            frames++;
+            ByteBuffer frame = buffer.duplicate();
+            frame.flip().limit(length);
+            listener.onFrame(frame.asReadOnlyBuffer());
+            consume(length);
+        }
+    }
+
+    /**
+     * Whether the pending frame's function code leaves its end to the silent interval; a frame too
+     * short to tell yet counts as known
+     */
+    private boolean pendingLengthUnknown() {
+        return buffer.position() >= 3 && ModbusCodec.frameLength(buffer.get(1) & 0xFF, buffer.get(2)) < 0;
+    }
+
+    private void discard(int count) {
+        if (count > 0) {
+            discardedBytes += count;
+            consume(count);
+        }
+    }
+
+    private void consume(int count) {
+        buffer.flip();
+        buffer.position(count);
+        buffer.compact();
+        // Whatever follows arrived with the latest read at the earliest
+        frameStartNanos = lastByteNanos;
+    }
+}
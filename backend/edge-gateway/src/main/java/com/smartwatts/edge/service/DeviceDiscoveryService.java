@@ -3,19 +3,25 @@ package com.smartwatts.edge.service;
 import com.fazecast.jSerialComm.SerialPort;
 import com.smartwatts.edge.config.RS485Configuration;
 import com.smartwatts.edge.protocol.ModbusProtocolHandler;
+import com.smartwatts.edge.protocol.modbus.ModbusCodec;
+import com.smartwatts.edge.protocol.modbus.ModbusException;
+import com.smartwatts.edge.protocol.modbus.ModbusTcpScanner;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
+import java.net.InetAddress;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Real Device Discovery Service
@@ -43,12 +49,38 @@ public class DeviceDiscoveryService {
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(4);
     private final Map<String, DiscoveredDevice> discoveredDevices = new ConcurrentHashMap<>();
     private final Map<String, DeviceScanner> activeScanners = new ConcurrentHashMap<>();
+    private final AtomicBoolean networkSweepRunning = new AtomicBoolean();
+    private ModbusTcpScanner networkScanner;
+
+    @Value("${edge.discovery.network.port:502}")
+    private int networkPort;
+
+    @Value("${edge.discovery.network.unit-id:1}")
+    private int networkUnitId;
+
+    @Value("${edge.discovery.network.max-in-flight:256}")
+    private int networkMaxInFlight;
+
+    @Value("${edge.discovery.network.connects-per-second:500}")
+    private int networkConnectsPerSecond;
+
+    @Value("${edge.discovery.network.host-interval-ms:50000}")
+    private long networkHostIntervalMs;
+
+    @Value("${edge.discovery.network.timeout-ms:1000}")
+    private long networkTimeoutMs;
+
+    @Value("${edge.discovery.network.min-prefix-length:22}")
+    private int networkMinPrefixLength;
 
     @PostConstruct
     public void initialize() {
         try {
             logger.info("Initializing Device Discovery Service...");
             
+            networkScanner = new ModbusTcpScanner(networkPort, networkUnitId, networkMaxInFlight,
+                    networkConnectsPerSecond, networkHostIntervalMs, networkTimeoutMs);
+            
             // Start device discovery
             startDeviceDiscovery();
             
@@ -158,8 +190,9 @@ public class DeviceDiscoveryService {
     private boolean testModbusDevice(SerialPort port, int unitId) {
         try {
             // Send Modbus RTU read request
-            byte[] request = createModbusRTURequest(unitId, 3, 0, 1);
-            port.writeBytes(request, request.length);
+            byte[] request = new byte[ModbusCodec.FIXED_REQUEST_BYTES];
+            int length = ModbusCodec.encodeRead(request, 0, unitId, ModbusCodec.READ_HOLDING_REGISTERS, 0, 1);
+            port.writeBytes(request, length);
             
             // Wait for response
             Thread.sleep(200);
@@ -170,7 +203,7 @@ public class DeviceDiscoveryService {
             
             if (bytesRead > 0) {
                 // Validate Modbus RTU response
-                return validateModbusResponse(response, unitId);
+                return validateModbusResponse(response, bytesRead, unitId);
             }
         } catch (Exception e) {
             logger.debug("Error testing Modbus device with unit ID {}: {}", unitId, e.getMessage());
@@ -178,63 +211,17 @@ public class DeviceDiscoveryService {
         return false;
     }
 
-    /**
-     * Create Modbus RTU request
-     */
-    private byte[] createModbusRTURequest(int unitId, int functionCode, int startAddress, int quantity) {
-        byte[] request = new byte[8];
-        request[0] = (byte) unitId;
-        request[1] = (byte) functionCode;
-        request[2] = (byte) (startAddress >> 8);
-        request[3] = (byte) (startAddress & 0xFF);
-        request[4] = (byte) (quantity >> 8);
-        request[5] = (byte) (quantity & 0xFF);
-        
-        // Calculate CRC
-        int crc = calculateCRC16(request, 0, 6);
-        request[6] = (byte) (crc & 0xFF);
-        request[7] = (byte) (crc >> 8);
-        
-        return request;
-    }
-
-    /**
-     * Calculate CRC16 for Modbus RTU
-     */
-    private int calculateCRC16(byte[] data, int offset, int length) {
-        int crc = 0xFFFF;
-        
-        for (int i = offset; i < offset + length; i++) {
-            crc ^= (data[i] & 0xFF);
-            for (int j = 0; j < 8; j++) {
-                if ((crc & 0x0001) != 0) {
-                    crc = (crc >> 1) ^ 0xA001;
-                } else {
-                    crc = crc >> 1;
-                }
-            }
-        }
-        
-        return crc;
-    }
-
     /**
      * Validate Modbus RTU response
      */
-    private boolean validateModbusResponse(byte[] response, int expectedUnitId) {
-        if (response.length < 4) return false;
-        
-        // Check unit ID
-        if ((response[0] & 0xFF) != expectedUnitId) return false;
-        
-        // Check function code (should be 3 for read holding registers)
-        if ((response[1] & 0xFF) != 3) return false;
-        
-        // Check CRC
-        int crc = calculateCRC16(response, 0, response.length - 2);
-        int receivedCRC = ((response[response.length - 2] & 0xFF) << 8) | (response[response.length - 1] & 0xFF);
-        
-        return crc == receivedCRC;
+    private boolean validateModbusResponse(byte[] response, int length, int expectedUnitId) {
+        try {
+            ModbusCodec.checkResponse(response, 0, length, expectedUnitId, ModbusCodec.READ_HOLDING_REGISTERS);
+            return true;
+        } catch (ModbusException e) {
+            // An exception response still means a Modbus device answered at this unit ID
+            return e.isDeviceException();
+        }
     }
 
     /**
@@ -305,47 +292,36 @@ public class DeviceDiscoveryService {
     }
 
     /**
-     * Discover network devices (Modbus TCP, HTTP APIs)
+     * Discover Modbus TCP devices on the gateway's local subnets
      */
     private void discoverNetworkDevices() {
-        logger.info("Starting network device discovery...");
-        
-        // Scan common IP ranges for Modbus TCP devices
-        String[] networkRanges = {"192.168.1.", "192.168.0.", "10.0.0.", "172.16.0."};
-        
-        for (String range : networkRanges) {
-            for (int i = 1; i <= 254; i++) {
-                String ip = range + i;
-                if (testNetworkDevice(ip)) {
+        if (networkScanner == null || !networkSweepRunning.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            List<InetAddress> hosts = ModbusTcpScanner.localHosts(networkMinPrefixLength);
+            logger.info("Starting network device discovery across {} hosts...", hosts.size());
+            
+            // Devices are recorded as they answer, not when the sweep ends
+            ModbusTcpScanner.SweepResult result = networkScanner.scan(hosts, address -> {
+                String ip = address.getHostAddress();
+                DiscoveredDevice existing = discoveredDevices.get(ip);
+                if (existing != null) {
+                    existing.setLastSeen(new Date());
+                } else {
                     DiscoveredDevice device = createNetworkDevice(ip);
                     discoveredDevices.put(ip, device);
                     logger.info("Discovered network device: {} at {}", device.getDeviceType(), ip);
                 }
-            }
-        }
-    }
-
-    /**
-     * Test network device connectivity
-     */
-    private boolean testNetworkDevice(String ip) {
-        try {
-            // Test Modbus TCP on port 502
-            return testModbusTCPDevice(ip, 502);
-        } catch (Exception e) {
-            return false;
-        }
-    }
-
-    /**
-     * Test Modbus TCP device
-     */
-    private boolean testModbusTCPDevice(String ip, int port) {
-        try (java.net.Socket socket = new java.net.Socket()) {
-            socket.connect(new java.net.InetSocketAddress(ip, port), 1000);
-            return true;
+            });
+            
+            logger.info("Network discovery probed {} hosts ({} skipped) in {} ms: {} connected, {} Modbus devices",
+                    result.hosts() - result.skipped(), result.skipped(), result.elapsedMs(),
+                    result.connected(), result.confirmed());
         } catch (Exception e) {
-            return false;
+            logger.error("Network device discovery failed: {}", e.getMessage());
+        } finally {
+            networkSweepRunning.set(false);
         }
     }
 
@@ -359,7 +335,7 @@ public class DeviceDiscoveryService {
         device.setProtocol("MODBUS_TCP");
         device.setConnectionType("ETHERNET");
         device.setIpAddress(ip);
-        device.setPort("502");
+        device.setPort(String.valueOf(networkPort));
         device.setStatus("DISCOVERED");
         device.setDiscoveryTime(new Date());
         device.setLastSeen(new Date());
@@ -441,6 +417,9 @@ public class DeviceDiscoveryService {
         stats.put("network_devices", getDevicesByProtocol("MODBUS_TCP").size());
         stats.put("mqtt_devices", getDevicesByProtocol("MQTT").size());
         stats.put("active_scanners", activeScanners.size());
+        if (networkScanner != null) {
+            stats.put("network_scan", networkScanner.getStats());
+        }
         
         return stats;
     }
@@ -0,0 +1,430 @@
+package com.smartwatts.edge.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Edge-local copy of device verification state, so per-message checks don't call device-service.
+ *
+ * The store is preloaded from a bulk trust snapshot of device-service, kept current by periodic
+ * delta syncs (with a full resync now and then to drop deleted devices), and written to disk after
+ * every sync so a restarted gateway can verify devices before it reaches the cloud. The gateway
+ * authenticates to device-service with its ID and key, and device-service only sends auth secrets
+ * as HMAC-SHA256 under that key. Secrets are never held in any other form, except that the last
+ * secret each device presented and had accepted is kept in memory so the uplink can vouch for its
+ * readings to energy-service.
+ *
+ * An answer is served while its entry is younger than the TTL. While device-service is unreachable
+ * older entries keep being served up to the max-stale age, so a site keeps ingesting through a WAN
+ * outage; devices the store has never seen still fail closed.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DeviceTrustStore {
+
+    private static final String SNAPSHOT_PATH = "/api/v1/device-verification/trust-snapshot";
+
+    static final String GATEWAY_ID_HEADER = "X-Gateway-Id";
+
+    static final String GATEWAY_KEY_HEADER = "X-Gateway-Key";
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    /** MAC'ed and persisted with the store, to tell whether its secret MACs were made under the current key */
+    private static final String KEY_CHECK_INPUT = "smartwatts-device-trust-store";
+
+    private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${smartwatts.device-service.url:http://localhost:8083}")
+    private String deviceServiceUrl;
+
+    @Value("${edge.trust.gateway-id:}")
+    private String gatewayId;
+
+    @Value("${edge.trust.gateway-key:}")
+    private String gatewayKey;
+
+    @Value("${edge.trust.store-path:data/device-trust.json}")
+    private String storePath;
+
+    @Value("${edge.trust.ttl-ms:300000}")
+    private long ttlMs;
+
+    @Value("${edge.trust.max-stale-ms:259200000}")
+    private long maxStaleMs;
+
+    @Value("${edge.trust.full-sync-interval-ms:3600000}")
+    private long fullSyncIntervalMs;
+
+    @Value("${edge.trust.sync-overlap-ms:60000}")
+    private long syncOverlapMs;
+
+    /** Per-message lookups, keyed by both the device ID and the device UUID */
+    private final Map<String, TrustEntry> entries = new ConcurrentHashMap<>();
+
+    /** Owners of snapshot devices, keyed like the entries */
+    private final Map<String, UUID> owners = new ConcurrentHashMap<>();
+
+    /** Devices from the bulk snapshot, by UUID, as persisted */
+    private final Map<UUID, DeviceTrust> snapshot = new ConcurrentHashMap<>();
+
+    /** Last accepted secret per device ID, in memory only and never persisted */
+    private final Map<String, String> presentedSecrets = new ConcurrentHashMap<>();
+
+    private volatile long lastSyncMillis;
+    private volatile long lastFullSyncMillis;
+    private volatile LocalDateTime watermark;
+    private volatile boolean upstreamAvailable;
+    private volatile SecretKeySpec macKey;
+
+    /**
+     * A device's trust state as served by device-service and persisted on disk
+     *
+     * @param userId owner of the device, attached to the readings the uplink forwards
+     * @param verified null in stores persisted before device-service sent it
+     * @param authSecretMac hex HMAC-SHA256 of the auth secret under this gateway's key
+     */
+    public record DeviceTrust(UUID id, String deviceId, UUID userId, boolean canSendData, Boolean verified,
+                              String authSecretMac, LocalDateTime updatedAt) {
+    }
+
+    /**
+     * @param keyCheck hex MAC of a fixed input under the key the device MACs were made with
+     */
+    record PersistedState(LocalDateTime watermark, long syncedAtMillis, List<DeviceTrust> devices, String keyCheck) {
+    }
+
+    /**
+     * @param canSendData null if only the auth secret is known
+     * @param verified whether a matching auth secret is accepted; device-service only accepts the
+     *                 secrets of verified devices
+     * @param authSecretMac null if only the verification status is known
+     * @param fromSnapshot whether the entry is confirmed by every sync rather than by its own lookup
+     */
+    private record TrustEntry(Boolean canSendData, boolean verified, byte[] authSecretMac, boolean fromSnapshot,
+                              long confirmedAtMillis) {
+    }
+
+    @PostConstruct
+    public void initialize() {
+        load();
+        Gauge.builder("smartwatts.edge.trust.devices", snapshot, Map::size)
+                .description("Devices in the local trust store")
+                .register(meterRegistry);
+        Gauge.builder("smartwatts.edge.trust.sync.age", this, store -> store.lastSyncMillis == 0
+                        ? Double.NaN : (System.currentTimeMillis() - store.lastSyncMillis) / 1000.0)
+                .description("Seconds since the trust store last synced with device-service")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        persist();
+    }
+
+    /**
+     * Cached verification decision, or empty if device-service has to be asked
+     */
+    public Optional<Boolean> canSendData(String deviceId) {
+        TrustEntry entry = entries.get(deviceId);
+        if (entry == null || entry.canSendData() == null || !usable(entry)) {
+            return Optional.empty();
+        }
+        return Optional.of(entry.canSendData());
+    }
+
+    /**
+     * Owner of a device as of the last sync, or null if the device is not in the snapshot
+     */
+    public UUID getUserId(String deviceId) {
+        return owners.get(deviceId);
+    }
+
+    /**
+     * Whether the secret matches the cached MAC of a verified device, or empty if device-service
+     * has to be asked
+     */
+    public Optional<Boolean> validateAuthSecret(String deviceId, String authSecret) {
+        TrustEntry entry = entries.get(deviceId);
+        if (entry == null || entry.authSecretMac() == null || !usable(entry)) {
+            return Optional.empty();
+        }
+        boolean valid = entry.verified() && MessageDigest.isEqual(entry.authSecretMac(), mac(authSecret));
+        if (valid) {
+            presentedSecrets.put(deviceId, authSecret);
+        }
+        return Optional.of(valid);
+    }
+
+    /**
+     * The secret a device last presented and had accepted since this gateway started, or null
+     */
+    public String getPresentedSecret(String deviceId) {
+        return presentedSecrets.get(deviceId);
+    }
+
+    /**
+     * Remember a decision device-service made for a single device
+     */
+    public void recordVerification(String deviceId, boolean canSendData) {
+        entries.compute(deviceId, (key, entry) -> new TrustEntry(canSendData, entry != null && entry.verified(),
+                entry != null ? entry.authSecretMac() : null, false, System.currentTimeMillis()));
+    }
+
+    /**
+     * Remember a secret device-service accepted for a single device, which it only does for
+     * verified devices
+     */
+    public void recordAuthSecret(String deviceId, String authSecret) {
+        byte[] secretMac = mac(authSecret);
+        entries.compute(deviceId, (key, entry) -> new TrustEntry(entry != null ? entry.canSendData() : null, true,
+                secretMac, false, System.currentTimeMillis()));
+        presentedSecrets.put(deviceId, authSecret);
+    }
+
+    /**
+     * Called when a direct call to device-service failed, so cached entries are served until the
+     * next successful sync
+     */
+    public void markUpstreamUnavailable() {
+        upstreamAvailable = false;
+    }
+
+    /**
+     * Pull the devices changed since the last sync, or all devices when a full sync is due
+     */
+    @Scheduled(fixedDelayString = "${edge.trust.refresh-interval-ms:60000}")
+    public void refresh() {
+        long now = System.currentTimeMillis();
+        LocalDateTime since = watermark;
+        boolean full = since == null || now - lastFullSyncMillis >= fullSyncIntervalMs;
+        String url = deviceServiceUrl + SNAPSHOT_PATH;
+        if (!full) {
+            // Overlap so changes committed slightly out of timestamp order are not missed
+            url += "?since=" + since.minus(Duration.ofMillis(syncOverlapMs));
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(GATEWAY_ID_HEADER, gatewayId);
+        headers.set(GATEWAY_KEY_HEADER, gatewayKey);
+        DeviceTrust[] devices;
+        try {
+            devices = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), DeviceTrust[].class).getBody();
+        } catch (RestClientException e) {
+            upstreamAvailable = false;
+            log.warn("Trust store sync failed, serving cached entries: {}", e.getMessage());
+            return;
+        }
+        apply(devices != null ? devices : new DeviceTrust[0], full, now);
+        lastSyncMillis = now;
+        if (full) {
+            lastFullSyncMillis = now;
+        }
+        upstreamAvailable = true;
+        log.debug("Trust store {} sync applied {} devices", full ? "full" : "delta", devices != null ? devices.length : 0);
+        if (full || (devices != null && devices.length > 0)) {
+            persist();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("devices", snapshot.size());
+        stats.put("entries", entries.size());
+        stats.put("upstreamAvailable", upstreamAvailable);
+        stats.put("lastSyncAgeMs", lastSyncMillis == 0 ? null : System.currentTimeMillis() - lastSyncMillis);
+        stats.put("watermark", watermark);
+        return stats;
+    }
+
+    private boolean usable(TrustEntry entry) {
+        long confirmedAt = entry.fromSnapshot() ? lastSyncMillis : entry.confirmedAtMillis();
+        long age = System.currentTimeMillis() - confirmedAt;
+        return age < ttlMs || (!upstreamAvailable && age < maxStaleMs);
+    }
+
+    private void apply(DeviceTrust[] devices, boolean full, long syncedAtMillis) {
+        if (full) {
+            Set<UUID> present = new HashSet<>();
+            for (DeviceTrust device : devices) {
+                present.add(device.id());
+            }
+            snapshot.values().removeIf(device -> {
+                if (present.contains(device.id())) {
+                    return false;
+                }
+                removeEntries(device);
+                return true;
+            });
+        }
+        LocalDateTime newest = watermark;
+        for (DeviceTrust device : devices) {
+            DeviceTrust previous = snapshot.put(device.id(), device);
+            if (previous != null && previous.deviceId() != null && !previous.deviceId().equals(device.deviceId())) {
+                entries.remove(previous.deviceId());
+                owners.remove(previous.deviceId());
+            }
+            // Stores persisted without the flag only trust secrets of devices that could send data
+            boolean verified = device.verified() != null ? device.verified() : device.canSendData();
+            TrustEntry entry = new TrustEntry(device.canSendData(), verified, hexToBytes(device.authSecretMac()),
+                    true, syncedAtMillis);
+            entries.put(device.id().toString(), entry);
+            if (device.deviceId() != null) {
+                entries.put(device.deviceId(), entry);
+            }
+            if (device.userId() != null) {
+                owners.put(device.id().toString(), device.userId());
+                if (device.deviceId() != null) {
+                    owners.put(device.deviceId(), device.userId());
+                }
+            }
+            if (device.updatedAt() != null && (newest == null || device.updatedAt().isAfter(newest))) {
+                newest = device.updatedAt();
+            }
+        }
+        watermark = newest != null ? newest : LocalDateTime.now();
+    }
+
+    private void removeEntries(DeviceTrust device) {
+        entries.remove(device.id().toString());
+        owners.remove(device.id().toString());
+        if (device.deviceId() != null) {
+            entries.remove(device.deviceId());
+            owners.remove(device.deviceId());
+        }
+    }
+
+    private void load() {
+        Path path = Paths.get(storePath);
+        if (!Files.exists(path)) {
+            return;
+        }
+        try {
+            PersistedState state = objectMapper.readValue(path.toFile(), PersistedState.class);
+            List<DeviceTrust> devices = state.devices();
+            if (!keyCheck().equals(state.keyCheck())) {
+                // MACs under another key never match; verification flags still hold until the next sync
+                log.warn("Trust store {} was written under another gateway key, dropping its secret MACs", path);
+                devices = devices.stream()
+                        .map(device -> new DeviceTrust(device.id(), device.deviceId(), device.userId(),
+                                device.canSendData(), device.verified(), null, device.updatedAt()))
+                        .toList();
+            }
+            apply(devices.toArray(new DeviceTrust[0]), true, state.syncedAtMillis());
+            watermark = state.watermark();
+            lastSyncMillis = state.syncedAtMillis();
+            log.info("Loaded {} devices from the trust store, last synced {} ms ago",
+                    snapshot.size(), System.currentTimeMillis() - lastSyncMillis);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unreadable trust store {}: {}", path, e.getMessage());
+        }
+    }
+
+    private synchronized void persist() {
+        if (lastSyncMillis == 0) {
+            return;
+        }
+        Path path = Paths.get(storePath);
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            PersistedState state = new PersistedState(watermark, lastSyncMillis, new ArrayList<>(snapshot.values()),
+                    keyCheck());
+            objectMapper.writeValue(temp.toFile(), state);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to persist trust store to {}: {}", path, e.getMessage());
+        }
+    }
+
+    private byte[] mac(String value) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(macKey());
+            return mac.doFinal(value.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(HMAC_ALGORITHM + " not available", e);
+        }
+    }
+
+    private String keyCheck() {
+        return HexFormat.of().formatHex(mac(KEY_CHECK_INPUT));
+    }
+
+    /**
+     * The gateway key, or without one a random key for this run: device-service then refuses the
+     * snapshot, so only secrets it confirmed one by one are MAC'ed and nothing persisted matches
+     */
+    private SecretKeySpec macKey() {
+        SecretKeySpec key = macKey;
+        if (key != null) {
+            return key;
+        }
+        synchronized (this) {
+            if (macKey == null) {
+                byte[] keyBytes;
+                if (gatewayKey == null || gatewayKey.isEmpty()) {
+                    keyBytes = new byte[32];
+                    new SecureRandom().nextBytes(keyBytes);
+                } else {
+                    keyBytes = gatewayKey.getBytes(StandardCharsets.UTF_8);
+                }
+                macKey = new SecretKeySpec(keyBytes, HMAC_ALGORITHM);
+            }
+            return macKey;
+        }
+    }
+
+    private static byte[] hexToBytes(String hex) {
+        if (hex == null) {
+            return null;
+        }
+        try {
+            return HexFormat.of().parseHex(hex);
+        } catch (IllegalArgumentException e) {
+            return new byte[0];
+        }
+    }
+}
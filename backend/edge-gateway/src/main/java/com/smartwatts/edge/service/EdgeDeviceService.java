@@ -5,6 +5,9 @@ import com.smartwatts.edge.model.DeviceStatus;
 import com.smartwatts.edge.model.DeviceCommand;
 import com.smartwatts.edge.protocol.MQTTProtocolHandler;
 import com.smartwatts.edge.protocol.ModbusProtocolHandler;
+import com.smartwatts.edge.storage.ReadingRingBuffer;
+import com.smartwatts.edge.storage.TelemetryOutbox;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.slf4j.Logger;
@@ -21,9 +24,13 @@ public class EdgeDeviceService {
     
     // Device registry and status tracking
     private final Map<String, DeviceStatus> deviceRegistry = new ConcurrentHashMap<>();
-    private final Map<String, List<DeviceReading>> deviceReadings = new ConcurrentHashMap<>();
+    private final Map<String, ReadingRingBuffer> deviceReadings = new ConcurrentHashMap<>();
     private final Map<String, Queue<DeviceCommand>> commandQueue = new ConcurrentHashMap<>();
     
+    // Readings kept per device; each device preallocates this many slots
+    @Value("${edge.device.reading-history-capacity:1000}")
+    private int readingHistoryCapacity = 1000;
+    
     // Protocol handlers for different IoT protocols
     private final Map<String, Object> protocolHandlers = new HashMap<>();
     
@@ -31,9 +38,18 @@ public class EdgeDeviceService {
     private final MQTTProtocolHandler mqttHandler;
     private final ModbusProtocolHandler modbusHandler;
     
-    public EdgeDeviceService(MQTTProtocolHandler mqttHandler, ModbusProtocolHandler modbusHandler) {
+    // Durable queue of readings waiting to be uplinked to energy-service
+    private final TelemetryOutbox telemetryOutbox;
+    
+    // Per-device online statistics, updated by every reading
+    private final StreamingAnomalyDetector anomalyDetector;
+    
+    public EdgeDeviceService(MQTTProtocolHandler mqttHandler, ModbusProtocolHandler modbusHandler,
+                             TelemetryOutbox telemetryOutbox, StreamingAnomalyDetector anomalyDetector) {
         this.mqttHandler = mqttHandler;
         this.modbusHandler = modbusHandler;
+        this.telemetryOutbox = telemetryOutbox;
+        this.anomalyDetector = anomalyDetector;
     }
     
     /**
@@ -101,7 +117,7 @@ public class EdgeDeviceService {
             status.setCapabilities(Arrays.asList("energy_monitoring", "real_time_data"));
             
             deviceRegistry.put(deviceId, status);
-            deviceReadings.put(deviceId, new ArrayList<>());
+            deviceReadings.computeIfAbsent(deviceId, id -> new ReadingRingBuffer(id, readingHistoryCapacity));
             commandQueue.put(deviceId, new LinkedList<>());
             
             logger.info("Discovered MQTT device: {}", deviceId);
@@ -125,7 +141,7 @@ public class EdgeDeviceService {
             status.setCapabilities(Arrays.asList("power_measurement", "load_control"));
             
             deviceRegistry.put(deviceId, status);
-            deviceReadings.put(deviceId, new ArrayList<>());
+            deviceReadings.computeIfAbsent(deviceId, id -> new ReadingRingBuffer(id, readingHistoryCapacity));
             commandQueue.put(deviceId, new LinkedList<>());
             
             logger.info("Discovered Modbus device: {}", deviceId);
@@ -149,7 +165,7 @@ public class EdgeDeviceService {
             status.setCapabilities(Arrays.asList("on_off_control", "energy_monitoring"));
             
             deviceRegistry.put(deviceId, status);
-            deviceReadings.put(deviceId, new ArrayList<>());
+            deviceReadings.computeIfAbsent(deviceId, id -> new ReadingRingBuffer(id, readingHistoryCapacity));
             commandQueue.put(deviceId, new LinkedList<>());
             
             logger.info("Discovered HTTP device: {}", deviceId);
@@ -171,13 +187,15 @@ public class EdgeDeviceService {
                 reading.setTimestamp(LocalDateTime.now());
             }
             
-            // Store reading
-            List<DeviceReading> readings = deviceReadings.get(deviceId);
-            readings.add(reading);
+            // Store reading, overwriting the oldest once the device's history is full
+            deviceReadings.get(deviceId).append(reading);
+            
+            // Score against the device's baselines; only flagged readings reach the anomaly model
+            anomalyDetector.observe(deviceId, reading);
             
-            // Keep only last 1000 readings per device
-            if (readings.size() > 1000) {
-                readings.remove(0);
+            // Queue for uplink; a full outbox only costs the cloud copy of this reading
+            if (!telemetryOutbox.append(reading)) {
+                logger.warn("Telemetry outbox full, reading from {} will not be uplinked", deviceId);
             }
             
             // Update device status
@@ -263,13 +281,13 @@ public class EdgeDeviceService {
      * Get device readings
      */
     public List<DeviceReading> getDeviceReadings(String deviceId, int limit) {
-        List<DeviceReading> readings = deviceReadings.get(deviceId);
+        ReadingRingBuffer readings = deviceReadings.get(deviceId);
         if (readings == null) {
             return new ArrayList<>();
         }
         
-        int startIndex = Math.max(0, readings.size() - limit);
-        return readings.subList(startIndex, readings.size());
+        // Snapshot copy, safe to use while the device keeps reporting
+        return readings.latest(limit);
     }
     
     /**
@@ -326,10 +344,18 @@ public class EdgeDeviceService {
         stats.put("offlineDevices", deviceRegistry.values().stream()
                 .filter(d -> "offline".equals(d.getStatus())).count());
         stats.put("totalReadings", deviceReadings.values().stream()
-                .mapToInt(List::size).sum());
+                .mapToInt(ReadingRingBuffer::size).sum());
+        stats.put("readingHistoryBytes", (long) deviceReadings.size() * readingHistoryCapacity
+                * ReadingRingBuffer.BYTES_PER_SLOT);
         stats.put("totalCommands", commandQueue.values().stream()
                 .mapToInt(Queue::size).sum());
         stats.put("protocols", new ArrayList<>(protocolHandlers.keySet()));
+        stats.put("mqttDecodeErrors", mqttHandler.getDecodeErrors());
+        stats.put("mqttPipeline", mqttHandler.getPipelineStats());
+        stats.put("modbusPolling", modbusHandler.getPollingStats());
+        stats.put("modbusReadPlans", modbusHandler.getReadPlanStats());
+        stats.put("outbox", telemetryOutbox.getStats());
+        stats.put("streamingAnomaly", anomalyDetector.getStats());
         
         return stats;
     }
@@ -10,11 +10,13 @@ import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Edge ML Service - High-level ML capabilities and business logic
- * Integrates with TensorFlowLiteService for model inference
+ * Integrates with TensorFlowLiteService for model inference. Batch inference submits every
+ * sample before waiting on any, so TensorFlowLiteService can pack them into shared invocations.
  */
 @Service
 @Slf4j
@@ -26,6 +28,9 @@ public class EdgeMLService {
     @Autowired
     private com.smartwatts.edge.storage.EdgeStorageService edgeStorageService; // Used for data persistence
     
+    @Autowired
+    private StreamingAnomalyDetector streamingAnomalyDetector;
+    
     /**
      * Check if edge storage service is available
      */
@@ -56,34 +61,48 @@ public class EdgeMLService {
      */
     public EnergyPrediction forecastEnergyConsumption(String deviceId, String facilityId, 
                                                     int horizonHours, Map<String, Double> context) {
+        return forecastEnergyConsumptionAsync(deviceId, facilityId, horizonHours, context).join();
+    }
+    
+    /**
+     * Generate energy consumption forecast without waiting for the inference batch
+     */
+    public CompletableFuture<EnergyPrediction> forecastEnergyConsumptionAsync(String deviceId, String facilityId, 
+                                                                         int horizonHours, Map<String, Double> context) {
         try {
             long startTime = System.currentTimeMillis();
             
             // Check if TensorFlow Lite is available
             if (!tensorFlowLiteService.isModelLoaded("energy_forecast")) {
                 log.warn("Energy forecast model not loaded, using fallback prediction");
-                return generateFallbackPrediction(deviceId, facilityId, horizonHours, context);
+                return CompletableFuture.completedFuture(
+                    generateFallbackPrediction(deviceId, facilityId, horizonHours, context));
             }
             
             // Generate prediction using TensorFlow Lite
             double[] consumptionData = {0.0}; // Placeholder data
-            EnergyPrediction prediction = tensorFlowLiteService.forecastEnergyConsumption(
-                consumptionData, context);
-            
-            // Cache the prediction
-            cachePrediction(deviceId, prediction);
-            
-            // Update performance metrics
-            updatePerformanceMetrics("energy_forecast", System.currentTimeMillis() - startTime);
-            
-            log.info("Generated energy forecast for device {}: {} kWh in {} hours", 
-                    deviceId, prediction.getPredictedConsumption(), horizonHours);
-            
-            return prediction;
+            return tensorFlowLiteService.forecastEnergyConsumptionAsync(consumptionData, context)
+                .thenApply(prediction -> {
+                    // Cache the prediction
+                    cachePrediction(deviceId, prediction);
+                    
+                    // Update performance metrics
+                    updatePerformanceMetrics("energy_forecast", System.currentTimeMillis() - startTime);
+                    
+                    log.info("Generated energy forecast for device {}: {} kWh in {} hours", 
+                            deviceId, prediction.getPredictedConsumption(), horizonHours);
+                    
+                    return prediction;
+                })
+                .exceptionally(e -> {
+                    log.error("Error generating energy forecast for device {}: {}", deviceId, e.getMessage(), e);
+                    return generateFallbackPrediction(deviceId, facilityId, horizonHours, context);
+                });
             
         } catch (Exception e) {
             log.error("Error generating energy forecast for device {}: {}", deviceId, e.getMessage(), e);
-            return generateFallbackPrediction(deviceId, facilityId, horizonHours, context);
+            return CompletableFuture.completedFuture(
+                generateFallbackPrediction(deviceId, facilityId, horizonHours, context));
         }
     }
     
@@ -92,46 +111,66 @@ public class EdgeMLService {
      */
     public List<AnomalyDetection> detectAnomalies(String deviceId, String facilityId, 
                                                  Map<String, Double> energyData) {
+        return detectAnomaliesAsync(deviceId, facilityId, energyData).join();
+    }
+    
+    /**
+     * Detect anomalies in energy consumption, submitting every metric before waiting on any
+     */
+    public CompletableFuture<List<AnomalyDetection>> detectAnomaliesAsync(String deviceId, String facilityId, 
+                                                                       Map<String, Double> energyData) {
         try {
             long startTime = System.currentTimeMillis();
             
-            List<AnomalyDetection> anomalies = new ArrayList<>();
-            
             // Check if TensorFlow Lite is available
             if (!tensorFlowLiteService.isModelLoaded("anomaly_detection")) {
                 log.warn("Anomaly detection model not loaded, using statistical detection");
-                return detectAnomaliesStatistical(deviceId, facilityId, energyData);
+                return CompletableFuture.completedFuture(
+                    detectAnomaliesStatistical(deviceId, facilityId, energyData));
             }
             
-            // Detect anomalies using TensorFlow Lite
+            // Detect anomalies using TensorFlow Lite, skipping values the device's baseline explains
+            LocalDateTime now = LocalDateTime.now();
+            Map<String, CompletableFuture<AnomalyDetection>> checks = new LinkedHashMap<>();
             for (Map.Entry<String, Double> entry : energyData.entrySet()) {
                 String metric = entry.getKey();
                 Double value = entry.getValue();
                 
-                if (value != null) {
-                    AnomalyDetection anomaly = tensorFlowLiteService.detectAnomaly(
-                        value, value * 0.9, new HashMap<>());
-                    
-                    if (anomaly != null && anomaly.getConfidence() >= anomalyThreshold) {
-                        anomaly.setMetric(metric); // Use the metric variable
-                        anomalies.add(anomaly);
-                    }
+                if (value != null && !streamingAnomalyDetector.isOrdinary(deviceId, metric, value, now)) {
+                    checks.put(metric, tensorFlowLiteService.detectAnomalyAsync(
+                        new double[]{value}, new HashMap<>()));
                 }
             }
             
-            // Cache detected anomalies
-            cacheAnomalies(deviceId, anomalies);
-            
-            // Update performance metrics
-            updatePerformanceMetrics("anomaly_detection", System.currentTimeMillis() - startTime);
-            
-            log.info("Detected {} anomalies for device {}", anomalies.size(), deviceId);
-            
-            return anomalies;
+            return CompletableFuture.allOf(checks.values().toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> {
+                    List<AnomalyDetection> anomalies = new ArrayList<>();
+                    checks.forEach((metric, check) -> {
+                        AnomalyDetection anomaly = check.join();
+                        if (anomaly != null && anomaly.getConfidence() >= anomalyThreshold) {
+                            anomaly.setMetric(metric); // Use the metric variable
+                            anomalies.add(anomaly);
+                        }
+                    });
+                    
+                    // Cache detected anomalies
+                    cacheAnomalies(deviceId, anomalies);
+                    
+                    // Update performance metrics
+                    updatePerformanceMetrics("anomaly_detection", System.currentTimeMillis() - startTime);
+                    
+                    log.info("Detected {} anomalies for device {}", anomalies.size(), deviceId);
+                    
+                    return anomalies;
+                })
+                .exceptionally(e -> {
+                    log.error("Error detecting anomalies for device {}: {}", deviceId, e.getMessage(), e);
+                    return detectAnomaliesStatistical(deviceId, facilityId, energyData);
+                });
             
         } catch (Exception e) {
             log.error("Error detecting anomalies for device {}: {}", deviceId, e.getMessage(), e);
-            return detectAnomaliesStatistical(deviceId, facilityId, energyData);
+            return CompletableFuture.completedFuture(detectAnomaliesStatistical(deviceId, facilityId, energyData));
         }
     }
     
@@ -140,72 +179,74 @@ public class EdgeMLService {
      */
     public List<OptimizationRecommendation> generateOptimizationRecommendations(
             String deviceId, String facilityId, Map<String, Double> currentMetrics) {
+        return generateOptimizationRecommendationsAsync(deviceId, facilityId, currentMetrics).join();
+    }
+    
+    /**
+     * Generate optimization recommendations without waiting for the inference batch
+     */
+    public CompletableFuture<List<OptimizationRecommendation>> generateOptimizationRecommendationsAsync(
+            String deviceId, String facilityId, Map<String, Double> currentMetrics) {
         try {
             long startTime = System.currentTimeMillis();
             
             // Check if TensorFlow Lite is available
             if (!tensorFlowLiteService.isModelLoaded("optimization")) {
                 log.warn("Optimization model not loaded, using rule-based recommendations");
-                return generateRuleBasedRecommendations(deviceId, facilityId, currentMetrics);
+                return CompletableFuture.completedFuture(
+                    generateRuleBasedRecommendations(deviceId, facilityId, currentMetrics));
             }
             
             // Generate recommendations using TensorFlow Lite
-            List<OptimizationRecommendation> recommendations = 
-                tensorFlowLiteService.generateOptimizationRecommendations(
-                    currentMetrics, new HashMap<>());
-            
-            // Filter by confidence threshold
-            recommendations = recommendations.stream()
-                .filter(rec -> rec.getConfidence() >= minOptimizationConfidence)
-                .toList();
-            
-            // Cache recommendations
-            cacheRecommendations(deviceId, recommendations);
-            
-            // Update performance metrics
-            updatePerformanceMetrics("optimization", System.currentTimeMillis() - startTime);
-            
-            log.info("Generated {} optimization recommendations for device {}", 
-                    recommendations.size(), deviceId);
-            
-            return recommendations;
+            return tensorFlowLiteService.generateOptimizationRecommendationsAsync(currentMetrics, new HashMap<>())
+                .thenApply(generated -> {
+                    // Filter by confidence threshold
+                    List<OptimizationRecommendation> recommendations = generated.stream()
+                        .filter(rec -> rec.getConfidence() >= minOptimizationConfidence)
+                        .toList();
+                    
+                    // Cache recommendations
+                    cacheRecommendations(deviceId, recommendations);
+                    
+                    // Update performance metrics
+                    updatePerformanceMetrics("optimization", System.currentTimeMillis() - startTime);
+                    
+                    log.info("Generated {} optimization recommendations for device {}", 
+                            recommendations.size(), deviceId);
+                    
+                    return recommendations;
+                })
+                .exceptionally(e -> {
+                    log.error("Error generating optimization recommendations for device {}: {}", 
+                            deviceId, e.getMessage(), e);
+                    return generateRuleBasedRecommendations(deviceId, facilityId, currentMetrics);
+                });
             
         } catch (Exception e) {
             log.error("Error generating optimization recommendations for device {}: {}", 
                     deviceId, e.getMessage(), e);
-            return generateRuleBasedRecommendations(deviceId, facilityId, currentMetrics);
+            return CompletableFuture.completedFuture(
+                generateRuleBasedRecommendations(deviceId, facilityId, currentMetrics));
         }
     }
     
     /**
-     * Perform batch ML inference on multiple devices
+     * Perform batch ML inference on multiple devices. Every device's inferences are submitted
+     * first and collected afterwards, so samples for the same model share interpreter batches.
      */
     public Map<String, Object> performBatchInference(List<String> deviceIds, String facilityId) {
         Map<String, Object> results = new HashMap<>();
+        Map<String, DeviceInference> submitted = new LinkedHashMap<>();
         
         for (String deviceId : deviceIds) {
             try {
-                Map<String, Object> deviceResults = new HashMap<>();
-                
                 // Get current energy metrics for the device
                 Map<String, Double> currentMetrics = getCurrentDeviceMetrics(deviceId);
                 
-                // Generate predictions
-                EnergyPrediction prediction = forecastEnergyConsumption(
-                    deviceId, facilityId, defaultPredictionHorizon, currentMetrics);
-                deviceResults.put("prediction", prediction);
-                
-                // Detect anomalies
-                List<AnomalyDetection> anomalies = detectAnomalies(
-                    deviceId, facilityId, currentMetrics);
-                deviceResults.put("anomalies", anomalies);
-                
-                // Generate recommendations
-                List<OptimizationRecommendation> recommendations = generateOptimizationRecommendations(
-                    deviceId, facilityId, currentMetrics);
-                deviceResults.put("recommendations", recommendations);
-                
-                results.put(deviceId, deviceResults);
+                submitted.put(deviceId, new DeviceInference(
+                    forecastEnergyConsumptionAsync(deviceId, facilityId, defaultPredictionHorizon, currentMetrics),
+                    detectAnomaliesAsync(deviceId, facilityId, currentMetrics),
+                    generateOptimizationRecommendationsAsync(deviceId, facilityId, currentMetrics)));
                 
             } catch (Exception e) {
                 log.error("Error performing batch inference for device {}: {}", 
@@ -214,6 +255,21 @@ public class EdgeMLService {
             }
         }
         
+        submitted.forEach((deviceId, inference) -> {
+            try {
+                Map<String, Object> deviceResults = new HashMap<>();
+                deviceResults.put("prediction", inference.prediction().join());
+                deviceResults.put("anomalies", inference.anomalies().join());
+                deviceResults.put("recommendations", inference.recommendations().join());
+                results.put(deviceId, deviceResults);
+                
+            } catch (Exception e) {
+                log.error("Error performing batch inference for device {}: {}", 
+                        deviceId, e.getMessage(), e);
+                results.put(deviceId, Map.of("error", String.valueOf(e.getMessage())));
+            }
+        });
+        
         return results;
     }
     
@@ -320,7 +376,10 @@ public class EdgeMLService {
             if (value != null) {
                 // Get historical baseline for this metric
                 double baseline = getHistoricalBaseline(deviceId, metric);
-                double threshold = baseline * 2.0; // 2x baseline threshold
+                double threshold = streamingAnomalyDetector.spikeThreshold(deviceId, metric, LocalDateTime.now());
+                if (Double.isNaN(threshold)) {
+                    threshold = baseline * 2.0; // 2x baseline threshold until the device's baseline warms up
+                }
                 
                 if (value > threshold) {
                     AnomalyDetection anomaly = AnomalyDetection.builder()
@@ -335,7 +394,7 @@ public class EdgeMLService {
                         .expectedValue(baseline)
                         .actualValue(value)
                         .deviation(value - baseline)
-                        .deviationPercentage(((value - baseline) / baseline) * 100)
+                        .deviationPercentage(baseline != 0 ? ((value - baseline) / Math.abs(baseline)) * 100 : 0)
                         .threshold(threshold)
                         .modelVersion("statistical_v1")
                         .active(true)
@@ -418,8 +477,9 @@ public class EdgeMLService {
     }
     
     private double getHistoricalBaseline(String deviceId, String metric) {
-        // Get historical baseline from storage or return default
-        return 100.0; // Default baseline
+        // Hour-of-week baseline from the device's streaming statistics, or a default before its first reading
+        MetricStream.Baseline baseline = streamingAnomalyDetector.baseline(deviceId, metric, LocalDateTime.now());
+        return baseline != null ? baseline.expected() : 100.0;
     }
     
     private void cachePrediction(String deviceId, EnergyPrediction prediction) {
@@ -471,6 +531,14 @@ public class EdgeMLService {
         tensorFlowLiteService.initializeModels();
     }
     
+    /**
+     * Inference results of one device in a batch, completed as their batches run
+     */
+    private record DeviceInference(CompletableFuture<EnergyPrediction> prediction,
+                                   CompletableFuture<List<AnomalyDetection>> anomalies,
+                                   CompletableFuture<List<OptimizationRecommendation>> recommendations) {
+    }
+    
     /**
      * Detect anomaly with simplified signature
      */
@@ -7,6 +7,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.client.ResourceAccessException;
 
+import java.util.Optional;
+
 
 @Service
 @RequiredArgsConstructor
@@ -14,6 +16,7 @@ import org.springframework.web.client.ResourceAccessException;
 public class EdgeSecurityService {
 
     private final RestTemplate restTemplate;
+    private final DeviceTrustStore deviceTrustStore;
     
     @Value("${smartwatts.device-service.url:http://localhost:8083}")
     private String deviceServiceUrl;
@@ -33,10 +36,17 @@ public class EdgeSecurityService {
             return true;
         }
 
+        // Answer from the local trust store whenever it has a current entry
+        Optional<Boolean> cached = deviceTrustStore.canSendData(deviceId);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
         try {
             String url = deviceServiceUrl + "/api/v1/device-verification/" + deviceId + "/can-send-data";
             Boolean result = restTemplate.getForObject(url, Boolean.class);
             boolean canSend = result != null && result;
+            deviceTrustStore.recordVerification(deviceId, canSend);
             
             if (canSend) {
                 log.debug("Device {} is verified and can send data", deviceId);
@@ -46,8 +56,15 @@ public class EdgeSecurityService {
             
             return canSend;
         } catch (ResourceAccessException e) {
+            // Keep trusting what the store last knew about the device while offline
+            deviceTrustStore.markUpstreamUnavailable();
+            Optional<Boolean> offline = deviceTrustStore.canSendData(deviceId);
+            if (offline.isPresent()) {
+                log.warn("Device service unreachable, using cached verification for device: {}", deviceId);
+                return offline.get();
+            }
             log.error("Cannot connect to device service to validate device: {}", deviceId, e);
-            // If we can't reach the device service, we block the data for security
+            // If we can't reach the device service and the device is unknown, we block the data for security
             return false;
         } catch (Exception e) {
             log.error("Error checking if device {} can send data", deviceId, e);
@@ -69,6 +86,11 @@ public class EdgeSecurityService {
             return false;
         }
 
+        Optional<Boolean> cached = deviceTrustStore.validateAuthSecret(deviceId, authSecret);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
         try {
             String url = deviceServiceUrl + "/api/v1/device-verification/validate-auth";
             String requestUrl = url + "?deviceId=" + deviceId + "&authSecret=" + authSecret;
@@ -76,6 +98,7 @@ public class EdgeSecurityService {
             boolean isValid = result != null && result;
             
             if (isValid) {
+                deviceTrustStore.recordAuthSecret(deviceId, authSecret);
                 log.debug("Device {} auth secret validated successfully", deviceId);
             } else {
                 log.warn("Device {} provided invalid auth secret", deviceId);
@@ -83,8 +106,14 @@ public class EdgeSecurityService {
             
             return isValid;
         } catch (ResourceAccessException e) {
+            deviceTrustStore.markUpstreamUnavailable();
+            Optional<Boolean> offline = deviceTrustStore.validateAuthSecret(deviceId, authSecret);
+            if (offline.isPresent()) {
+                log.warn("Device service unreachable, using cached auth secret for device: {}", deviceId);
+                return offline.get();
+            }
             log.error("Cannot connect to device service to validate auth secret for device: {}", deviceId, e);
-            // If we can't reach the device service, we block the data for security
+            // If we can't reach the device service and the secret is unknown, we block the data for security
             return false;
         } catch (Exception e) {
             log.error("Error validating auth secret for device: {}", deviceId, e);
@@ -92,38 +121,6 @@ public class EdgeSecurityService {
         }
     }
 
-    /**
-     * Extract device auth secret from MQTT payload or headers
-     * This method parses the MQTT message to find authentication information
-     */
-    public String extractDeviceAuthSecret(String payload) {
-        try {
-            // Simple JSON parsing to extract auth_secret field
-            // In production, use proper JSON parsing library
-            if (payload.contains("\"auth_secret\"")) {
-                int startIndex = payload.indexOf("\"auth_secret\"") + 14;
-                int endIndex = payload.indexOf("\"", startIndex);
-                if (endIndex > startIndex) {
-                    return payload.substring(startIndex, endIndex);
-                }
-            }
-            
-            // Alternative: check for auth_secret in different formats
-            if (payload.contains("auth_secret:")) {
-                int startIndex = payload.indexOf("auth_secret:") + 12;
-                int endIndex = payload.indexOf(",", startIndex);
-                if (endIndex > startIndex) {
-                    return payload.substring(startIndex, endIndex).trim();
-                }
-            }
-            
-            return null;
-        } catch (Exception e) {
-            log.error("Error extracting auth secret from payload", e);
-            return null;
-        }
-    }
-
     /**
      * Log security event for audit purposes
      */
@@ -0,0 +1,207 @@
+package com.smartwatts.edge.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Micro-batching front of one model's interpreter pool.
+ *
+ * Requests are queued and a collector thread packs them into batches. A batch closes when it
+ * reaches the maximum size or when its oldest request has waited the maximum batching delay, and
+ * runs as one interpreter invocation. The collector only starts a batch when an interpreter is
+ * free, so requests that arrive while every interpreter is busy join the next batch instead of
+ * queueing for an interpreter one by one.
+ */
+final class InferenceBatcher implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(InferenceBatcher.class);
+
+    private final String modelName;
+    private final TfLiteInterpreterPool pool;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final long timeoutMs;
+    private final DistributionSummary batchSizes;
+    private final BlockingQueue<Pending> pending;
+    private final Semaphore freeInterpreters;
+    private final ExecutorService runners;
+    private final Thread collector;
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile boolean closed;
+
+    /**
+     * @param interpreters  batches run concurrently, one per interpreter of the pool
+     * @param maxWaitMs     longest a request waits for others to share its batch
+     * @param queueCapacity requests waiting for a batch before new ones are rejected
+     * @param timeoutMs     how long a batch waits for an interpreter
+     * @param batchSizes    records the number of samples in each batch
+     */
+    InferenceBatcher(String modelName, TfLiteInterpreterPool pool, int interpreters, int maxBatchSize,
+                     long maxWaitMs, int queueCapacity, long timeoutMs, DistributionSummary batchSizes) {
+        this.modelName = modelName;
+        this.pool = pool;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxWaitMs));
+        this.timeoutMs = timeoutMs;
+        this.batchSizes = batchSizes;
+        this.pending = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        int runnerCount = Math.max(1, interpreters);
+        this.freeInterpreters = new Semaphore(runnerCount);
+        AtomicInteger runnerIndex = new AtomicInteger();
+        this.runners = Executors.newFixedThreadPool(runnerCount, task -> {
+            Thread thread = new Thread(task, "ml-" + modelName + "-" + runnerIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.collector = new Thread(this::collect, "ml-" + modelName + "-batcher");
+        this.collector.setDaemon(true);
+        this.collector.start();
+    }
+
+    /**
+     * Queue one sample for the next batch
+     *
+     * @return the model output, or a future failed with RejectedExecutionException when the queue
+     *         is full or the batcher is closed
+     */
+    CompletableFuture<float[]> submit(float[] input) {
+        CompletableFuture<float[]> future = new CompletableFuture<>();
+        if (closed || !pending.offer(new Pending(input, future, System.nanoTime()))) {
+            rejected.incrementAndGet();
+            future.completeExceptionally(new RejectedExecutionException(
+                    "Inference queue for " + modelName + " is " + (closed ? "closed" : "full")));
+        }
+        return future;
+    }
+
+    Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxBatchSize", maxBatchSize);
+        stats.put("maxWaitMs", TimeUnit.NANOSECONDS.toMillis(maxWaitNanos));
+        stats.put("queued", pending.size());
+        stats.put("rejected", rejected.get());
+        stats.put("batches", batchSizes.count());
+        stats.put("meanBatchSize", batchSizes.mean());
+        stats.put("largestBatch", (long) batchSizes.max());
+        return stats;
+    }
+
+    /**
+     * Stop collecting and fail every request that has not reached a batch yet
+     */
+    @Override
+    public void close() {
+        closed = true;
+        collector.interrupt();
+        runners.shutdown();
+        Pending request;
+        while ((request = pending.poll()) != null) {
+            request.future.completeExceptionally(new RejectedExecutionException(
+                    "Inference queue for " + modelName + " is closed"));
+        }
+    }
+
+    private void collect() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        while (!closed) {
+            try {
+                freeInterpreters.acquire();
+                try {
+                    fill(batch);
+                    List<Pending> ready = List.copyOf(batch);
+                    runners.execute(() -> {
+                        try {
+                            run(ready);
+                        } finally {
+                            freeInterpreters.release();
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    freeInterpreters.release();
+                    fail(batch, e);
+                }
+                batch.clear();
+            } catch (InterruptedException e) {
+                fail(batch, new RejectedExecutionException("Inference queue for " + modelName + " is closed"));
+                return;
+            }
+        }
+    }
+
+    /**
+     * Wait for a first request, then take more until the batch is full or the first request has
+     * waited the batching delay. Requests already queued past that delay go out immediately.
+     */
+    private void fill(List<Pending> batch) throws InterruptedException {
+        Pending first = pending.take();
+        batch.add(first);
+        long deadline = first.enqueuedNanos + maxWaitNanos;
+        while (batch.size() < maxBatchSize) {
+            pending.drainTo(batch, maxBatchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= maxBatchSize || remaining <= 0) {
+                return;
+            }
+            Pending next = pending.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void run(List<Pending> batch) {
+        // Callers that timed out no longer need a slot in the tensor
+        List<Pending> live = new ArrayList<>(batch.size());
+        for (Pending request : batch) {
+            if (!request.future.isDone()) {
+                live.add(request);
+            }
+        }
+        if (live.isEmpty()) {
+            return;
+        }
+        float[][] inputs = new float[live.size()][];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = live.get(i).input;
+        }
+        batchSizes.record(inputs.length);
+        try {
+            float[][] outputs = pool.runBatch(inputs, timeoutMs);
+            for (int i = 0; i < outputs.length; i++) {
+                live.get(i).future.complete(outputs[i]);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(live, e);
+        } catch (Exception e) {
+            logger.debug("Batch of {} failed for model {}: {}", inputs.length, modelName, e.getMessage());
+            fail(live, e);
+        }
+    }
+
+    private static void fail(List<Pending> batch, Exception cause) {
+        for (Pending request : batch) {
+            request.future.completeExceptionally(cause);
+        }
+    }
+
+    private record Pending(float[] input, CompletableFuture<float[]> future, long enqueuedNanos) {
+    }
+}
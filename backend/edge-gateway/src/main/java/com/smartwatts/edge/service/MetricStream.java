@@ -0,0 +1,187 @@
+package com.smartwatts.edge.service;
+
+/**
+ * Online statistics of one metric of one device, updated in constant time and memory per reading.
+ *
+ * Keeps a Welford mean and variance over all readings, an exponentially weighted mean and variance
+ * that follow drift, and an exponentially weighted mean and variance for each hour of the week. A
+ * reading is scored against its hour-of-week baseline once that hour has seen enough readings, and
+ * against the EWMA until then. Two detectors run on the score: a spike when its magnitude passes
+ * the z threshold, and a two-sided CUSUM that accumulates small persistent deviations into a level
+ * shift. Not thread-safe; callers serialize the readings of a device.
+ */
+final class MetricStream {
+
+    static final int HOURS_PER_WEEK = 168;
+
+    /**
+     * Readings kept for escalation to the anomaly model, which takes this many inputs
+     */
+    static final int WINDOW = 12;
+
+    // Standard deviation floor relative to the baseline, so a flat signal does not score every wobble
+    private static final double MIN_RELATIVE_STD_DEV = 0.01;
+    private static final double MIN_STD_DEV = 1e-6;
+
+    /**
+     * Which detector fired on a reading
+     */
+    enum Kind { SPIKE, SHIFT }
+
+    /**
+     * A reading the cheap detectors flagged
+     *
+     * @param zScore deviation from the baseline in standard deviations; for a shift, the sign tells
+     *               its direction
+     */
+    record Signal(Kind kind, double value, double expected, double stdDev, double zScore) {
+    }
+
+    /**
+     * Baseline a reading at some hour of the week is compared against
+     */
+    record Baseline(double expected, double stdDev, long samples) {
+    }
+
+    private final Settings settings;
+
+    // Welford
+    private long count;
+    private double mean;
+    private double m2;
+
+    // EWMA
+    private double ewma;
+    private double ewVariance;
+
+    // Hour-of-week EWMA, float to keep a device's state small
+    private final float[] seasonalMean = new float[HOURS_PER_WEEK];
+    private final float[] seasonalVariance = new float[HOURS_PER_WEEK];
+    private final int[] seasonalCount = new int[HOURS_PER_WEEK];
+
+    // CUSUM on the z-score
+    private double cusumHigh;
+    private double cusumLow;
+
+    private final double[] window = new double[WINDOW];
+    private int windowNext;
+
+    MetricStream(Settings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * Score a reading against the baseline so far, then fold it into the statistics
+     *
+     * @param hourOfWeek 0 for Monday 00:00 to 167 for Sunday 23:00
+     * @return the detector that fired, or null for an ordinary reading
+     */
+    Signal observe(double value, int hourOfWeek) {
+        Signal signal = null;
+        if (count >= settings.warmupSamples()) {
+            Baseline baseline = baseline(hourOfWeek);
+            double z = (value - baseline.expected()) / baseline.stdDev();
+            cusumHigh = Math.max(0, cusumHigh + z - settings.cusumSlack());
+            cusumLow = Math.max(0, cusumLow - z - settings.cusumSlack());
+            if (Math.abs(z) >= settings.zThreshold()) {
+                signal = new Signal(Kind.SPIKE, value, baseline.expected(), baseline.stdDev(), z);
+            } else if (cusumHigh > settings.cusumThreshold() || cusumLow > settings.cusumThreshold()) {
+                double direction = cusumHigh > cusumLow ? cusumHigh : -cusumLow;
+                signal = new Signal(Kind.SHIFT, value, baseline.expected(), baseline.stdDev(), direction);
+            }
+            if (signal != null) {
+                cusumHigh = 0;
+                cusumLow = 0;
+            }
+        }
+        update(value, hourOfWeek);
+        return signal;
+    }
+
+    /**
+     * Expected value and spread at an hour of the week: the seasonal baseline once that hour is
+     * warmed up, the EWMA otherwise
+     */
+    Baseline baseline(int hourOfWeek) {
+        double expected;
+        double variance;
+        long samples;
+        if (seasonalCount[hourOfWeek] >= settings.seasonalWarmupSamples()) {
+            expected = seasonalMean[hourOfWeek];
+            variance = seasonalVariance[hourOfWeek];
+            samples = seasonalCount[hourOfWeek];
+        } else {
+            expected = ewma;
+            variance = ewVariance;
+            samples = count;
+        }
+        double floor = Math.max(MIN_STD_DEV, Math.abs(expected) * MIN_RELATIVE_STD_DEV);
+        return new Baseline(expected, Math.max(Math.sqrt(variance), floor), samples);
+    }
+
+    long count() {
+        return count;
+    }
+
+    double mean() {
+        return mean;
+    }
+
+    double variance() {
+        return count > 1 ? m2 / (count - 1) : 0;
+    }
+
+    /**
+     * The last readings, oldest first, zero-padded at the front until the window has filled
+     */
+    double[] window() {
+        double[] values = new double[WINDOW];
+        for (int i = 0; i < WINDOW; i++) {
+            values[i] = window[(windowNext + i) % WINDOW];
+        }
+        return values;
+    }
+
+    private void update(double value, int hourOfWeek) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+
+        if (count == 1) {
+            ewma = value;
+        } else {
+            double diff = value - ewma;
+            ewma += settings.ewmaAlpha() * diff;
+            ewVariance = (1 - settings.ewmaAlpha()) * (ewVariance + settings.ewmaAlpha() * diff * diff);
+        }
+
+        if (seasonalCount[hourOfWeek] == 0) {
+            seasonalMean[hourOfWeek] = (float) value;
+        } else {
+            double alpha = settings.seasonalAlpha();
+            double diff = value - seasonalMean[hourOfWeek];
+            seasonalMean[hourOfWeek] += (float) (alpha * diff);
+            seasonalVariance[hourOfWeek] = (float) ((1 - alpha) * (seasonalVariance[hourOfWeek] + alpha * diff * diff));
+        }
+        if (seasonalCount[hourOfWeek] < Integer.MAX_VALUE) {
+            seasonalCount[hourOfWeek]++;
+        }
+
+        window[windowNext] = value;
+        windowNext = (windowNext + 1) % WINDOW;
+    }
+
+    /**
+     * Detector tuning shared by every stream
+     *
+     * @param warmupSamples         readings before any detector runs
+     * @param seasonalWarmupSamples readings an hour of the week needs before it is the baseline
+     * @param zThreshold            deviation in standard deviations that counts as a spike
+     * @param cusumSlack            deviation per reading, in standard deviations, CUSUM tolerates
+     * @param cusumThreshold        accumulated deviation that counts as a level shift
+     */
+    record Settings(int warmupSamples, int seasonalWarmupSamples, double ewmaAlpha, double seasonalAlpha,
+                    double zThreshold, double cusumSlack, double cusumThreshold) {
+    }
+}
@@ -2,6 +2,9 @@ package com.smartwatts.edge.service;
 
 import com.fazecast.jSerialComm.SerialPort;
 import com.smartwatts.edge.config.RS485Configuration;
+import com.smartwatts.edge.protocol.modbus.Crc16;
+import com.smartwatts.edge.protocol.modbus.ModbusCodec;
+import com.smartwatts.edge.protocol.modbus.RtuFrameAssembler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,6 +13,7 @@ import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
+import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
@@ -36,6 +40,11 @@ public class RS485SerialService {
     private final Map<String, SerialPort> openPorts = new ConcurrentHashMap<>();
     private final Map<String, RS485Configuration.RS485DeviceConfig> deviceConfigs = new ConcurrentHashMap<>();
     private final Map<String, Consumer<byte[]>> dataCallbacks = new ConcurrentHashMap<>();
+    // Device IDs indexed by unit ID, per port, so a frame finds its device without a scan
+    private final Map<String, String[]> unitIndex = new ConcurrentHashMap<>();
+    private final Map<String, RtuFrameAssembler> frameAssemblers = new ConcurrentHashMap<>();
+    // Last request sent on each port, which the next matching frame answers
+    private final Map<String, OutstandingRequest> outstandingRequests = new ConcurrentHashMap<>();
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(4);
 
     @PostConstruct
@@ -67,6 +76,7 @@ public class RS485SerialService {
     private void initializeDeviceConfigurations() {
         rs485Config.getDevices().forEach((deviceId, config) -> {
             deviceConfigs.put(deviceId, config);
+            indexDevice(deviceId, config);
             logger.info("Loaded device configuration for {}: {}:{}", deviceId, config.getPort(), config.getBaudRate());
         });
     }
@@ -142,8 +152,9 @@ public class RS485SerialService {
     private boolean testPortCommunication(SerialPort port) {
         try {
             // Send a simple Modbus RTU request (Read Holding Registers)
-            byte[] testRequest = createModbusRTURequest(1, 3, 0, 1); // Read 1 register from address 0
-            port.writeBytes(testRequest, testRequest.length);
+            byte[] testRequest = new byte[ModbusCodec.FIXED_REQUEST_BYTES];
+            int length = ModbusCodec.encodeRead(testRequest, 0, 1, ModbusCodec.READ_HOLDING_REGISTERS, 0, 1); // Read 1 register from address 0
+            port.writeBytes(testRequest, length);
             
             // Wait for response
             Thread.sleep(100);
@@ -163,23 +174,22 @@ public class RS485SerialService {
      * Start reading data from a serial port
      */
     private void startPortReading(String portName, SerialPort port) {
+        RtuFrameAssembler assembler = new RtuFrameAssembler(port.getBaudRate(), rs485Config.getReadTimeout(),
+                frame -> processReceivedFrame(portName, frame));
+        frameAssemblers.put(portName, assembler);
         scheduler.submit(() -> {
+            // Reused for every read; the assembler copies the bytes into its own buffer
             byte[] buffer = new byte[1024];
             
             while (port.isOpen()) {
                 try {
                     int bytesRead = port.readBytes(buffer, buffer.length);
                     if (bytesRead > 0) {
-                        byte[] data = Arrays.copyOf(buffer, bytesRead);
-                        
-                        // Process received data
-                        processReceivedData(portName, data);
-                        
-                        // Notify callbacks
-                        Consumer<byte[]> callback = dataCallbacks.get(portName);
-                        if (callback != null) {
-                            callback.accept(data);
-                        }
+                        assembler.accept(buffer, bytesRead, System.nanoTime());
+                    } else {
+                        // Read timed out: a frame of unknown length ends with the silence,
+                        // a partial one of known length once the read timeout has passed
+                        assembler.idle(System.nanoTime());
                     }
                 } catch (Exception e) {
                     logger.error("Error reading from port {}: {}", portName, e.getMessage());
@@ -190,23 +200,37 @@ public class RS485SerialService {
     }
     
     /**
-     * Process received RS485 data
+     * Process a complete Modbus RTU frame received on a port
      */
-    private void processReceivedData(String portName, byte[] data) {
+    private void processReceivedFrame(String portName, ByteBuffer frame) {
         try {
-            // Parse Modbus RTU response
-            if (isValidModbusRTUResponse(data)) {
-                int unitId = data[0] & 0xFF;
-                int functionCode = data[1] & 0xFF;
-                
-                logger.debug("Received Modbus RTU data from port {}: UnitId={}, FunctionCode={}", 
-                           portName, unitId, functionCode);
-                
-                // Find device configuration for this unit ID
-                String deviceId = findDeviceByUnitId(unitId);
-                if (deviceId != null) {
-                    processDeviceData(deviceId, data);
-                }
+            int unitId = frame.get(0) & 0xFF;
+            int functionCode = frame.get(1) & 0xFF;
+            
+            logger.debug("Received Modbus RTU frame from port {}: UnitId={}, FunctionCode={}", 
+                       portName, unitId, functionCode);
+            
+            // Attribute the frame to the request it answers, or else to the unit's device
+            String deviceId = null;
+            OutstandingRequest request = outstandingRequests.get(portName);
+            if (request != null && request.answeredBy(unitId, functionCode)) {
+                outstandingRequests.remove(portName, request);
+                deviceId = request.deviceId();
+            }
+            if (deviceId == null) {
+                deviceId = findDeviceByUnitId(portName, unitId);
+            }
+            
+            byte[] data = new byte[frame.remaining()];
+            frame.get(data);
+            if (deviceId != null) {
+                processDeviceData(deviceId, data);
+            }
+            
+            // Notify callbacks
+            Consumer<byte[]> callback = dataCallbacks.get(portName);
+            if (callback != null) {
+                callback.accept(data);
             }
         } catch (Exception e) {
             logger.error("Error processing RS485 data from port {}: {}", portName, e.getMessage());
@@ -214,27 +238,32 @@ public class RS485SerialService {
     }
     
     /**
-     * Check if data is a valid Modbus RTU response
+     * Check if the first bytes of a buffer form a valid Modbus RTU frame
      */
-    private boolean isValidModbusRTUResponse(byte[] data) {
-        if (data.length < 4) return false;
-        
-        // Check CRC (simplified check)
-        int crc = calculateCRC16(data, 0, data.length - 2);
-        int receivedCRC = ((data[data.length - 2] & 0xFF) << 8) | (data[data.length - 1] & 0xFF);
-        
-        return crc == receivedCRC;
+    private boolean isValidModbusRTUResponse(byte[] data, int length) {
+        return length >= 4 && Crc16.matches(data, 0, length);
     }
     
     /**
-     * Find device configuration by unit ID
+     * Find the device with a unit ID on a port
      */
-    private String findDeviceByUnitId(int unitId) {
-        return deviceConfigs.entrySet().stream()
-                .filter(entry -> entry.getValue().getUnitId() == unitId)
-                .map(Map.Entry::getKey)
-                .findFirst()
-                .orElse(null);
+    private String findDeviceByUnitId(String portName, int unitId) {
+        String[] devices = unitIndex.get(portName);
+        return devices != null && unitId < devices.length ? devices[unitId] : null;
+    }
+    
+    private void indexDevice(String deviceId, RS485Configuration.RS485DeviceConfig config) {
+        if (config.getPort() != null && config.getUnitId() >= 0 && config.getUnitId() <= 255) {
+            unitIndex.computeIfAbsent(config.getPort(), port -> new String[256])[config.getUnitId()] = deviceId;
+        }
+    }
+    
+    private void unindexDevice(String deviceId, RS485Configuration.RS485DeviceConfig config) {
+        String[] devices = config.getPort() != null ? unitIndex.get(config.getPort()) : null;
+        if (devices != null && config.getUnitId() >= 0 && config.getUnitId() <= 255
+                && deviceId.equals(devices[config.getUnitId()])) {
+            devices[config.getUnitId()] = null;
+        }
     }
     
     /**
@@ -269,6 +298,13 @@ public class RS485SerialService {
      * Send data to a specific device
      */
     public boolean sendDataToDevice(String deviceId, byte[] data) {
+        return sendDataToDevice(deviceId, data, data.length);
+    }
+
+    /**
+     * Send the first {@code length} bytes of a buffer to a specific device
+     */
+    public boolean sendDataToDevice(String deviceId, byte[] data, int length) {
         try {
             RS485Configuration.RS485DeviceConfig config = deviceConfigs.get(deviceId);
             if (config == null) {
@@ -282,11 +318,17 @@ public class RS485SerialService {
                 return false;
             }
             
+            // Remember the request so its response can be attributed to this device
+            if (length >= 2) {
+                outstandingRequests.put(config.getPort(),
+                        new OutstandingRequest(deviceId, data[0] & 0xFF, data[1] & 0xFF));
+            }
+            
             // REAL data sending
-            int bytesWritten = port.writeBytes(data, data.length);
+            int bytesWritten = port.writeBytes(data, length);
             logger.debug("Sent {} bytes to device {} on port {}", bytesWritten, deviceId, config.getPort());
             
-            return bytesWritten == data.length;
+            return bytesWritten == length;
         } catch (Exception e) {
             logger.error("Failed to send data to device {}: {}", deviceId, e.getMessage());
             return false;
@@ -303,48 +345,14 @@ public class RS485SerialService {
             return false;
         }
         
-        byte[] command = createModbusRTURequest(config.getUnitId(), functionCode, startAddress, quantity);
-        return sendDataToDevice(deviceId, command);
-    }
-
-    /**
-     * Create Modbus RTU request
-     */
-    private byte[] createModbusRTURequest(int unitId, int functionCode, int startAddress, int quantity) {
-        byte[] request = new byte[8];
-        request[0] = (byte) unitId;
-        request[1] = (byte) functionCode;
-        request[2] = (byte) (startAddress >> 8);
-        request[3] = (byte) (startAddress & 0xFF);
-        request[4] = (byte) (quantity >> 8);
-        request[5] = (byte) (quantity & 0xFF);
-        
-        // Calculate CRC
-        int crc = calculateCRC16(request, 0, 6);
-        request[6] = (byte) (crc & 0xFF);
-        request[7] = (byte) (crc >> 8);
-        
-        return request;
-    }
-
-    /**
-     * Calculate CRC16 for Modbus RTU
-     */
-    private int calculateCRC16(byte[] data, int offset, int length) {
-        int crc = 0xFFFF;
-        
-        for (int i = offset; i < offset + length; i++) {
-            crc ^= (data[i] & 0xFF);
-            for (int j = 0; j < 8; j++) {
-                if ((crc & 0x0001) != 0) {
-                    crc = (crc >> 1) ^ 0xA001;
-                } else {
-                    crc = crc >> 1;
-                }
-            }
+        byte[] command = new byte[ModbusCodec.FIXED_REQUEST_BYTES];
+        try {
+            ModbusCodec.encodeRequest(command, 0, config.getUnitId(), functionCode, startAddress, quantity);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid Modbus RTU command for device {}: {}", deviceId, e.getMessage());
+            return false;
         }
-        
-        return crc;
+        return sendDataToDevice(deviceId, command);
     }
 
     /**
@@ -367,7 +375,11 @@ public class RS485SerialService {
      * Add device configuration
      */
     public void addDevice(String deviceId, RS485Configuration.RS485DeviceConfig config) {
-        deviceConfigs.put(deviceId, config);
+        RS485Configuration.RS485DeviceConfig previous = deviceConfigs.put(deviceId, config);
+        if (previous != null) {
+            unindexDevice(deviceId, previous);
+        }
+        indexDevice(deviceId, config);
         logger.info("Added device configuration: {} on port {}", deviceId, config.getPort());
     }
 
@@ -377,6 +389,7 @@ public class RS485SerialService {
     public void removeDevice(String deviceId) {
         RS485Configuration.RS485DeviceConfig config = deviceConfigs.remove(deviceId);
         if (config != null) {
+            unindexDevice(deviceId, config);
             logger.info("Removed device configuration: {}", deviceId);
         }
     }
@@ -408,6 +421,16 @@ public class RS485SerialService {
         });
         status.put("devices", deviceStatuses);
         
+        Map<String, Object> frameStats = new HashMap<>();
+        frameAssemblers.forEach((portName, assembler) -> {
+            Map<String, Object> portStats = new HashMap<>();
+            portStats.put("frames", assembler.getFrames());
+            portStats.put("crc_errors", assembler.getCrcErrors());
+            portStats.put("discarded_bytes", assembler.getDiscardedBytes());
+            frameStats.put(portName, portStats);
+        });
+        status.put("frame_stats", frameStats);
+        
         return status;
     }
 
@@ -430,10 +453,12 @@ public class RS485SerialService {
             }
             
             // Send a test Modbus RTU request
-            byte[] testRequest = createModbusRTURequest(config.getUnitId(), 3, 0, 1);
-            int bytesWritten = port.writeBytes(testRequest, testRequest.length);
+            byte[] testRequest = new byte[ModbusCodec.FIXED_REQUEST_BYTES];
+            int length = ModbusCodec.encodeRead(testRequest, 0, config.getUnitId(),
+                    ModbusCodec.READ_HOLDING_REGISTERS, 0, 1);
+            int bytesWritten = port.writeBytes(testRequest, length);
             
-            if (bytesWritten != testRequest.length) {
+            if (bytesWritten != length) {
                 logger.warn("Failed to write test request to device: {}", deviceId);
                 return false;
             }
@@ -445,7 +470,7 @@ public class RS485SerialService {
             byte[] response = new byte[256];
             int bytesRead = port.readBytes(response, response.length);
             
-            boolean success = bytesRead > 0 && isValidModbusRTUResponse(response);
+            boolean success = bytesRead > 0 && isValidModbusRTUResponse(response, bytesRead);
             logger.info("Communication test for device {}: {}", deviceId, success ? "PASSED" : "FAILED");
             
             return success;
@@ -455,6 +480,15 @@ public class RS485SerialService {
         }
     }
 
+    /**
+     * Request sent on a port and not yet answered
+     */
+    private record OutstandingRequest(String deviceId, int unitId, int functionCode) {
+        boolean answeredBy(int frameUnitId, int frameFunctionCode) {
+            return unitId == frameUnitId && functionCode == (frameFunctionCode & 0x7F);
+        }
+    }
+
     @PreDestroy
     public void cleanup() {
         try {
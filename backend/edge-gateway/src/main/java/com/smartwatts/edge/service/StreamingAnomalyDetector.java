@@ -0,0 +1,353 @@
+package com.smartwatts.edge.service;
+
+import com.smartwatts.edge.model.AnomalyDetection;
+import com.smartwatts.edge.model.DeviceReading;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Per-device streaming anomaly detection on the reading path.
+ *
+ * Every reading updates a {@link MetricStream} per metric in constant time, however long the
+ * device has been reporting. Only readings the cheap detectors flag are escalated to the
+ * {@code anomaly_detection} model, asynchronously so the reading path never waits for inference;
+ * when the model is not loaded the statistical verdict stands on its own. Escalations of the same
+ * metric are rate-limited by a cooldown so a sustained excursion costs one inference, not one per
+ * reading.
+ */
+@Service
+public class StreamingAnomalyDetector {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamingAnomalyDetector.class);
+
+    private static final String MODEL = "anomaly_detection";
+    private static final int RECENT_ANOMALIES = 50;
+    private static final long NEVER = Long.MIN_VALUE;
+
+    /**
+     * Reading fields tracked per device, with the anomaly types for a rise and a fall
+     */
+    enum Metric {
+        ENERGY_CONSUMPTION("energy_consumption", DeviceReading::getEnergyConsumption,
+                AnomalyDetection.AnomalyType.ENERGY_CONSUMPTION_SPIKE, AnomalyDetection.AnomalyType.ENERGY_CONSUMPTION_DROP),
+        POWER_OUTPUT("power_output", DeviceReading::getPowerOutput,
+                AnomalyDetection.AnomalyType.POWER_ANOMALY, AnomalyDetection.AnomalyType.POWER_ANOMALY),
+        VOLTAGE("voltage", DeviceReading::getVoltage,
+                AnomalyDetection.AnomalyType.VOLTAGE_SPIKE, AnomalyDetection.AnomalyType.VOLTAGE_DROP),
+        CURRENT("current", DeviceReading::getCurrent,
+                AnomalyDetection.AnomalyType.CURRENT_SURGE, AnomalyDetection.AnomalyType.CURRENT_DROP),
+        FREQUENCY("frequency", DeviceReading::getFrequency,
+                AnomalyDetection.AnomalyType.FREQUENCY_DEVIATION, AnomalyDetection.AnomalyType.FREQUENCY_DEVIATION),
+        POWER_FACTOR("power_factor", DeviceReading::getPowerFactor,
+                AnomalyDetection.AnomalyType.POWER_FACTOR_ANOMALY, AnomalyDetection.AnomalyType.POWER_FACTOR_ANOMALY);
+
+        private static final Map<String, Metric> BY_KEY = new HashMap<>();
+
+        static {
+            for (Metric metric : values()) {
+                BY_KEY.put(metric.key, metric);
+            }
+        }
+
+        final String key;
+        final ToDoubleFunction<DeviceReading> value;
+        final AnomalyDetection.AnomalyType rise;
+        final AnomalyDetection.AnomalyType fall;
+
+        Metric(String key, ToDoubleFunction<DeviceReading> value,
+               AnomalyDetection.AnomalyType rise, AnomalyDetection.AnomalyType fall) {
+            this.key = key;
+            this.value = value;
+            this.rise = rise;
+            this.fall = fall;
+        }
+
+        static Metric of(String key) {
+            return BY_KEY.get(key);
+        }
+    }
+
+    private static final Metric[] METRICS = Metric.values();
+
+    @Value("${edge.ml.anomaly.streaming.warmup-samples:30}")
+    private int warmupSamples = 30;
+
+    @Value("${edge.ml.anomaly.streaming.seasonal-warmup-samples:50}")
+    private int seasonalWarmupSamples = 50;
+
+    @Value("${edge.ml.anomaly.streaming.ewma-alpha:0.05}")
+    private double ewmaAlpha = 0.05;
+
+    @Value("${edge.ml.anomaly.streaming.seasonal-alpha:0.02}")
+    private double seasonalAlpha = 0.02;
+
+    @Value("${edge.ml.anomaly.streaming.z-threshold:4.0}")
+    private double zThreshold = 4.0;
+
+    @Value("${edge.ml.anomaly.streaming.cusum-slack:0.5}")
+    private double cusumSlack = 0.5;
+
+    @Value("${edge.ml.anomaly.streaming.cusum-threshold:8.0}")
+    private double cusumThreshold = 8.0;
+
+    @Value("${edge.ml.anomaly.streaming.escalation-cooldown-ms:60000}")
+    private long escalationCooldownMs = 60000;
+
+    @Value("${edge.ml.anomaly.threshold:0.8}")
+    private double modelThreshold = 0.8;
+
+    private final MeterRegistry meterRegistry;
+    private final TensorFlowLiteService tensorFlowLiteService;
+    private final Map<String, DeviceStreams> devices = new ConcurrentHashMap<>();
+
+    private MetricStream.Settings settings;
+    private Counter readings;
+    private Counter signals;
+    private Counter escalations;
+    private Counter confirmed;
+    private Counter dismissed;
+
+    public StreamingAnomalyDetector(MeterRegistry meterRegistry, TensorFlowLiteService tensorFlowLiteService) {
+        this.meterRegistry = meterRegistry;
+        this.tensorFlowLiteService = tensorFlowLiteService;
+    }
+
+    @PostConstruct
+    public void initialize() {
+        settings = new MetricStream.Settings(warmupSamples, seasonalWarmupSamples, ewmaAlpha, seasonalAlpha,
+                zThreshold, cusumSlack, cusumThreshold);
+        readings = Counter.builder("smartwatts.edge.anomaly.readings")
+                .description("Readings scored by the streaming anomaly detectors")
+                .register(meterRegistry);
+        signals = Counter.builder("smartwatts.edge.anomaly.signals")
+                .description("Readings flagged by the streaming detectors, after the escalation cooldown")
+                .register(meterRegistry);
+        escalations = Counter.builder("smartwatts.edge.anomaly.escalations")
+                .description("Flagged readings sent to the anomaly detection model")
+                .register(meterRegistry);
+        confirmed = Counter.builder("smartwatts.edge.anomaly.confirmed")
+                .description("Escalations the anomaly detection model scored above the threshold")
+                .register(meterRegistry);
+        dismissed = Counter.builder("smartwatts.edge.anomaly.dismissed")
+                .description("Escalations the anomaly detection model scored below the threshold")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Score a reading and fold it into the device's statistics
+     */
+    public void observe(String deviceId, DeviceReading reading) {
+        LocalDateTime timestamp = reading.getTimestamp() != null ? reading.getTimestamp() : LocalDateTime.now();
+        int hourOfWeek = hourOfWeek(timestamp);
+        long now = System.nanoTime();
+        DeviceStreams device = devices.computeIfAbsent(deviceId, id -> new DeviceStreams(settings));
+        List<Escalation> flagged = null;
+        synchronized (device) {
+            for (int i = 0; i < METRICS.length; i++) {
+                MetricStream.Signal signal = device.streams[i].observe(METRICS[i].value.applyAsDouble(reading), hourOfWeek);
+                long last = device.lastEscalationNanos[i];
+                if (signal != null && (last == NEVER || now - last >= escalationCooldownMs * 1_000_000L)) {
+                    device.lastEscalationNanos[i] = now;
+                    if (flagged == null) {
+                        flagged = new ArrayList<>(1);
+                    }
+                    flagged.add(new Escalation(METRICS[i], signal, device.streams[i].window()));
+                }
+            }
+        }
+        readings.increment();
+        if (flagged != null) {
+            for (Escalation escalation : flagged) {
+                escalate(deviceId, timestamp, device, escalation);
+            }
+        }
+    }
+
+    /**
+     * Baseline of a device's metric at a time of the week, or null before the device has reported
+     * that metric
+     */
+    MetricStream.Baseline baseline(String deviceId, String metricKey, LocalDateTime at) {
+        Metric metric = Metric.of(metricKey);
+        DeviceStreams device = devices.get(deviceId);
+        if (metric == null || device == null) {
+            return null;
+        }
+        synchronized (device) {
+            MetricStream stream = device.streams[metric.ordinal()];
+            return stream.count() > 0 ? stream.baseline(hourOfWeek(at)) : null;
+        }
+    }
+
+    /**
+     * Whether a value is within the spike threshold of a warmed-up baseline, so no model needs to
+     * look at it
+     */
+    boolean isOrdinary(String deviceId, String metricKey, double value, LocalDateTime at) {
+        MetricStream.Baseline baseline = baseline(deviceId, metricKey, at);
+        return baseline != null && baseline.samples() >= warmupSamples
+                && Math.abs(value - baseline.expected()) < zThreshold * baseline.stdDev();
+    }
+
+    /**
+     * Upper bound of ordinary values of a device's metric, or NaN before its baseline has warmed up
+     */
+    double spikeThreshold(String deviceId, String metricKey, LocalDateTime at) {
+        MetricStream.Baseline baseline = baseline(deviceId, metricKey, at);
+        if (baseline == null || baseline.samples() < warmupSamples) {
+            return Double.NaN;
+        }
+        return baseline.expected() + zThreshold * baseline.stdDev();
+    }
+
+    /**
+     * Anomalies recorded for a device, oldest first
+     */
+    public List<AnomalyDetection> getRecentAnomalies(String deviceId) {
+        DeviceStreams device = devices.get(deviceId);
+        if (device == null) {
+            return List.of();
+        }
+        synchronized (device.anomalies) {
+            return new ArrayList<>(device.anomalies);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("devices", devices.size());
+        stats.put("readings", (long) readings.count());
+        stats.put("signals", (long) signals.count());
+        stats.put("escalations", (long) escalations.count());
+        stats.put("confirmed", (long) confirmed.count());
+        stats.put("dismissed", (long) dismissed.count());
+        return stats;
+    }
+
+    private void escalate(String deviceId, LocalDateTime timestamp, DeviceStreams device, Escalation escalation) {
+        signals.increment();
+        MetricStream.Signal signal = escalation.signal();
+        if (!tensorFlowLiteService.isModelLoaded(MODEL)) {
+            record(device, toAnomaly(deviceId, timestamp, escalation, statisticalConfidence(signal),
+                    severity(signal), "streaming_v1"));
+            return;
+        }
+
+        escalations.increment();
+        Map<String, Double> context = new HashMap<>();
+        context.put("expected", signal.expected());
+        context.put("std_dev", signal.stdDev());
+        context.put("z_score", signal.zScore());
+        tensorFlowLiteService.detectAnomalyAsync(escalation.window(), context).thenAccept(result -> {
+            if (result != null && result.getConfidence() >= modelThreshold) {
+                confirmed.increment();
+                record(device, toAnomaly(deviceId, timestamp, escalation, result.getConfidence(),
+                        result.getSeverity() != null ? result.getSeverity() : severity(signal), "tflite_v1.0"));
+            } else {
+                dismissed.increment();
+            }
+        });
+    }
+
+    private void record(DeviceStreams device, AnomalyDetection anomaly) {
+        synchronized (device.anomalies) {
+            if (device.anomalies.size() >= RECENT_ANOMALIES) {
+                device.anomalies.removeFirst();
+            }
+            device.anomalies.addLast(anomaly);
+        }
+        logger.warn("Anomaly on device {} {}: {} (expected {}, confidence {})", anomaly.getDeviceId(),
+                anomaly.getMetric(), anomaly.getActualValue(), anomaly.getExpectedValue(), anomaly.getConfidence());
+    }
+
+    private AnomalyDetection toAnomaly(String deviceId, LocalDateTime timestamp, Escalation escalation,
+                                       double confidence, AnomalyDetection.AnomalySeverity severity,
+                                       String modelVersion) {
+        MetricStream.Signal signal = escalation.signal();
+        boolean rise = signal.zScore() > 0;
+        double deviation = signal.value() - signal.expected();
+        Map<String, Object> context = new HashMap<>();
+        context.put("detector", signal.kind().name());
+        context.put("z_score", signal.zScore());
+        context.put("std_dev", signal.stdDev());
+        return AnomalyDetection.builder()
+                .id(UUID.randomUUID().toString())
+                .timestamp(timestamp)
+                .deviceId(deviceId)
+                .metric(escalation.metric().key)
+                .anomalyType(rise ? escalation.metric().rise : escalation.metric().fall)
+                .severity(severity)
+                .confidence(confidence)
+                .description((signal.kind() == MetricStream.Kind.SPIKE ? "Spike" : "Level shift")
+                        + " in " + escalation.metric().key)
+                .expectedValue(signal.expected())
+                .actualValue(signal.value())
+                .deviation(deviation)
+                .deviationPercentage(signal.expected() != 0 ? deviation / Math.abs(signal.expected()) * 100 : 0)
+                .threshold(signal.expected() + (rise ? zThreshold : -zThreshold) * signal.stdDev())
+                .context(context)
+                .modelVersion(modelVersion)
+                .active(true)
+                .build();
+    }
+
+    /**
+     * Confidence of a verdict made without the model: grows with the size of the deviation
+     */
+    private static double statisticalConfidence(MetricStream.Signal signal) {
+        double z = Math.abs(signal.zScore());
+        return z / (z + 1);
+    }
+
+    private AnomalyDetection.AnomalySeverity severity(MetricStream.Signal signal) {
+        if (signal.kind() == MetricStream.Kind.SHIFT) {
+            return AnomalyDetection.AnomalySeverity.MEDIUM;
+        }
+        double z = Math.abs(signal.zScore());
+        if (z >= zThreshold * 2.5) {
+            return AnomalyDetection.AnomalySeverity.CRITICAL;
+        }
+        if (z >= zThreshold * 1.5) {
+            return AnomalyDetection.AnomalySeverity.HIGH;
+        }
+        return AnomalyDetection.AnomalySeverity.MEDIUM;
+    }
+
+    static int hourOfWeek(LocalDateTime timestamp) {
+        return (timestamp.getDayOfWeek().getValue() - 1) * 24 + timestamp.getHour();
+    }
+
+    private record Escalation(Metric metric, MetricStream.Signal signal, double[] window) {
+    }
+
+    private static final class DeviceStreams {
+        final MetricStream[] streams = new MetricStream[METRICS.length];
+        final long[] lastEscalationNanos = new long[streams.length];
+        final Deque<AnomalyDetection> anomalies = new ArrayDeque<>();
+
+        DeviceStreams(MetricStream.Settings settings) {
+            for (int i = 0; i < streams.length; i++) {
+                streams[i] = new MetricStream(settings);
+            }
+            Arrays.fill(lastEscalationNanos, NEVER);
+        }
+    }
+}
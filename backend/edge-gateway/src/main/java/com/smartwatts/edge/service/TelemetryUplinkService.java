@@ -0,0 +1,348 @@
+package com.smartwatts.edge.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartwatts.edge.model.DeviceReading;
+import com.smartwatts.edge.storage.TelemetryOutbox;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Drains the telemetry outbox to energy-service.
+ *
+ * Batches are read from the outbox's committed offset, sent gzip-compressed to the secure batch
+ * ingestion endpoint together with the auth secret each device last presented to this gateway, and
+ * committed once energy-service answered with its per-reading results. Readings it failed to store
+ * are queued again at the end of the outbox; invalid readings are counted and dropped.
+ * When energy-service is unreachable nothing is committed and the uplink backs off exponentially,
+ * so readings pile up on disk until the link returns.
+ *
+ * Nothing refused on device or auth grounds is discarded: a 401/403 for the whole batch is retried
+ * with backoff, and readings refused per device, readings of devices without a known owner and
+ * batches rejected outright go to the outbox's dead-letter log, which is replayed periodically.
+ *
+ * Device secrets are deliberately kept in memory only and never written to the outbox. After a
+ * restart, backlogged readings of a device are sent without its secret until the device presents
+ * it again; energy-service refuses those as unverified, and they wait in the dead-letter log until
+ * a replay after the device reconnected.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TelemetryUplinkService {
+
+    private static final String BATCH_PATH = "/api/v1/energy/readings/batch/secure";
+
+    private final TelemetryOutbox telemetryOutbox;
+    private final DeviceTrustStore deviceTrustStore;
+    private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${smartwatts.energy-service.url:http://localhost:8082}")
+    private String energyServiceUrl;
+
+    @Value("${edge.uplink.enabled:true}")
+    private boolean enabled;
+
+    @Value("${edge.uplink.batch-size:500}")
+    private int batchSize;
+
+    @Value("${edge.uplink.max-batch-bytes:1048576}")
+    private int maxBatchBytes;
+
+    @Value("${edge.uplink.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    @Value("${edge.uplink.initial-backoff-ms:5000}")
+    private long initialBackoffMs;
+
+    @Value("${edge.uplink.max-backoff-ms:300000}")
+    private long maxBackoffMs;
+
+    @Value("${edge.uplink.default-user-id:}")
+    private String defaultUserId;
+
+    private long backoffMs;
+    private long nextAttemptMillis;
+    private Counter sent;
+    private Counter rejected;
+    private Counter requeued;
+    private Counter unroutable;
+    private Counter deadLettered;
+    private Counter failures;
+    private Timer latency;
+
+    /**
+     * Per-reading outcome reported by energy-service, in request order
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record ItemResult(int index, String status, String error, boolean retryable) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record BatchResult(int received, int accepted, int rejected, List<ItemResult> results) {
+    }
+
+    @PostConstruct
+    public void initialize() {
+        sent = Counter.builder("smartwatts.edge.uplink.sent")
+                .description("Readings acknowledged by energy-service")
+                .register(meterRegistry);
+        rejected = Counter.builder("smartwatts.edge.uplink.rejected")
+                .description("Readings energy-service rejected for good")
+                .register(meterRegistry);
+        requeued = Counter.builder("smartwatts.edge.uplink.requeued")
+                .description("Readings queued again after a retryable rejection")
+                .register(meterRegistry);
+        unroutable = Counter.builder("smartwatts.edge.uplink.unroutable")
+                .description("Readings set aside because their device has no known owner")
+                .register(meterRegistry);
+        deadLettered = Counter.builder("smartwatts.edge.uplink.dead.lettered")
+                .description("Readings moved to the dead-letter log after energy-service refused them")
+                .register(meterRegistry);
+        failures = Counter.builder("smartwatts.edge.uplink.failures")
+                .description("Batches that could not be delivered and will be retried")
+                .register(meterRegistry);
+        latency = Timer.builder("smartwatts.edge.uplink.latency")
+                .description("Time to deliver one batch to energy-service")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Send pending readings until the outbox is drained, the per-run limit is reached or a batch fails
+     */
+    @Scheduled(fixedDelayString = "${edge.uplink.interval-ms:5000}")
+    public void drain() {
+        if (!enabled || System.currentTimeMillis() < nextAttemptMillis) {
+            return;
+        }
+        for (int i = 0; i < maxBatchesPerRun; i++) {
+            TelemetryOutbox.Batch batch;
+            try {
+                batch = telemetryOutbox.readBatch(batchSize, maxBatchBytes);
+                if (batch.isEmpty()) {
+                    // Either nothing is pending or only undecodable records were read
+                    telemetryOutbox.commit(batch.nextOffset());
+                    return;
+                }
+                if (!deliver(batch.readings())) {
+                    backOff();
+                    return;
+                }
+                telemetryOutbox.commit(batch.nextOffset());
+            } catch (IOException e) {
+                log.error("Telemetry outbox read failed: {}", e.getMessage());
+                backOff();
+                return;
+            }
+            backoffMs = 0;
+        }
+    }
+
+    /**
+     * Give dead-lettered readings another chance, e.g. once a device presented its secret again or
+     * the trust store learned its owner
+     */
+    @Scheduled(fixedDelayString = "${edge.uplink.dead-letter-replay-interval-ms:900000}",
+            initialDelayString = "${edge.uplink.dead-letter-replay-interval-ms:900000}")
+    public void replayDeadLetters() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int replayed = telemetryOutbox.replayDeadLetters();
+            if (replayed > 0) {
+                log.info("Replayed {} dead-lettered readings into the outbox", replayed);
+            }
+        } catch (IOException e) {
+            log.error("Dead-letter replay failed: {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("sent", (long) sent.count());
+        stats.put("rejected", (long) rejected.count());
+        stats.put("requeued", (long) requeued.count());
+        stats.put("unroutable", (long) unroutable.count());
+        stats.put("deadLettered", (long) deadLettered.count());
+        stats.put("failures", (long) failures.count());
+        stats.put("backoffMs", backoffMs);
+        stats.put("outbox", telemetryOutbox.getStats());
+        return stats;
+    }
+
+    /**
+     * @return false if the batch has to be sent again
+     */
+    private boolean deliver(List<DeviceReading> readings) {
+        List<DeviceReading> routed = new ArrayList<>(readings.size());
+        List<Map<String, Object>> items = new ArrayList<>(readings.size());
+        Map<String, String> secrets = new LinkedHashMap<>();
+        for (DeviceReading reading : readings) {
+            Map<String, Object> item = toEnergyReading(reading);
+            if (item == null) {
+                unroutable.increment();
+                log.warn("Setting reading from {} aside: device has no known owner", reading.getDeviceId());
+                deadLetter(reading);
+                continue;
+            }
+            routed.add(reading);
+            items.add(item);
+            String secret = deviceTrustStore.getPresentedSecret(reading.getDeviceId());
+            if (secret != null) {
+                secrets.put(reading.getDeviceId(), secret);
+            }
+        }
+        if (items.isEmpty()) {
+            return true;
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("readings", items);
+        body.put("deviceAuthSecrets", secrets);
+
+        ResponseEntity<BatchResult> response;
+        long started = System.nanoTime();
+        try {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            response = restTemplate.exchange(energyServiceUrl + BATCH_PATH, HttpMethod.POST,
+                    new HttpEntity<>(gzip(objectMapper.writeValueAsBytes(body)), headers), BatchResult.class);
+        } catch (HttpStatusCodeException e) {
+            if (isRetryable(e.getStatusCode().value())) {
+                failures.increment();
+                log.warn("Energy-service refused a batch of {} readings with {}, retrying later", items.size(), e.getStatusCode());
+                return false;
+            }
+            log.error("Energy-service rejected a batch of {} readings with {}, dead-lettering it: {}", items.size(),
+                    e.getStatusCode(), e.getResponseBodyAsString());
+            routed.forEach(this::deadLetter);
+            return true;
+        } catch (RestClientException | IOException e) {
+            failures.increment();
+            log.warn("Uplink to energy-service failed, retrying later: {}", e.getMessage());
+            return false;
+        } finally {
+            latency.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+
+        BatchResult result = response.getBody();
+        if (result == null || result.results() == null) {
+            sent.increment(items.size());
+            return true;
+        }
+        for (ItemResult item : result.results()) {
+            if ("ACCEPTED".equals(item.status())) {
+                sent.increment();
+                continue;
+            }
+            DeviceReading reading = item.index() >= 0 && item.index() < routed.size() ? routed.get(item.index()) : null;
+            if (reading != null && "DEVICE_REJECTED".equals(item.status())) {
+                // Even when retryable (device not verified yet) only an approval helps, which the periodic
+                // replay picks up; requeueing would re-post it on every drain until then
+                log.warn("Energy-service refused reading {} of the batch from {}, dead-lettering it: {}", item.index(),
+                        reading.getDeviceId(), item.error());
+                deadLetter(reading);
+            } else if (reading != null && item.retryable()) {
+                if (telemetryOutbox.append(reading)) {
+                    requeued.increment();
+                } else {
+                    deadLetter(reading);
+                }
+            } else {
+                rejected.increment();
+                log.warn("Energy-service rejected reading {} of the batch ({}): {}", item.index(), item.status(), item.error());
+            }
+        }
+        return true;
+    }
+
+    private void deadLetter(DeviceReading reading) {
+        if (telemetryOutbox.deadLetter(reading)) {
+            deadLettered.increment();
+        } else {
+            rejected.increment();
+            log.error("Dead-letter log unavailable, dropping reading from {}", reading.getDeviceId());
+        }
+    }
+
+    private Map<String, Object> toEnergyReading(DeviceReading reading) {
+        UUID userId = deviceTrustStore.getUserId(reading.getDeviceId());
+        if (userId == null && !defaultUserId.isBlank()) {
+            userId = UUID.fromString(defaultUserId);
+        }
+        if (userId == null) {
+            return null;
+        }
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("sourceReadingId", sourceReadingId(reading));
+        item.put("userId", userId);
+        item.put("deviceId", reading.getDeviceId());
+        item.put("readingTimestamp", reading.getTimestamp() != null ? reading.getTimestamp() : LocalDateTime.now());
+        item.put("voltage", reading.getVoltage());
+        item.put("current", reading.getCurrent());
+        item.put("power", reading.getPowerOutput());
+        item.put("energyConsumed", reading.getEnergyConsumption());
+        item.put("frequency", reading.getFrequency());
+        item.put("powerFactor", reading.getPowerFactor());
+        item.put("readingType", "REAL_TIME");
+        return item;
+    }
+
+    /** The outbox gives every reading a UUID; readings queued before it did are sent without one */
+    private static UUID sourceReadingId(DeviceReading reading) {
+        try {
+            return reading.getId() != null ? UUID.fromString(reading.getId()) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private void backOff() {
+        backoffMs = backoffMs == 0 ? initialBackoffMs : Math.min(backoffMs * 2, maxBackoffMs);
+        nextAttemptMillis = System.currentTimeMillis() + backoffMs;
+    }
+
+    private static boolean isRetryable(int status) {
+        return status >= 500 || status == HttpStatus.REQUEST_TIMEOUT.value() || status == HttpStatus.TOO_MANY_REQUESTS.value()
+                || status == HttpStatus.UNAUTHORIZED.value() || status == HttpStatus.FORBIDDEN.value();
+    }
+
+    private static byte[] gzip(byte[] json) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(json);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,343 @@
+package com.smartwatts.edge.service;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+
+import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool of TensorFlow Lite interpreters for one model.
+ *
+ * An Interpreter is not thread-safe, so each inference borrows one for its whole run and callers
+ * beyond the pool size wait for one to come back. Interpreters are created on demand up to the
+ * pool size, each with its own direct input and output buffers that are reused by every inference
+ * it runs. A batch of samples is packed into one {@code [N, features]} input tensor and run in a
+ * single invocation; a model whose input cannot be resized to a batch falls back to running the
+ * samples one by one on the same interpreter. The TensorFlow Lite runtime is optional on the
+ * classpath, so its API is resolved once into method handles rather than looked up by reflection
+ * per call.
+ */
+final class TfLiteInterpreterPool implements AutoCloseable {
+
+    private static final String INTERPRETER_CLASS = "org.tensorflow.lite.Interpreter";
+
+    private static Api defaultApi;
+
+    private final String modelName;
+    private final File modelFile;
+    private final int size;
+    private final int numThreads;
+    private final int inputSize;
+    private final int outputSize;
+    private final Timer latency;
+    private final Api api;
+    private final BlockingQueue<PooledInterpreter> idle;
+    private final AtomicInteger created = new AtomicInteger();
+    private final AtomicInteger waitTimeouts = new AtomicInteger();
+    private final AtomicInteger unbatchable = new AtomicInteger();
+    private volatile boolean closed;
+
+    /**
+     * Create the pool and its first interpreter, so a model the runtime cannot load fails here
+     *
+     * @param numThreads intra-op threads of each interpreter
+     * @param latency    records the duration of each interpreter run
+     */
+    TfLiteInterpreterPool(String modelName, File modelFile, int size, int numThreads,
+                          int inputSize, int outputSize, Timer latency) throws ReflectiveOperationException {
+        this(modelName, modelFile, size, numThreads, inputSize, outputSize, latency, defaultApi());
+    }
+
+    /**
+     * Create a pool over another class with the Interpreter API, with options in its nested
+     * {@code Options} class
+     */
+    TfLiteInterpreterPool(String modelName, File modelFile, int size, int numThreads, int inputSize,
+                          int outputSize, Timer latency, Class<?> interpreterClass) throws ReflectiveOperationException {
+        this(modelName, modelFile, size, numThreads, inputSize, outputSize, latency, new Api(interpreterClass));
+    }
+
+    private TfLiteInterpreterPool(String modelName, File modelFile, int size, int numThreads, int inputSize,
+                                  int outputSize, Timer latency, Api api) throws ReflectiveOperationException {
+        this.api = api;
+        this.modelName = modelName;
+        this.modelFile = modelFile;
+        this.size = Math.max(1, size);
+        this.numThreads = Math.max(1, numThreads);
+        this.inputSize = inputSize;
+        this.outputSize = outputSize;
+        this.latency = latency;
+        this.idle = new ArrayBlockingQueue<>(this.size);
+        created.incrementAndGet();
+        idle.add(create());
+    }
+
+    /**
+     * Run one inference on a borrowed interpreter
+     *
+     * @param timeoutMs how long to wait for an interpreter when all are busy
+     */
+    float[] run(float[] input, long timeoutMs) throws InterruptedException, TimeoutException {
+        return runBatch(new float[][]{input}, timeoutMs)[0];
+    }
+
+    /**
+     * Run a batch of samples on one borrowed interpreter, as a single invocation when the model
+     * accepts a batch dimension
+     *
+     * @param timeoutMs how long to wait for an interpreter when all are busy
+     * @return one output per input, in the same order
+     */
+    float[][] runBatch(float[][] inputs, long timeoutMs) throws InterruptedException, TimeoutException {
+        for (float[] input : inputs) {
+            if (input.length != inputSize) {
+                throw new IllegalArgumentException("Model " + modelName + " takes " + inputSize
+                        + " inputs, got " + input.length);
+            }
+        }
+        float[][] outputs = new float[inputs.length][];
+        PooledInterpreter pooled = borrow(timeoutMs);
+        long start = System.nanoTime();
+        try {
+            if (inputs.length > 1 && pooled.batchable && invokeBatched(pooled, inputs, outputs)) {
+                return outputs;
+            }
+            reshape(pooled, 1);
+            for (int i = 0; i < inputs.length; i++) {
+                invokeRows(pooled, inputs, i, 1, outputs);
+            }
+            return outputs;
+        } finally {
+            latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            release(pooled);
+        }
+    }
+
+    Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("poolSize", size);
+        stats.put("interpreters", created.get());
+        stats.put("idle", idle.size());
+        stats.put("intraOpThreads", numThreads);
+        stats.put("waitTimeouts", waitTimeouts.get());
+        stats.put("unbatchableInterpreters", unbatchable.get());
+        HistogramSnapshot snapshot = latency.takeSnapshot();
+        stats.put("inferences", snapshot.count());
+        stats.put("meanMs", snapshot.mean(TimeUnit.MILLISECONDS));
+        stats.put("maxMs", snapshot.max(TimeUnit.MILLISECONDS));
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            stats.put("p" + Math.round(percentile.percentile() * 100) + "Ms", percentile.value(TimeUnit.MILLISECONDS));
+        }
+        return stats;
+    }
+
+    /**
+     * Close idle interpreters now and borrowed ones as they are returned
+     */
+    @Override
+    public void close() {
+        closed = true;
+        PooledInterpreter pooled;
+        while ((pooled = idle.poll()) != null) {
+            destroy(pooled);
+        }
+    }
+
+    private PooledInterpreter borrow(long timeoutMs) throws InterruptedException, TimeoutException {
+        if (closed) {
+            throw new IllegalStateException("Interpreter pool for " + modelName + " is closed");
+        }
+        PooledInterpreter pooled = idle.poll();
+        if (pooled != null) {
+            return pooled;
+        }
+        if (created.incrementAndGet() <= size) {
+            try {
+                return create();
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                created.decrementAndGet();
+                throw new IllegalStateException("Failed to create interpreter for " + modelName, e);
+            }
+        }
+        created.decrementAndGet();
+        pooled = idle.poll(timeoutMs, TimeUnit.MILLISECONDS);
+        if (pooled == null) {
+            waitTimeouts.incrementAndGet();
+            throw new TimeoutException("No interpreter for " + modelName + " within " + timeoutMs + " ms");
+        }
+        return pooled;
+    }
+
+    private void release(PooledInterpreter pooled) {
+        if (closed || !idle.offer(pooled)) {
+            destroy(pooled);
+        }
+    }
+
+    private PooledInterpreter create() throws ReflectiveOperationException {
+        try {
+            Object options = (Object) api.newOptions.invokeExact();
+            api.setNumThreads.invokeExact(options, numThreads);
+            api.setUseNNAPI.invokeExact(options, false);
+            Object interpreter = (Object) api.newInterpreter.invokeExact(modelFile, options);
+            return new PooledInterpreter(interpreter, inputSize, outputSize);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new ReflectiveOperationException("Failed to create interpreter for " + modelName, t);
+        }
+    }
+
+    /**
+     * Resize the interpreter to the whole batch and run it once, or report false after marking the
+     * interpreter unbatchable when the model rejects the batch shape
+     */
+    private boolean invokeBatched(PooledInterpreter pooled, float[][] inputs, float[][] outputs) {
+        try {
+            reshape(pooled, inputs.length);
+            invokeRows(pooled, inputs, 0, inputs.length, outputs);
+            return true;
+        } catch (IllegalArgumentException e) {
+            pooled.batchable = false;
+            unbatchable.incrementAndGet();
+            return false;
+        }
+    }
+
+    private void reshape(PooledInterpreter pooled, int rows) {
+        if (pooled.rows == rows) {
+            return;
+        }
+        try {
+            api.resizeInput.invokeExact(pooled.interpreter, 0, new int[]{rows, inputSize});
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException("Failed to resize input of " + modelName, t);
+        }
+        pooled.shape(rows, inputSize, outputSize);
+    }
+
+    private void invokeRows(PooledInterpreter pooled, float[][] inputs, int from, int rows, float[][] outputs) {
+        pooled.inputFloats.clear();
+        for (int i = from; i < from + rows; i++) {
+            pooled.inputFloats.put(inputs[i]);
+        }
+        pooled.input.clear();
+        pooled.output.clear();
+        try {
+            api.run.invokeExact(pooled.interpreter, (Object) pooled.input, (Object) pooled.output);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException("Inference failed for " + modelName, t);
+        }
+        pooled.outputFloats.clear();
+        for (int i = from; i < from + rows; i++) {
+            outputs[i] = new float[outputSize];
+            pooled.outputFloats.get(outputs[i]);
+        }
+    }
+
+    private void destroy(PooledInterpreter pooled) {
+        try {
+            api.close.invokeExact(pooled.interpreter);
+        } catch (Throwable t) {
+            // Closing only releases native memory; nothing else to do
+        }
+    }
+
+    private static synchronized Api defaultApi() throws ReflectiveOperationException {
+        if (defaultApi == null) {
+            defaultApi = new Api(Class.forName(INTERPRETER_CLASS));
+        }
+        return defaultApi;
+    }
+
+    /**
+     * Interpreter API resolved once, adapted to Object so call sites need no TFLite types
+     */
+    private static final class Api {
+        final MethodHandle newOptions;
+        final MethodHandle setNumThreads;
+        final MethodHandle setUseNNAPI;
+        final MethodHandle newInterpreter;
+        final MethodHandle resizeInput;
+        final MethodHandle run;
+        final MethodHandle close;
+
+        Api(Class<?> interpreterClass) throws ReflectiveOperationException {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> optionsClass = Class.forName(interpreterClass.getName() + "$Options", true,
+                    interpreterClass.getClassLoader());
+            newOptions = lookup.unreflectConstructor(optionsClass.getConstructor())
+                    .asType(MethodType.methodType(Object.class));
+            setNumThreads = lookup.unreflect(optionsClass.getMethod("setNumThreads", int.class))
+                    .asType(MethodType.methodType(void.class, Object.class, int.class));
+            setUseNNAPI = lookup.unreflect(optionsClass.getMethod("setUseNNAPI", boolean.class))
+                    .asType(MethodType.methodType(void.class, Object.class, boolean.class));
+            newInterpreter = lookup.unreflectConstructor(interpreterClass.getConstructor(File.class, optionsClass))
+                    .asType(MethodType.methodType(Object.class, File.class, Object.class));
+            resizeInput = lookup.unreflect(interpreterClass.getMethod("resizeInput", int.class, int[].class))
+                    .asType(MethodType.methodType(void.class, Object.class, int.class, int[].class));
+            run = lookup.unreflect(interpreterClass.getMethod("run", Object.class, Object.class))
+                    .asType(MethodType.methodType(void.class, Object.class, Object.class, Object.class));
+            close = lookup.unreflect(interpreterClass.getMethod("close"))
+                    .asType(MethodType.methodType(void.class, Object.class));
+        }
+    }
+
+    /**
+     * An interpreter and its buffers. The buffers are views of direct storage that only grows, so
+     * switching between batch sizes does not reallocate native memory; TensorFlow Lite requires
+     * each view to match the tensor size exactly.
+     */
+    private static final class PooledInterpreter {
+        final Object interpreter;
+        int rows;
+        boolean batchable = true;
+        ByteBuffer input;
+        ByteBuffer output;
+        FloatBuffer inputFloats;
+        FloatBuffer outputFloats;
+        private ByteBuffer inputStorage;
+        private ByteBuffer outputStorage;
+
+        PooledInterpreter(Object interpreter, int inputSize, int outputSize) {
+            this.interpreter = interpreter;
+            shape(1, inputSize, outputSize);
+        }
+
+        void shape(int rows, int inputSize, int outputSize) {
+            int inputBytes = rows * inputSize * Float.BYTES;
+            int outputBytes = rows * outputSize * Float.BYTES;
+            if (inputStorage == null || inputStorage.capacity() < inputBytes) {
+                inputStorage = ByteBuffer.allocateDirect(inputBytes);
+                outputStorage = ByteBuffer.allocateDirect(outputBytes);
+            }
+            this.rows = rows;
+            this.input = view(inputStorage, inputBytes);
+            this.output = view(outputStorage, outputBytes);
+            this.inputFloats = input.asFloatBuffer();
+            this.outputFloats = output.asFloatBuffer();
+        }
+
+        private static ByteBuffer view(ByteBuffer storage, int bytes) {
+            return storage.duplicate().clear().limit(bytes).slice().order(ByteOrder.nativeOrder());
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.smartwatts.edge.storage;
+
+import com.smartwatts.edge.model.DeviceReading;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Fixed-capacity history of one device's most recent readings.
+ *
+ * Measurements are kept in parallel primitive arrays (one per field) allocated up front, so a
+ * device costs about {@value #BYTES_PER_SLOT} bytes per slot whatever it sends, and appending
+ * overwrites the oldest slot instead of shifting a list. Status strings are stored as codes into a
+ * small per-device table; reading IDs and locations are not kept, the device's last full reading
+ * is on its {@code DeviceStatus}.
+ *
+ * Appends come from a single writer at a time; on the MQTT path a device's messages are always
+ * handled by the same worker, so the guarding monitor is uncontended. Readers never lock: each
+ * slot carries a stamp with the index of the reading it holds, cleared while the slot is being
+ * rewritten, and a snapshot skips any slot whose stamp changed while it was copied.
+ */
+public class ReadingRingBuffer {
+
+    /** Timestamp, eight measurements, slot stamp and status code */
+    public static final int BYTES_PER_SLOT = 8 + 8 * 8 + 8 + 1;
+
+    private static final int MAX_STATUSES = 32;
+    private static final byte NO_STATUS = -1;
+    private static final long WRITING = -1L;
+
+    private static final VarHandle STAMPS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle WRITTEN;
+
+    static {
+        try {
+            WRITTEN = MethodHandles.lookup().findVarHandle(ReadingRingBuffer.class, "written", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final String deviceId;
+    private final int capacity;
+    private final long[] stamps;
+    private final long[] timestamps;
+    private final double[] energyConsumption;
+    private final double[] powerOutput;
+    private final double[] voltage;
+    private final double[] current;
+    private final double[] frequency;
+    private final double[] powerFactor;
+    private final double[] temperature;
+    private final double[] efficiency;
+    private final byte[] statusCodes;
+    private final String[] statuses = new String[MAX_STATUSES];
+    private int statusCount;
+
+    /** Number of readings ever appended; slot of reading {@code i} is {@code i % capacity} */
+    private long written;
+
+    public ReadingRingBuffer(String deviceId, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.deviceId = deviceId;
+        this.capacity = capacity;
+        this.stamps = new long[capacity];
+        Arrays.fill(stamps, WRITING);
+        this.timestamps = new long[capacity];
+        this.energyConsumption = new double[capacity];
+        this.powerOutput = new double[capacity];
+        this.voltage = new double[capacity];
+        this.current = new double[capacity];
+        this.frequency = new double[capacity];
+        this.powerFactor = new double[capacity];
+        this.temperature = new double[capacity];
+        this.efficiency = new double[capacity];
+        this.statusCodes = new byte[capacity];
+    }
+
+    /**
+     * Store a reading, overwriting the oldest one once the buffer is full
+     */
+    public synchronized void append(DeviceReading reading) {
+        long index = (long) WRITTEN.getOpaque(this);
+        int slot = (int) (index % capacity);
+
+        STAMPS.setOpaque(stamps, slot, WRITING);
+        // Readers must see the slot as being rewritten before any of its new values
+        VarHandle.storeStoreFence();
+
+        LocalDateTime timestamp = reading.getTimestamp();
+        timestamps[slot] = timestamp != null ? timestamp.toInstant(ZoneOffset.UTC).toEpochMilli() : Long.MIN_VALUE;
+        energyConsumption[slot] = reading.getEnergyConsumption();
+        powerOutput[slot] = reading.getPowerOutput();
+        voltage[slot] = reading.getVoltage();
+        current[slot] = reading.getCurrent();
+        frequency[slot] = reading.getFrequency();
+        powerFactor[slot] = reading.getPowerFactor();
+        temperature[slot] = reading.getTemperature();
+        efficiency[slot] = reading.getEfficiency();
+        statusCodes[slot] = statusCode(reading.getStatus());
+
+        STAMPS.setRelease(stamps, slot, index);
+        WRITTEN.setRelease(this, index + 1);
+    }
+
+    /**
+     * Copy of the most recent readings, oldest first
+     */
+    public List<DeviceReading> latest(int limit) {
+        long end = (long) WRITTEN.getAcquire(this);
+        long start = Math.max(0, end - Math.max(0, Math.min(limit, capacity)));
+        List<DeviceReading> readings = new ArrayList<>((int) (end - start));
+        for (long index = start; index < end; index++) {
+            int slot = (int) (index % capacity);
+            if ((long) STAMPS.getAcquire(stamps, slot) != index) {
+                // Already being overwritten by a newer reading
+                continue;
+            }
+            DeviceReading reading = copy(slot);
+            VarHandle.loadLoadFence();
+            if ((long) STAMPS.getOpaque(stamps, slot) == index) {
+                readings.add(reading);
+            }
+        }
+        return readings;
+    }
+
+    /**
+     * Number of readings held, at most the capacity
+     */
+    public int size() {
+        return (int) Math.min((long) WRITTEN.getAcquire(this), capacity);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Number of readings appended since the buffer was created
+     */
+    public long totalAppended() {
+        return (long) WRITTEN.getAcquire(this);
+    }
+
+    private DeviceReading copy(int slot) {
+        DeviceReading reading = new DeviceReading();
+        reading.setDeviceId(deviceId);
+        long timestamp = timestamps[slot];
+        if (timestamp != Long.MIN_VALUE) {
+            reading.setTimestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneOffset.UTC));
+        }
+        reading.setEnergyConsumption(energyConsumption[slot]);
+        reading.setPowerOutput(powerOutput[slot]);
+        reading.setVoltage(voltage[slot]);
+        reading.setCurrent(current[slot]);
+        reading.setFrequency(frequency[slot]);
+        reading.setPowerFactor(powerFactor[slot]);
+        reading.setTemperature(temperature[slot]);
+        reading.setEfficiency(efficiency[slot]);
+        byte code = statusCodes[slot];
+        reading.setStatus(code == NO_STATUS ? null : statuses[code]);
+        return reading;
+    }
+
+    // Called by the writer only; a code is published to readers by the slot's stamp
+    private byte statusCode(String status) {
+        if (status == null) {
+            return NO_STATUS;
+        }
+        for (int i = 0; i < statusCount; i++) {
+            if (statuses[i].equals(status)) {
+                return (byte) i;
+            }
+        }
+        if (statusCount == MAX_STATUSES) {
+            return NO_STATUS;
+        }
+        statuses[statusCount] = status;
+        return (byte) statusCount++;
+    }
+}
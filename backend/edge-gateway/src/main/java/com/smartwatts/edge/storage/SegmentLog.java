@@ -0,0 +1,347 @@
+package com.smartwatts.edge.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of opaque records split over fixed-size segment files.
+ *
+ * Each record is stored as {@code [int length][int crc32c][payload]}. Offsets are byte positions
+ * in the whole log, and segment files are named after the offset of their first byte, so a reader
+ * can resume anywhere. The active segment is preallocated and memory-mapped: appends are plain
+ * memory writes that survive a process crash as soon as they return, and {@link #flush()} forces
+ * them to the device. Sealed segments are read with positional reads and can be deleted once
+ * consumed.
+ *
+ * On open every segment is scanned and cut at the first record that is truncated or fails its
+ * checksum, which is where an interrupted write (e.g. a power loss) left it.
+ *
+ * Not thread-safe on its own; callers serialize access.
+ */
+public class SegmentLog implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentLog.class);
+
+    static final int HEADER_BYTES = 8;
+    private static final String SUFFIX = ".log";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private final CRC32C crc = new CRC32C();
+    private Segment active;
+
+    /**
+     * A record and the offset right after it, where the next record starts
+     */
+    public record Entry(long offset, long nextOffset, byte[] payload) {
+    }
+
+    private static final class Segment {
+        private final long baseOffset;
+        private final Path path;
+        private FileChannel channel;
+        private MappedByteBuffer mapped;
+        private int size;
+
+        private Segment(long baseOffset, Path path) {
+            this.baseOffset = baseOffset;
+            this.path = path;
+        }
+
+        private long endOffset() {
+            return baseOffset + size;
+        }
+    }
+
+    private SegmentLog(Path directory, int segmentBytes) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+    }
+
+    /**
+     * Open the log in a directory, recovering whatever an earlier process left there
+     */
+    public static SegmentLog open(Path directory, int segmentBytes) throws IOException {
+        if (segmentBytes <= HEADER_BYTES) {
+            throw new IllegalArgumentException("Segment size must exceed the record header");
+        }
+        Files.createDirectories(directory);
+        SegmentLog log = new SegmentLog(directory, segmentBytes);
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(path -> path.getFileName().toString().endsWith(SUFFIX))
+                    .forEach(path -> {
+                        String name = path.getFileName().toString();
+                        try {
+                            long base = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+                            log.segments.put(base, new Segment(base, path));
+                        } catch (NumberFormatException e) {
+                            logger.warn("Ignoring unexpected file in segment log: {}", path);
+                        }
+                    });
+        }
+        long expectedBase = -1;
+        for (Segment segment : log.segments.values()) {
+            if (expectedBase >= 0 && segment.baseOffset != expectedBase) {
+                logger.warn("Segment log has a gap before offset {}, records between {} and {} are lost",
+                        segment.baseOffset, expectedBase, segment.baseOffset);
+            }
+            try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.READ)) {
+                segment.size = log.scan(channel);
+            }
+            expectedBase = segment.endOffset();
+        }
+        if (log.segments.isEmpty()) {
+            log.active = log.createSegment(0);
+        } else {
+            log.active = log.segments.lastEntry().getValue();
+            log.mapActive();
+        }
+        return log;
+    }
+
+    /**
+     * Append a record
+     *
+     * @param payload at least one byte; recovery reads a zero length as the end of the segment
+     * @return the offset of the record
+     */
+    public long append(byte[] payload) throws IOException {
+        if (payload.length == 0) {
+            throw new IllegalArgumentException("Empty records cannot be appended");
+        }
+        int recordBytes = HEADER_BYTES + payload.length;
+        if (recordBytes > segmentBytes) {
+            throw new IllegalArgumentException("Record of " + payload.length + " bytes exceeds the segment size");
+        }
+        if (active.size + recordBytes > segmentBytes) {
+            roll();
+        }
+        crc.reset();
+        crc.update(payload);
+        MappedByteBuffer buffer = active.mapped;
+        int position = active.size;
+        buffer.putInt(position + 4, (int) crc.getValue());
+        buffer.put(position + HEADER_BYTES, payload);
+        // Length last, so a torn write never looks like a complete record
+        buffer.putInt(position, payload.length);
+        active.size += recordBytes;
+        return active.baseOffset + position;
+    }
+
+    /**
+     * Whether a record fits in the active segment, i.e. appending it will not create a new segment
+     */
+    public boolean fitsActiveSegment(int payloadBytes) {
+        return active.size + HEADER_BYTES + payloadBytes <= segmentBytes;
+    }
+
+    /**
+     * Read records starting at an offset. Reading from an offset whose segment was deleted starts
+     * at the oldest remaining record.
+     *
+     * @param maxBytes stop before a record that would exceed this many payload bytes, except for
+     *                 the first record
+     */
+    public List<Entry> read(long fromOffset, int maxRecords, int maxBytes) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        long offset = Math.max(fromOffset, startOffset());
+        int bytes = 0;
+        while (entries.size() < maxRecords && offset < endOffset()) {
+            Map.Entry<Long, Segment> floor = segments.floorEntry(offset);
+            Segment segment = floor.getValue();
+            if (offset >= segment.endOffset()) {
+                Map.Entry<Long, Segment> next = segments.higherEntry(segment.baseOffset);
+                if (next == null) {
+                    break;
+                }
+                offset = next.getKey();
+                continue;
+            }
+            int position = (int) (offset - segment.baseOffset);
+            ByteBuffer header = readBytes(segment, position, HEADER_BYTES);
+            int length = header.getInt(0);
+            if (!entries.isEmpty() && bytes + length > maxBytes) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            readBytes(segment, position + HEADER_BYTES, length).get(payload);
+            long next = offset + HEADER_BYTES + length;
+            entries.add(new Entry(offset, next, payload));
+            bytes += length;
+            offset = next;
+        }
+        return entries;
+    }
+
+    /**
+     * Delete sealed segments that only hold records before an offset
+     *
+     * @return the number of segments deleted
+     */
+    public int deleteBefore(long offset) throws IOException {
+        int deleted = 0;
+        while (segments.size() > 1) {
+            Segment oldest = segments.firstEntry().getValue();
+            if (oldest == active || oldest.endOffset() > offset) {
+                break;
+            }
+            deleteSegment(oldest);
+            deleted++;
+        }
+        return deleted;
+    }
+
+    /**
+     * Delete the oldest sealed segment regardless of whether it was consumed
+     *
+     * @return false if only the active segment is left
+     */
+    public boolean deleteOldest() throws IOException {
+        if (segments.size() <= 1) {
+            return false;
+        }
+        deleteSegment(segments.firstEntry().getValue());
+        return true;
+    }
+
+    /**
+     * Force appended records to the storage device
+     */
+    public void flush() {
+        active.mapped.force();
+    }
+
+    public long startOffset() {
+        return segments.firstKey();
+    }
+
+    public long endOffset() {
+        return active.endOffset();
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Bytes the log occupies on disk, counting the active segment's preallocated size
+     */
+    public long diskBytes() {
+        return (long) segments.size() * segmentBytes;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (active.mapped != null) {
+            active.mapped.force();
+        }
+        for (Segment segment : segments.values()) {
+            if (segment.channel != null) {
+                segment.channel.close();
+                segment.channel = null;
+            }
+            segment.mapped = null;
+        }
+    }
+
+    private void roll() throws IOException {
+        active.mapped.force();
+        // Sealed segments are read through the channel; dropping the mapping lets it be unmapped
+        active.mapped = null;
+        active = createSegment(active.endOffset());
+    }
+
+    private Segment createSegment(long baseOffset) throws IOException {
+        Path path = directory.resolve(String.format("%020d%s", baseOffset, SUFFIX));
+        Segment segment = new Segment(baseOffset, path);
+        segments.put(baseOffset, segment);
+        active = segment;
+        mapActive();
+        return segment;
+    }
+
+    private void mapActive() throws IOException {
+        active.channel = FileChannel.open(active.path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        active.mapped = active.channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        // Clear whatever recovery cut off, so records past the cut cannot resurface behind new ones
+        if (active.size + HEADER_BYTES <= segmentBytes && active.mapped.getInt(active.size) != 0) {
+            byte[] zeros = new byte[8192];
+            for (int position = active.size; position < segmentBytes; position += zeros.length) {
+                active.mapped.put(position, zeros, 0, Math.min(zeros.length, segmentBytes - position));
+            }
+        }
+    }
+
+    /**
+     * Length of the valid prefix of a segment
+     */
+    private int scan(FileChannel channel) throws IOException {
+        long fileSize = Math.min(channel.size(), segmentBytes);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        int position = 0;
+        while (position + HEADER_BYTES <= fileSize) {
+            header.clear();
+            channel.read(header, position);
+            int length = header.getInt(0);
+            if (length <= 0 || position + HEADER_BYTES + (long) length > fileSize) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            channel.read(payload, position + HEADER_BYTES);
+            payload.flip();
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != header.getInt(4)) {
+                logger.warn("Checksum mismatch at position {}, discarding the rest of the segment", position);
+                break;
+            }
+            position += HEADER_BYTES + length;
+        }
+        return position;
+    }
+
+    private ByteBuffer readBytes(Segment segment, int position, int length) throws IOException {
+        if (segment.mapped != null) {
+            return segment.mapped.slice(position, length);
+        }
+        if (segment.channel == null) {
+            segment.channel = FileChannel.open(segment.path, StandardOpenOption.READ);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (segment.channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of segment " + segment.path);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private void deleteSegment(Segment segment) throws IOException {
+        segments.remove(segment.baseOffset);
+        if (segment.channel != null) {
+            segment.channel.close();
+        }
+        Files.deleteIfExists(segment.path);
+    }
+}
@@ -0,0 +1,405 @@
+package com.smartwatts.edge.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartwatts.edge.model.DeviceReading;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Durable store-and-forward queue of accepted readings, waiting to be uplinked to energy-service.
+ *
+ * Readings are appended as JSON records to a {@link SegmentLog}. The uplink reads batches from the
+ * committed offset and commits past them once energy-service acknowledged them; the committed
+ * offset is persisted so a restarted gateway resumes where it stopped, and fully consumed segments
+ * are deleted.
+ *
+ * When the outbox reaches its size limit, or the disk runs low on free space, the overflow policy
+ * applies: {@code REJECT_NEW} refuses further readings until the uplink catches up, while
+ * {@code DROP_OLDEST} deletes the oldest segment, unsent or not, to make room.
+ *
+ * Readings energy-service refused for reasons outside the reading itself, such as a device that is
+ * not verified yet or whose auth secret the gateway does not know, are moved to a separate
+ * dead-letter log. It is replayed into the outbox now and then, and drops its oldest segment when
+ * it reaches its own size limit.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TelemetryOutbox {
+
+    private static final String OFFSET_FILE = "uplink.offset";
+    private static final String DEAD_LETTER_DIR = "dead-letter";
+    private static final String REPLAY_OFFSET_FILE = "replay.offset";
+
+    public enum OverflowPolicy {
+        REJECT_NEW, DROP_OLDEST
+    }
+
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${edge.outbox.dir:data/outbox}")
+    private String directory;
+
+    @Value("${edge.outbox.segment-bytes:67108864}")
+    private int segmentBytes;
+
+    @Value("${edge.outbox.max-bytes:2147483648}")
+    private long maxBytes;
+
+    @Value("${edge.outbox.min-free-bytes:268435456}")
+    private long minFreeBytes;
+
+    @Value("${edge.outbox.overflow-policy:REJECT_NEW}")
+    private OverflowPolicy overflowPolicy;
+
+    @Value("${edge.outbox.dead-letter-max-bytes:268435456}")
+    private long deadLetterMaxBytes;
+
+    private SegmentLog segmentLog;
+    private long committedOffset;
+    private SegmentLog deadLetters;
+    private long replayOffset;
+    private Counter appended;
+    private Counter rejected;
+    private Counter droppedSegments;
+    private Counter corrupt;
+    private Counter deadLettered;
+    private Counter droppedDeadLetters;
+
+    /**
+     * Readings read from the outbox, and the offset to commit once they are delivered
+     */
+    public record Batch(List<DeviceReading> readings, long nextOffset) {
+
+        public boolean isEmpty() {
+            return readings.isEmpty();
+        }
+    }
+
+    @PostConstruct
+    public void initialize() {
+        appended = Counter.builder("smartwatts.edge.outbox.appended")
+                .description("Readings written to the outbox")
+                .register(meterRegistry);
+        rejected = Counter.builder("smartwatts.edge.outbox.rejected")
+                .description("Readings refused because the outbox was full")
+                .register(meterRegistry);
+        droppedSegments = Counter.builder("smartwatts.edge.outbox.dropped.segments")
+                .description("Unsent segments deleted to make room for new readings")
+                .register(meterRegistry);
+        corrupt = Counter.builder("smartwatts.edge.outbox.corrupt")
+                .description("Outbox records that could not be decoded and were skipped")
+                .register(meterRegistry);
+        deadLettered = Counter.builder("smartwatts.edge.outbox.dead.lettered")
+                .description("Readings moved to the dead-letter log after energy-service refused them")
+                .register(meterRegistry);
+        droppedDeadLetters = Counter.builder("smartwatts.edge.outbox.dead.dropped.segments")
+                .description("Dead-letter segments deleted to make room for newer dead letters")
+                .register(meterRegistry);
+        Gauge.builder("smartwatts.edge.outbox.backlog", this, TelemetryOutbox::getBacklogBytes)
+                .description("Bytes of readings waiting to be uplinked")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("smartwatts.edge.outbox.disk", this, TelemetryOutbox::getDiskBytes)
+                .description("Disk space used by outbox segments")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        try {
+            open();
+        } catch (IOException e) {
+            log.error("Failed to open telemetry outbox in {}, readings will not be uplinked", directory, e);
+        }
+    }
+
+    /**
+     * Open both logs, or neither: without its dead-letter log the outbox stays unavailable rather
+     * than losing the readings energy-service refuses
+     */
+    synchronized void open() throws IOException {
+        SegmentLog outboxLog = SegmentLog.open(Paths.get(directory), segmentBytes);
+        SegmentLog deadLetterLog;
+        try {
+            deadLetterLog = SegmentLog.open(Paths.get(directory, DEAD_LETTER_DIR), segmentBytes);
+        } catch (IOException | RuntimeException e) {
+            outboxLog.close();
+            throw e;
+        }
+        committedOffset = loadOffset(outboxLog, OFFSET_FILE);
+        if (committedOffset > outboxLog.endOffset()) {
+            // Recovery cut records the uplink had already passed; new records start below its offset
+            log.warn("Committed offset {} is past the end of the outbox at {}, rewinding", committedOffset, outboxLog.endOffset());
+            committedOffset = outboxLog.endOffset();
+        }
+        replayOffset = Math.min(loadOffset(deadLetterLog, REPLAY_OFFSET_FILE), deadLetterLog.endOffset());
+        segmentLog = outboxLog;
+        deadLetters = deadLetterLog;
+        log.info("Telemetry outbox opened in {}: {} segments, {} bytes pending, {} bytes dead-lettered", directory,
+                segmentLog.segmentCount(), getBacklogBytes(), getDeadLetterBytes());
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (segmentLog == null) {
+            return;
+        }
+        try {
+            segmentLog.close();
+            if (deadLetters != null) {
+                deadLetters.close();
+            }
+        } catch (IOException e) {
+            log.warn("Failed to close telemetry outbox: {}", e.getMessage());
+        }
+        segmentLog = null;
+        deadLetters = null;
+    }
+
+    /**
+     * Queue a reading for uplink. The reading gets a UUID and a timestamp first unless it has them, so
+     * that every resend of it carries the same ID for the server to recognise it by.
+     *
+     * @return false if the outbox is full or unavailable and the reading was not stored
+     */
+    public synchronized boolean append(DeviceReading reading) {
+        if (segmentLog == null) {
+            rejected.increment();
+            return false;
+        }
+        if (!isUuid(reading.getId())) {
+            reading.setId(UUID.randomUUID().toString());
+        }
+        if (reading.getTimestamp() == null) {
+            reading.setTimestamp(LocalDateTime.now());
+        }
+        try {
+            byte[] record = objectMapper.writeValueAsBytes(reading);
+            if (!segmentLog.fitsActiveSegment(record.length) && !makeRoomForSegment()) {
+                rejected.increment();
+                log.debug("Outbox full, rejecting reading from {}", reading.getDeviceId());
+                return false;
+            }
+            segmentLog.append(record);
+            appended.increment();
+            return true;
+        } catch (IOException | RuntimeException e) {
+            rejected.increment();
+            log.error("Failed to append reading from {} to the outbox", reading.getDeviceId(), e);
+            return false;
+        }
+    }
+
+    private static boolean isUuid(String id) {
+        if (id == null) {
+            return false;
+        }
+        try {
+            UUID.fromString(id);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Set a refused reading aside until the next replay
+     *
+     * @return false if the dead-letter log is unavailable and the reading was not stored
+     */
+    public synchronized boolean deadLetter(DeviceReading reading) {
+        if (deadLetters == null) {
+            return false;
+        }
+        try {
+            byte[] record = objectMapper.writeValueAsBytes(reading);
+            while (!deadLetters.fitsActiveSegment(record.length)
+                    && deadLetters.diskBytes() + segmentBytes > deadLetterMaxBytes) {
+                if (!deadLetters.deleteOldest()) {
+                    return false;
+                }
+                droppedDeadLetters.increment();
+                log.warn("Dead-letter log full, dropped its oldest segment");
+            }
+            deadLetters.append(record);
+            deadLettered.increment();
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to dead-letter reading from {}", reading.getDeviceId(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Move dead-lettered readings back into the outbox, oldest first, as far as the outbox has room
+     *
+     * @return the number of readings moved
+     */
+    public synchronized int replayDeadLetters() throws IOException {
+        if (segmentLog == null || deadLetters == null) {
+            return 0;
+        }
+        int replayed = 0;
+        try {
+            List<SegmentLog.Entry> entries;
+            while (!(entries = deadLetters.read(replayOffset, 500, Integer.MAX_VALUE)).isEmpty()) {
+                for (SegmentLog.Entry entry : entries) {
+                    if (!segmentLog.fitsActiveSegment(entry.payload().length) && !makeRoomForSegment()) {
+                        return replayed;
+                    }
+                    segmentLog.append(entry.payload());
+                    replayOffset = entry.nextOffset();
+                    replayed++;
+                }
+            }
+        } finally {
+            if (replayed > 0) {
+                // Replayed readings are in the outbox now, so they must not be replayed twice
+                persistOffset(deadLetters, REPLAY_OFFSET_FILE, replayOffset);
+                deadLetters.deleteBefore(replayOffset);
+                appended.increment(replayed);
+            }
+        }
+        return replayed;
+    }
+
+    /**
+     * Read the oldest readings that have not been committed yet
+     */
+    public synchronized Batch readBatch(int maxRecords, int maxBytes) throws IOException {
+        if (segmentLog == null) {
+            return new Batch(List.of(), committedOffset);
+        }
+        List<SegmentLog.Entry> entries = segmentLog.read(committedOffset, maxRecords, maxBytes);
+        List<DeviceReading> readings = new ArrayList<>(entries.size());
+        for (SegmentLog.Entry entry : entries) {
+            try {
+                readings.add(objectMapper.readValue(entry.payload(), DeviceReading.class));
+            } catch (IOException e) {
+                corrupt.increment();
+                log.warn("Skipping undecodable outbox record at offset {}: {}", entry.offset(), e.getMessage());
+            }
+        }
+        long nextOffset = entries.isEmpty() ? committedOffset : entries.get(entries.size() - 1).nextOffset();
+        return new Batch(readings, nextOffset);
+    }
+
+    /**
+     * Mark everything before an offset as delivered, persist the offset and free consumed segments
+     */
+    public synchronized void commit(long offset) throws IOException {
+        if (segmentLog == null || offset <= committedOffset) {
+            return;
+        }
+        committedOffset = offset;
+        persistOffset(segmentLog, OFFSET_FILE, committedOffset);
+        segmentLog.deleteBefore(committedOffset);
+    }
+
+    /**
+     * Force appended readings to disk so they also survive a power loss
+     */
+    @Scheduled(fixedDelayString = "${edge.outbox.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        if (segmentLog != null) {
+            segmentLog.flush();
+        }
+        if (deadLetters != null) {
+            deadLetters.flush();
+        }
+    }
+
+    public synchronized long getBacklogBytes() {
+        return segmentLog == null ? 0 : segmentLog.endOffset() - Math.max(committedOffset, segmentLog.startOffset());
+    }
+
+    public synchronized long getDeadLetterBytes() {
+        return deadLetters == null ? 0 : deadLetters.endOffset() - Math.max(replayOffset, deadLetters.startOffset());
+    }
+
+    public synchronized long getDiskBytes() {
+        return segmentLog == null ? 0 : segmentLog.diskBytes();
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("available", segmentLog != null);
+        stats.put("overflowPolicy", overflowPolicy);
+        stats.put("backlogBytes", getBacklogBytes());
+        stats.put("diskBytes", getDiskBytes());
+        stats.put("segments", segmentLog == null ? 0 : segmentLog.segmentCount());
+        stats.put("committedOffset", committedOffset);
+        stats.put("appended", (long) appended.count());
+        stats.put("rejected", (long) rejected.count());
+        stats.put("droppedSegments", (long) droppedSegments.count());
+        stats.put("deadLetterBytes", getDeadLetterBytes());
+        stats.put("deadLettered", (long) deadLettered.count());
+        stats.put("droppedDeadLetterSegments", (long) droppedDeadLetters.count());
+        return stats;
+    }
+
+    /**
+     * Make sure a new segment can be created within the size limit and the disk's free space
+     */
+    private boolean makeRoomForSegment() throws IOException {
+        while (!hasRoomForSegment()) {
+            if (overflowPolicy != OverflowPolicy.DROP_OLDEST || !segmentLog.deleteOldest()) {
+                return false;
+            }
+            droppedSegments.increment();
+            log.warn("Outbox full, dropped the oldest segment; uplink resumes at offset {}", segmentLog.startOffset());
+            if (committedOffset < segmentLog.startOffset()) {
+                committedOffset = segmentLog.startOffset();
+                persistOffset(segmentLog, OFFSET_FILE, committedOffset);
+            }
+        }
+        return true;
+    }
+
+    private boolean hasRoomForSegment() throws IOException {
+        if (segmentLog.diskBytes() + segmentBytes > maxBytes) {
+            return false;
+        }
+        return Files.getFileStore(segmentLog.getDirectory()).getUsableSpace() - segmentBytes >= minFreeBytes;
+    }
+
+    private long loadOffset(SegmentLog segments, String file) {
+        Path path = segments.getDirectory().resolve(file);
+        if (!Files.exists(path)) {
+            return segments.startOffset();
+        }
+        try {
+            return Long.parseLong(Files.readString(path, StandardCharsets.UTF_8).trim());
+        } catch (IOException | NumberFormatException e) {
+            log.warn("Unreadable offset in {}, resending from the oldest reading: {}", path, e.getMessage());
+            return segments.startOffset();
+        }
+    }
+
+    private static void persistOffset(SegmentLog segments, String file, long offset) throws IOException {
+        Path path = segments.getDirectory().resolve(file);
+        Path temp = path.resolveSibling(file + ".tmp");
+        Files.writeString(temp, Long.toString(offset), StandardCharsets.UTF_8);
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
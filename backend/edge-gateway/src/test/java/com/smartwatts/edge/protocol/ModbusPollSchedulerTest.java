@@ -0,0 +1,204 @@
+package com.smartwatts.edge.protocol;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModbusPollSchedulerTest {
+
+    private ModbusPollScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new ModbusPollScheduler(new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void silentIntervalNanos_ScalesWithBaudRateUpTo19200() {
+        assertEquals(4_010_417L, ModbusPollScheduler.silentIntervalNanos(9600));
+        assertEquals(2_005_209L, ModbusPollScheduler.silentIntervalNanos(19200));
+        assertEquals(1_750_000L, ModbusPollScheduler.silentIntervalNanos(115200));
+        assertEquals(0L, ModbusPollScheduler.silentIntervalNanos(0));
+    }
+
+    @Test
+    void schedule_SameBus_NeverPollsConcurrently() throws Exception {
+        // Given
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        CountDownLatch polled = new CountDownLatch(20);
+        scheduler.start(deviceId -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(2);
+            inFlight.decrementAndGet();
+            polled.countDown();
+        });
+
+        // When
+        for (int i = 0; i < 4; i++) {
+            scheduler.schedule("meter-" + i, "rtu:/dev/ttyUSB0", 115200, 10, 0);
+        }
+
+        // Then
+        assertTrue(polled.await(5, TimeUnit.SECONDS));
+        assertEquals(1, maxInFlight.get());
+    }
+
+    @Test
+    void schedule_SeparateBuses_PollInParallel() throws Exception {
+        // Given
+        CountDownLatch bothPolling = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        scheduler.start(deviceId -> {
+            bothPolling.countDown();
+            release.await();
+        });
+
+        // When
+        scheduler.schedule("inverter-1", "rtu:/dev/ttyUSB0", 9600, 1000, 0);
+        scheduler.schedule("meter-1", "tcp:192.168.1.20:502", 0, 1000, 0);
+
+        // Then
+        assertTrue(bothPolling.await(5, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    @Test
+    void schedule_DueTogether_HigherPriorityFirst() throws Exception {
+        // Given
+        List<String> order = new CopyOnWriteArrayList<>();
+        CountDownLatch polled = new CountDownLatch(3);
+        scheduler.schedule("low", "rtu:/dev/ttyUSB0", 115200, 60000, 0);
+        scheduler.schedule("high", "rtu:/dev/ttyUSB0", 115200, 60000, 10);
+        scheduler.schedule("medium", "rtu:/dev/ttyUSB0", 115200, 60000, 5);
+        Thread.sleep(10);
+
+        // When
+        scheduler.start(deviceId -> {
+            order.add(deviceId);
+            polled.countDown();
+        });
+
+        // Then
+        assertTrue(polled.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("high", "medium", "low"), order);
+    }
+
+    @Test
+    void submit_RunsAheadOfDuePolls() throws Exception {
+        // Given
+        List<String> order = new CopyOnWriteArrayList<>();
+        CountDownLatch firstPoll = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        scheduler.start(deviceId -> {
+            order.add(deviceId);
+            firstPoll.countDown();
+            release.await();
+        });
+        scheduler.schedule("meter-1", "rtu:/dev/ttyUSB0", 115200, 60000, 0);
+        scheduler.schedule("meter-2", "rtu:/dev/ttyUSB0", 115200, 60000, 0);
+        assertTrue(firstPoll.await(5, TimeUnit.SECONDS));
+
+        // When
+        var write = scheduler.submit("rtu:/dev/ttyUSB0", 115200, () -> order.add("write"));
+        release.countDown();
+
+        // Then
+        assertTrue(write.get(5, TimeUnit.SECONDS));
+        assertEquals("write", order.get(1));
+    }
+
+    @Test
+    void cancel_StopsPolling() throws Exception {
+        // Given
+        AtomicInteger polls = new AtomicInteger();
+        CountDownLatch polled = new CountDownLatch(1);
+        scheduler.start(deviceId -> {
+            polls.incrementAndGet();
+            polled.countDown();
+        });
+        scheduler.schedule("meter-1", "tcp:192.168.1.20:502", 0, 20, 0);
+        assertTrue(polled.await(5, TimeUnit.SECONDS));
+
+        // When
+        scheduler.cancel("meter-1");
+        Thread.sleep(50);
+        int afterCancel = polls.get();
+        Thread.sleep(100);
+
+        // Then
+        assertEquals(afterCancel, polls.get());
+        assertEquals(0, scheduler.getStats().get("devices"));
+    }
+
+    @Test
+    void cancel_LastDeviceOnBus_RemovesLane() throws Exception {
+        // Given
+        scheduler.start(deviceId -> { });
+        scheduler.schedule("meter-1", "rtu:/dev/ttyUSB0", 9600, 1000, 0);
+        scheduler.schedule("meter-2", "rtu:/dev/ttyUSB0", 9600, 1000, 0);
+        Thread laneThread = Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("modbus-bus-rtu:/dev/ttyUSB0") && thread.isAlive())
+                .findFirst().orElseThrow();
+
+        // When
+        scheduler.cancel("meter-1");
+        int busesWithOneDevice = buses().size();
+        scheduler.cancel("meter-2");
+
+        // Then
+        assertEquals(1, busesWithOneDevice);
+        assertEquals(List.of(), buses());
+        laneThread.join(5000);
+        assertFalse(laneThread.isAlive());
+    }
+
+    @Test
+    void schedule_DeviceAtAnotherBaudRate_RecomputesSilentInterval() {
+        // Given
+        scheduler.schedule("meter-1", "rtu:/dev/ttyUSB0", 9600, 1000, 0);
+
+        // When
+        scheduler.schedule("meter-2", "rtu:/dev/ttyUSB0", 19200, 1000, 0);
+
+        // Then
+        assertEquals(2005L, buses().get(0).get("silentIntervalMicros"));
+    }
+
+    @Test
+    void submit_OnBusWithoutDevices_RemovesLaneAfterwards() throws Exception {
+        // Given
+        scheduler.start(deviceId -> { });
+
+        // When
+        boolean written = scheduler.submit("tcp:192.168.1.20:502", 0, () -> true).get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertTrue(written);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!buses().isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(List.of(), buses());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> buses() {
+        return (List<Map<String, Object>>) scheduler.getStats().get("buses");
+    }
+}
@@ -0,0 +1,160 @@
+package com.smartwatts.edge.protocol;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartwatts.edge.model.DeviceReading;
+import com.smartwatts.edge.protocol.modbus.Crc16;
+import com.smartwatts.edge.protocol.modbus.RegisterPoint;
+import com.smartwatts.edge.service.RS485SerialService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModbusProtocolHandlerTest {
+
+    // Register map as a client posts it to /modbus/devices
+    private static final String DEVICE_JSON = """
+            {
+              "rtuMode": true,
+              "serialPort": "/dev/ttyUSB0",
+              "baudRate": 9600,
+              "unitId": 7,
+              "registers": [
+                {"field": "VOLTAGE", "address": 100, "type": "UINT16", "scale": 0.1},
+                {"field": "ENERGY_CONSUMPTION", "functionCode": 3, "address": 102, "type": "UINT32",
+                 "scale": 0.001, "wordOrder": "LITTLE_ENDIAN"},
+                {"field": "TEMPERATURE", "address": 106, "type": "INT16", "scale": 0.1, "byteOrder": "LITTLE_ENDIAN"}
+              ]
+            }
+            """;
+
+    private final int[] holdingRegisters = new int[200];
+    private final List<byte[]> requests = new ArrayList<>();
+    // Unit ID the simulated bus answers with; -1 echoes the request's
+    private int respondingUnit = -1;
+    private ModbusPollScheduler pollScheduler;
+    private ModbusProtocolHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        holdingRegisters[100] = 2304;           // 230.4 V
+        holdingRegisters[102] = 0xE240;         // 123456 Wh, low word first
+        holdingRegisters[103] = 0x0001;
+        holdingRegisters[106] = 0xE2FF;         // -3.0 °C, i.e. 0xFFE2 with its bytes swapped
+
+        pollScheduler = new ModbusPollScheduler(new SimpleMeterRegistry());
+        handler = new ModbusProtocolHandler(pollScheduler);
+        ReflectionTestUtils.setField(handler, "rs485Service", new SimulatedBus());
+        ReflectionTestUtils.setField(handler, "rtuResponseTimeoutMs", 1000L);
+        ReflectionTestUtils.setField(handler, "maxGapRegisters", 8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pollScheduler.shutdown();
+    }
+
+    @Test
+    void readDeviceData_RegisterMapFromJson_DecodesEveryPoint() throws Exception {
+        // Given
+        ModbusProtocolHandler.ModbusDeviceConfig config =
+                new ObjectMapper().readValue(DEVICE_JSON, ModbusProtocolHandler.ModbusDeviceConfig.class);
+
+        // When
+        DeviceReading reading = handler.readDeviceData("inverter-1", config);
+
+        // Then
+        assertEquals(3, config.getRegisters().size());
+        assertEquals(RegisterPoint.ByteOrder.LITTLE_ENDIAN, config.getRegisters().get(2).byteOrder());
+        assertNotNull(reading);
+        assertEquals(230.4, reading.getVoltage(), 1e-9);
+        assertEquals(123.456, reading.getEnergyConsumption(), 1e-9);
+        assertEquals(-3.0, reading.getTemperature(), 1e-9);
+        // The three points are close enough to share one FC03 request
+        assertEquals(1, requests.size());
+        assertArrayEquals(new byte[]{7, 3, 0, 100, 0, 7}, Arrays.copyOf(requests.get(0), 6));
+    }
+
+    @Test
+    void readDeviceData_RegistersReplacedOnSameConfig_PlansAgain() throws Exception {
+        // Given
+        ObjectMapper objectMapper = new ObjectMapper();
+        ModbusProtocolHandler.ModbusDeviceConfig config =
+                objectMapper.readValue(DEVICE_JSON, ModbusProtocolHandler.ModbusDeviceConfig.class);
+        handler.readDeviceData("inverter-1", config);
+        holdingRegisters[150] = 215;            // 21.5 °C
+        ModbusProtocolHandler.ModbusDeviceConfig updated = objectMapper.readValue("""
+                {"registers": [
+                  {"field": "VOLTAGE", "address": 100, "type": "UINT16", "scale": 0.1},
+                  {"field": "TEMPERATURE", "address": 150, "type": "INT16", "scale": 0.1}
+                ]}
+                """, ModbusProtocolHandler.ModbusDeviceConfig.class);
+        requests.clear();
+
+        // When
+        config.setRegisters(updated.getRegisters());
+        DeviceReading reading = handler.readDeviceData("inverter-1", config);
+
+        // Then
+        assertNotNull(reading);
+        assertEquals(21.5, reading.getTemperature(), 1e-9);
+        // Too far apart to share a request
+        assertEquals(2, requests.size());
+    }
+
+    @Test
+    void readDeviceData_FrameFromAnotherUnit_DoesNotAnswerRequest() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(handler, "rtuResponseTimeoutMs", 100L);
+        ModbusProtocolHandler.ModbusDeviceConfig config =
+                new ObjectMapper().readValue(DEVICE_JSON, ModbusProtocolHandler.ModbusDeviceConfig.class);
+        respondingUnit = 8;
+
+        // When
+        DeviceReading reading = handler.readDeviceData("inverter-1", config);
+
+        // Then
+        assertNull(reading);
+        assertEquals(1, requests.size());
+    }
+
+    /**
+     * Answers every read at once from the register image, the way the port's frame assembler would
+     * hand the response to the callback
+     */
+    private final class SimulatedBus extends RS485SerialService {
+        private Consumer<byte[]> callback;
+
+        @Override
+        public void registerDataCallback(String portName, Consumer<byte[]> callback) {
+            this.callback = callback;
+        }
+
+        @Override
+        public boolean sendDataToDevice(String deviceId, byte[] data, int length) {
+            byte[] request = Arrays.copyOf(data, length);
+            requests.add(request);
+            int start = ((request[2] & 0xFF) << 8) | (request[3] & 0xFF);
+            int quantity = ((request[4] & 0xFF) << 8) | (request[5] & 0xFF);
+            byte[] response = new byte[5 + 2 * quantity];
+            response[0] = respondingUnit >= 0 ? (byte) respondingUnit : request[0];
+            response[1] = request[1];
+            response[2] = (byte) (2 * quantity);
+            for (int i = 0; i < quantity; i++) {
+                response[3 + 2 * i] = (byte) (holdingRegisters[start + i] >>> 8);
+                response[4 + 2 * i] = (byte) holdingRegisters[start + i];
+            }
+            Crc16.append(response, 0, response.length - 2);
+            callback.accept(response);
+            return true;
+        }
+    }
+}
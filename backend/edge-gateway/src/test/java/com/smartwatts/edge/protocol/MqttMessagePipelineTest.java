@@ -0,0 +1,130 @@
+package com.smartwatts.edge.protocol;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MqttMessagePipelineTest {
+
+    private MqttMessagePipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        pipeline = new MqttMessagePipeline(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(pipeline, "workers", 4);
+        ReflectionTestUtils.setField(pipeline, "queueCapacity", 1000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pipeline.shutdown();
+    }
+
+    @Test
+    void submit_PreservesOrderPerDevice() throws Exception {
+        // Given
+        Map<String, List<Integer>> processed = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(400);
+        pipeline.start(message -> {
+            processed.computeIfAbsent(message.deviceId(), id -> new ArrayList<>())
+                    .add(Integer.parseInt(new String(message.payload())));
+            done.countDown();
+        });
+
+        // When
+        for (int i = 0; i < 100; i++) {
+            for (int device = 0; device < 4; device++) {
+                assertTrue(pipeline.submit("meter-" + device, "data", String.valueOf(i).getBytes()));
+            }
+        }
+
+        // Then
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        for (int device = 0; device < 4; device++) {
+            List<Integer> sequence = processed.get("meter-" + device);
+            assertEquals(100, sequence.size());
+            for (int i = 0; i < 100; i++) {
+                assertEquals(i, sequence.get(i));
+            }
+        }
+    }
+
+    @Test
+    void submit_SlowDevice_DoesNotBlockOtherShards() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(pipeline, "workers", 2);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch fastProcessed = new CountDownLatch(1);
+        String slowDevice = deviceOnShard(0, 2);
+        String fastDevice = deviceOnShard(1, 2);
+        pipeline.start(message -> {
+            if (message.deviceId().equals(slowDevice)) {
+                release.await();
+            } else {
+                fastProcessed.countDown();
+            }
+        });
+
+        // When
+        pipeline.submit(slowDevice, "data", new byte[0]);
+        pipeline.submit(fastDevice, "data", new byte[0]);
+
+        // Then
+        assertTrue(fastProcessed.await(5, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    @Test
+    void submit_QueueFull_DropsAndCounts() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(pipeline, "workers", 1);
+        ReflectionTestUtils.setField(pipeline, "queueCapacity", 2);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        pipeline.start(message -> {
+            started.countDown();
+            release.await();
+        });
+        pipeline.submit("meter-1", "data", new byte[0]);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // When
+        boolean second = pipeline.submit("meter-1", "data", new byte[0]);
+        boolean third = pipeline.submit("meter-1", "data", new byte[0]);
+        boolean fourth = pipeline.submit("meter-1", "data", new byte[0]);
+
+        // Then
+        assertTrue(second);
+        assertTrue(third);
+        assertFalse(fourth);
+        Map<String, Object> stats = pipeline.getStats();
+        assertEquals(1L, stats.get("dropped"));
+        assertEquals(List.of(2), stats.get("queueDepths"));
+        release.countDown();
+    }
+
+    @Test
+    void submit_NotStarted_ReturnsFalse() {
+        assertFalse(pipeline.submit("meter-1", "data", new byte[0]));
+    }
+
+    private String deviceOnShard(int shard, int shards) {
+        for (int i = 0; ; i++) {
+            String deviceId = "meter-" + i;
+            if (Math.floorMod(deviceId.hashCode(), shards) == shard) {
+                return deviceId;
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.smartwatts.edge.protocol;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.smartwatts.edge.model.DeviceReading;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MqttPayloadDecoderTest {
+
+    private final MqttPayloadDecoder decoder = new MqttPayloadDecoder();
+
+    @Test
+    void decode_JsonPayload_ReadsReadingAndAuthSecret() throws Exception {
+        // Given
+        byte[] payload = ("{\"id\":\"r-1\",\"timestamp\":\"2024-03-01T10:15:30\",\"energy_consumption\":12.5,"
+                + "\"powerOutput\":3.2,\"voltage\":231.4,\"current\":\"10.5\",\"frequency\":50,"
+                + "\"power_factor\":0.97,\"status\":\"ok\",\"meta\":{\"fw\":[1,4,2]},"
+                + "\"auth_secret\":\"s3cr\\\"et\"}").getBytes(StandardCharsets.UTF_8);
+
+        // When
+        MqttPayloadDecoder.DecodedReading decoded = decoder.decode(payload);
+
+        // Then
+        DeviceReading reading = decoded.reading();
+        assertEquals("s3cr\"et", decoded.authSecret());
+        assertEquals("r-1", reading.getId());
+        assertEquals(LocalDateTime.of(2024, 3, 1, 10, 15, 30), reading.getTimestamp());
+        assertEquals(12.5, reading.getEnergyConsumption());
+        assertEquals(3.2, reading.getPowerOutput());
+        assertEquals(231.4, reading.getVoltage());
+        assertEquals(10.5, reading.getCurrent());
+        assertEquals(50.0, reading.getFrequency());
+        assertEquals(0.97, reading.getPowerFactor());
+        assertEquals("ok", reading.getStatus());
+    }
+
+    @Test
+    void decode_NoAuthSecretOrTimestamp_DefaultsTimestamp() throws Exception {
+        // Given
+        byte[] payload = "{\"energy\":1.0,\"auth_secret\":null}".getBytes(StandardCharsets.UTF_8);
+
+        // When
+        MqttPayloadDecoder.DecodedReading decoded = decoder.decode(payload);
+
+        // Then
+        assertNull(decoded.authSecret());
+        assertEquals(1.0, decoded.reading().getEnergyConsumption());
+        assertNotNull(decoded.reading().getTimestamp());
+    }
+
+    @Test
+    void decode_CborPayload_ReadsReading() throws Exception {
+        // Given
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = new CBORFactory().createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeNumberField("voltage", 229.9);
+            generator.writeNumberField("timestamp", 1709287530000L);
+            generator.writeStringField("auth_secret", "cbor-secret");
+            generator.writeEndObject();
+        }
+
+        // When
+        MqttPayloadDecoder.DecodedReading decoded = decoder.decode(out.toByteArray());
+
+        // Then
+        assertEquals("cbor-secret", decoded.authSecret());
+        assertEquals(229.9, decoded.reading().getVoltage());
+        assertNotNull(decoded.reading().getTimestamp());
+    }
+
+    @Test
+    void decode_MalformedPayloads_ThrowIOException() {
+        assertThrows(IOException.class, () -> decoder.decode(new byte[0]));
+        assertThrows(IOException.class, () -> decoder.decode("[1,2]".getBytes(StandardCharsets.UTF_8)));
+        assertThrows(IOException.class, () -> decoder.decode("{\"voltage\":".getBytes(StandardCharsets.UTF_8)));
+        assertThrows(IOException.class, () -> decoder.decode("{\"voltage\":\"high\"}".getBytes(StandardCharsets.UTF_8)));
+        assertThrows(IOException.class, () -> decoder.decode("{\"timestamp\":\"yesterday\"}".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void decode_ObjectInStringField_ThrowsInsteadOfReadingItsFields() {
+        // Given an auth secret whose nested fields would otherwise be read as the reading's own
+        byte[] nested = "{\"voltage\":230,\"auth_secret\":{\"voltage\":999}}".getBytes(StandardCharsets.UTF_8);
+        byte[] array = "{\"status\":[\"ok\"]}".getBytes(StandardCharsets.UTF_8);
+
+        // When & Then
+        assertThrows(IOException.class, () -> decoder.decode(nested));
+        assertThrows(IOException.class, () -> decoder.decode(array));
+    }
+
+    @Test
+    void decode_TrailingContent_ThrowsIOException() throws Exception {
+        // Given
+        byte[] json = "{\"voltage\":230}{\"voltage\":999}".getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream cbor = new ByteArrayOutputStream();
+        try (JsonGenerator generator = new CBORFactory().createGenerator(cbor)) {
+            generator.writeStartObject();
+            generator.writeNumberField("voltage", 230);
+            generator.writeEndObject();
+            generator.writeNumber(999);
+        }
+
+        // When & Then
+        assertThrows(IOException.class, () -> decoder.decode(json));
+        assertThrows(IOException.class, () -> decoder.decode(cbor.toByteArray()));
+        assertEquals(230.0, decoder.decode("{\"voltage\":230}\n".getBytes(StandardCharsets.UTF_8)).reading().getVoltage());
+    }
+}
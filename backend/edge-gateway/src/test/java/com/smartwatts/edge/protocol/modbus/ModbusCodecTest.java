@@ -0,0 +1,147 @@
+package com.smartwatts.edge.protocol.modbus;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModbusCodecTest {
+
+    @Test
+    void encodeRead_KnownVector_AppendsCrcLowByteFirst() {
+        // Given
+        byte[] request = new byte[ModbusCodec.MAX_FRAME_BYTES];
+
+        // When
+        int length = ModbusCodec.encodeRead(request, 0, 1, ModbusCodec.READ_HOLDING_REGISTERS, 0, 1);
+
+        // Then
+        assertEquals(8, length);
+        assertArrayEquals(bytes(0x01, 0x03, 0x00, 0x00, 0x00, 0x01, 0x84, 0x0A), slice(request, length));
+        assertTrue(Crc16.matches(request, 0, length));
+    }
+
+    @Test
+    void encodeRead_QuantityAboveLimit_Throws() {
+        byte[] request = new byte[ModbusCodec.MAX_FRAME_BYTES];
+
+        assertThrows(IllegalArgumentException.class,
+                () -> ModbusCodec.encodeRead(request, 0, 1, ModbusCodec.READ_INPUT_REGISTERS, 0, 126));
+        assertThrows(IllegalArgumentException.class,
+                () -> ModbusCodec.encodeRead(request, 0, 1, ModbusCodec.READ_HOLDING_REGISTERS, 0xFFFF, 2));
+    }
+
+    @Test
+    void decodeRegisters_ValidResponse_ReturnsValues() throws ModbusException {
+        // Given
+        byte[] response = frame(0x11, 0x03, 0x04, 0x12, 0x34, 0xFF, 0xFE);
+        int[] registers = new int[2];
+
+        // When
+        int decoded = ModbusCodec.decodeRegisters(response, 0, response.length, 0x11,
+                ModbusCodec.READ_HOLDING_REGISTERS, 2, registers, 0);
+
+        // Then
+        assertEquals(2, decoded);
+        assertEquals(0x1234, registers[0]);
+        assertEquals(0xFFFE, registers[1]);
+        assertEquals(response.length, ModbusCodec.responseLength(ModbusCodec.READ_HOLDING_REGISTERS, 2));
+    }
+
+    @Test
+    void decodeRegisters_ExceptionResponse_ThrowsWithCode() {
+        // Given
+        byte[] response = frame(0x01, 0x83, 0x02);
+
+        // When
+        ModbusException e = assertThrows(ModbusException.class, () -> ModbusCodec.decodeRegisters(response, 0,
+                response.length, 1, ModbusCodec.READ_HOLDING_REGISTERS, 1, new int[1], 0));
+
+        // Then
+        assertTrue(e.isDeviceException());
+        assertEquals(2, e.getExceptionCode());
+        assertTrue(e.getMessage().contains("ILLEGAL_DATA_ADDRESS"));
+    }
+
+    @Test
+    void checkResponse_CorruptCrc_ThrowsFramingError() {
+        // Given
+        byte[] response = frame(0x01, 0x03, 0x02, 0x00, 0x07);
+        response[response.length - 1] ^= 0x01;
+
+        // When
+        ModbusException e = assertThrows(ModbusException.class,
+                () -> ModbusCodec.checkResponse(response, 0, response.length, 1, ModbusCodec.READ_HOLDING_REGISTERS));
+
+        // Then
+        assertFalse(e.isDeviceException());
+    }
+
+    @Test
+    void decodeBits_CoilResponse_UnpacksLeastSignificantBitFirst() throws ModbusException {
+        // Given
+        byte[] response = frame(0x01, 0x01, 0x02, 0b0000_0101, 0b0000_0001);
+        boolean[] coils = new boolean[10];
+
+        // When
+        ModbusCodec.decodeBits(response, 0, response.length, 1, ModbusCodec.READ_COILS, 10, coils, 0);
+
+        // Then
+        assertTrue(coils[0]);
+        assertFalse(coils[1]);
+        assertTrue(coils[2]);
+        assertTrue(coils[8]);
+        assertFalse(coils[9]);
+    }
+
+    @Test
+    void encodeWriteMultiple_RegistersAndCoils_MatchSpecLayout() {
+        // Given
+        byte[] request = new byte[ModbusCodec.MAX_FRAME_BYTES];
+
+        // When
+        int registersLength = ModbusCodec.encodeWriteMultipleRegisters(request, 0, 1, 0x0010,
+                new int[]{0x000A, 0x0102}, 0, 2);
+        byte[] registers = slice(request, registersLength);
+        int coilsLength = ModbusCodec.encodeWriteMultipleCoils(request, 0, 1, 0x0013,
+                new boolean[]{true, false, true, true, false, false, true, true, true, false}, 0, 10);
+        byte[] coils = slice(request, coilsLength);
+
+        // Then
+        assertArrayEquals(frame(0x01, 0x10, 0x00, 0x10, 0x00, 0x02, 0x04, 0x00, 0x0A, 0x01, 0x02), registers);
+        assertArrayEquals(frame(0x01, 0x0F, 0x00, 0x13, 0x00, 0x0A, 0x02, 0xCD, 0x01), coils);
+    }
+
+    @Test
+    void decodeWriteResponse_EchoMismatch_Throws() throws ModbusException {
+        // Given
+        byte[] echo = frame(0x01, 0x06, 0x00, 0x64, 0x01, 0xF4);
+
+        // When / Then
+        ModbusCodec.decodeWriteResponse(echo, 0, echo.length, 1, ModbusCodec.WRITE_SINGLE_REGISTER, 100, 500);
+        assertThrows(ModbusException.class, () -> ModbusCodec.decodeWriteResponse(echo, 0, echo.length, 1,
+                ModbusCodec.WRITE_SINGLE_REGISTER, 100, 501));
+    }
+
+    private static byte[] frame(int... values) {
+        byte[] frame = new byte[values.length + 2];
+        for (int i = 0; i < values.length; i++) {
+            frame[i] = (byte) values[i];
+        }
+        Crc16.append(frame, 0, values.length);
+        return frame;
+    }
+
+    private static byte[] bytes(int... values) {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+        return bytes;
+    }
+
+    private static byte[] slice(byte[] data, int length) {
+        byte[] slice = new byte[length];
+        System.arraycopy(data, 0, slice, 0, length);
+        return slice;
+    }
+}
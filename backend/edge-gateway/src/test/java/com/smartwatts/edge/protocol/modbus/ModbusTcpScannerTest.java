@@ -0,0 +1,127 @@
+package com.smartwatts.edge.protocol.modbus;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModbusTcpScannerTest {
+
+    private ServerSocket server;
+    private Thread serverThread;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (server != null) {
+            server.close();
+            serverThread.join(1000);
+        }
+    }
+
+    @Test
+    void scan_ModbusServer_ConfirmsHost() throws Exception {
+        // Given
+        startServer(true);
+        ModbusTcpScanner scanner = scanner(0);
+        List<InetAddress> found = new ArrayList<>();
+
+        // When
+        ModbusTcpScanner.SweepResult result = scanner.scan(List.of(InetAddress.getLoopbackAddress()), found::add);
+
+        // Then
+        assertEquals(List.of(InetAddress.getLoopbackAddress()), found);
+        assertEquals(1, result.connected());
+        assertEquals(1, result.confirmed());
+    }
+
+    @Test
+    void scan_OpenPortWithoutModbus_IsNotConfirmed() throws Exception {
+        // Given
+        startServer(false);
+        ModbusTcpScanner scanner = scanner(0);
+        List<InetAddress> found = new ArrayList<>();
+
+        // When
+        ModbusTcpScanner.SweepResult result = scanner.scan(List.of(InetAddress.getLoopbackAddress()), found::add);
+
+        // Then
+        assertTrue(found.isEmpty());
+        assertEquals(1, result.connected());
+        assertEquals(0, result.confirmed());
+    }
+
+    @Test
+    void scan_HostProbedRecently_IsSkipped() throws Exception {
+        // Given
+        startServer(true);
+        ModbusTcpScanner scanner = scanner(60_000);
+        List<InetAddress> found = new ArrayList<>();
+        scanner.scan(List.of(InetAddress.getLoopbackAddress()), found::add);
+
+        // When
+        ModbusTcpScanner.SweepResult result = scanner.scan(List.of(InetAddress.getLoopbackAddress()), found::add);
+
+        // Then
+        assertEquals(1, found.size());
+        assertEquals(1, result.skipped());
+        assertEquals(0, result.connected());
+    }
+
+    @Test
+    void subnetHosts_ExcludesNetworkBroadcastAndSelf() throws Exception {
+        // Given
+        Inet4Address self = (Inet4Address) InetAddress.getByName("192.168.1.10");
+
+        // When
+        List<InetAddress> hosts = ModbusTcpScanner.subnetHosts(self, 24, 22);
+        List<InetAddress> narrowed = ModbusTcpScanner.subnetHosts(self, 16, 22);
+
+        // Then
+        assertEquals(253, hosts.size());
+        assertEquals(InetAddress.getByName("192.168.1.1"), hosts.get(0));
+        assertEquals(InetAddress.getByName("192.168.1.254"), hosts.get(hosts.size() - 1));
+        assertFalse(hosts.contains(self));
+        assertEquals(1021, narrowed.size());
+        assertEquals(InetAddress.getByName("192.168.0.1"), narrowed.get(0));
+    }
+
+    private ModbusTcpScanner scanner(long hostIntervalMs) {
+        return new ModbusTcpScanner(server.getLocalPort(), 1, 16, 1000, hostIntervalMs, 2000);
+    }
+
+    /**
+     * Accept connections on loopback and answer each FC03 request, or answer with non-Modbus bytes
+     */
+    private void startServer(boolean modbus) throws IOException {
+        server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        serverThread = new Thread(() -> {
+            while (!server.isClosed()) {
+                try (Socket socket = server.accept()) {
+                    DataInputStream in = new DataInputStream(socket.getInputStream());
+                    byte[] request = new byte[12];
+                    in.readFully(request);
+                    OutputStream out = socket.getOutputStream();
+                    if (modbus) {
+                        out.write(new byte[]{request[0], request[1], 0, 0, 0, 5, request[6], 3, 2, 0x00, 0x2A});
+                    } else {
+                        out.write("HTTP/1.1 400 Bad Request\r\n\r\n".getBytes());
+                    }
+                    out.flush();
+                } catch (IOException e) {
+                    // Server closed
+                }
+            }
+        });
+        serverThread.start();
+    }
+}
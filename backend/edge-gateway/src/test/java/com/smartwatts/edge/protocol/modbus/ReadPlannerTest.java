@@ -0,0 +1,102 @@
+package com.smartwatts.edge.protocol.modbus;
+
+import com.smartwatts.edge.model.DeviceReading;
+import com.smartwatts.edge.protocol.modbus.RegisterPoint.DataType;
+import com.smartwatts.edge.protocol.modbus.RegisterPoint.Field;
+import com.smartwatts.edge.protocol.modbus.RegisterPoint.WordOrder;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadPlannerTest {
+
+    @Test
+    void plan_MergesNearbyRangesWithinGapTolerance() {
+        // Given
+        List<RegisterPoint> points = List.of(
+                new RegisterPoint(Field.VOLTAGE, 40070, DataType.UINT16, 0.1),
+                new RegisterPoint(Field.CURRENT, 40072, DataType.UINT16, 0.01),
+                new RegisterPoint(Field.ENERGY_CONSUMPTION, 40080, DataType.UINT32, 0.001),
+                new RegisterPoint(Field.TEMPERATURE, 40200, DataType.INT16, 0.1));
+
+        // When
+        ReadPlan plan = ReadPlanner.plan(points, 8);
+
+        // Then
+        assertEquals(2, plan.getBlockCount());
+        assertEquals(40070, plan.getStartAddress(0));
+        assertEquals(12, plan.getRegisterCount(0));
+        assertEquals(40200, plan.getStartAddress(1));
+        assertEquals(1, plan.getRegisterCount(1));
+        assertEquals(66, plan.getBusCharacters());
+        assertEquals(90, plan.getUnplannedBusCharacters());
+    }
+
+    @Test
+    void plan_SplitsAtRegisterLimitAndFunctionCode() {
+        // Given
+        List<RegisterPoint> points = List.of(
+                new RegisterPoint(Field.VOLTAGE, 0, DataType.UINT16, 1),
+                new RegisterPoint(Field.CURRENT, 124, DataType.UINT32, 1),
+                new RegisterPoint(Field.FREQUENCY, 4, 10, DataType.UINT16, 1, WordOrder.BIG_ENDIAN));
+
+        // When
+        ReadPlan plan = ReadPlanner.plan(points, 200);
+
+        // Then
+        assertEquals(3, plan.getBlockCount());
+        assertEquals(3, plan.getFunctionCode(0));
+        assertEquals(1, plan.getRegisterCount(0));
+        assertEquals(124, plan.getStartAddress(1));
+        assertEquals(2, plan.getRegisterCount(1));
+        assertEquals(4, plan.getFunctionCode(2));
+    }
+
+    @Test
+    void decode_AppliesTypeScaleAndWordOrder() {
+        // Given
+        ReadPlan plan = ReadPlanner.plan(List.of(
+                new RegisterPoint(Field.VOLTAGE, 3, 0, DataType.UINT16, 0.1, null),
+                new RegisterPoint(Field.TEMPERATURE, 3, 1, DataType.INT16, 0.1, null),
+                new RegisterPoint(Field.ENERGY_CONSUMPTION, 3, 2, DataType.UINT32, 0.001, WordOrder.LITTLE_ENDIAN),
+                new RegisterPoint(Field.FREQUENCY, 3, 4, DataType.FLOAT32, 1, WordOrder.BIG_ENDIAN)), 0);
+        int frequencyBits = Float.floatToIntBits(50.02f);
+        int[] registers = {2305, 0xFF9C, 0x86A0, 0x0001, frequencyBits >>> 16, frequencyBits & 0xFFFF};
+        DeviceReading reading = new DeviceReading();
+
+        // When
+        int decoded = plan.decode(new int[][] {registers}, reading);
+
+        // Then
+        assertEquals(4, decoded);
+        assertEquals(230.5, reading.getVoltage(), 1e-9);
+        assertEquals(-10.0, reading.getTemperature(), 1e-9);
+        assertEquals(100.0, reading.getEnergyConsumption(), 1e-9);
+        assertEquals(50.02, reading.getFrequency(), 1e-4);
+    }
+
+    @Test
+    void decode_SkipsValuesOfFailedBlocks() {
+        // Given
+        ReadPlan plan = ReadPlanner.plan(List.of(
+                new RegisterPoint(Field.VOLTAGE, 0, DataType.UINT16, 1),
+                new RegisterPoint(Field.CURRENT, 1000, DataType.UINT16, 1)), 10);
+        DeviceReading reading = new DeviceReading();
+
+        // When
+        int decoded = plan.decode(new int[][] {null, {7}}, reading);
+
+        // Then
+        assertEquals(1, decoded);
+        assertEquals(0.0, reading.getVoltage(), 1e-9);
+        assertEquals(7.0, reading.getCurrent(), 1e-9);
+    }
+
+    @Test
+    void registerPoint_RejectsUnsupportedFunctionCode() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new RegisterPoint(Field.VOLTAGE, 6, 0, DataType.UINT16, 1, null));
+    }
+}
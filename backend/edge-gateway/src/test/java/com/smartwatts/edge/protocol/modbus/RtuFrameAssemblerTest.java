@@ -0,0 +1,185 @@
+package com.smartwatts.edge.protocol.modbus;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RtuFrameAssemblerTest {
+
+    // Well past the 4 ms silent interval at 9600 baud
+    private static final long SILENCE = 10_000_000L;
+
+    private static final long FRAME_TIMEOUT_MILLIS = 1000;
+    private static final long FRAME_TIMEOUT = FRAME_TIMEOUT_MILLIS * 1_000_000L;
+
+    private List<byte[]> frames;
+    private RtuFrameAssembler assembler;
+
+    @BeforeEach
+    void setUp() {
+        frames = new ArrayList<>();
+        assembler = new RtuFrameAssembler(9600, FRAME_TIMEOUT_MILLIS, frame -> {
+            byte[] copy = new byte[frame.remaining()];
+            frame.get(copy);
+            frames.add(copy);
+        });
+    }
+
+    @Test
+    void accept_FragmentedFrame_EmitsOnceComplete() {
+        // Given
+        byte[] frame = frame(1, 3, 4, 0x00, 0x2A, 0x01, 0x00);
+
+        // When
+        assembler.accept(frame, 3, 0);
+        assembler.accept(slice(frame, 3, 4), 4, 100_000);
+        int afterPartial = frames.size();
+        assembler.accept(slice(frame, 7, frame.length - 7), frame.length - 7, 200_000);
+
+        // Then
+        assertEquals(0, afterPartial);
+        assertEquals(1, frames.size());
+        assertArrayEquals(frame, frames.get(0));
+    }
+
+    @Test
+    void accept_FragmentsMillisecondsApart_KeepsFrameOfKnownLength() {
+        // Given
+        byte[] frame = frame(1, 3, 6, 0x00, 0x2A, 0x01, 0x00, 0x00, 0x07);
+
+        // When: a USB adapter hands the frame over in pieces 6 and 16 ms apart
+        assembler.accept(frame, 2, 0);
+        assembler.idle(3_000_000L);
+        assembler.accept(slice(frame, 2, 4), 4, 6_000_000L);
+        assembler.idle(12_000_000L);
+        assembler.accept(slice(frame, 6, frame.length - 6), frame.length - 6, 22_000_000L);
+
+        // Then
+        assertEquals(1, frames.size());
+        assertArrayEquals(frame, frames.get(0));
+        assertEquals(0, assembler.getDiscardedBytes());
+    }
+
+    @Test
+    void accept_ConcatenatedFrames_SplitsByFunctionCode() {
+        // Given
+        byte[] read = frame(1, 3, 2, 0x12, 0x34);
+        byte[] write = frame(2, 6, 0x00, 0x10, 0x00, 0x01);
+        byte[] exception = frame(3, 0x83, 0x02);
+        ByteBuffer chunk = ByteBuffer.allocate(read.length + write.length + exception.length);
+        chunk.put(read).put(write).put(exception);
+
+        // When
+        assembler.accept(chunk.array(), chunk.position(), 0);
+
+        // Then
+        assertEquals(3, frames.size());
+        assertArrayEquals(read, frames.get(0));
+        assertArrayEquals(write, frames.get(1));
+        assertArrayEquals(exception, frames.get(2));
+    }
+
+    @Test
+    void accept_CorruptByteBeforeFrame_ResynchronizesOnCrc() {
+        // Given
+        byte[] frame = frame(1, 3, 2, 0x00, 0x07);
+        byte[] chunk = new byte[frame.length + 1];
+        chunk[0] = 0x55;
+        System.arraycopy(frame, 0, chunk, 1, frame.length);
+
+        // When
+        assembler.accept(chunk, chunk.length, 0);
+
+        // Then
+        assertEquals(1, frames.size());
+        assertArrayEquals(frame, frames.get(0));
+        assertEquals(1, assembler.getDiscardedBytes());
+    }
+
+    @Test
+    void idle_AfterFrameTimeout_DropsPartialFrame() {
+        // Given
+        byte[] frame = frame(1, 3, 2, 0x00, 0x07);
+        assembler.accept(frame, 4, 0);
+
+        // When
+        assembler.idle(SILENCE);
+        long afterSilence = assembler.getDiscardedBytes();
+        assembler.idle(FRAME_TIMEOUT);
+        assembler.accept(frame, frame.length, FRAME_TIMEOUT);
+
+        // Then
+        assertEquals(0, afterSilence);
+        assertEquals(1, frames.size());
+        assertArrayEquals(frame, frames.get(0));
+        assertEquals(4, assembler.getDiscardedBytes());
+    }
+
+    @Test
+    void idle_AfterFrameTimeout_EmitsFrameBehindCorruptByteCount() {
+        // Given: a corrupt header claims 64 data bytes in front of a complete frame
+        byte[] frame = frame(1, 3, 2, 0x00, 0x07);
+        byte[] chunk = new byte[frame.length + 3];
+        chunk[0] = 0x11;
+        chunk[1] = 0x03;
+        chunk[2] = 0x40;
+        System.arraycopy(frame, 0, chunk, 3, frame.length);
+        assembler.accept(chunk, chunk.length, 0);
+        assertEquals(0, frames.size());
+
+        // When
+        assembler.idle(FRAME_TIMEOUT);
+
+        // Then
+        assertEquals(1, frames.size());
+        assertArrayEquals(frame, frames.get(0));
+        assertEquals(3, assembler.getDiscardedBytes());
+    }
+
+    @Test
+    void idle_UnknownFunctionCode_EmitsAtSilence() {
+        // Given
+        byte[] frame = frame(1, 0x2B, 0x0E, 0x01, 0x00);
+        assembler.accept(frame, frame.length, 0);
+        assertEquals(0, frames.size());
+
+        // When
+        assembler.idle(SILENCE);
+
+        // Then
+        assertEquals(1, frames.size());
+        assertArrayEquals(frame, frames.get(0));
+    }
+
+    @Test
+    void silentIntervalNanos_FixedAbove19200() {
+        assertEquals(4_010_417L, RtuFrameAssembler.silentIntervalNanos(9600));
+        assertEquals(1_750_000L, RtuFrameAssembler.silentIntervalNanos(38400));
+    }
+
+    private static byte[] frame(int... bytes) {
+        byte[] frame = new byte[bytes.length + 2];
+        int crc = 0xFFFF;
+        for (int i = 0; i < bytes.length; i++) {
+            frame[i] = (byte) bytes[i];
+            crc ^= bytes[i] & 0xFF;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 1) != 0 ? (crc >>> 1) ^ 0xA001 : crc >>> 1;
+            }
+        }
+        frame[bytes.length] = (byte) crc;
+        frame[bytes.length + 1] = (byte) (crc >>> 8);
+        return frame;
+    }
+
+    private static byte[] slice(byte[] data, int offset, int length) {
+        byte[] slice = new byte[length];
+        System.arraycopy(data, offset, slice, 0, length);
+        return slice;
+    }
+}
@@ -0,0 +1,228 @@
+package com.smartwatts.edge.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.stubbing.OngoingStubbing;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DeviceTrustStoreTest {
+
+    private static final String DEVICE_SERVICE_URL = "http://localhost:8083";
+    private static final String SECRET = "SW_0123456789abcdef";
+    private static final String GATEWAY_KEY = "gateway-key-1";
+
+    @Mock
+    private RestTemplate restTemplate;
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final UUID id = UUID.randomUUID();
+    private final UUID userId = UUID.randomUUID();
+
+    private DeviceTrustStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = newStore();
+    }
+
+    @Test
+    void refresh_FullSnapshot_AnswersByDeviceIdAndUuid() throws Exception {
+        // Given
+        when(restTemplate.exchange(eq(DEVICE_SERVICE_URL + "/api/v1/device-verification/trust-snapshot"),
+                eq(HttpMethod.GET), any(HttpEntity.class), eq(DeviceTrustStore.DeviceTrust[].class)))
+            .thenReturn(ResponseEntity.ok(new DeviceTrustStore.DeviceTrust[] {trust("meter-1", true)}));
+
+        // When
+        store.refresh();
+
+        // Then
+        assertEquals(Optional.of(true), store.canSendData("meter-1"));
+        assertEquals(Optional.of(true), store.canSendData(id.toString()));
+        assertEquals(Optional.of(true), store.validateAuthSecret("meter-1", SECRET));
+        assertEquals(Optional.of(false), store.validateAuthSecret("meter-1", "wrong"));
+        assertEquals(Optional.empty(), store.canSendData("unknown"));
+        assertEquals(userId, store.getUserId("meter-1"));
+        assertTrue(Files.exists(tempDir.resolve("device-trust.json")));
+    }
+
+    @Test
+    void refresh_AfterFullSync_RequestsOnlyChanges() {
+        // Given
+        when(snapshotRequest())
+            .thenReturn(ResponseEntity.ok(new DeviceTrustStore.DeviceTrust[] {trust("meter-1", true)}))
+            .thenReturn(ResponseEntity.ok(new DeviceTrustStore.DeviceTrust[] {trust("meter-1", false)}));
+        store.refresh();
+
+        // When
+        store.refresh();
+
+        // Then
+        verify(restTemplate).exchange(contains("?since="), eq(HttpMethod.GET), any(HttpEntity.class),
+                eq(DeviceTrustStore.DeviceTrust[].class));
+        assertEquals(Optional.of(false), store.canSendData("meter-1"));
+    }
+
+    @Test
+    void canSendData_StaleEntry_OnlyServedWhileUpstreamUnavailable() {
+        // Given
+        ReflectionTestUtils.setField(store, "ttlMs", 0L);
+        when(snapshotRequest())
+            .thenReturn(ResponseEntity.ok(new DeviceTrustStore.DeviceTrust[] {trust("meter-1", true)}))
+            .thenThrow(new ResourceAccessException("Network unreachable"));
+        store.refresh();
+
+        // When
+        Optional<Boolean> whileOnline = store.canSendData("meter-1");
+        store.refresh();
+        Optional<Boolean> whileOffline = store.canSendData("meter-1");
+
+        // Then
+        assertEquals(Optional.empty(), whileOnline);
+        assertEquals(Optional.of(true), whileOffline);
+    }
+
+    @Test
+    void initialize_PersistedStore_ServesDevicesBeforeFirstSync() {
+        // Given
+        when(snapshotRequest())
+            .thenReturn(ResponseEntity.ok(new DeviceTrustStore.DeviceTrust[] {trust("meter-1", true)}));
+        store.refresh();
+        store.shutdown();
+
+        // When
+        DeviceTrustStore restarted = newStore();
+
+        // Then
+        assertEquals(Optional.of(true), restarted.canSendData("meter-1"));
+        assertEquals(Optional.of(true), restarted.validateAuthSecret("meter-1", SECRET));
+    }
+
+    @Test
+    void refresh_SendsGatewayCredentials() {
+        // Given
+        when(snapshotRequest()).thenReturn(ResponseEntity.ok(new DeviceTrustStore.DeviceTrust[0]));
+
+        // When
+        store.refresh();
+
+        // Then
+        ArgumentCaptor<HttpEntity<?>> request = ArgumentCaptor.forClass(HttpEntity.class);
+        verify(restTemplate).exchange(anyString(), eq(HttpMethod.GET), request.capture(),
+                eq(DeviceTrustStore.DeviceTrust[].class));
+        assertEquals("gateway-1", request.getValue().getHeaders().getFirst(DeviceTrustStore.GATEWAY_ID_HEADER));
+        assertEquals(GATEWAY_KEY, request.getValue().getHeaders().getFirst(DeviceTrustStore.GATEWAY_KEY_HEADER));
+    }
+
+    @Test
+    void initialize_PersistedUnderAnotherKey_DropsSecretsButKeepsVerification() {
+        // Given
+        when(snapshotRequest())
+            .thenReturn(ResponseEntity.ok(new DeviceTrustStore.DeviceTrust[] {trust("meter-1", true)}));
+        store.refresh();
+        store.shutdown();
+
+        // When
+        DeviceTrustStore restarted = newStore("gateway-key-2");
+
+        // Then
+        assertEquals(Optional.of(true), restarted.canSendData("meter-1"));
+        assertEquals(Optional.empty(), restarted.validateAuthSecret("meter-1", SECRET));
+    }
+
+    @Test
+    void recordAuthSecret_UnknownDevice_ValidatesLocallyAfterwards() {
+        // When
+        store.recordAuthSecret("meter-2", SECRET);
+
+        // Then
+        assertEquals(Optional.of(true), store.validateAuthSecret("meter-2", SECRET));
+        assertEquals(Optional.empty(), store.canSendData("meter-2"));
+    }
+
+    @Test
+    void validateAuthSecret_DeviceUnverified_RejectsMatchingSecret() {
+        // Given
+        when(snapshotRequest())
+            .thenReturn(ResponseEntity.ok(new DeviceTrustStore.DeviceTrust[] {trust("meter-1", true)}))
+            .thenReturn(ResponseEntity.ok(new DeviceTrustStore.DeviceTrust[] {trust("meter-1", false, false)}));
+        store.refresh();
+
+        // When
+        store.refresh();
+
+        // Then
+        assertEquals(Optional.of(false), store.validateAuthSecret("meter-1", SECRET));
+    }
+
+    private OngoingStubbing<ResponseEntity<DeviceTrustStore.DeviceTrust[]>> snapshotRequest() {
+        return when(restTemplate.exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class),
+                eq(DeviceTrustStore.DeviceTrust[].class)));
+    }
+
+    private DeviceTrustStore newStore() {
+        return newStore(GATEWAY_KEY);
+    }
+
+    private DeviceTrustStore newStore(String gatewayKey) {
+        DeviceTrustStore trustStore = new DeviceTrustStore(restTemplate, objectMapper, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(trustStore, "deviceServiceUrl", DEVICE_SERVICE_URL);
+        ReflectionTestUtils.setField(trustStore, "gatewayId", "gateway-1");
+        ReflectionTestUtils.setField(trustStore, "gatewayKey", gatewayKey);
+        ReflectionTestUtils.setField(trustStore, "storePath", tempDir.resolve("device-trust.json").toString());
+        ReflectionTestUtils.setField(trustStore, "ttlMs", 300_000L);
+        ReflectionTestUtils.setField(trustStore, "maxStaleMs", 259_200_000L);
+        ReflectionTestUtils.setField(trustStore, "fullSyncIntervalMs", 3_600_000L);
+        ReflectionTestUtils.setField(trustStore, "syncOverlapMs", 60_000L);
+        trustStore.initialize();
+        return trustStore;
+    }
+
+    private DeviceTrustStore.DeviceTrust trust(String deviceId, boolean canSendData) {
+        return trust(deviceId, canSendData, true);
+    }
+
+    private DeviceTrustStore.DeviceTrust trust(String deviceId, boolean canSendData, boolean verified) {
+        return new DeviceTrustStore.DeviceTrust(id, deviceId, userId, canSendData, verified, hmac(SECRET),
+                LocalDateTime.now());
+    }
+
+    private static String hmac(String value) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(GATEWAY_KEY.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return HexFormat.of().formatHex(mac.doFinal(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
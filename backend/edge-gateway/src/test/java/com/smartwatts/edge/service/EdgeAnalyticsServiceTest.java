@@ -0,0 +1,214 @@
+package com.smartwatts.edge.service;
+
+import com.smartwatts.edge.storage.EdgeStorageService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EdgeAnalyticsServiceTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final LocalDateTime END = START.plusHours(24);
+
+    private final AtomicInteger storageReads = new AtomicInteger();
+    private final CountDownLatch storageEntered = new CountDownLatch(1);
+    private final CountDownLatch slowRelease = new CountDownLatch(1);
+    private volatile String slowFacility;
+    private final CountDownLatch slowInterrupted = new CountDownLatch(1);
+    private volatile CountDownLatch storageRendezvous;
+    private EdgeAnalyticsService service;
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        // Counts analytics computations: each one reads the facility's readings once
+        EdgeStorageService storage = new EdgeStorageService() {
+            @Override
+            public List<Map<String, Object>> getDeviceReadings(String deviceId, int limit) {
+                storageReads.incrementAndGet();
+                storageEntered.countDown();
+                try {
+                    if (deviceId.equals(slowFacility)) {
+                        try {
+                            slowRelease.await(5, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            slowInterrupted.countDown();
+                            throw e;
+                        }
+                    }
+                    // Every facility of a comparison waits here until all of them have arrived
+                    CountDownLatch rendezvous = storageRendezvous;
+                    if (rendezvous != null) {
+                        rendezvous.countDown();
+                        rendezvous.await(5, TimeUnit.SECONDS);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return List.of();
+            }
+        };
+        service = new EdgeAnalyticsService(new TensorFlowLiteService(meterRegistry), new EdgeMLService(),
+                storage, meterRegistry);
+        service.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        slowRelease.countDown();
+        service.shutdown();
+    }
+
+    @Test
+    void generateFacilityAnalytics_SameRange_ServedFromCache() {
+        // When
+        Map<String, Object> first = service.generateFacilityAnalytics("facility-1", START, END);
+        Map<String, Object> second = service.generateFacilityAnalytics("facility-1", START, END);
+        service.generateFacilityAnalytics("facility-2", START, END);
+
+        // Then
+        assertSame(first, second);
+        assertEquals(2, storageReads.get());
+        Map<String, Object> stats = service.getCacheStats();
+        assertEquals(1L, stats.get("hits"));
+        assertEquals(2L, stats.get("misses"));
+        assertEquals(2L, stats.get("size"));
+        assertEquals(1.0 / 3, (double) stats.get("hitRatio"), 1e-9);
+    }
+
+    @Test
+    void generateFacilityAnalytics_ConcurrentCallers_ShareOneComputation() throws Exception {
+        // Given
+        slowFacility = "facility-1";
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+
+        // When
+        List<Future<Map<String, Object>>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(callers.submit(() -> service.generateFacilityAnalytics("facility-1", START, END)));
+        }
+        assertTrue(storageEntered.await(5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        slowRelease.countDown();
+        callers.shutdown();
+
+        // Then
+        Map<String, Object> shared = results.get(0).get(5, TimeUnit.SECONDS);
+        for (Future<Map<String, Object>> result : results) {
+            assertSame(shared, result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, storageReads.get());
+        assertEquals(1L, service.getCacheStats().get("loads"));
+    }
+
+    @Test
+    void generateFacilityAnalytics_Failure_IsNotCached() {
+        // When
+        Map<String, Object> first = service.generateFacilityAnalytics("facility-1", null, END);
+        Map<String, Object> second = service.generateFacilityAnalytics("facility-1", null, END);
+
+        // Then
+        assertEquals("error", first.get("status"));
+        assertEquals("error", second.get("status"));
+        assertEquals(2L, service.getCacheStats().get("loadFailures"));
+        assertEquals(0L, service.getCacheStats().get("size"));
+    }
+
+    @Test
+    void generateFacilityAnalytics_SlowStage_ReturnsPartialResultWithoutCachingIt() {
+        // Given
+        ReflectionTestUtils.setField(service, "stageTimeoutMs", 100L);
+        slowFacility = "facility-1";
+
+        // When
+        Map<String, Object> analytics = service.generateFacilityAnalytics("facility-1", START, END);
+
+        // Then
+        assertEquals(List.of("basic_metrics"), analytics.get("incomplete_stages"));
+        assertEquals(Map.of("status", "incomplete"), analytics.get("basic_metrics"));
+        assertNotNull(analytics.get("energy_analysis"));
+        assertNotNull(analytics.get("performance_trends"));
+        assertEquals(0L, service.getCacheStats().get("size"));
+    }
+
+    @Test
+    void generateFacilityAnalytics_SlowStage_IsInterruptedAtTheDeadline() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(service, "stageTimeoutMs", 100L);
+        slowFacility = "facility-1";
+
+        // When
+        service.generateFacilityAnalytics("facility-1", START, END);
+
+        // Then
+        assertTrue(slowInterrupted.await(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void initialize_DefaultStagePool_FitsEveryFacilityWorkerRunningAllStages() {
+        // Given
+        ReflectionTestUtils.setField(service, "facilityThreads", 8);
+
+        // When
+        service.shutdown();
+        service.initialize();
+
+        // Then
+        ThreadPoolExecutor stageExecutor = (ThreadPoolExecutor) ReflectionTestUtils.getField(service, "stageExecutor");
+        assertEquals((8 + 1) * 6, stageExecutor.getMaximumPoolSize());
+    }
+
+    @Test
+    void generateComparativeAnalytics_FacilitiesRunConcurrently() {
+        // Given
+        List<String> facilityIds = List.of("facility-1", "facility-2", "facility-3");
+        storageRendezvous = new CountDownLatch(facilityIds.size());
+
+        // When
+        Map<String, Object> comparison = service.generateComparativeAnalytics(facilityIds, START, END);
+
+        // Then
+        assertEquals(0, storageRendezvous.getCount());
+        assertEquals(List.of(), comparison.get("incomplete_facilities"));
+        Map<?, ?> individual = (Map<?, ?>) comparison.get("individual_analytics");
+        for (String facilityId : facilityIds) {
+            assertEquals(List.of(), ((Map<?, ?>) individual.get(facilityId)).get("incomplete_stages"));
+        }
+    }
+
+    @Test
+    void generateComparativeAnalytics_SlowFacility_IsLeftOutAtTheDeadline() {
+        // Given
+        ReflectionTestUtils.setField(service, "facilityTimeoutMs", 200L);
+        slowFacility = "facility-2";
+
+        // When
+        long started = System.nanoTime();
+        Map<String, Object> comparison =
+                service.generateComparativeAnalytics(List.of("facility-1", "facility-2"), START, END);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        // Then
+        assertTrue(elapsedMs < 2000);
+        assertEquals(List.of("facility-2"), comparison.get("incomplete_facilities"));
+        Map<?, ?> individual = (Map<?, ?>) comparison.get("individual_analytics");
+        assertEquals(List.of(), ((Map<?, ?>) individual.get("facility-1")).get("incomplete_stages"));
+        assertEquals("error", ((Map<?, ?>) individual.get("facility-2")).get("status"));
+    }
+}
@@ -10,6 +10,8 @@ import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.client.ResourceAccessException;
 
+import java.util.Optional;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -20,6 +22,9 @@ class EdgeSecurityServiceTest {
     @Mock
     private RestTemplate restTemplate;
 
+    @Mock
+    private DeviceTrustStore deviceTrustStore;
+
     @InjectMocks
     private EdgeSecurityService edgeSecurityService;
 
@@ -171,54 +176,6 @@ class EdgeSecurityServiceTest {
         verify(restTemplate, never()).postForObject(anyString(), any(), any());
     }
 
-    @Test
-    void extractDeviceAuthSecret_JsonFormat() {
-        // Given
-        String payload = "{\"voltage\": 220, \"current\": 5.5, \"auth_secret\": \"secret123\"}";
-
-        // When
-        String result = edgeSecurityService.extractDeviceAuthSecret(payload);
-
-        // Then
-        assertEquals("secret123", result);
-    }
-
-    @Test
-    void extractDeviceAuthSecret_AlternativeFormat() {
-        // Given
-        String payload = "voltage: 220, current: 5.5, auth_secret: secret456";
-
-        // When
-        String result = edgeSecurityService.extractDeviceAuthSecret(payload);
-
-        // Then
-        assertEquals("secret456", result);
-    }
-
-    @Test
-    void extractDeviceAuthSecret_NoAuthSecret() {
-        // Given
-        String payload = "{\"voltage\": 220, \"current\": 5.5}";
-
-        // When
-        String result = edgeSecurityService.extractDeviceAuthSecret(payload);
-
-        // Then
-        assertNull(result);
-    }
-
-    @Test
-    void extractDeviceAuthSecret_MalformedPayload() {
-        // Given
-        String payload = "invalid json {";
-
-        // When
-        String result = edgeSecurityService.extractDeviceAuthSecret(payload);
-
-        // Then
-        assertNull(result);
-    }
-
     @Test
     void logSecurityEvent_Success() {
         // When
@@ -276,4 +233,46 @@ class EdgeSecurityServiceTest {
         assertEquals("UNKNOWN", result);
         verify(restTemplate).getForObject(anyString(), eq(Boolean.class));
     }
+
+    @Test
+    void canDeviceSendData_CachedInTrustStore_SkipsDeviceService() {
+        // Given
+        when(deviceTrustStore.canSendData(DEVICE_ID)).thenReturn(Optional.of(true));
+
+        // When
+        boolean result = edgeSecurityService.canDeviceSendData(DEVICE_ID);
+
+        // Then
+        assertTrue(result);
+        verify(restTemplate, never()).getForObject(anyString(), any());
+    }
+
+    @Test
+    void canDeviceSendData_ServiceUnavailable_FallsBackToStaleTrustStoreEntry() {
+        // Given
+        when(deviceTrustStore.canSendData(DEVICE_ID)).thenReturn(Optional.empty(), Optional.of(true));
+        when(restTemplate.getForObject(anyString(), eq(Boolean.class)))
+            .thenThrow(new ResourceAccessException("Service unavailable"));
+
+        // When
+        boolean result = edgeSecurityService.canDeviceSendData(DEVICE_ID);
+
+        // Then
+        assertTrue(result);
+        verify(deviceTrustStore).markUpstreamUnavailable();
+    }
+
+    @Test
+    void validateDeviceAuthSecret_Valid_RecordedInTrustStore() {
+        // Given
+        when(restTemplate.postForObject(anyString(), isNull(), eq(Boolean.class)))
+            .thenReturn(true);
+
+        // When
+        boolean result = edgeSecurityService.validateDeviceAuthSecret(DEVICE_ID, AUTH_SECRET);
+
+        // Then
+        assertTrue(result);
+        verify(deviceTrustStore).recordAuthSecret(DEVICE_ID, AUTH_SECRET);
+    }
 }
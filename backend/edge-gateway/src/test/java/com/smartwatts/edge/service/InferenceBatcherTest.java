@@ -0,0 +1,137 @@
+package com.smartwatts.edge.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InferenceBatcherTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private DistributionSummary batchSizes;
+    private TfLiteInterpreterPool pool;
+    private InferenceBatcher batcher;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        TfLiteInterpreterPoolTest.FakeInterpreter.block = null;
+        TfLiteInterpreterPoolTest.FakeInterpreter.fixedBatch = false;
+        TfLiteInterpreterPoolTest.FakeInterpreter.invocations.set(0);
+        batchSizes = DistributionSummary.builder("test.batch").register(meterRegistry);
+        pool = new TfLiteInterpreterPool("test", new File("test.tflite"), 1, 1, 3, 2,
+                Timer.builder("test.inference").register(meterRegistry),
+                TfLiteInterpreterPoolTest.FakeInterpreter.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        CountDownLatch block = TfLiteInterpreterPoolTest.FakeInterpreter.block;
+        if (block != null) {
+            block.countDown();
+        }
+        batcher.close();
+        pool.close();
+    }
+
+    @Test
+    void submit_RequestsWithinWaitWindow_ShareOneInvocation() throws Exception {
+        // Given
+        batcher = batcher(8, 200, 64);
+
+        // When
+        List<CompletableFuture<float[]>> results = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            results.add(batcher.submit(new float[]{i, 0f, 0f}));
+        }
+
+        // Then
+        for (int i = 0; i < results.size(); i++) {
+            assertArrayEquals(new float[]{i, 3f}, results.get(i).get(2, TimeUnit.SECONDS));
+        }
+        assertEquals(1, TfLiteInterpreterPoolTest.FakeInterpreter.invocations.get());
+        assertEquals(1L, batchSizes.count());
+        assertEquals(5.0, batchSizes.max());
+    }
+
+    @Test
+    void submit_MoreThanMaxBatchSize_SplitsIntoFullBatches() throws Exception {
+        // Given
+        batcher = batcher(4, 200, 64);
+
+        // When
+        List<CompletableFuture<float[]>> results = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            results.add(batcher.submit(new float[]{i, 1f, 0f}));
+        }
+
+        // Then
+        for (int i = 0; i < results.size(); i++) {
+            assertArrayEquals(new float[]{i + 1f, 3f}, results.get(i).get(2, TimeUnit.SECONDS));
+        }
+        assertEquals(3L, batchSizes.count());
+        assertEquals(4.0, batchSizes.max());
+    }
+
+    @Test
+    void submit_InterpreterBusyAndQueueFull_RejectsAndBatchesTheBacklog() throws Exception {
+        // Given
+        batcher = batcher(8, 0, 2);
+        TfLiteInterpreterPoolTest.FakeInterpreter.block = new CountDownLatch(1);
+        CompletableFuture<float[]> running = batcher.submit(new float[]{1f, 0f, 0f});
+        while (TfLiteInterpreterPoolTest.FakeInterpreter.running.get() == 0) {
+            Thread.sleep(1);
+        }
+
+        // When
+        CompletableFuture<float[]> queuedA = batcher.submit(new float[]{2f, 0f, 0f});
+        CompletableFuture<float[]> queuedB = batcher.submit(new float[]{3f, 0f, 0f});
+        CompletableFuture<float[]> rejected = batcher.submit(new float[]{4f, 0f, 0f});
+        TfLiteInterpreterPoolTest.FakeInterpreter.block.countDown();
+
+        // Then
+        CompletionException failure = assertThrows(CompletionException.class, rejected::join);
+        assertTrue(failure.getCause() instanceof RejectedExecutionException);
+        assertArrayEquals(new float[]{1f, 3f}, running.get(2, TimeUnit.SECONDS));
+        assertArrayEquals(new float[]{2f, 3f}, queuedA.get(2, TimeUnit.SECONDS));
+        assertArrayEquals(new float[]{3f, 3f}, queuedB.get(2, TimeUnit.SECONDS));
+        assertEquals(2.0, batchSizes.max());
+        assertEquals(1L, batcher.getStats().get("rejected"));
+    }
+
+    @Test
+    void close_FailsQueuedRequests() throws Exception {
+        // Given
+        batcher = batcher(8, 0, 4);
+        TfLiteInterpreterPoolTest.FakeInterpreter.block = new CountDownLatch(1);
+        batcher.submit(new float[3]);
+        while (TfLiteInterpreterPoolTest.FakeInterpreter.running.get() == 0) {
+            Thread.sleep(1);
+        }
+        CompletableFuture<float[]> queued = batcher.submit(new float[3]);
+
+        // When
+        batcher.close();
+
+        // Then
+        CompletionException failure = assertThrows(CompletionException.class, queued::join);
+        assertTrue(failure.getCause() instanceof RejectedExecutionException);
+        assertTrue(batcher.submit(new float[3]).isCompletedExceptionally());
+    }
+
+    private InferenceBatcher batcher(int maxBatchSize, long maxWaitMs, int queueCapacity) {
+        return new InferenceBatcher("test", pool, 1, maxBatchSize, maxWaitMs, queueCapacity, 1000, batchSizes);
+    }
+}
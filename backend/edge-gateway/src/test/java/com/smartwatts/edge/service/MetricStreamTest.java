@@ -0,0 +1,102 @@
+package com.smartwatts.edge.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricStreamTest {
+
+    private static final MetricStream.Settings SETTINGS =
+            new MetricStream.Settings(30, 50, 0.05, 0.05, 4.0, 0.5, 8.0);
+
+    @Test
+    void observe_TracksExactMeanAndVariance() {
+        // Given
+        MetricStream stream = new MetricStream(SETTINGS);
+        double[] values = {2, 4, 4, 4, 5, 5, 7, 9};
+
+        // When
+        for (double value : values) {
+            stream.observe(value, 0);
+        }
+
+        // Then
+        assertEquals(8, stream.count());
+        assertEquals(5.0, stream.mean(), 1e-9);
+        assertEquals(32.0 / 7, stream.variance(), 1e-9);
+    }
+
+    @Test
+    void observe_NoiseIsOrdinaryAndSpikeIsFlagged() {
+        // Given
+        MetricStream stream = new MetricStream(SETTINGS);
+        Random random = new Random(42);
+        int flagged = 0;
+
+        // When
+        for (int i = 0; i < 500; i++) {
+            if (stream.observe(100 + random.nextGaussian(), 0) != null) {
+                flagged++;
+            }
+        }
+        MetricStream.Signal spike = stream.observe(120, 0);
+
+        // Then
+        assertEquals(0, flagged);
+        assertNotNull(spike);
+        assertEquals(MetricStream.Kind.SPIKE, spike.kind());
+        assertTrue(spike.zScore() > 4);
+        assertEquals(100, spike.expected(), 0.5);
+    }
+
+    @Test
+    void observe_SmallPersistentShift_IsFlaggedByCusum() {
+        // Given
+        MetricStream stream = new MetricStream(SETTINGS);
+        Random random = new Random(7);
+        for (int i = 0; i < 500; i++) {
+            stream.observe(100 + random.nextGaussian(), 0);
+        }
+
+        // When
+        MetricStream.Signal signal = null;
+        int readings = 0;
+        while (signal == null && readings < 20) {
+            signal = stream.observe(102 + random.nextGaussian() * 0.1, 0);
+            readings++;
+        }
+
+        // Then
+        assertNotNull(signal);
+        assertEquals(MetricStream.Kind.SHIFT, signal.kind());
+        assertTrue(signal.zScore() > 0);
+        assertTrue(readings <= 10);
+    }
+
+    @Test
+    void observe_ValueUsualForItsHourOfWeek_IsNotFlagged() {
+        // Given an evening peak of 300 on a base load of 100
+        MetricStream stream = new MetricStream(SETTINGS);
+        Random random = new Random(3);
+        for (int week = 0; week < 60; week++) {
+            for (int hour = 0; hour < MetricStream.HOURS_PER_WEEK; hour++) {
+                double level = hour % 24 == 18 ? 300 : 100;
+                stream.observe(level + random.nextGaussian(), hour);
+            }
+        }
+
+        // When
+        MetricStream.Baseline peakBaseline = stream.baseline(18);
+        MetricStream.Baseline offPeakBaseline = stream.baseline(3);
+        MetricStream.Signal atPeak = stream.observe(300, 18);
+        MetricStream.Signal offPeak = stream.observe(300, 3);
+
+        // Then
+        assertEquals(300, peakBaseline.expected(), 5);
+        assertEquals(100, offPeakBaseline.expected(), 5);
+        assertNull(atPeak);
+        assertNotNull(offPeak);
+    }
+}
@@ -0,0 +1,82 @@
+package com.smartwatts.edge.service;
+
+import com.smartwatts.edge.model.AnomalyDetection;
+import com.smartwatts.edge.model.DeviceReading;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingAnomalyDetectorTest {
+
+    private static final LocalDateTime MONDAY_NOON = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    private StreamingAnomalyDetector detector;
+
+    @BeforeEach
+    void setUp() {
+        // No models are loaded, so flagged readings are recorded on the statistics alone
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        detector = new StreamingAnomalyDetector(meterRegistry, new TensorFlowLiteService(meterRegistry));
+        detector.initialize();
+    }
+
+    @Test
+    void observe_VoltageSag_RecordsOneAnomalyPerCooldown() {
+        // Given
+        Random random = new Random(11);
+        for (int i = 0; i < 200; i++) {
+            detector.observe("meter-1", reading(230 + random.nextGaussian()));
+        }
+
+        // When
+        detector.observe("meter-1", reading(190));
+        detector.observe("meter-1", reading(185));
+
+        // Then
+        List<AnomalyDetection> anomalies = detector.getRecentAnomalies("meter-1");
+        assertEquals(1, anomalies.size());
+        AnomalyDetection anomaly = anomalies.get(0);
+        assertEquals("voltage", anomaly.getMetric());
+        assertEquals(AnomalyDetection.AnomalyType.VOLTAGE_DROP, anomaly.getAnomalyType());
+        assertEquals(190, anomaly.getActualValue());
+        assertEquals(230, anomaly.getExpectedValue(), 1);
+        assertEquals(AnomalyDetection.AnomalySeverity.CRITICAL, anomaly.getSeverity());
+        assertEquals(202L, detector.getStats().get("readings"));
+        assertEquals(1L, detector.getStats().get("signals"));
+        assertEquals(0L, detector.getStats().get("escalations"));
+    }
+
+    @Test
+    void baseline_FollowsTheDevicesReadings() {
+        // Given
+        Random random = new Random(5);
+        for (int i = 0; i < 100; i++) {
+            detector.observe("meter-2", reading(230 + random.nextGaussian()));
+        }
+
+        // When
+        MetricStream.Baseline baseline = detector.baseline("meter-2", "voltage", MONDAY_NOON);
+
+        // Then
+        assertEquals(230, baseline.expected(), 1);
+        assertTrue(detector.isOrdinary("meter-2", "voltage", 231, MONDAY_NOON));
+        assertFalse(detector.isOrdinary("meter-2", "voltage", 250, MONDAY_NOON));
+        assertNull(detector.baseline("unknown", "voltage", MONDAY_NOON));
+        assertTrue(Double.isNaN(detector.spikeThreshold("unknown", "voltage", MONDAY_NOON)));
+    }
+
+    private static DeviceReading reading(double voltage) {
+        DeviceReading reading = new DeviceReading();
+        reading.setTimestamp(MONDAY_NOON);
+        reading.setVoltage(voltage);
+        reading.setEnergyConsumption(10);
+        reading.setFrequency(50);
+        return reading;
+    }
+}
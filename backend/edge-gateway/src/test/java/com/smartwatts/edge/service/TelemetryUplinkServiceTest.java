@@ -0,0 +1,258 @@
+package com.smartwatts.edge.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartwatts.edge.model.DeviceReading;
+import com.smartwatts.edge.storage.TelemetryOutbox;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TelemetryUplinkServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final List<JsonNode> requests = new ArrayList<>();
+    private Function<JsonNode, TelemetryUplinkService.BatchResult> energyService;
+    private TelemetryOutbox outbox;
+    private TelemetryUplinkService uplink;
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        outbox = new TelemetryOutbox(objectMapper, meterRegistry);
+        ReflectionTestUtils.setField(outbox, "directory", tempDir.toString());
+        ReflectionTestUtils.setField(outbox, "segmentBytes", 4096);
+        ReflectionTestUtils.setField(outbox, "maxBytes", 4 * 4096L);
+        ReflectionTestUtils.setField(outbox, "minFreeBytes", 0L);
+        ReflectionTestUtils.setField(outbox, "overflowPolicy", TelemetryOutbox.OverflowPolicy.REJECT_NEW);
+        ReflectionTestUtils.setField(outbox, "deadLetterMaxBytes", 4 * 4096L);
+        outbox.initialize();
+
+        DeviceTrustStore deviceTrustStore = new DeviceTrustStore(new RestTemplate(), objectMapper, meterRegistry);
+        deviceTrustStore.recordAuthSecret("meter-1", "secret-1");
+
+        // Stands in for energy-service: decodes each gzip batch and answers with the current responder
+        RestTemplate restTemplate = new RestTemplate() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> ResponseEntity<T> exchange(String url, HttpMethod method, HttpEntity<?> requestEntity,
+                                                  Class<T> responseType, Object... uriVariables) {
+                assertTrue(url.endsWith("/api/v1/energy/readings/batch/secure"));
+                assertEquals("gzip", requestEntity.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+                try (GZIPInputStream body = new GZIPInputStream(new ByteArrayInputStream((byte[]) requestEntity.getBody()))) {
+                    JsonNode request = objectMapper.readTree(body);
+                    requests.add(request);
+                    return ResponseEntity.ok((T) energyService.apply(request));
+                } catch (IOException e) {
+                    throw new RestClientException("Unreadable batch", e);
+                }
+            }
+        };
+
+        uplink = new TelemetryUplinkService(outbox, deviceTrustStore, restTemplate, objectMapper, meterRegistry);
+        ReflectionTestUtils.setField(uplink, "energyServiceUrl", "http://energy-service");
+        ReflectionTestUtils.setField(uplink, "enabled", true);
+        ReflectionTestUtils.setField(uplink, "batchSize", 500);
+        ReflectionTestUtils.setField(uplink, "maxBatchBytes", 1048576);
+        ReflectionTestUtils.setField(uplink, "maxBatchesPerRun", 1);
+        ReflectionTestUtils.setField(uplink, "initialBackoffMs", 5000L);
+        ReflectionTestUtils.setField(uplink, "maxBackoffMs", 300000L);
+        ReflectionTestUtils.setField(uplink, "defaultUserId", "00000000-0000-0000-0000-000000000001");
+        uplink.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        outbox.close();
+    }
+
+    @Test
+    void drain_AllAccepted_SendsDeviceSecretsAndCommits() throws Exception {
+        // Given
+        appendReadings(2);
+        energyService = request -> result("ACCEPTED", false, "ACCEPTED", false);
+
+        // When
+        uplink.drain();
+
+        // Then
+        assertEquals(1, requests.size());
+        assertEquals(2, requests.get(0).path("readings").size());
+        assertEquals("meter-1", requests.get(0).path("readings").get(0).path("deviceId").asText());
+        assertEquals("secret-1", requests.get(0).path("deviceAuthSecrets").path("meter-1").asText());
+        assertEquals(2L, uplink.getStats().get("sent"));
+        assertTrue(outbox.readBatch(100, Integer.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    void drain_RetryableItem_IsQueuedAgain() throws Exception {
+        // Given
+        appendReadings(2);
+        energyService = request -> result("ACCEPTED", false, "FAILED", true);
+
+        // When
+        uplink.drain();
+
+        // Then
+        assertEquals(1L, uplink.getStats().get("sent"));
+        assertEquals(1L, uplink.getStats().get("requeued"));
+        List<DeviceReading> pending = outbox.readBatch(100, Integer.MAX_VALUE).readings();
+        assertEquals(1, pending.size());
+        assertEquals(1.0, pending.get(0).getEnergyConsumption());
+    }
+
+    @Test
+    void drain_RequeuedReading_KeepsItsSourceReadingId() throws Exception {
+        // Given
+        appendReadings(2);
+        energyService = request -> result("ACCEPTED", false, "FAILED", true);
+
+        // When
+        uplink.drain();
+        energyService = request -> new TelemetryUplinkService.BatchResult(1, 1, 0,
+                List.of(new TelemetryUplinkService.ItemResult(0, "ACCEPTED", null, false)));
+        uplink.drain();
+
+        // Then
+        assertEquals(2, requests.size());
+        JsonNode first = requests.get(0).path("readings").get(1);
+        JsonNode resent = requests.get(1).path("readings").get(0);
+        assertDoesNotThrow(() -> UUID.fromString(first.path("sourceReadingId").asText()));
+        assertEquals(first.path("sourceReadingId"), resent.path("sourceReadingId"));
+        assertNotEquals(first.path("sourceReadingId"), requests.get(0).path("readings").get(0).path("sourceReadingId"));
+    }
+
+    @Test
+    void drain_DeviceRejected_IsDeadLetteredAndReplayedLater() throws Exception {
+        // Given
+        appendReadings(2);
+        energyService = request -> result("ACCEPTED", false, "DEVICE_REJECTED", false);
+
+        // When
+        uplink.drain();
+        boolean pendingBeforeReplay = !outbox.readBatch(100, Integer.MAX_VALUE).isEmpty();
+        uplink.replayDeadLetters();
+
+        // Then
+        assertFalse(pendingBeforeReplay);
+        assertEquals(1L, uplink.getStats().get("deadLettered"));
+        assertEquals(0L, uplink.getStats().get("rejected"));
+        List<DeviceReading> pending = outbox.readBatch(100, Integer.MAX_VALUE).readings();
+        assertEquals(1, pending.size());
+        assertEquals(1.0, pending.get(0).getEnergyConsumption());
+    }
+
+    @Test
+    void drain_UnverifiedDevice_IsDeadLetteredDespiteRetryableFlag() throws Exception {
+        // Given
+        appendReadings(2);
+        energyService = request -> result("ACCEPTED", false, "DEVICE_REJECTED", true);
+
+        // When
+        uplink.drain();
+
+        // Then
+        assertEquals(1, requests.size());
+        assertEquals(1L, uplink.getStats().get("deadLettered"));
+        assertEquals(0L, uplink.getStats().get("requeued"));
+        assertTrue(outbox.readBatch(100, Integer.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    void drain_InvalidItem_IsDropped() throws Exception {
+        // Given
+        appendReadings(2);
+        energyService = request -> result("ACCEPTED", false, "INVALID", false);
+
+        // When
+        uplink.drain();
+        uplink.replayDeadLetters();
+
+        // Then
+        assertEquals(1L, uplink.getStats().get("rejected"));
+        assertEquals(0L, uplink.getStats().get("deadLettered"));
+        assertTrue(outbox.readBatch(100, Integer.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    void drain_ServerError_KeepsBatchAndBacksOff() throws Exception {
+        // Given
+        appendReadings(2);
+        energyService = request -> {
+            throw new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE);
+        };
+
+        // When
+        uplink.drain();
+        uplink.drain();
+
+        // Then
+        assertEquals(1, requests.size());
+        assertEquals(1L, uplink.getStats().get("failures"));
+        assertEquals(5000L, uplink.getStats().get("backoffMs"));
+        assertEquals(2, outbox.readBatch(100, Integer.MAX_VALUE).readings().size());
+    }
+
+    @Test
+    void drain_BatchRejected_IsDeadLetteredRatherThanDropped() throws Exception {
+        // Given
+        appendReadings(2);
+        energyService = request -> {
+            throw new HttpClientErrorException(HttpStatus.BAD_REQUEST);
+        };
+
+        // When
+        uplink.drain();
+
+        // Then
+        assertEquals(2L, uplink.getStats().get("deadLettered"));
+        assertTrue(outbox.readBatch(100, Integer.MAX_VALUE).isEmpty());
+        assertEquals(2, outbox.replayDeadLetters());
+    }
+
+    private void appendReadings(int count) {
+        for (int i = 0; i < count; i++) {
+            DeviceReading reading = new DeviceReading();
+            reading.setDeviceId("meter-1");
+            reading.setTimestamp(LocalDateTime.of(2024, 1, 1, 0, 0).plusMinutes(i));
+            reading.setEnergyConsumption(i);
+            assertTrue(outbox.append(reading));
+        }
+    }
+
+    private static TelemetryUplinkService.BatchResult result(String first, boolean firstRetryable,
+                                                             String second, boolean secondRetryable) {
+        List<TelemetryUplinkService.ItemResult> items = List.of(
+                new TelemetryUplinkService.ItemResult(0, first, null, firstRetryable),
+                new TelemetryUplinkService.ItemResult(1, second, "refused", secondRetryable));
+        int accepted = (int) items.stream().filter(item -> "ACCEPTED".equals(item.status())).count();
+        return new TelemetryUplinkService.BatchResult(items.size(), accepted, items.size() - accepted, items);
+    }
+}
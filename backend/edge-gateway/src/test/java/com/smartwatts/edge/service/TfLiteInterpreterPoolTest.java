@@ -0,0 +1,210 @@
+package com.smartwatts.edge.service;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TfLiteInterpreterPoolTest {
+
+    private Timer latency;
+
+    @BeforeEach
+    void setUp() {
+        latency = Timer.builder("test.inference").register(new SimpleMeterRegistry());
+        FakeInterpreter.instances.set(0);
+        FakeInterpreter.overlaps.set(0);
+        FakeInterpreter.block = null;
+        FakeInterpreter.invocations.set(0);
+        FakeInterpreter.fixedBatch = false;
+    }
+
+    @Test
+    void run_WritesInputAndReadsOutputThroughDirectBuffers() throws Exception {
+        // Given
+        TfLiteInterpreterPool pool = pool(1);
+
+        // When
+        float[] output = pool.run(new float[]{1f, 2f, 3f}, 1000);
+
+        // Then
+        assertArrayEquals(new float[]{6f, 3f}, output);
+        assertEquals(1, latency.count());
+    }
+
+    @Test
+    void run_ConcurrentCallers_NeverShareAnInterpreter() throws Exception {
+        // Given
+        TfLiteInterpreterPool pool = pool(2);
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+
+        // When
+        List<Future<float[]>> results = new ArrayList<>();
+        for (int i = 0; i < 80; i++) {
+            float value = i;
+            results.add(callers.submit(() -> pool.run(new float[]{value, 0f, 0f}, 5000)));
+        }
+        callers.shutdown();
+
+        // Then
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals((float) i, results.get(i).get()[0]);
+        }
+        assertEquals(0, FakeInterpreter.overlaps.get());
+        assertTrue(FakeInterpreter.instances.get() <= 2);
+        assertEquals(80, latency.count());
+    }
+
+    @Test
+    void run_AllInterpretersBusy_TimesOut() throws Exception {
+        // Given
+        TfLiteInterpreterPool pool = pool(1);
+        FakeInterpreter.block = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            try {
+                pool.run(new float[3], 5000);
+            } catch (Exception e) {
+                // Not under test
+            }
+        });
+        holder.start();
+        while (FakeInterpreter.running.get() == 0) {
+            Thread.sleep(1);
+        }
+
+        // When / Then
+        assertThrows(TimeoutException.class, () -> pool.run(new float[3], 20));
+        FakeInterpreter.block.countDown();
+        holder.join(1000);
+        assertEquals(1, pool.getStats().get("waitTimeouts"));
+    }
+
+    @Test
+    void runBatch_PacksSamplesIntoOneInvocation() throws Exception {
+        // Given
+        TfLiteInterpreterPool pool = pool(1);
+
+        // When
+        float[][] outputs = pool.runBatch(new float[][]{{1f, 2f, 3f}, {4f, 5f, 6f}, {0f, 0f, 1f}}, 1000);
+        float[] single = pool.run(new float[]{1f, 1f, 1f}, 1000);
+
+        // Then
+        assertArrayEquals(new float[]{6f, 3f}, outputs[0]);
+        assertArrayEquals(new float[]{15f, 3f}, outputs[1]);
+        assertArrayEquals(new float[]{1f, 3f}, outputs[2]);
+        assertArrayEquals(new float[]{3f, 3f}, single);
+        assertEquals(2, FakeInterpreter.invocations.get());
+        assertEquals(2, latency.count());
+    }
+
+    @Test
+    void runBatch_ModelWithoutBatchDimension_RunsSamplesOneByOne() throws Exception {
+        // Given
+        FakeInterpreter.fixedBatch = true;
+        TfLiteInterpreterPool pool = pool(1);
+
+        // When
+        float[][] outputs = pool.runBatch(new float[][]{{1f, 2f, 3f}, {4f, 5f, 6f}}, 1000);
+
+        // Then
+        assertArrayEquals(new float[]{6f, 3f}, outputs[0]);
+        assertArrayEquals(new float[]{15f, 3f}, outputs[1]);
+        assertEquals(2, FakeInterpreter.invocations.get());
+        assertEquals(1, pool.getStats().get("unbatchableInterpreters"));
+    }
+
+    @Test
+    void run_WrongInputLength_Throws() throws Exception {
+        TfLiteInterpreterPool pool = pool(1);
+
+        assertThrows(IllegalArgumentException.class, () -> pool.run(new float[2], 1000));
+    }
+
+    private TfLiteInterpreterPool pool(int size) throws ReflectiveOperationException {
+        return new TfLiteInterpreterPool("test", new File("test.tflite"), size, 1, 3, 2, latency,
+                FakeInterpreter.class);
+    }
+
+    /**
+     * Stands in for org.tensorflow.lite.Interpreter: outputs the sum and the count of each row of
+     * its input
+     */
+    public static class FakeInterpreter {
+        static final AtomicInteger instances = new AtomicInteger();
+        static final AtomicInteger overlaps = new AtomicInteger();
+        static final AtomicInteger running = new AtomicInteger();
+        static final AtomicInteger invocations = new AtomicInteger();
+        static volatile CountDownLatch block;
+        static volatile boolean fixedBatch;
+
+        private final AtomicInteger busy = new AtomicInteger();
+        private int[] shape = {1, 3};
+
+        public FakeInterpreter(File model, Options options) {
+            instances.incrementAndGet();
+        }
+
+        public void resizeInput(int index, int[] dims) {
+            if (fixedBatch && dims[0] != 1) {
+                throw new IllegalArgumentException("Input has a fixed batch size of 1");
+            }
+            shape = dims;
+        }
+
+        public void run(Object input, Object output) throws InterruptedException {
+            invocations.incrementAndGet();
+            if (busy.incrementAndGet() > 1) {
+                overlaps.incrementAndGet();
+            }
+            running.incrementAndGet();
+            try {
+                CountDownLatch latch = block;
+                if (latch != null) {
+                    latch.await(5, TimeUnit.SECONDS);
+                }
+                FloatBuffer in = ((ByteBuffer) input).order(ByteOrder.nativeOrder()).asFloatBuffer();
+                FloatBuffer out = ((ByteBuffer) output).asFloatBuffer();
+                assertEquals(shape[0] * shape[1], in.limit());
+                for (int row = 0; row < shape[0]; row++) {
+                    float sum = 0f;
+                    for (int i = 0; i < shape[1]; i++) {
+                        sum += in.get(row * shape[1] + i);
+                    }
+                    out.put(sum).put(shape[1]);
+                }
+            } finally {
+                running.decrementAndGet();
+                busy.decrementAndGet();
+            }
+        }
+
+        public void close() {
+        }
+
+        public static class Options {
+            public Options setNumThreads(int threads) {
+                return this;
+            }
+
+            public Options setUseNNAPI(boolean useNNAPI) {
+                return this;
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.smartwatts.edge.storage;
+
+import com.smartwatts.edge.model.DeviceReading;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadingRingBufferTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Test
+    void latest_BeforeWrap_ReturnsReadingsOldestFirst() {
+        // Given
+        ReadingRingBuffer buffer = new ReadingRingBuffer("meter-1", 10);
+        for (int i = 0; i < 4; i++) {
+            buffer.append(reading(i));
+        }
+
+        // When
+        List<DeviceReading> readings = buffer.latest(100);
+
+        // Then
+        assertEquals(4, buffer.size());
+        assertEquals(4, readings.size());
+        for (int i = 0; i < 4; i++) {
+            DeviceReading reading = readings.get(i);
+            assertEquals(i, reading.getEnergyConsumption());
+            assertEquals(START.plusSeconds(i), reading.getTimestamp());
+            assertEquals("meter-1", reading.getDeviceId());
+            assertEquals("ONLINE", reading.getStatus());
+        }
+    }
+
+    @Test
+    void append_PastCapacity_OverwritesOldest() {
+        // Given
+        ReadingRingBuffer buffer = new ReadingRingBuffer("meter-1", 10);
+
+        // When
+        for (int i = 0; i < 25; i++) {
+            buffer.append(reading(i));
+        }
+
+        // Then
+        List<DeviceReading> readings = buffer.latest(3);
+        assertEquals(10, buffer.size());
+        assertEquals(25, buffer.totalAppended());
+        assertEquals(List.of(22.0, 23.0, 24.0), readings.stream().map(DeviceReading::getEnergyConsumption).toList());
+        assertEquals(10, buffer.latest(100).size());
+        assertEquals(15.0, buffer.latest(100).get(0).getEnergyConsumption());
+    }
+
+    @Test
+    void latest_WhileWriterRuns_ReturnsConsistentReadings() throws Exception {
+        // Given
+        ReadingRingBuffer buffer = new ReadingRingBuffer("meter-1", 64);
+        AtomicBoolean stop = new AtomicBoolean();
+        Thread writer = new Thread(() -> {
+            for (int i = 0; !stop.get(); i++) {
+                buffer.append(reading(i));
+            }
+        });
+        writer.start();
+
+        // When / Then
+        try {
+            for (int round = 0; round < 10_000; round++) {
+                List<DeviceReading> readings = buffer.latest(64);
+                double previous = -1;
+                for (DeviceReading reading : readings) {
+                    double value = reading.getEnergyConsumption();
+                    assertTrue(value > previous);
+                    assertEquals(value * 2, reading.getPowerOutput());
+                    assertEquals(START.plusSeconds((long) value), reading.getTimestamp());
+                    previous = value;
+                }
+            }
+        } finally {
+            stop.set(true);
+            writer.join();
+        }
+    }
+
+    private static DeviceReading reading(int i) {
+        DeviceReading reading = new DeviceReading();
+        reading.setDeviceId("meter-1");
+        reading.setTimestamp(START.plusSeconds(i));
+        reading.setEnergyConsumption(i);
+        reading.setPowerOutput(i * 2.0);
+        reading.setStatus("ONLINE");
+        return reading;
+    }
+}
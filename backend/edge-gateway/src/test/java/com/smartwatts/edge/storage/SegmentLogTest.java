@@ -0,0 +1,177 @@
+package com.smartwatts.edge.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentLogTest {
+
+    private static final int SEGMENT_BYTES = 256;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void append_RollsSegments_AndReadsBackInOrder() throws Exception {
+        // Given
+        try (SegmentLog log = SegmentLog.open(tempDir, SEGMENT_BYTES)) {
+            // When
+            for (int i = 0; i < 40; i++) {
+                log.append(record(i));
+            }
+
+            // Then
+            assertTrue(log.segmentCount() > 1);
+            List<SegmentLog.Entry> entries = log.read(log.startOffset(), 100, Integer.MAX_VALUE);
+            assertEquals(40, entries.size());
+            for (int i = 0; i < 40; i++) {
+                assertEquals("reading-" + i, text(entries.get(i)));
+            }
+        }
+    }
+
+    @Test
+    void read_FromNextOffset_ResumesAfterLastEntry() throws Exception {
+        // Given
+        try (SegmentLog log = SegmentLog.open(tempDir, SEGMENT_BYTES)) {
+            for (int i = 0; i < 20; i++) {
+                log.append(record(i));
+            }
+
+            // When
+            List<SegmentLog.Entry> first = log.read(0, 7, Integer.MAX_VALUE);
+            List<SegmentLog.Entry> rest = log.read(first.get(6).nextOffset(), 100, Integer.MAX_VALUE);
+
+            // Then
+            assertEquals(7, first.size());
+            assertEquals(13, rest.size());
+            assertEquals("reading-7", text(rest.get(0)));
+            assertEquals(log.endOffset(), rest.get(12).nextOffset());
+        }
+    }
+
+    @Test
+    void open_ExistingLog_RecoversRecordsAndKeepsAppending() throws Exception {
+        // Given
+        try (SegmentLog log = SegmentLog.open(tempDir, SEGMENT_BYTES)) {
+            for (int i = 0; i < 30; i++) {
+                log.append(record(i));
+            }
+        }
+
+        // When
+        try (SegmentLog reopened = SegmentLog.open(tempDir, SEGMENT_BYTES)) {
+            reopened.append(record(30));
+
+            // Then
+            List<SegmentLog.Entry> entries = reopened.read(0, 100, Integer.MAX_VALUE);
+            assertEquals(31, entries.size());
+            assertEquals("reading-30", text(entries.get(30)));
+        }
+    }
+
+    @Test
+    void open_CorruptRecord_TruncatesAtLastValidRecord() throws Exception {
+        // Given
+        long corruptOffset;
+        try (SegmentLog log = SegmentLog.open(tempDir, SEGMENT_BYTES)) {
+            log.append(record(0));
+            corruptOffset = log.append(record(1));
+            log.append(record(2));
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(tempDir)) {
+            segment = files.filter(path -> path.toString().endsWith(".log")).findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {'X'}), corruptOffset + SegmentLog.HEADER_BYTES);
+        }
+
+        // When
+        try (SegmentLog reopened = SegmentLog.open(tempDir, SEGMENT_BYTES)) {
+            // Then
+            assertEquals(corruptOffset, reopened.endOffset());
+            reopened.append(record(3));
+            List<SegmentLog.Entry> entries = reopened.read(0, 100, Integer.MAX_VALUE);
+            assertEquals(2, entries.size());
+            assertEquals("reading-0", text(entries.get(0)));
+            assertEquals("reading-3", text(entries.get(1)));
+        }
+        try (SegmentLog reopened = SegmentLog.open(tempDir, SEGMENT_BYTES)) {
+            assertEquals(2, reopened.read(0, 100, Integer.MAX_VALUE).size());
+        }
+    }
+
+    @Test
+    void deleteBefore_RemovesOnlyFullyConsumedSegments() throws Exception {
+        // Given
+        try (SegmentLog log = SegmentLog.open(tempDir, SEGMENT_BYTES)) {
+            for (int i = 0; i < 40; i++) {
+                log.append(record(i));
+            }
+            int segments = log.segmentCount();
+            List<SegmentLog.Entry> consumed = log.read(0, 15, Integer.MAX_VALUE);
+
+            // When
+            int deleted = log.deleteBefore(consumed.get(14).nextOffset());
+
+            // Then
+            assertTrue(deleted > 0);
+            assertEquals(segments - deleted, log.segmentCount());
+            List<SegmentLog.Entry> remaining = log.read(consumed.get(14).nextOffset(), 100, Integer.MAX_VALUE);
+            assertEquals(25, remaining.size());
+            assertEquals("reading-15", text(remaining.get(0)));
+        }
+    }
+
+    @Test
+    void read_MaxBytes_StopsBeforeExceedingLimit() throws Exception {
+        // Given
+        try (SegmentLog log = SegmentLog.open(tempDir, SEGMENT_BYTES)) {
+            for (int i = 0; i < 10; i++) {
+                log.append(record(i));
+            }
+
+            // When
+            List<SegmentLog.Entry> entries = log.read(0, 100, 20);
+
+            // Then
+            assertEquals(2, entries.size());
+        }
+    }
+
+    @Test
+    void append_EmptyRecord_IsRejectedSoRecoveryKeepsLaterRecords() throws Exception {
+        // Given
+        try (SegmentLog log = SegmentLog.open(tempDir, SEGMENT_BYTES)) {
+            log.append(record(0));
+
+            // When
+            assertThrows(IllegalArgumentException.class, () -> log.append(new byte[0]));
+            log.append(record(1));
+        }
+
+        // Then
+        try (SegmentLog reopened = SegmentLog.open(tempDir, SEGMENT_BYTES)) {
+            assertEquals(2, reopened.read(0, 100, Integer.MAX_VALUE).size());
+        }
+    }
+
+    private static byte[] record(int i) {
+        return ("reading-" + i).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(SegmentLog.Entry entry) {
+        return new String(entry.payload(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,176 @@
+package com.smartwatts.edge.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartwatts.edge.model.DeviceReading;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TelemetryOutboxTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private TelemetryOutbox outbox;
+
+    @BeforeEach
+    void setUp() {
+        outbox = newOutbox(TelemetryOutbox.OverflowPolicy.REJECT_NEW);
+    }
+
+    @AfterEach
+    void tearDown() {
+        outbox.close();
+    }
+
+    @Test
+    void commit_AfterRestart_ResumesFromCommittedOffset() throws Exception {
+        // Given
+        for (int i = 0; i < 10; i++) {
+            assertTrue(outbox.append(reading(i)));
+        }
+        TelemetryOutbox.Batch first = outbox.readBatch(4, Integer.MAX_VALUE);
+        outbox.commit(first.nextOffset());
+        outbox.close();
+
+        // When
+        outbox = newOutbox(TelemetryOutbox.OverflowPolicy.REJECT_NEW);
+        TelemetryOutbox.Batch rest = outbox.readBatch(100, Integer.MAX_VALUE);
+
+        // Then
+        assertEquals(6, rest.readings().size());
+        assertEquals(4.0, rest.readings().get(0).getEnergyConsumption());
+        assertEquals("meter-1", rest.readings().get(0).getDeviceId());
+    }
+
+    @Test
+    void append_Full_RejectNewKeepsOldestReadings() throws Exception {
+        // When
+        int accepted = 0;
+        for (int i = 0; i < 100; i++) {
+            if (outbox.append(reading(i))) {
+                accepted++;
+            }
+        }
+
+        // Then
+        assertTrue(accepted < 100);
+        TelemetryOutbox.Batch batch = outbox.readBatch(100, Integer.MAX_VALUE);
+        assertEquals(accepted, batch.readings().size());
+        assertEquals(0.0, batch.readings().get(0).getEnergyConsumption());
+        assertEquals((long) (100 - accepted), outbox.getStats().get("rejected"));
+    }
+
+    @Test
+    void append_Full_DropOldestKeepsNewestReadings() throws Exception {
+        // Given
+        outbox.close();
+        outbox = newOutbox(TelemetryOutbox.OverflowPolicy.DROP_OLDEST);
+
+        // When
+        for (int i = 0; i < 100; i++) {
+            assertTrue(outbox.append(reading(i)));
+        }
+
+        // Then
+        TelemetryOutbox.Batch batch = outbox.readBatch(100, Integer.MAX_VALUE);
+        assertTrue(batch.readings().size() < 100);
+        assertEquals(99.0, batch.readings().get(batch.readings().size() - 1).getEnergyConsumption());
+        assertTrue((long) outbox.getStats().get("droppedSegments") > 0);
+    }
+
+    @Test
+    void replayDeadLetters_MovesReadingsBackOnceAndSurvivesRestart() throws Exception {
+        // Given
+        for (int i = 0; i < 5; i++) {
+            assertTrue(outbox.deadLetter(reading(i)));
+        }
+        assertTrue(outbox.readBatch(100, Integer.MAX_VALUE).isEmpty());
+
+        // When
+        int replayed = outbox.replayDeadLetters();
+        outbox.close();
+        outbox = newOutbox(TelemetryOutbox.OverflowPolicy.REJECT_NEW);
+
+        // Then
+        assertEquals(5, replayed);
+        assertEquals(0, outbox.replayDeadLetters());
+        TelemetryOutbox.Batch batch = outbox.readBatch(100, Integer.MAX_VALUE);
+        assertEquals(5, batch.readings().size());
+        assertEquals(0.0, batch.readings().get(0).getEnergyConsumption());
+        assertEquals(0L, outbox.getStats().get("deadLetterBytes"));
+    }
+
+    @Test
+    void replayDeadLetters_OutboxFull_KeepsTheRestForLater() throws Exception {
+        // Given
+        int accepted = 0;
+        while (outbox.append(reading(accepted))) {
+            accepted++;
+        }
+        assertTrue(outbox.deadLetter(reading(1000)));
+
+        // When
+        int whileFull = outbox.replayDeadLetters();
+        outbox.commit(outbox.readBatch(100, Integer.MAX_VALUE).nextOffset());
+        int afterDrain = outbox.replayDeadLetters();
+
+        // Then
+        assertEquals(0, whileFull);
+        assertEquals(1, afterDrain);
+        assertEquals(1000.0, outbox.readBatch(100, Integer.MAX_VALUE).readings().get(0).getEnergyConsumption());
+    }
+
+    @Test
+    void initialize_DeadLetterLogUnavailable_LeavesOutboxUnavailable() throws Exception {
+        // Given a file where the dead-letter directory belongs
+        outbox.close();
+        Path other = tempDir.resolve("other");
+        Files.createDirectories(other);
+        Files.writeString(other.resolve("dead-letter"), "not a directory");
+
+        // When
+        outbox = newOutbox(TelemetryOutbox.OverflowPolicy.REJECT_NEW, other);
+
+        // Then
+        assertFalse(outbox.append(reading(0)));
+        assertFalse(outbox.deadLetter(reading(1)));
+        assertDoesNotThrow(outbox::flush);
+        assertEquals(0L, outbox.getBacklogBytes());
+    }
+
+    private TelemetryOutbox newOutbox(TelemetryOutbox.OverflowPolicy policy) {
+        return newOutbox(policy, tempDir);
+    }
+
+    private TelemetryOutbox newOutbox(TelemetryOutbox.OverflowPolicy policy, Path directory) {
+        TelemetryOutbox telemetryOutbox = new TelemetryOutbox(objectMapper, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(telemetryOutbox, "directory", directory.toString());
+        ReflectionTestUtils.setField(telemetryOutbox, "segmentBytes", 2048);
+        ReflectionTestUtils.setField(telemetryOutbox, "maxBytes", 3 * 2048L);
+        ReflectionTestUtils.setField(telemetryOutbox, "minFreeBytes", 0L);
+        ReflectionTestUtils.setField(telemetryOutbox, "overflowPolicy", policy);
+        ReflectionTestUtils.setField(telemetryOutbox, "deadLetterMaxBytes", 3 * 2048L);
+        telemetryOutbox.initialize();
+        return telemetryOutbox;
+    }
+
+    private static DeviceReading reading(int i) {
+        DeviceReading reading = new DeviceReading();
+        reading.setDeviceId("meter-1");
+        reading.setTimestamp(LocalDateTime.of(2024, 1, 1, 0, 0).plusMinutes(i));
+        reading.setEnergyConsumption(i);
+        return reading;
+    }
+}
@@ -0,0 +1,76 @@
+package com.smartwatts.energyservice.mapper;
+
+import com.smartwatts.energyservice.dto.EnergyReadingDto;
+import com.smartwatts.energyservice.model.EnergyReading;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.beans.BeanUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the generated EnergyMapper and {@code BeanUtils.copyProperties} on one populated object.
+ * Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+public class EnergyMapperBenchmark {
+
+    private EnergyReading reading;
+    private EnergyReadingDto readingDto;
+
+    @Setup
+    public void setUp() {
+        reading = new EnergyReading();
+        reading.setId(UUID.randomUUID());
+        reading.setUserId(UUID.randomUUID());
+        reading.setDeviceId("SMART-METER-001");
+        reading.setMeterNumber("MTR-0001");
+        reading.setReadingTimestamp(LocalDateTime.now());
+        reading.setVoltage(new BigDecimal("230.15"));
+        reading.setCurrent(new BigDecimal("12.40"));
+        reading.setPower(new BigDecimal("2853.86"));
+        reading.setEnergyConsumed(new BigDecimal("1520.4375"));
+        reading.setFrequency(new BigDecimal("50.00"));
+        reading.setPowerFactor(new BigDecimal("0.95"));
+        reading.setQualityScore(new BigDecimal("1.00"));
+        reading.setRawData("{\"fw\":\"1.4.2\"}");
+        reading.setCreatedAt(LocalDateTime.now());
+        readingDto = EnergyMapper.INSTANCE.toDto(reading);
+    }
+
+    @Benchmark
+    public EnergyReadingDto beanUtilsToDto() {
+        EnergyReadingDto dto = new EnergyReadingDto();
+        BeanUtils.copyProperties(reading, dto);
+        return dto;
+    }
+
+    @Benchmark
+    public EnergyReadingDto mapperToDto() {
+        return EnergyMapper.INSTANCE.toDto(reading);
+    }
+
+    @Benchmark
+    public EnergyReading beanUtilsToEntity() {
+        EnergyReading entity = new EnergyReading();
+        BeanUtils.copyProperties(readingDto, entity);
+        return entity;
+    }
+
+    @Benchmark
+    public EnergyReading mapperToEntity() {
+        return EnergyMapper.INSTANCE.toEntity(readingDto);
+    }
+}
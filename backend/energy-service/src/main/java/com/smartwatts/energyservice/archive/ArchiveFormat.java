@@ -0,0 +1,130 @@
+package com.smartwatts.energyservice.archive;
+
+import com.smartwatts.energyservice.model.EnergyReading;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Layout of a reading archive file ({@code .swra}):
+ *
+ * <pre>
+ * header   magic:int version:short year:int month:int
+ * blocks   rowCount:int dictionarySize:int columnCount:int columnLength:int[columnCount] columns...
+ * footer   blockCount:int (userId:uuid deviceId:utf rowCount:int minMicros:long maxMicros:long offset:long length:int)*
+ * trailer  footerOffset:long crc32:long magic:int
+ * </pre>
+ *
+ * A block holds the readings of one (userId, deviceId) series in timestamp order, stored column by
+ * column so that each column compresses against its own history. The device id is stored once per
+ * block in the footer, which doubles as the block index used to skip blocks outside a query range.
+ * The CRC covers every byte before the trailer. Source and reading types are stored as the codes
+ * listed here, not as enum ordinals, so reordering the enums does not change archives already written.
+ */
+final class ArchiveFormat {
+
+    static final int MAGIC = 0x53575241; // "SWRA"
+    static final short VERSION = 1;
+    static final int TRAILER_LENGTH = Long.BYTES + Long.BYTES + Integer.BYTES;
+
+    // Column order within a block
+    static final int COL_TIMESTAMP = 0;
+    static final int COL_ID = 1;
+    static final int COL_NUMERIC_BASE = 2; // presence and values for each numeric field
+    static final int COL_SOURCE_TYPE = COL_NUMERIC_BASE + 2 * NumericField.values().length;
+    static final int COL_READING_TYPE = COL_SOURCE_TYPE + 1;
+    static final int COL_METER_ENTRIES = COL_READING_TYPE + 1;
+    static final int COL_METER_CODES = COL_METER_ENTRIES + 1;
+    static final int COL_PROCESSED = COL_METER_CODES + 1;
+    static final int COL_LAG_BASE = COL_PROCESSED + 1; // presence and values for each lag field
+    static final int COL_RAW_PRESENCE = COL_LAG_BASE + 2 * LagField.values().length;
+    static final int COL_RAW_DATA = COL_RAW_PRESENCE + 1;
+    static final int COLUMN_COUNT = COL_RAW_DATA + 1;
+
+    /**
+     * Decimal fields with the scale of their database column. Values are XOR-compressed as the
+     * double of their unscaled integer: whole numbers leave the low mantissa bits zero, which keeps
+     * the XOR window small. Every value of the column precisions (at most 15 digits) is exact.
+     */
+    enum NumericField {
+        VOLTAGE(2), CURRENT(2), POWER(2), ENERGY_CONSUMED(4), FREQUENCY(2), POWER_FACTOR(2), QUALITY_SCORE(2);
+
+        final int scale;
+
+        NumericField(int scale) {
+            this.scale = scale;
+        }
+
+        double encode(BigDecimal value) {
+            return value.setScale(scale, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        }
+
+        BigDecimal decode(double value) {
+            return BigDecimal.valueOf((long) value, scale);
+        }
+    }
+
+    /**
+     * Audit timestamps, stored as their offset from the reading timestamp
+     */
+    enum LagField {
+        PROCESSING_TIMESTAMP, CREATED_AT, UPDATED_AT
+    }
+
+    // Stored codes by position, 0 meaning null; new constants get a new code at the end
+    private static final String[] SOURCE_TYPE_CODES = {null, "GRID", "SOLAR", "GENERATOR", "BATTERY", "HYBRID"};
+    private static final String[] READING_TYPE_CODES = {null, "REAL_TIME", "CUMULATIVE", "PEAK", "AVERAGE", "MINIMUM"};
+
+    private ArchiveFormat() {
+    }
+
+    static int sourceTypeCode(EnergyReading.EnergySource sourceType) {
+        return code(SOURCE_TYPE_CODES, sourceType);
+    }
+
+    static EnergyReading.EnergySource sourceType(int code) {
+        return constant(EnergyReading.EnergySource.class, SOURCE_TYPE_CODES, code);
+    }
+
+    static int readingTypeCode(EnergyReading.ReadingType readingType) {
+        return code(READING_TYPE_CODES, readingType);
+    }
+
+    static EnergyReading.ReadingType readingType(int code) {
+        return constant(EnergyReading.ReadingType.class, READING_TYPE_CODES, code);
+    }
+
+    private static int code(String[] codes, Enum<?> value) {
+        if (value == null) {
+            return 0;
+        }
+        for (int code = 1; code < codes.length; code++) {
+            if (codes[code].equals(value.name())) {
+                return code;
+            }
+        }
+        throw new IllegalArgumentException("No archive code for " + value.getDeclaringClass().getSimpleName()
+                + "." + value.name());
+    }
+
+    private static <E extends Enum<E>> E constant(Class<E> type, String[] codes, int code) {
+        if (code == 0) {
+            return null;
+        }
+        if (code < 0 || code >= codes.length) {
+            throw new IllegalArgumentException("Unknown " + type.getSimpleName() + " code " + code);
+        }
+        return Enum.valueOf(type, codes[code]);
+    }
+
+    static long toMicros(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + timestamp.getNano() / 1_000;
+    }
+
+    static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+}
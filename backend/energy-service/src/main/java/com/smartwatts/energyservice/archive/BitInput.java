@@ -0,0 +1,60 @@
+package com.smartwatts.energyservice.archive;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Sequential reader for a column written by {@link BitOutput}. Reads use absolute positions, so
+ * the underlying buffer (usually a slice of a memory-mapped archive) is never modified.
+ */
+final class BitInput {
+
+    private final ByteBuffer buffer;
+    private long bitPosition;
+
+    BitInput(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    boolean readBit() {
+        return readBits(1) == 1;
+    }
+
+    long readBits(int count) {
+        long value = 0;
+        while (count > 0) {
+            int byteIndex = (int) (bitPosition >>> 3);
+            int available = 8 - (int) (bitPosition & 7);
+            int take = Math.min(available, count);
+            int current = buffer.get(byteIndex) & 0xFF;
+            value = (value << take) | ((current >>> (available - take)) & ((1 << take) - 1));
+            bitPosition += take;
+            count -= take;
+        }
+        return value;
+    }
+
+    long readVarLong() {
+        long value = 0;
+        int shift = 0;
+        long group;
+        do {
+            group = readBits(8);
+            value |= (group & 0x7F) << shift;
+            shift += 7;
+        } while ((group & 0x80) != 0);
+        return value;
+    }
+
+    long readZigZag() {
+        long encoded = readVarLong();
+        return (encoded >>> 1) ^ -(encoded & 1);
+    }
+
+    byte[] readBytes() {
+        byte[] data = new byte[Math.toIntExact(readVarLong())];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) readBits(8);
+        }
+        return data;
+    }
+}
@@ -0,0 +1,76 @@
+package com.smartwatts.energyservice.archive;
+
+import java.util.Arrays;
+
+/**
+ * Growable, most-significant-bit-first bit buffer used to build one archive column in memory.
+ */
+final class BitOutput {
+
+    private byte[] bytes = new byte[256];
+    private int size;
+    private int pending;
+    private int pendingBits;
+
+    void writeBit(boolean bit) {
+        writeBits(bit ? 1 : 0, 1);
+    }
+
+    /**
+     * Write the lowest {@code count} bits of {@code value}, most significant first
+     */
+    void writeBits(long value, int count) {
+        while (count > 0) {
+            int take = Math.min(8 - pendingBits, count);
+            int chunk = (int) (value >>> (count - take)) & ((1 << take) - 1);
+            pending = (pending << take) | chunk;
+            pendingBits += take;
+            count -= take;
+            if (pendingBits == 8) {
+                appendByte(pending);
+                pending = 0;
+                pendingBits = 0;
+            }
+        }
+    }
+
+    /**
+     * Unsigned LEB128-style variable length integer, 8 bits per group of 7
+     */
+    void writeVarLong(long value) {
+        while ((value & ~0x7FL) != 0) {
+            writeBits((value & 0x7F) | 0x80, 8);
+            value >>>= 7;
+        }
+        writeBits(value, 8);
+    }
+
+    void writeZigZag(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    void writeBytes(byte[] data) {
+        writeVarLong(data.length);
+        for (byte b : data) {
+            writeBits(b, 8);
+        }
+    }
+
+    /**
+     * Content padded with zero bits to a whole byte
+     */
+    byte[] toByteArray() {
+        byte[] result = Arrays.copyOf(bytes, size + (pendingBits > 0 ? 1 : 0));
+        if (pendingBits > 0) {
+            result[size] = (byte) (pending << (8 - pendingBits));
+        }
+        return result;
+    }
+
+    private void appendByte(int value) {
+        if (size == bytes.length) {
+            bytes = Arrays.copyOf(bytes, bytes.length * 2);
+        }
+        bytes[size++] = (byte) value;
+    }
+}
@@ -0,0 +1,292 @@
+package com.smartwatts.energyservice.archive;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming encoders and decoders for the individual columns of a reading archive. Every encoder
+ * appends to its own {@link BitOutput}; the matching decoder reads the values back in the same order.
+ */
+final class ColumnCodecs {
+
+    private ColumnCodecs() {
+    }
+
+    /**
+     * Delta-of-delta timestamps in microseconds (Gorilla, with an extra 32-bit bucket). Readings at a
+     * fixed interval cost one bit each; jitter of a few milliseconds fits the 12-bit bucket.
+     */
+    static final class TimestampEncoder {
+        private final BitOutput out = new BitOutput();
+        private long previous;
+        private long previousDelta;
+        private long count;
+
+        void write(long micros) {
+            if (count == 0) {
+                out.writeBits(micros, 64);
+            } else if (count == 1) {
+                previousDelta = micros - previous;
+                out.writeZigZag(previousDelta);
+            } else {
+                long delta = micros - previous;
+                long deltaOfDelta = delta - previousDelta;
+                if (deltaOfDelta == 0) {
+                    out.writeBit(false);
+                } else if (fits(deltaOfDelta, 7)) {
+                    out.writeBits(0b10, 2);
+                    out.writeBits(deltaOfDelta, 7);
+                } else if (fits(deltaOfDelta, 9)) {
+                    out.writeBits(0b110, 3);
+                    out.writeBits(deltaOfDelta, 9);
+                } else if (fits(deltaOfDelta, 12)) {
+                    out.writeBits(0b1110, 4);
+                    out.writeBits(deltaOfDelta, 12);
+                } else if (fits(deltaOfDelta, 32)) {
+                    out.writeBits(0b11110, 5);
+                    out.writeBits(deltaOfDelta, 32);
+                } else {
+                    out.writeBits(0b11111, 5);
+                    out.writeBits(deltaOfDelta, 64);
+                }
+                previousDelta = delta;
+            }
+            previous = micros;
+            count++;
+        }
+
+        byte[] finish() {
+            return out.toByteArray();
+        }
+
+        private static boolean fits(long value, int bits) {
+            long limit = 1L << (bits - 1);
+            return value >= -limit && value < limit;
+        }
+    }
+
+    static final class TimestampDecoder {
+        private final BitInput in;
+        private long previous;
+        private long previousDelta;
+        private long count;
+
+        TimestampDecoder(BitInput in) {
+            this.in = in;
+        }
+
+        long read() {
+            if (count == 0) {
+                previous = in.readBits(64);
+            } else if (count == 1) {
+                previousDelta = in.readZigZag();
+                previous += previousDelta;
+            } else {
+                long deltaOfDelta;
+                if (!in.readBit()) {
+                    deltaOfDelta = 0;
+                } else if (!in.readBit()) {
+                    deltaOfDelta = signed(in.readBits(7), 7);
+                } else if (!in.readBit()) {
+                    deltaOfDelta = signed(in.readBits(9), 9);
+                } else if (!in.readBit()) {
+                    deltaOfDelta = signed(in.readBits(12), 12);
+                } else if (!in.readBit()) {
+                    deltaOfDelta = signed(in.readBits(32), 32);
+                } else {
+                    deltaOfDelta = in.readBits(64);
+                }
+                previousDelta += deltaOfDelta;
+                previous += previousDelta;
+            }
+            count++;
+            return previous;
+        }
+
+        private static long signed(long value, int bits) {
+            return (value << (64 - bits)) >> (64 - bits);
+        }
+    }
+
+    /**
+     * Gorilla XOR compression of doubles: an unchanged value costs one bit, a value whose meaningful
+     * bits fit inside the previous window costs 2 bits plus the window.
+     */
+    static final class XorEncoder {
+        private final BitOutput out = new BitOutput();
+        private long previousBits;
+        private int previousLeading = -1;
+        private int previousTrailing;
+        private boolean first = true;
+
+        void write(double value) {
+            long bits = Double.doubleToRawLongBits(value);
+            if (first) {
+                out.writeBits(bits, 64);
+                first = false;
+            } else {
+                long xor = bits ^ previousBits;
+                if (xor == 0) {
+                    out.writeBit(false);
+                } else {
+                    out.writeBit(true);
+                    // 5 bits for the leading zero count, so anything above 31 is stored as 31
+                    int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+                    int trailing = Long.numberOfTrailingZeros(xor);
+                    if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+                        out.writeBit(false);
+                        out.writeBits(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+                    } else {
+                        int significant = 64 - leading - trailing;
+                        out.writeBit(true);
+                        out.writeBits(leading, 5);
+                        out.writeBits(significant - 1, 6);
+                        out.writeBits(xor >>> trailing, significant);
+                        previousLeading = leading;
+                        previousTrailing = trailing;
+                    }
+                }
+            }
+            previousBits = bits;
+        }
+
+        byte[] finish() {
+            return out.toByteArray();
+        }
+    }
+
+    static final class XorDecoder {
+        private final BitInput in;
+        private long previousBits;
+        private int previousLeading;
+        private int previousTrailing;
+        private boolean first = true;
+
+        XorDecoder(BitInput in) {
+            this.in = in;
+        }
+
+        double read() {
+            if (first) {
+                previousBits = in.readBits(64);
+                first = false;
+            } else if (in.readBit()) {
+                if (in.readBit()) {
+                    previousLeading = (int) in.readBits(5);
+                    int significant = (int) in.readBits(6) + 1;
+                    previousTrailing = 64 - previousLeading - significant;
+                }
+                long xor = in.readBits(64 - previousLeading - previousTrailing) << previousTrailing;
+                previousBits ^= xor;
+            }
+            return Double.longBitsToDouble(previousBits);
+        }
+    }
+
+    /**
+     * Run-length encoded small integers (enum ordinals, booleans, presence flags, dictionary codes)
+     */
+    static final class RunLengthEncoder {
+        private final BitOutput out = new BitOutput();
+        private long current;
+        private long run;
+
+        void write(long value) {
+            if (run > 0 && value == current) {
+                run++;
+                return;
+            }
+            flushRun();
+            current = value;
+            run = 1;
+        }
+
+        byte[] finish() {
+            flushRun();
+            return out.toByteArray();
+        }
+
+        private void flushRun() {
+            if (run > 0) {
+                out.writeVarLong(run);
+                out.writeVarLong(current);
+            }
+        }
+    }
+
+    static final class RunLengthDecoder {
+        private final BitInput in;
+        private long current;
+        private long remaining;
+
+        RunLengthDecoder(BitInput in) {
+            this.in = in;
+        }
+
+        long read() {
+            if (remaining == 0) {
+                remaining = in.readVarLong();
+                current = in.readVarLong();
+            }
+            remaining--;
+            return current;
+        }
+    }
+
+    /**
+     * Nullable strings as run-length encoded dictionary codes. A string is written inline the first
+     * time it occurs; code 0 is null and code {@code n} refers to the n-th distinct string.
+     */
+    static final class DictionaryEncoder {
+        private final RunLengthEncoder codes = new RunLengthEncoder();
+        private final BitOutput entries = new BitOutput();
+        private final Map<String, Integer> dictionary = new HashMap<>();
+
+        void write(String value) {
+            if (value == null) {
+                codes.write(0);
+                return;
+            }
+            Integer code = dictionary.get(value);
+            if (code == null) {
+                code = dictionary.size() + 1;
+                dictionary.put(value, code);
+                entries.writeBytes(value.getBytes(StandardCharsets.UTF_8));
+            }
+            codes.write(code);
+        }
+
+        int size() {
+            return dictionary.size();
+        }
+
+        byte[] finishEntries() {
+            return entries.toByteArray();
+        }
+
+        byte[] finishCodes() {
+            return codes.finish();
+        }
+    }
+
+    static final class DictionaryDecoder {
+        private final RunLengthDecoder codes;
+        private final List<String> dictionary;
+
+        DictionaryDecoder(BitInput entries, int entryCount, BitInput codes) {
+            this.dictionary = new ArrayList<>(entryCount);
+            for (int i = 0; i < entryCount; i++) {
+                dictionary.add(new String(entries.readBytes(), StandardCharsets.UTF_8));
+            }
+            this.codes = new RunLengthDecoder(codes);
+        }
+
+        String read() {
+            int code = (int) codes.read();
+            return code == 0 ? null : dictionary.get(code - 1);
+        }
+    }
+}
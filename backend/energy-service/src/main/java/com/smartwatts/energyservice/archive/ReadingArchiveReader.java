@@ -0,0 +1,348 @@
+package com.smartwatts.energyservice.archive;
+
+import com.smartwatts.energyservice.dto.EnergyReadingDto;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.CRC32;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Reads a reading archive written by {@link ReadingArchiveWriter}.
+ *
+ * Only the footer is loaded when the file is opened. Queries skip blocks whose series or time range
+ * does not match and decode the remaining blocks lazily from a memory mapping, one row at a time,
+ * so a full-month scan needs memory for one row per column rather than for the month.
+ */
+public final class ReadingArchiveReader implements Closeable {
+
+    private final Path path;
+    private final FileChannel channel;
+    private final YearMonth month;
+    private final long footerOffset;
+    private final long checksum;
+    private final List<BlockEntry> blocks;
+
+    private ReadingArchiveReader(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            ByteBuffer header = read(0, Integer.BYTES + Short.BYTES + 2 * Integer.BYTES);
+            ByteBuffer trailer = read(size - ArchiveFormat.TRAILER_LENGTH, ArchiveFormat.TRAILER_LENGTH);
+            if (header.getInt() != ArchiveFormat.MAGIC
+                    || trailer.getInt(ArchiveFormat.TRAILER_LENGTH - Integer.BYTES) != ArchiveFormat.MAGIC) {
+                throw new IOException("Not a reading archive: " + path);
+            }
+            short version = header.getShort();
+            if (version != ArchiveFormat.VERSION) {
+                throw new IOException("Unsupported reading archive version " + version + ": " + path);
+            }
+            this.month = YearMonth.of(header.getInt(), header.getInt());
+            this.footerOffset = trailer.getLong();
+            this.checksum = trailer.getLong();
+
+            DataInputStream footer = new DataInputStream(new BufferedInputStream(
+                    Channels.newInputStream(channel.position(footerOffset))));
+            int blockCount = footer.readInt();
+            List<BlockEntry> entries = new ArrayList<>(blockCount);
+            for (int i = 0; i < blockCount; i++) {
+                entries.add(new BlockEntry(new UUID(footer.readLong(), footer.readLong()), footer.readUTF(),
+                        footer.readInt(), footer.readLong(), footer.readLong(), footer.readLong(), footer.readInt()));
+            }
+            this.blocks = Collections.unmodifiableList(entries);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public static ReadingArchiveReader open(Path path) throws IOException {
+        return new ReadingArchiveReader(path);
+    }
+
+    public YearMonth getMonth() {
+        return month;
+    }
+
+    public long getRowCount() {
+        return blocks.stream().mapToLong(BlockEntry::rowCount).sum();
+    }
+
+    /**
+     * Recompute the checksum over the whole file and compare it with the stored one
+     */
+    public boolean verify() throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        long end = channel.size() - ArchiveFormat.TRAILER_LENGTH;
+        for (long position = 0; position < end; ) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                return false;
+            }
+            crc.update(buffer.flip());
+            position += read;
+        }
+        return crc.getValue() == checksum;
+    }
+
+    /**
+     * Readings of a user in {@code [from, to)}, optionally restricted to one device, in file order
+     * (by series, then by timestamp). The stream must be closed or fully consumed before the reader
+     * is closed.
+     */
+    public Stream<EnergyReadingDto> read(UUID userId, String deviceId, LocalDateTime from, LocalDateTime to) {
+        long fromMicros = from != null ? ArchiveFormat.toMicros(from) : Long.MIN_VALUE;
+        long toMicros = to != null ? ArchiveFormat.toMicros(to) : Long.MAX_VALUE;
+        return blocks.stream()
+                .filter(block -> userId == null || userId.equals(block.userId()))
+                .filter(block -> deviceId == null || deviceId.equals(block.deviceId()))
+                .filter(block -> block.maxMicros() >= fromMicros && block.minMicros() < toMicros)
+                .flatMap(block -> StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                        new BlockCursor(block, fromMicros, toMicros), Spliterator.ORDERED | Spliterator.NONNULL), false));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Truncated reading archive: " + path);
+            }
+        }
+        return buffer.flip();
+    }
+
+    private record BlockEntry(UUID userId, String deviceId, int rowCount, long minMicros, long maxMicros,
+                              long offset, int length) {
+    }
+
+    /**
+     * Decodes one block row by row, advancing all column decoders in lockstep
+     */
+    private final class BlockCursor implements Iterator<EnergyReadingDto> {
+        private final BlockEntry block;
+        private final long fromMicros;
+        private final long toMicros;
+        private final ColumnCodecs.TimestampDecoder timestamps;
+        private final BitInput ids;
+        private final ColumnCodecs.RunLengthDecoder[] numericPresence;
+        private final ColumnCodecs.XorDecoder[] numericValues;
+        private final ColumnCodecs.RunLengthDecoder sourceTypes;
+        private final ColumnCodecs.RunLengthDecoder readingTypes;
+        private final ColumnCodecs.DictionaryDecoder meter;
+        private final ColumnCodecs.RunLengthDecoder processed;
+        private final ColumnCodecs.RunLengthDecoder[] lagPresence;
+        private final ColumnCodecs.TimestampDecoder[] lagValues;
+        private final ColumnCodecs.RunLengthDecoder rawPresence;
+        private final DataInputStream raw;
+
+        private int position;
+        private EnergyReadingDto next;
+
+        private BlockCursor(BlockEntry block, long fromMicros, long toMicros) {
+            this.block = block;
+            this.fromMicros = fromMicros;
+            this.toMicros = toMicros;
+            ByteBuffer data;
+            try {
+                data = channel.map(FileChannel.MapMode.READ_ONLY, block.offset(), block.length());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to map block of " + path, e);
+            }
+            data.getInt(); // row count, also in the footer
+            int dictionarySize = data.getInt();
+            int columnCount = data.getInt();
+            if (columnCount != ArchiveFormat.COLUMN_COUNT) {
+                throw new IllegalStateException("Unexpected column count " + columnCount + " in " + path);
+            }
+            ByteBuffer[] columns = new ByteBuffer[columnCount];
+            int[] lengths = new int[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                lengths[i] = data.getInt();
+            }
+            for (int i = 0; i < columnCount; i++) {
+                columns[i] = data.slice(data.position(), lengths[i]);
+                data.position(data.position() + lengths[i]);
+            }
+
+            timestamps = new ColumnCodecs.TimestampDecoder(new BitInput(columns[ArchiveFormat.COL_TIMESTAMP]));
+            ids = new BitInput(columns[ArchiveFormat.COL_ID]);
+            int numericCount = ArchiveFormat.NumericField.values().length;
+            numericPresence = new ColumnCodecs.RunLengthDecoder[numericCount];
+            numericValues = new ColumnCodecs.XorDecoder[numericCount];
+            for (int i = 0; i < numericCount; i++) {
+                numericPresence[i] = new ColumnCodecs.RunLengthDecoder(
+                        new BitInput(columns[ArchiveFormat.COL_NUMERIC_BASE + 2 * i]));
+                numericValues[i] = new ColumnCodecs.XorDecoder(
+                        new BitInput(columns[ArchiveFormat.COL_NUMERIC_BASE + 2 * i + 1]));
+            }
+            sourceTypes = new ColumnCodecs.RunLengthDecoder(new BitInput(columns[ArchiveFormat.COL_SOURCE_TYPE]));
+            readingTypes = new ColumnCodecs.RunLengthDecoder(new BitInput(columns[ArchiveFormat.COL_READING_TYPE]));
+            meter = new ColumnCodecs.DictionaryDecoder(new BitInput(columns[ArchiveFormat.COL_METER_ENTRIES]),
+                    dictionarySize, new BitInput(columns[ArchiveFormat.COL_METER_CODES]));
+            processed = new ColumnCodecs.RunLengthDecoder(new BitInput(columns[ArchiveFormat.COL_PROCESSED]));
+            int lagCount = ArchiveFormat.LagField.values().length;
+            lagPresence = new ColumnCodecs.RunLengthDecoder[lagCount];
+            lagValues = new ColumnCodecs.TimestampDecoder[lagCount];
+            for (int i = 0; i < lagCount; i++) {
+                lagPresence[i] = new ColumnCodecs.RunLengthDecoder(
+                        new BitInput(columns[ArchiveFormat.COL_LAG_BASE + 2 * i]));
+                lagValues[i] = new ColumnCodecs.TimestampDecoder(
+                        new BitInput(columns[ArchiveFormat.COL_LAG_BASE + 2 * i + 1]));
+            }
+            rawPresence = new ColumnCodecs.RunLengthDecoder(new BitInput(columns[ArchiveFormat.COL_RAW_PRESENCE]));
+            raw = new DataInputStream(new BufferedInputStream(
+                    new InflaterInputStream(new ByteBufferInputStream(columns[ArchiveFormat.COL_RAW_DATA]))));
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && position < block.rowCount()) {
+                EnergyReadingDto row = decodeRow();
+                long micros = ArchiveFormat.toMicros(row.getReadingTimestamp());
+                if (micros >= toMicros) {
+                    // Rows are in timestamp order within a block
+                    position = block.rowCount();
+                } else if (micros >= fromMicros) {
+                    next = row;
+                }
+            }
+            if (next == null) {
+                closeRaw();
+            }
+            return next != null;
+        }
+
+        @Override
+        public EnergyReadingDto next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            EnergyReadingDto row = next;
+            next = null;
+            return row;
+        }
+
+        private EnergyReadingDto decodeRow() {
+            position++;
+            long micros = timestamps.read();
+            EnergyReadingDto row = new EnergyReadingDto();
+            row.setUserId(block.userId());
+            row.setDeviceId(block.deviceId());
+            row.setReadingTimestamp(ArchiveFormat.fromMicros(micros));
+            if (ids.readBit()) {
+                row.setId(new UUID(ids.readBits(64), ids.readBits(64)));
+            }
+
+            ArchiveFormat.NumericField[] fields = ArchiveFormat.NumericField.values();
+            for (int i = 0; i < fields.length; i++) {
+                if (numericPresence[i].read() == 1) {
+                    setNumeric(row, fields[i], fields[i].decode(numericValues[i].read()));
+                }
+            }
+
+            row.setSourceType(ArchiveFormat.sourceType((int) sourceTypes.read()));
+            row.setReadingType(ArchiveFormat.readingType((int) readingTypes.read()));
+            row.setMeterNumber(meter.read());
+            long processedFlag = processed.read();
+            row.setIsProcessed(processedFlag == 0 ? null : processedFlag == 2);
+
+            LocalDateTime[] lags = new LocalDateTime[lagValues.length];
+            for (int i = 0; i < lags.length; i++) {
+                if (lagPresence[i].read() == 1) {
+                    lags[i] = ArchiveFormat.fromMicros(micros + lagValues[i].read());
+                }
+            }
+            row.setProcessingTimestamp(lags[ArchiveFormat.LagField.PROCESSING_TIMESTAMP.ordinal()]);
+            row.setCreatedAt(lags[ArchiveFormat.LagField.CREATED_AT.ordinal()]);
+            row.setUpdatedAt(lags[ArchiveFormat.LagField.UPDATED_AT.ordinal()]);
+
+            if (rawPresence.read() == 1) {
+                try {
+                    byte[] bytes = new byte[raw.readInt()];
+                    raw.readFully(bytes);
+                    row.setRawData(new String(bytes, StandardCharsets.UTF_8));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Corrupt raw data column in " + path, e);
+                }
+            }
+            return row;
+        }
+
+        private void closeRaw() {
+            try {
+                // Releases the native inflater right away instead of when the cursor is collected
+                raw.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void setNumeric(EnergyReadingDto row, ArchiveFormat.NumericField field, BigDecimal value) {
+            switch (field) {
+                case VOLTAGE -> row.setVoltage(value);
+                case CURRENT -> row.setCurrent(value);
+                case POWER -> row.setPower(value);
+                case ENERGY_CONSUMED -> row.setEnergyConsumed(value);
+                case FREQUENCY -> row.setFrequency(value);
+                case POWER_FACTOR -> row.setPowerFactor(value);
+                case QUALITY_SCORE -> row.setQualityScore(value);
+                default -> throw new IllegalStateException("Unknown field " + field);
+            }
+        }
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = Objects.requireNonNull(buffer);
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+    }
+}
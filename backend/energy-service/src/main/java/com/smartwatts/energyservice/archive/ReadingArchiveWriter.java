@@ -0,0 +1,288 @@
+package com.smartwatts.energyservice.archive;
+
+import com.smartwatts.energyservice.dto.EnergyReadingDto;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes readings of one month to a columnar archive (see {@link ArchiveFormat}).
+ *
+ * Readings compress best when appended grouped by user and device and in timestamp order, which is
+ * how the export query returns them; any other order is still written correctly, just into more
+ * blocks. The file is written under a temporary name and only appears at its target path once
+ * {@link #finish()} succeeds. Closing an unfinished writer discards it.
+ */
+public final class ReadingArchiveWriter implements Closeable {
+
+    /**
+     * Upper bound on rows buffered for one block, which bounds the writer's memory use
+     */
+    static final int MAX_BLOCK_ROWS = 262_144;
+
+    private final Path target;
+    private final Path temp;
+    private final YearMonth month;
+    private final CRC32 crc = new CRC32();
+    private final DataOutputStream out;
+    private final List<BlockEntry> blocks = new ArrayList<>();
+
+    private BlockBuilder current;
+    private long offset;
+    private long rowCount;
+    private boolean finished;
+    private boolean closed;
+
+    private ReadingArchiveWriter(Path target, YearMonth month) throws IOException {
+        this.target = target;
+        this.temp = target.resolveSibling(target.getFileName() + ".tmp");
+        this.month = month;
+        OutputStream file = Files.newOutputStream(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        this.out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), crc));
+        out.writeInt(ArchiveFormat.MAGIC);
+        out.writeShort(ArchiveFormat.VERSION);
+        out.writeInt(month.getYear());
+        out.writeInt(month.getMonthValue());
+        offset = Integer.BYTES + Short.BYTES + Integer.BYTES + Integer.BYTES;
+    }
+
+    public static ReadingArchiveWriter create(Path target, YearMonth month) throws IOException {
+        Files.createDirectories(target.toAbsolutePath().getParent());
+        return new ReadingArchiveWriter(target, month);
+    }
+
+    public void append(EnergyReadingDto reading) throws IOException {
+        Objects.requireNonNull(reading.getReadingTimestamp(), "readingTimestamp");
+        long micros = ArchiveFormat.toMicros(reading.getReadingTimestamp());
+        if (current != null && !current.accepts(reading.getUserId(), reading.getDeviceId(), micros)) {
+            writeBlock();
+        }
+        if (current == null) {
+            current = new BlockBuilder(reading.getUserId(), reading.getDeviceId());
+        }
+        current.append(reading, micros);
+        rowCount++;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public YearMonth getMonth() {
+        return month;
+    }
+
+    /**
+     * Write the footer, sync the file and move it to its target path
+     */
+    public void finish() throws IOException {
+        if (current != null) {
+            writeBlock();
+        }
+        long footerOffset = offset;
+        out.writeInt(blocks.size());
+        for (BlockEntry block : blocks) {
+            out.writeLong(block.userId().getMostSignificantBits());
+            out.writeLong(block.userId().getLeastSignificantBits());
+            out.writeUTF(block.deviceId());
+            out.writeInt(block.rowCount());
+            out.writeLong(block.minMicros());
+            out.writeLong(block.maxMicros());
+            out.writeLong(block.offset());
+            out.writeInt(block.length());
+        }
+        out.flush();
+        long checksum = crc.getValue();
+        out.writeLong(footerOffset);
+        out.writeLong(checksum);
+        out.writeInt(ArchiveFormat.MAGIC);
+        out.close();
+        closed = true;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        finished = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (current != null) {
+            current.deflater.end();
+            current = null;
+        }
+        if (!closed) {
+            closed = true;
+            out.close();
+        }
+        if (!finished) {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        byte[][] columns = current.finish();
+        int headerLength = Integer.BYTES * (3 + columns.length);
+        int length = headerLength;
+        out.writeInt(current.rows);
+        out.writeInt(current.meter.size());
+        out.writeInt(columns.length);
+        for (byte[] column : columns) {
+            out.writeInt(column.length);
+        }
+        for (byte[] column : columns) {
+            out.write(column);
+            length += column.length;
+        }
+        blocks.add(new BlockEntry(current.userId, current.deviceId, current.rows,
+                current.minMicros, current.maxMicros, offset, length));
+        offset += length;
+        current = null;
+    }
+
+    private record BlockEntry(UUID userId, String deviceId, int rowCount, long minMicros, long maxMicros,
+                              long offset, int length) {
+    }
+
+    /**
+     * Column encoders for the block being built
+     */
+    private static final class BlockBuilder {
+        private final UUID userId;
+        private final String deviceId;
+        private final ColumnCodecs.TimestampEncoder timestamps = new ColumnCodecs.TimestampEncoder();
+        private final BitOutput ids = new BitOutput();
+        private final ColumnCodecs.RunLengthEncoder[] numericPresence =
+                new ColumnCodecs.RunLengthEncoder[ArchiveFormat.NumericField.values().length];
+        private final ColumnCodecs.XorEncoder[] numericValues =
+                new ColumnCodecs.XorEncoder[ArchiveFormat.NumericField.values().length];
+        private final ColumnCodecs.RunLengthEncoder sourceTypes = new ColumnCodecs.RunLengthEncoder();
+        private final ColumnCodecs.RunLengthEncoder readingTypes = new ColumnCodecs.RunLengthEncoder();
+        private final ColumnCodecs.DictionaryEncoder meter = new ColumnCodecs.DictionaryEncoder();
+        private final ColumnCodecs.RunLengthEncoder processed = new ColumnCodecs.RunLengthEncoder();
+        private final ColumnCodecs.RunLengthEncoder[] lagPresence =
+                new ColumnCodecs.RunLengthEncoder[ArchiveFormat.LagField.values().length];
+        private final ColumnCodecs.TimestampEncoder[] lagValues =
+                new ColumnCodecs.TimestampEncoder[ArchiveFormat.LagField.values().length];
+        private final ColumnCodecs.RunLengthEncoder rawPresence = new ColumnCodecs.RunLengthEncoder();
+        private final ByteArrayOutputStream rawBytes = new ByteArrayOutputStream();
+        private final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        private final DataOutputStream raw = new DataOutputStream(new DeflaterOutputStream(rawBytes, deflater));
+
+        private int rows;
+        private long minMicros;
+        private long maxMicros;
+
+        private BlockBuilder(UUID userId, String deviceId) {
+            this.userId = userId;
+            this.deviceId = deviceId;
+            for (int i = 0; i < numericValues.length; i++) {
+                numericPresence[i] = new ColumnCodecs.RunLengthEncoder();
+                numericValues[i] = new ColumnCodecs.XorEncoder();
+            }
+            for (int i = 0; i < lagValues.length; i++) {
+                lagPresence[i] = new ColumnCodecs.RunLengthEncoder();
+                lagValues[i] = new ColumnCodecs.TimestampEncoder();
+            }
+        }
+
+        private boolean accepts(UUID userId, String deviceId, long micros) {
+            return rows < MAX_BLOCK_ROWS && micros >= maxMicros
+                    && Objects.equals(this.userId, userId) && Objects.equals(this.deviceId, deviceId);
+        }
+
+        private void append(EnergyReadingDto reading, long micros) throws IOException {
+            if (rows == 0) {
+                minMicros = micros;
+            }
+            maxMicros = micros;
+            rows++;
+
+            timestamps.write(micros);
+            UUID id = reading.getId();
+            ids.writeBit(id != null);
+            if (id != null) {
+                ids.writeBits(id.getMostSignificantBits(), 64);
+                ids.writeBits(id.getLeastSignificantBits(), 64);
+            }
+
+            BigDecimal[] numerics = {reading.getVoltage(), reading.getCurrent(), reading.getPower(),
+                    reading.getEnergyConsumed(), reading.getFrequency(), reading.getPowerFactor(),
+                    reading.getQualityScore()};
+            ArchiveFormat.NumericField[] fields = ArchiveFormat.NumericField.values();
+            for (int i = 0; i < fields.length; i++) {
+                numericPresence[i].write(numerics[i] != null ? 1 : 0);
+                if (numerics[i] != null) {
+                    numericValues[i].write(fields[i].encode(numerics[i]));
+                }
+            }
+
+            // Ordinals are shifted by one so that 0 can stand for null
+            sourceTypes.write(ArchiveFormat.sourceTypeCode(reading.getSourceType()));
+            readingTypes.write(ArchiveFormat.readingTypeCode(reading.getReadingType()));
+            meter.write(reading.getMeterNumber());
+            processed.write(reading.getIsProcessed() == null ? 0 : reading.getIsProcessed() ? 2 : 1);
+
+            LocalDateTime[] lags = {reading.getProcessingTimestamp(), reading.getCreatedAt(), reading.getUpdatedAt()};
+            for (int i = 0; i < lags.length; i++) {
+                lagPresence[i].write(lags[i] != null ? 1 : 0);
+                if (lags[i] != null) {
+                    lagValues[i].write(ArchiveFormat.toMicros(lags[i]) - micros);
+                }
+            }
+
+            rawPresence.write(reading.getRawData() != null ? 1 : 0);
+            if (reading.getRawData() != null) {
+                byte[] bytes = reading.getRawData().getBytes(StandardCharsets.UTF_8);
+                raw.writeInt(bytes.length);
+                raw.write(bytes);
+            }
+        }
+
+        private byte[][] finish() throws IOException {
+            byte[][] columns = new byte[ArchiveFormat.COLUMN_COUNT][];
+            columns[ArchiveFormat.COL_TIMESTAMP] = timestamps.finish();
+            columns[ArchiveFormat.COL_ID] = ids.toByteArray();
+            for (int i = 0; i < numericValues.length; i++) {
+                columns[ArchiveFormat.COL_NUMERIC_BASE + 2 * i] = numericPresence[i].finish();
+                columns[ArchiveFormat.COL_NUMERIC_BASE + 2 * i + 1] = numericValues[i].finish();
+            }
+            columns[ArchiveFormat.COL_SOURCE_TYPE] = sourceTypes.finish();
+            columns[ArchiveFormat.COL_READING_TYPE] = readingTypes.finish();
+            columns[ArchiveFormat.COL_METER_ENTRIES] = meter.finishEntries();
+            columns[ArchiveFormat.COL_METER_CODES] = meter.finishCodes();
+            columns[ArchiveFormat.COL_PROCESSED] = processed.finish();
+            for (int i = 0; i < lagValues.length; i++) {
+                columns[ArchiveFormat.COL_LAG_BASE + 2 * i] = lagPresence[i].finish();
+                columns[ArchiveFormat.COL_LAG_BASE + 2 * i + 1] = lagValues[i].finish();
+            }
+            columns[ArchiveFormat.COL_RAW_PRESENCE] = rawPresence.finish();
+            raw.close();
+            deflater.end();
+            columns[ArchiveFormat.COL_RAW_DATA] = rawBytes.toByteArray();
+            return columns;
+        }
+    }
+}
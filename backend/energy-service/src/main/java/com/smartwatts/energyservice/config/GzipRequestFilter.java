@@ -0,0 +1,198 @@
+package com.smartwatts.energyservice.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Inflates request bodies sent with {@code Content-Encoding: gzip}, as edge gateways do for
+ * reading batches. The inflated size is capped so a small compressed body cannot expand into an
+ * unbounded amount of memory.
+ */
+@Component
+public class GzipRequestFilter extends OncePerRequestFilter {
+
+    @Value("${energy.ingestion.max-inflated-bytes:67108864}")
+    private long maxInflatedBytes;
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        String encoding = request.getHeader(HttpHeaders.CONTENT_ENCODING);
+        return encoding == null || !encoding.trim().equalsIgnoreCase("gzip");
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        GzipRequest inflated = new GzipRequest(request, maxInflatedBytes);
+        try {
+            filterChain.doFilter(inflated, response);
+        } catch (ServletException | IOException e) {
+            if (inflated.limitExceeded && !response.isCommitted()) {
+                response.sendError(HttpStatus.PAYLOAD_TOO_LARGE.value(), "Inflated request body too large");
+                return;
+            }
+            throw e;
+        }
+    }
+
+    private static final class GzipRequest extends HttpServletRequestWrapper {
+        private final long maxBytes;
+        private ServletInputStream stream;
+        private boolean limitExceeded;
+
+        private GzipRequest(HttpServletRequest request, long maxBytes) {
+            super(request);
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (stream == null) {
+                stream = new InflatingStream(new GZIPInputStream(super.getInputStream(), 8192));
+            }
+            return stream;
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return skipped(name) ? null : super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            return skipped(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+        }
+
+        @Override
+        public int getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return -1;
+        }
+
+        // The body handed on is plain, so its encoding and compressed length no longer apply
+        private static boolean skipped(String name) {
+            return HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name) || HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name);
+        }
+
+        private final class InflatingStream extends ServletInputStream {
+            private final InputStream source;
+            private long count;
+            private boolean finished;
+            private ReadListener listener;
+            private boolean allDataReadSignalled;
+
+            private InflatingStream(InputStream source) {
+                this.source = source;
+            }
+
+            @Override
+            public int read() throws IOException {
+                int b = source.read();
+                if (b < 0) {
+                    finished = true;
+                    signalAllDataRead();
+                } else {
+                    count(1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int read = source.read(buffer, offset, length);
+                if (read < 0) {
+                    finished = true;
+                    signalAllDataRead();
+                } else {
+                    count(read);
+                }
+                return read;
+            }
+
+            @Override
+            public boolean isFinished() {
+                return finished;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            /**
+             * Reads block on the compressed body rather than waiting for it, so the stream is always
+             * ready: the listener is told about data right away and about the end once it read it all.
+             */
+            @Override
+            public void setReadListener(ReadListener readListener) {
+                if (readListener == null) {
+                    throw new NullPointerException("ReadListener must not be null");
+                }
+                if (listener != null) {
+                    throw new IllegalStateException("ReadListener already set");
+                }
+                listener = readListener;
+                try {
+                    if (!finished) {
+                        readListener.onDataAvailable();
+                    }
+                    signalAllDataRead();
+                } catch (Throwable t) {
+                    readListener.onError(t);
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                source.close();
+            }
+
+            private void signalAllDataRead() throws IOException {
+                if (finished && listener != null && !allDataReadSignalled) {
+                    allDataReadSignalled = true;
+                    listener.onAllDataRead();
+                }
+            }
+
+            private void count(int read) throws IOException {
+                count += read;
+                if (count > maxBytes) {
+                    limitExceeded = true;
+                    throw new IOException("Inflated request body exceeds " + maxBytes + " bytes");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.smartwatts.energyservice.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.NonNull;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Authenticates users by the bearer token user-service issued, as ROLE_USER with the token
+ * subject as username, so the {@code @PreAuthorize} rules of the controllers can be evaluated.
+ * Requests without a valid token stay anonymous: endpoints without a rule, such as reading
+ * ingestion from gateways, remain open, and guarded endpoints refuse them.
+ */
+@Component
+@Slf4j
+public class JwtAuthenticationFilter extends OncePerRequestFilter {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    @Value("${jwt.secret:}")
+    private String secretKey;
+
+    private volatile JwtDecoder jwtDecoder;
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        String authHeader = request.getHeader(HttpHeaders.AUTHORIZATION);
+        return authHeader == null || !authHeader.startsWith(BEARER_PREFIX) || secretKey == null || secretKey.isEmpty();
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        if (SecurityContextHolder.getContext().getAuthentication() == null) {
+            try {
+                Jwt jwt = decoder().decode(request.getHeader(HttpHeaders.AUTHORIZATION).substring(BEARER_PREFIX.length()));
+                if (jwt.getSubject() != null) {
+                    UserDetails user = User.withUsername(jwt.getSubject()).password("").roles("USER").build();
+                    SecurityContextHolder.getContext().setAuthentication(
+                            new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+                }
+            } catch (JwtException e) {
+                log.debug("Ignoring invalid bearer token on {}: {}", request.getRequestURI(), e.getMessage());
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * Verifies with the algorithm user-service signs with, which follows from the key length
+     */
+    private JwtDecoder decoder() {
+        JwtDecoder decoder = jwtDecoder;
+        if (decoder == null) {
+            byte[] keyBytes = secretKey.getBytes(StandardCharsets.UTF_8);
+            MacAlgorithm algorithm = keyBytes.length >= 64 ? MacAlgorithm.HS512
+                    : keyBytes.length >= 48 ? MacAlgorithm.HS384 : MacAlgorithm.HS256;
+            String jcaName = "HmacSHA" + algorithm.getName().substring(2);
+            decoder = NimbusJwtDecoder.withSecretKey(new SecretKeySpec(keyBytes, jcaName))
+                    .macAlgorithm(algorithm)
+                    .build();
+            jwtDecoder = decoder;
+        }
+        return decoder;
+    }
+}
@@ -0,0 +1,54 @@
+package com.smartwatts.energyservice.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Collections;
+
+/**
+ * Authenticates calls from other SmartWatts services, such as device-service invalidating cached
+ * verification decisions, as ROLE_SERVICE when they present the shared service token. A wrong
+ * token is refused; requests without one are left to the other filters.
+ */
+@Component
+@Slf4j
+public class ServiceAuthenticationFilter extends OncePerRequestFilter {
+
+    public static final String SERVICE_TOKEN_HEADER = "X-Service-Token";
+
+    @Value("${smartwatts.security.service-token:}")
+    private String serviceToken;
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return request.getHeader(SERVICE_TOKEN_HEADER) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        String presented = request.getHeader(SERVICE_TOKEN_HEADER);
+        if (serviceToken == null || serviceToken.isEmpty() || !MessageDigest.isEqual(
+                serviceToken.getBytes(StandardCharsets.UTF_8), presented.getBytes(StandardCharsets.UTF_8))) {
+            log.warn("Rejected service token on {}", request.getRequestURI());
+            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            return;
+        }
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "service", null, Collections.singletonList(new SimpleGrantedAuthority("ROLE_SERVICE"))));
+        filterChain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,49 @@
+package com.smartwatts.energyservice.controller;
+
+import com.smartwatts.energyservice.service.DeviceVerificationCache;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/energy/device-verification")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Device Verification Cache", description = "APIs for managing cached device verification decisions")
+public class DeviceVerificationCacheController {
+
+    private final DeviceVerificationCache deviceVerificationCache;
+
+    @PostMapping("/{deviceId}/invalidate")
+    @Operation(summary = "Invalidate device verification", description = "Drops cached verification decisions for a device after its status changed in device-service")
+    @PreAuthorize("hasAnyRole('SERVICE', 'ADMIN')")
+    public ResponseEntity<Void> invalidateDevice(
+            @Parameter(description = "Device ID") @PathVariable String deviceId) {
+        log.info("Invalidating cached verification for device: {}", deviceId);
+        deviceVerificationCache.invalidate(deviceId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/invalidate-all")
+    @Operation(summary = "Invalidate all device verifications", description = "Drops every cached device verification decision")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> invalidateAll() {
+        log.info("Invalidating all cached device verifications");
+        deviceVerificationCache.invalidateAll();
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/cache-stats")
+    @Operation(summary = "Get verification cache statistics", description = "Returns size, hit and miss counts of the device verification cache")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(deviceVerificationCache.getStats());
+    }
+}
@@ -3,6 +3,9 @@ package com.smartwatts.energyservice.controller;
 import com.smartwatts.energyservice.dto.EnergyReadingDto;
 import com.smartwatts.energyservice.dto.EnergyConsumptionDto;
 import com.smartwatts.energyservice.dto.EnergyAlertDto;
+import com.smartwatts.energyservice.dto.EnergyReadingBatchRequestDto;
+import com.smartwatts.energyservice.dto.EnergyReadingBatchResultDto;
+import com.smartwatts.energyservice.dto.ConsumptionSummaryDto;
 import com.smartwatts.energyservice.model.EnergyConsumption;
 import com.smartwatts.energyservice.service.EnergyService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -49,6 +52,27 @@ public class EnergyController {
         return ResponseEntity.status(HttpStatus.CREATED).body(savedReading);
     }
     
+    @PostMapping("/readings/batch")
+    @Operation(summary = "Save energy readings in batch", description = "Saves a batch of energy readings from gateways and returns a result per reading so failed items can be retried")
+    public ResponseEntity<EnergyReadingBatchResultDto> saveEnergyReadingsBatch(@RequestBody List<EnergyReadingDto> readingDtos) {
+        log.info("Saving batch of {} energy readings", readingDtos.size());
+        EnergyReadingBatchResultDto result = energyService.saveEnergyReadingsBatch(readingDtos);
+        HttpStatus status = result.getRejected() == 0 ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS;
+        return ResponseEntity.status(status).body(result);
+    }
+    
+    @PostMapping("/readings/batch/secure")
+    @Operation(summary = "Save energy readings in batch with device authentication", description = "Saves a batch of energy readings from gateways, validating each device against the auth secret given for it")
+    public ResponseEntity<EnergyReadingBatchResultDto> saveEnergyReadingsBatchWithAuth(
+            @Valid @RequestBody EnergyReadingBatchRequestDto request) {
+        log.info("Saving authenticated batch of {} energy readings", request.getReadings().size());
+        Map<String, String> deviceAuthSecrets = request.getDeviceAuthSecrets() != null
+                ? request.getDeviceAuthSecrets() : Map.of();
+        EnergyReadingBatchResultDto result = energyService.saveEnergyReadingsBatch(request.getReadings(), deviceAuthSecrets);
+        HttpStatus status = result.getRejected() == 0 ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS;
+        return ResponseEntity.status(status).body(result);
+    }
+    
     @PostMapping("/readings/secure")
     @Operation(summary = "Save energy reading with device authentication", description = "Saves a new energy reading from a device with authentication validation")
     public ResponseEntity<EnergyReadingDto> saveEnergyReadingWithAuth(
@@ -129,6 +153,46 @@ public class EnergyController {
         return ResponseEntity.ok(consumption);
     }
     
+    @GetMapping("/consumption/user/{userId}/summary")
+    @Operation(summary = "Get consumption summary", description = "Returns consumption totals for a time range, answered from rollup buckets")
+    @PreAuthorize("hasRole('ADMIN') or #userId == authentication.principal.username")
+    public ResponseEntity<ConsumptionSummaryDto> getConsumptionSummary(
+            @Parameter(description = "User ID") @PathVariable UUID userId,
+            @Parameter(description = "Device ID, all devices when omitted") @RequestParam(required = false) String deviceId,
+            @Parameter(description = "Start time (inclusive)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @Parameter(description = "End time (exclusive)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime) {
+        log.info("Fetching consumption summary for user: {}, device: {} between {} and {}", userId, deviceId, startTime, endTime);
+        ConsumptionSummaryDto summary = energyService.getConsumptionSummary(userId, deviceId, startTime, endTime);
+        return ResponseEntity.ok(summary);
+    }
+    
+    @GetMapping("/consumption/user/{userId}/series")
+    @Operation(summary = "Get consumption series", description = "Returns rollup buckets for charts at the finest resolution that fits maxPoints")
+    @PreAuthorize("hasRole('ADMIN') or #userId == authentication.principal.username")
+    public ResponseEntity<List<EnergyConsumptionDto>> getConsumptionSeries(
+            @Parameter(description = "User ID") @PathVariable UUID userId,
+            @Parameter(description = "Device ID, all devices when omitted") @RequestParam(required = false) String deviceId,
+            @Parameter(description = "Start time") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @Parameter(description = "End time") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime,
+            @Parameter(description = "Maximum number of points") @RequestParam(defaultValue = "500") int maxPoints) {
+        log.info("Fetching consumption series for user: {}, device: {} between {} and {}", userId, deviceId, startTime, endTime);
+        List<EnergyConsumptionDto> series = energyService.getConsumptionSeries(userId, deviceId, startTime, endTime, maxPoints);
+        return ResponseEntity.ok(series);
+    }
+    
+    @PostMapping("/consumption/rollups/rebuild")
+    @Operation(summary = "Rebuild consumption rollups", description = "Recomputes a device's rollup buckets from raw readings")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> rebuildRollups(
+            @Parameter(description = "User ID") @RequestParam UUID userId,
+            @Parameter(description = "Device ID") @RequestParam String deviceId,
+            @Parameter(description = "Start time") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @Parameter(description = "End time") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime) {
+        log.info("Rebuilding rollups for user: {}, device: {} between {} and {}", userId, deviceId, startTime, endTime);
+        long readings = energyService.rebuildRollups(userId, deviceId, startTime, endTime);
+        return ResponseEntity.ok(Map.of("deviceId", deviceId, "readingCount", readings));
+    }
+    
     @GetMapping("/alerts/{alertId}")
     @Operation(summary = "Get energy alert by ID", description = "Retrieves a specific energy alert by its ID")
     @PreAuthorize("hasRole('ADMIN') or #alertId == authentication.principal.username")
@@ -0,0 +1,44 @@
+package com.smartwatts.energyservice.controller;
+
+import com.smartwatts.energyservice.service.LiveReadingBroadcaster;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Map;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/v1/energy/live")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Live Readings", description = "Server-sent event streams of newly accepted energy readings")
+public class LiveReadingController {
+
+    private final LiveReadingBroadcaster liveReadingBroadcaster;
+
+    @GetMapping(value = "/readings/user/{userId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream live readings", description = "Pushes a user's readings as they are accepted. Emits 'reading' events, and an 'overflow' event with the number of readings dropped when the client falls behind")
+    @PreAuthorize("hasRole('ADMIN') or #userId == authentication.principal.username")
+    public SseEmitter streamReadings(
+            @Parameter(description = "User ID") @PathVariable UUID userId,
+            @Parameter(description = "Only stream this device") @RequestParam(required = false) String deviceId,
+            @Parameter(description = "What to discard when the client falls behind") @RequestParam(defaultValue = "DROP_OLDEST") LiveReadingBroadcaster.OverflowPolicy policy) {
+        log.info("Opening live reading stream for user: {}, device: {}, policy: {}", userId, deviceId, policy);
+        return liveReadingBroadcaster.subscribe(userId, deviceId, policy);
+    }
+
+    @GetMapping("/stats")
+    @Operation(summary = "Get live stream statistics", description = "Returns open stream counts and delivered, dropped and conflated reading totals")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        return ResponseEntity.ok(liveReadingBroadcaster.getStats());
+    }
+}
@@ -0,0 +1,64 @@
+package com.smartwatts.energyservice.controller;
+
+import com.smartwatts.energyservice.dto.EnergyReadingDto;
+import com.smartwatts.energyservice.service.ReadingArchiveService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+@RestController
+@RequestMapping("/api/v1/energy/archive")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Reading Archive", description = "APIs for querying and exporting archived energy readings")
+public class ReadingArchiveController {
+
+    private static final int MAX_LIMIT = 100_000;
+
+    private final ReadingArchiveService readingArchiveService;
+
+    @GetMapping("/readings/user/{userId}")
+    @Operation(summary = "Get archived readings", description = "Reads a time range of archived readings from the archive files without querying the database")
+    @PreAuthorize("hasRole('ADMIN') or #userId == authentication.principal.username")
+    public ResponseEntity<List<EnergyReadingDto>> getArchivedReadings(
+            @Parameter(description = "User ID") @PathVariable UUID userId,
+            @Parameter(description = "Device ID") @RequestParam(required = false) String deviceId,
+            @Parameter(description = "Start time") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @Parameter(description = "End time (exclusive)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime,
+            @Parameter(description = "Maximum number of readings") @RequestParam(defaultValue = "10000") int limit) {
+        log.info("Fetching archived readings for user: {}, device: {} between {} and {}", userId, deviceId, startTime, endTime);
+        try (Stream<EnergyReadingDto> readings = readingArchiveService.readArchived(userId, deviceId, startTime, endTime)) {
+            return ResponseEntity.ok(readings.limit(Math.min(Math.max(limit, 1), MAX_LIMIT)).toList());
+        }
+    }
+
+    @GetMapping("/months")
+    @Operation(summary = "List archived months", description = "Returns the archived months with their row counts and file sizes")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<Map<String, Object>>> listArchives() {
+        return ResponseEntity.ok(readingArchiveService.listArchives());
+    }
+
+    @PostMapping("/months/{month}/export")
+    @Operation(summary = "Export a month", description = "Writes or rewrites the archive of a closed month, e.g. after a backfill")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> exportMonth(
+            @Parameter(description = "Month (yyyy-MM)") @PathVariable @DateTimeFormat(pattern = "yyyy-MM") YearMonth month) {
+        log.info("Exporting readings of {} to the archive", month);
+        long readings = readingArchiveService.exportMonth(month);
+        return ResponseEntity.ok(Map.of("month", month.toString(), "readingCount", readings));
+    }
+}
@@ -0,0 +1,61 @@
+package com.smartwatts.energyservice.dto;
+
+import com.smartwatts.energyservice.model.EnergyConsumption;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Consumption totals for an arbitrary time range, answered from rollup buckets where possible.
+ * {@code segments} lists how the range was split; a segment without a period type was read from
+ * raw readings.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ConsumptionSummaryDto {
+
+    private UUID userId;
+
+    private String deviceId;
+
+    private LocalDateTime periodStart;
+
+    private LocalDateTime periodEnd;
+
+    private BigDecimal totalEnergy;
+
+    private BigDecimal peakPower;
+
+    private BigDecimal averagePower;
+
+    private BigDecimal minimumPower;
+
+    private Long readingCount;
+
+    private BigDecimal qualityScore;
+
+    @Builder.Default
+    private List<Segment> segments = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Segment {
+
+        private EnergyConsumption.PeriodType periodType;
+
+        private LocalDateTime from;
+
+        private LocalDateTime to;
+    }
+}
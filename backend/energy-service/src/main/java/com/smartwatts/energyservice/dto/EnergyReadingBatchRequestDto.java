@@ -0,0 +1,32 @@
+package com.smartwatts.energyservice.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import jakarta.validation.constraints.NotNull;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Batch of readings together with the auth secrets of the devices that produced them.
+ * Secrets are given once per device rather than per reading, like the
+ * X-Device-Auth-Secret header of a single secure reading.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EnergyReadingBatchRequestDto {
+
+    @NotNull(message = "Readings are required")
+    @Builder.Default
+    private List<EnergyReadingDto> readings = new ArrayList<>();
+
+    // Device ID to device auth secret
+    @Builder.Default
+    private Map<String, String> deviceAuthSecrets = new HashMap<>();
+}
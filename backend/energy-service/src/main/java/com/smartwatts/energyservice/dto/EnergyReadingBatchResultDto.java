@@ -0,0 +1,57 @@
+package com.smartwatts.energyservice.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Result of a batch reading ingestion request.
+ * Results are reported per item, in request order, so that callers can
+ * retry only the readings that were not persisted.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EnergyReadingBatchResultDto {
+
+    private int received;
+
+    private int accepted;
+
+    private int rejected;
+
+    @Builder.Default
+    private List<ItemResult> results = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class ItemResult {
+
+        private int index;
+
+        private ItemStatus status;
+
+        private UUID id;
+
+        private String deviceId;
+
+        private LocalDateTime readingTimestamp;
+
+        private String error;
+
+        private boolean retryable;
+    }
+
+    public enum ItemStatus {
+        ACCEPTED, INVALID, DEVICE_REJECTED, FAILED
+    }
+}
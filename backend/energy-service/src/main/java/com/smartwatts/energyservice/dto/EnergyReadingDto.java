@@ -68,6 +68,8 @@ public class EnergyReadingDto {
     
     private String rawData;
     
+    private UUID sourceReadingId;
+    
     private LocalDateTime createdAt;
     
     private LocalDateTime updatedAt;
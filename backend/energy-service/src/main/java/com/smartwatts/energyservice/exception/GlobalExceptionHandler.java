@@ -53,6 +53,44 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(errorDetails);
     }
 
+    /**
+     * Handle oversized batch ingestion requests
+     */
+    @ExceptionHandler(ReadingBatchTooLargeException.class)
+    public ResponseEntity<Map<String, Object>> handleReadingBatchTooLargeException(
+            ReadingBatchTooLargeException ex, WebRequest request) {
+
+        log.warn("Reading batch too large: {}", ex.getMessage());
+
+        Map<String, Object> errorDetails = new HashMap<>();
+        errorDetails.put("timestamp", LocalDateTime.now());
+        errorDetails.put("status", HttpStatus.PAYLOAD_TOO_LARGE.value());
+        errorDetails.put("error", "Batch Too Large");
+        errorDetails.put("message", ex.getMessage());
+        errorDetails.put("path", request.getDescription(false));
+
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(errorDetails);
+    }
+
+    /**
+     * Handle live reading subscriptions beyond the subscriber limits
+     */
+    @ExceptionHandler(LiveStreamLimitExceededException.class)
+    public ResponseEntity<Map<String, Object>> handleLiveStreamLimitExceededException(
+            LiveStreamLimitExceededException ex, WebRequest request) {
+
+        log.warn("Live stream limit exceeded: {}", ex.getMessage());
+
+        Map<String, Object> errorDetails = new HashMap<>();
+        errorDetails.put("timestamp", LocalDateTime.now());
+        errorDetails.put("status", HttpStatus.TOO_MANY_REQUESTS.value());
+        errorDetails.put("error", "Too Many Live Streams");
+        errorDetails.put("message", ex.getMessage());
+        errorDetails.put("path", request.getDescription(false));
+
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(errorDetails);
+    }
+
     /**
      * Handle general runtime exceptions
      */
@@ -0,0 +1,15 @@
+package com.smartwatts.energyservice.exception;
+
+/**
+ * Exception thrown when a live reading subscription would exceed the configured subscriber limits
+ */
+public class LiveStreamLimitExceededException extends RuntimeException {
+
+    public LiveStreamLimitExceededException(String message) {
+        super(message);
+    }
+
+    public LiveStreamLimitExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
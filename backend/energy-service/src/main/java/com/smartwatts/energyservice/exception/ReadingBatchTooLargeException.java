@@ -0,0 +1,15 @@
+package com.smartwatts.energyservice.exception;
+
+/**
+ * Exception thrown when a batch ingestion request exceeds the configured maximum size
+ */
+public class ReadingBatchTooLargeException extends RuntimeException {
+
+    public ReadingBatchTooLargeException(String message) {
+        super(message);
+    }
+
+    public ReadingBatchTooLargeException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,34 @@
+package com.smartwatts.energyservice.mapper;
+
+import com.smartwatts.energyservice.dto.EnergyAlertDto;
+import com.smartwatts.energyservice.dto.EnergyConsumptionDto;
+import com.smartwatts.energyservice.dto.EnergyReadingDto;
+import com.smartwatts.energyservice.model.EnergyAlert;
+import com.smartwatts.energyservice.model.EnergyConsumption;
+import com.smartwatts.energyservice.model.EnergyReading;
+import org.mapstruct.Builder;
+import org.mapstruct.Mapper;
+import org.mapstruct.ReportingPolicy;
+import org.mapstruct.factory.Mappers;
+
+/**
+ * Entity/DTO conversions, generated at compile time.
+ *
+ * Used instead of {@code BeanUtils.copyProperties} on the ingestion and query paths. Properties are
+ * matched by name only: where the types differ MapStruct converts the value (e.g. enum to String) or
+ * fails the build, whereas copyProperties silently skipped such properties. Properties that only
+ * exist on one side are left untouched.
+ */
+@Mapper(unmappedTargetPolicy = ReportingPolicy.IGNORE, builder = @Builder(disableBuilder = true))
+public interface EnergyMapper {
+
+    EnergyMapper INSTANCE = Mappers.getMapper(EnergyMapper.class);
+
+    EnergyReadingDto toDto(EnergyReading reading);
+
+    EnergyConsumptionDto toDto(EnergyConsumption consumption);
+
+    EnergyAlertDto toDto(EnergyAlert alert);
+
+    EnergyReading toEntity(EnergyReadingDto readingDto);
+}
@@ -81,6 +81,15 @@ public class EnergyAlert {
     @Column(name = "notification_channels")
     private String notificationChannels;
 
+    @Column(name = "notification_attempts", nullable = false)
+    private Integer notificationAttempts = 0;
+
+    @Column(name = "next_notification_attempt_at")
+    private LocalDateTime nextNotificationAttemptAt;
+
+    @Column(name = "last_notification_error", columnDefinition = "TEXT")
+    private String lastNotificationError;
+
     @CreatedDate
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -69,6 +69,15 @@ public class EnergyConsumption {
     @Column(name = "quality_score", precision = 3, scale = 2)
     private BigDecimal qualityScore;
 
+    @Column(name = "power_sum", precision = 18, scale = 2)
+    private BigDecimal powerSum;
+
+    @Column(name = "quality_sum", precision = 14, scale = 2)
+    private BigDecimal qualitySum;
+
+    @Column(name = "is_rollup", nullable = false)
+    private Boolean isRollup = false;
+
     @Column(name = "is_billed")
     private Boolean isBilled = false;
 
@@ -95,7 +104,7 @@ public class EnergyConsumption {
     }
 
     public enum PeriodType {
-        MINUTE, HOUR, DAY, WEEK, MONTH, YEAR
+        MINUTE, QUARTER_HOUR, HOUR, DAY, WEEK, MONTH, YEAR
     }
 
     public enum EnergySource {
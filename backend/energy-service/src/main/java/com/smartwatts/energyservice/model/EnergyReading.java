@@ -72,6 +72,13 @@ public class EnergyReading {
     @Column(name = "raw_data", columnDefinition = "TEXT")
     private String rawData;
 
+    /**
+     * ID the sender assigned to the reading, so a batch that is sent again after a lost response is
+     * not stored twice
+     */
+    @Column(name = "source_reading_id")
+    private UUID sourceReadingId;
+
     @CreatedDate
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
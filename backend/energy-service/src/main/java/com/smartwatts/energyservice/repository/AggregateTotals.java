@@ -0,0 +1,22 @@
+package com.smartwatts.energyservice.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Mergeable totals returned by aggregate queries over raw readings or rollup buckets.
+ * All values are null when no rows matched.
+ */
+public interface AggregateTotals {
+
+    Long getReadingCount();
+
+    BigDecimal getTotalEnergy();
+
+    BigDecimal getPowerSum();
+
+    BigDecimal getPeakPower();
+
+    BigDecimal getMinimumPower();
+
+    BigDecimal getQualitySum();
+}
@@ -36,6 +36,9 @@ public interface EnergyAlertRepository extends JpaRepository<EnergyAlert, UUID>
     @Query("SELECT ea FROM EnergyAlert ea WHERE ea.userId = :userId AND ea.isResolved = false ORDER BY ea.alertTimestamp DESC")
     List<EnergyAlert> findUnresolvedAlertsByUserId(@Param("userId") UUID userId);
     
+    @Query("SELECT ea FROM EnergyAlert ea WHERE ea.isResolved = false AND ea.alertTimestamp >= :since")
+    List<EnergyAlert> findUnresolvedAlertsSince(@Param("since") LocalDateTime since);
+    
     @Query("SELECT ea FROM EnergyAlert ea WHERE ea.userId = :userId AND ea.severity = :severity AND ea.isResolved = false ORDER BY ea.alertTimestamp DESC")
     List<EnergyAlert> findActiveAlertsByUserIdAndSeverity(@Param("userId") UUID userId, @Param("severity") EnergyAlert.Severity severity);
     
@@ -52,4 +55,9 @@ public interface EnergyAlertRepository extends JpaRepository<EnergyAlert, UUID>
     
     @Query("SELECT ea FROM EnergyAlert ea WHERE ea.userId = :userId AND ea.notificationSent = false ORDER BY ea.alertTimestamp ASC")
     List<EnergyAlert> findPendingNotificationsByUserId(@Param("userId") UUID userId);
+    
+    @Query("SELECT ea.id FROM EnergyAlert ea WHERE ea.notificationSent = false AND ea.notificationAttempts < :maxAttempts " +
+           "AND (ea.nextNotificationAttemptAt IS NULL OR ea.nextNotificationAttemptAt <= :now) ORDER BY ea.alertTimestamp ASC")
+    List<UUID> findDueNotificationIds(
+            @Param("maxAttempts") int maxAttempts, @Param("now") LocalDateTime now, Pageable pageable);
 } 
\ No newline at end of file
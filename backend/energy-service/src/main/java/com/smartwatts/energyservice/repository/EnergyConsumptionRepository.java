@@ -1,15 +1,18 @@
 package com.smartwatts.energyservice.repository;
 
 import com.smartwatts.energyservice.model.EnergyConsumption;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
@@ -17,6 +20,8 @@ public interface EnergyConsumptionRepository extends JpaRepository<EnergyConsump
     
     Page<EnergyConsumption> findByUserId(UUID userId, Pageable pageable);
     
+    Page<EnergyConsumption> findByUserIdAndIsRollupFalse(UUID userId, Pageable pageable);
+    
     Page<EnergyConsumption> findByUserIdAndDeviceId(UUID userId, String deviceId, Pageable pageable);
     
     Page<EnergyConsumption> findByUserIdAndSourceType(UUID userId, EnergyConsumption.EnergySource sourceType, Pageable pageable);
@@ -25,6 +30,8 @@ public interface EnergyConsumptionRepository extends JpaRepository<EnergyConsump
     
     List<EnergyConsumption> findByUserIdAndPeriodStartBetween(UUID userId, LocalDateTime startTime, LocalDateTime endTime);
     
+    List<EnergyConsumption> findByUserIdAndIsRollupFalseAndPeriodStartBetween(UUID userId, LocalDateTime startTime, LocalDateTime endTime);
+    
     List<EnergyConsumption> findByUserIdAndDeviceIdAndPeriodStartBetween(
             UUID userId, String deviceId, LocalDateTime startTime, LocalDateTime endTime);
     
@@ -32,26 +39,45 @@ public interface EnergyConsumptionRepository extends JpaRepository<EnergyConsump
     List<EnergyConsumption> findRecentConsumptionByUserIdAndPeriodType(
             @Param("userId") UUID userId, @Param("periodType") EnergyConsumption.PeriodType periodType, @Param("startTime") LocalDateTime startTime);
     
-    @Query("SELECT SUM(ec.totalEnergy) FROM EnergyConsumption ec WHERE ec.userId = :userId AND ec.periodStart BETWEEN :startTime AND :endTime")
-    Double getTotalEnergyConsumedByUserIdAndTimeRange(
-            @Param("userId") UUID userId, @Param("startTime") LocalDateTime startTime, @Param("endTime") LocalDateTime endTime);
-    
     @Query("SELECT SUM(ec.totalCost) FROM EnergyConsumption ec WHERE ec.userId = :userId AND ec.periodStart BETWEEN :startTime AND :endTime")
     Double getTotalCostByUserIdAndTimeRange(
             @Param("userId") UUID userId, @Param("startTime") LocalDateTime startTime, @Param("endTime") LocalDateTime endTime);
     
-    @Query("SELECT MAX(ec.peakPower) FROM EnergyConsumption ec WHERE ec.userId = :userId AND ec.periodStart BETWEEN :startTime AND :endTime")
-    Double getPeakPowerByUserIdAndTimeRange(
-            @Param("userId") UUID userId, @Param("startTime") LocalDateTime startTime, @Param("endTime") LocalDateTime endTime);
-    
-    @Query("SELECT AVG(ec.averagePower) FROM EnergyConsumption ec WHERE ec.userId = :userId AND ec.periodStart BETWEEN :startTime AND :endTime")
-    Double getAveragePowerByUserIdAndTimeRange(
-            @Param("userId") UUID userId, @Param("startTime") LocalDateTime startTime, @Param("endTime") LocalDateTime endTime);
-    
     @Query("SELECT ec FROM EnergyConsumption ec WHERE ec.userId = :userId AND ec.isBilled = false ORDER BY ec.periodStart ASC")
     List<EnergyConsumption> findUnbilledConsumptionByUserId(@Param("userId") UUID userId);
     
-    @Query("SELECT COUNT(ec) FROM EnergyConsumption ec WHERE ec.userId = :userId AND ec.periodStart BETWEEN :startTime AND :endTime")
-    long countConsumptionByUserIdAndTimeRange(
-            @Param("userId") UUID userId, @Param("startTime") LocalDateTime startTime, @Param("endTime") LocalDateTime endTime);
-} 
\ No newline at end of file
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT ec FROM EnergyConsumption ec WHERE ec.isRollup = true AND ec.userId = :userId AND ec.deviceId = :deviceId " +
+           "AND ec.periodType = :periodType AND ec.periodStart = :periodStart")
+    Optional<EnergyConsumption> findRollupForUpdate(
+            @Param("userId") UUID userId, @Param("deviceId") String deviceId,
+            @Param("periodType") EnergyConsumption.PeriodType periodType, @Param("periodStart") LocalDateTime periodStart);
+    
+    @Query("SELECT ec FROM EnergyConsumption ec WHERE ec.isRollup = true AND ec.userId = :userId " +
+           "AND (:deviceId IS NULL OR ec.deviceId = :deviceId) AND ec.periodType = :periodType " +
+           "AND ec.periodStart >= :from AND ec.periodStart < :to ORDER BY ec.periodStart ASC")
+    List<EnergyConsumption> findRollups(
+            @Param("userId") UUID userId, @Param("deviceId") String deviceId,
+            @Param("periodType") EnergyConsumption.PeriodType periodType,
+            @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+    
+    /**
+     * Totals over rollup buckets of one level starting in [from, to), for all of the user's devices when deviceId is null
+     */
+    @Query("SELECT SUM(ec.readingCount) AS readingCount, SUM(ec.totalEnergy) AS totalEnergy, SUM(ec.powerSum) AS powerSum, " +
+           "MAX(ec.peakPower) AS peakPower, MIN(ec.minimumPower) AS minimumPower, SUM(ec.qualitySum) AS qualitySum " +
+           "FROM EnergyConsumption ec WHERE ec.isRollup = true AND ec.userId = :userId " +
+           "AND (:deviceId IS NULL OR ec.deviceId = :deviceId) AND ec.periodType = :periodType " +
+           "AND ec.periodStart >= :from AND ec.periodStart < :to")
+    AggregateTotals sumRollups(
+            @Param("userId") UUID userId, @Param("deviceId") String deviceId,
+            @Param("periodType") EnergyConsumption.PeriodType periodType,
+            @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT ec FROM EnergyConsumption ec WHERE ec.isRollup = true AND ec.userId = :userId AND ec.deviceId = :deviceId " +
+           "AND ec.periodStart >= :from AND ec.periodStart < :to")
+    List<EnergyConsumption> findRollupsForUpdate(
+            @Param("userId") UUID userId, @Param("deviceId") String deviceId,
+            @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
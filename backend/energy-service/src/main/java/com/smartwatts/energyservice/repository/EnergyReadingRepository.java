@@ -1,16 +1,22 @@
 package com.smartwatts.energyservice.repository;
 
 import com.smartwatts.energyservice.model.EnergyReading;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface EnergyReadingRepository extends JpaRepository<EnergyReading, UUID> {
@@ -26,6 +32,41 @@ public interface EnergyReadingRepository extends JpaRepository<EnergyReading, UU
     List<EnergyReading> findByUserIdAndDeviceIdAndReadingTimestampBetween(
             UUID userId, String deviceId, LocalDateTime startTime, LocalDateTime endTime);
     
+    /**
+     * Stream only the columns needed for consumption aggregation, without loading entities.
+     * Must be consumed inside a transaction and closed after use.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT er.sourceType AS sourceType, er.readingTimestamp AS readingTimestamp, " +
+           "CAST(er.energyConsumed AS Double) AS energyConsumed, " +
+           "CAST(er.power AS Double) AS power, CAST(er.qualityScore AS Double) AS qualityScore " +
+           "FROM EnergyReading er WHERE er.userId = :userId AND er.deviceId = :deviceId " +
+           "AND er.readingTimestamp BETWEEN :startTime AND :endTime")
+    Stream<ReadingAggregateRow> streamAggregateRows(
+            @Param("userId") UUID userId, @Param("deviceId") String deviceId,
+            @Param("startTime") LocalDateTime startTime, @Param("endTime") LocalDateTime endTime);
+    
+    /**
+     * Readings already stored under one of the sender IDs. The timestamp range limits the lookup to
+     * the partitions the readings can be in.
+     */
+    @Query("SELECT er FROM EnergyReading er WHERE er.sourceReadingId IN :sourceReadingIds " +
+           "AND er.readingTimestamp BETWEEN :from AND :to")
+    List<EnergyReading> findBySourceReadingIds(
+            @Param("sourceReadingIds") Collection<UUID> sourceReadingIds,
+            @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+    
+    /**
+     * Totals over raw readings in [from, to), for all of the user's devices when deviceId is null
+     */
+    @Query("SELECT COUNT(er) AS readingCount, SUM(er.energyConsumed) AS totalEnergy, SUM(er.power) AS powerSum, " +
+           "MAX(er.power) AS peakPower, MIN(er.power) AS minimumPower, SUM(er.qualityScore) AS qualitySum " +
+           "FROM EnergyReading er WHERE er.userId = :userId AND (:deviceId IS NULL OR er.deviceId = :deviceId) " +
+           "AND er.readingTimestamp >= :from AND er.readingTimestamp < :to")
+    AggregateTotals sumReadings(
+            @Param("userId") UUID userId, @Param("deviceId") String deviceId,
+            @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+    
     @Query("SELECT er FROM EnergyReading er WHERE er.userId = :userId AND er.readingTimestamp >= :startTime ORDER BY er.readingTimestamp DESC")
     List<EnergyReading> findRecentReadingsByUserId(@Param("userId") UUID userId, @Param("startTime") LocalDateTime startTime);
     
@@ -39,19 +80,23 @@ public interface EnergyReadingRepository extends JpaRepository<EnergyReading, UU
     @Query("SELECT er FROM EnergyReading er WHERE er.userId = :userId AND er.isProcessed = false ORDER BY er.readingTimestamp ASC")
     List<EnergyReading> findUnprocessedReadingsByUserId(@Param("userId") UUID userId);
     
-    @Query("SELECT AVG(er.power) FROM EnergyReading er WHERE er.userId = :userId AND er.readingTimestamp BETWEEN :startTime AND :endTime")
-    Double getAveragePowerByUserIdAndTimeRange(
-            @Param("userId") UUID userId, @Param("startTime") LocalDateTime startTime, @Param("endTime") LocalDateTime endTime);
-    
-    @Query("SELECT MAX(er.power) FROM EnergyReading er WHERE er.userId = :userId AND er.readingTimestamp BETWEEN :startTime AND :endTime")
-    Double getPeakPowerByUserIdAndTimeRange(
-            @Param("userId") UUID userId, @Param("startTime") LocalDateTime startTime, @Param("endTime") LocalDateTime endTime);
+    @Query("SELECT er FROM EnergyReading er WHERE er.isProcessed = false AND er.createdAt BETWEEN :from AND :to ORDER BY er.createdAt ASC")
+    List<EnergyReading> findUnprocessedReadingsCreatedBetween(
+            @Param("from") LocalDateTime from, @Param("to") LocalDateTime to, Pageable pageable);
     
-    @Query("SELECT SUM(er.energyConsumed) FROM EnergyReading er WHERE er.userId = :userId AND er.readingTimestamp BETWEEN :startTime AND :endTime")
-    Double getTotalEnergyConsumedByUserIdAndTimeRange(
-            @Param("userId") UUID userId, @Param("startTime") LocalDateTime startTime, @Param("endTime") LocalDateTime endTime);
+    @Modifying
+    @Query("UPDATE EnergyReading er SET er.isProcessed = true, er.processingTimestamp = :processedAt WHERE er.id IN :readingIds")
+    int markReadingsProcessed(@Param("readingIds") Collection<UUID> readingIds, @Param("processedAt") LocalDateTime processedAt);
     
-    @Query("SELECT COUNT(er) FROM EnergyReading er WHERE er.userId = :userId AND er.readingTimestamp BETWEEN :startTime AND :endTime")
-    long countReadingsByUserIdAndTimeRange(
-            @Param("userId") UUID userId, @Param("startTime") LocalDateTime startTime, @Param("endTime") LocalDateTime endTime);
-} 
\ No newline at end of file
+    interface ReadingAggregateRow {
+        EnergyReading.EnergySource getSourceType();
+        
+        LocalDateTime getReadingTimestamp();
+        
+        Double getEnergyConsumed();
+        
+        Double getPower();
+        
+        Double getQualityScore();
+    }
+}
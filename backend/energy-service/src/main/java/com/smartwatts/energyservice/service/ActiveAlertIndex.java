@@ -0,0 +1,147 @@
+package com.smartwatts.energyservice.service;
+
+import com.smartwatts.energyservice.model.EnergyAlert;
+import com.smartwatts.energyservice.repository.EnergyAlertRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index of open alerts keyed by (userId, deviceId, alertType), used to suppress
+ * duplicate alerts without querying the alert table for every threshold breach.
+ *
+ * An alert counts as open while it is unresolved and was raised within the dedup window.
+ * Acknowledging an alert does not close it; resolving it does. The index is seeded from the
+ * database on startup and kept consistent with every alert state change made by this service.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ActiveAlertIndex {
+
+    private final EnergyAlertRepository energyAlertRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${energy.alerts.dedup.window-minutes:60}")
+    private long windowMinutes;
+
+    private final Map<AlertKey, OpenAlert> openAlerts = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        List<EnergyAlert> unresolved = energyAlertRepository.findUnresolvedAlertsSince(windowStart());
+        unresolved.forEach(this::record);
+        Gauge.builder("smartwatts.alerts.active_index.size", openAlerts, Map::size)
+                .description("Open alerts tracked for duplicate suppression")
+                .register(meterRegistry);
+        log.info("Active alert index initialized with {} open alerts (window: {} min)", openAlerts.size(), windowMinutes);
+    }
+
+    /**
+     * Atomically claim the right to open an alert for the given key. Returns false when an open
+     * alert already exists. Inside a transaction the claim is released again if the transaction
+     * rolls back, so a failed insert never suppresses later alerts.
+     */
+    public boolean tryOpen(UUID userId, String deviceId, EnergyAlert.AlertType alertType) {
+        AlertKey key = new AlertKey(userId, deviceId, alertType);
+        OpenAlert claim = new OpenAlert(null, LocalDateTime.now());
+        LocalDateTime windowStart = windowStart();
+        boolean[] claimed = {false};
+        openAlerts.compute(key, (k, existing) -> {
+            if (existing != null && existing.openedAt.isAfter(windowStart)) {
+                return existing;
+            }
+            claimed[0] = true;
+            return claim;
+        });
+        if (claimed[0] && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        openAlerts.remove(key, claim);
+                    }
+                }
+            });
+        }
+        return claimed[0];
+    }
+
+    /**
+     * Attach the persisted alert ID to the claim taken by {@link #tryOpen}
+     */
+    public void confirm(EnergyAlert alert) {
+        openAlerts.computeIfPresent(keyOf(alert), (key, existing) -> {
+            if (existing.alertId == null) {
+                existing.alertId = alert.getId();
+            }
+            return existing;
+        });
+    }
+
+    /**
+     * Bring the index in line with the persisted state of an alert after it was acknowledged or
+     * resolved outside the evaluation path
+     */
+    public void record(EnergyAlert alert) {
+        AlertKey key = keyOf(alert);
+        if (Boolean.TRUE.equals(alert.getIsResolved())) {
+            // Only drop the entry if it still belongs to this alert, not to a newer one
+            openAlerts.computeIfPresent(key, (k, existing) -> alert.getId().equals(existing.alertId) ? null : existing);
+            return;
+        }
+        LocalDateTime openedAt = alert.getAlertTimestamp() != null ? alert.getAlertTimestamp() : LocalDateTime.now();
+        openAlerts.merge(key, new OpenAlert(alert.getId(), openedAt),
+                (existing, updated) -> existing.openedAt.isBefore(updated.openedAt) ? updated : existing);
+    }
+
+    public int size() {
+        return openAlerts.size();
+    }
+
+    /**
+     * Drop entries that fell out of the dedup window
+     */
+    @Scheduled(fixedDelayString = "${energy.alerts.dedup.prune-interval-ms:60000}")
+    public void pruneExpired() {
+        LocalDateTime windowStart = windowStart();
+        openAlerts.values().removeIf(open -> !open.openedAt.isAfter(windowStart));
+    }
+
+    private LocalDateTime windowStart() {
+        return LocalDateTime.now().minusMinutes(windowMinutes);
+    }
+
+    private AlertKey keyOf(EnergyAlert alert) {
+        return new AlertKey(alert.getUserId(), alert.getDeviceId(), alert.getAlertType());
+    }
+
+    private record AlertKey(UUID userId, String deviceId, EnergyAlert.AlertType alertType) {
+    }
+
+    /**
+     * Open alert entry. Compared by identity so a rolled back claim only removes itself.
+     */
+    private static final class OpenAlert {
+        private volatile UUID alertId;
+        private final LocalDateTime openedAt;
+
+        private OpenAlert(UUID alertId, LocalDateTime openedAt) {
+            this.alertId = alertId;
+            this.openedAt = openedAt;
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package com.smartwatts.energyservice.service;
+
+import com.smartwatts.energyservice.model.EnergyReading;
+import com.smartwatts.energyservice.repository.EnergyAlertRepository;
+import com.smartwatts.energyservice.repository.EnergyReadingRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous alert pipeline that keeps alert evaluation and notification delivery off the
+ * reading ingestion path.
+ *
+ * Both stages are backed by durable state: a reading stays {@code is_processed = false} until its
+ * alerts have been evaluated, and an alert stays {@code notification_sent = false} until every
+ * notification channel succeeded. The in-memory queues are only a fast path on top of that. When a
+ * queue is full the item is simply not enqueued and the periodic sweeps pick it up from the database
+ * later, so ingestion never blocks on alerting.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AlertEvaluationPipeline {
+
+    private final AlertService alertService;
+    private final EnergyReadingRepository energyReadingRepository;
+    private final EnergyAlertRepository energyAlertRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${energy.alerts.pipeline.evaluation-queue-capacity:10000}")
+    private int evaluationQueueCapacity;
+
+    @Value("${energy.alerts.pipeline.notification-queue-capacity:1000}")
+    private int notificationQueueCapacity;
+
+    @Value("${energy.alerts.pipeline.evaluation-workers:2}")
+    private int evaluationWorkers;
+
+    @Value("${energy.alerts.pipeline.notification-workers:2}")
+    private int notificationWorkers;
+
+    @Value("${energy.alerts.pipeline.evaluation-batch-size:200}")
+    private int evaluationBatchSize;
+
+    @Value("${energy.alerts.pipeline.recovery-grace-seconds:120}")
+    private long recoveryGraceSeconds;
+
+    @Value("${energy.alerts.pipeline.recovery-window-hours:24}")
+    private long recoveryWindowHours;
+
+    @Value("${energy.alerts.notification.max-attempts:8}")
+    private int maxNotificationAttempts;
+
+    private BlockingQueue<EnergyReading> evaluationQueue;
+    private BlockingQueue<QueuedNotification> notificationQueue;
+    private final Set<UUID> queuedReadingIds = ConcurrentHashMap.newKeySet();
+    private final Set<UUID> queuedAlertIds = ConcurrentHashMap.newKeySet();
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    private Timer evaluationLag;
+    private Timer notificationLag;
+    private Counter evaluationRejected;
+    private Counter evaluationFailures;
+    private Counter notificationRejected;
+    private Counter notificationFailures;
+
+    @PostConstruct
+    public void start() {
+        evaluationQueue = new ArrayBlockingQueue<>(evaluationQueueCapacity);
+        notificationQueue = new ArrayBlockingQueue<>(notificationQueueCapacity);
+
+        Gauge.builder("smartwatts.alerts.evaluation.queue.depth", evaluationQueue, BlockingQueue::size)
+                .description("Readings waiting for alert evaluation")
+                .register(meterRegistry);
+        Gauge.builder("smartwatts.alerts.notification.queue.depth", notificationQueue, BlockingQueue::size)
+                .description("Alerts waiting for notification delivery")
+                .register(meterRegistry);
+        evaluationLag = Timer.builder("smartwatts.alerts.evaluation.lag")
+                .description("Time from reading persistence to alert evaluation")
+                .register(meterRegistry);
+        notificationLag = Timer.builder("smartwatts.alerts.notification.lag")
+                .description("Time an alert waited in the notification queue")
+                .register(meterRegistry);
+        evaluationRejected = Counter.builder("smartwatts.alerts.evaluation.rejected")
+                .description("Readings deferred to the recovery sweep because the evaluation queue was full")
+                .register(meterRegistry);
+        evaluationFailures = Counter.builder("smartwatts.alerts.evaluation.failures")
+                .description("Readings whose alert evaluation failed and will be retried")
+                .register(meterRegistry);
+        notificationRejected = Counter.builder("smartwatts.alerts.notification.rejected")
+                .description("Alerts deferred to the retry sweep because the notification queue was full")
+                .register(meterRegistry);
+        notificationFailures = Counter.builder("smartwatts.alerts.notification.failures")
+                .description("Notification attempts that failed on at least one channel")
+                .register(meterRegistry);
+
+        running = true;
+        for (int i = 0; i < evaluationWorkers; i++) {
+            workers.add(startWorker("alert-evaluation-" + i, this::runEvaluationWorker));
+        }
+        for (int i = 0; i < notificationWorkers; i++) {
+            workers.add(startWorker("alert-notification-" + i, this::runNotificationWorker));
+        }
+        log.info("Alert pipeline started with {} evaluation and {} notification workers", evaluationWorkers, notificationWorkers);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+        for (Thread worker : workers) {
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        // Anything still queued remains unprocessed in the database and is recovered on next start
+        log.info("Alert pipeline stopped with {} readings and {} notifications still queued",
+                evaluationQueue.size(), notificationQueue.size());
+    }
+
+    /**
+     * Submit a persisted reading for alert evaluation. Inside a transaction the reading is only
+     * queued after commit, so workers never see readings that might still be rolled back.
+     */
+    public void submit(EnergyReading reading) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueueReading(reading);
+                }
+            });
+        } else {
+            enqueueReading(reading);
+        }
+    }
+
+    public int getEvaluationQueueDepth() {
+        return evaluationQueue.size();
+    }
+
+    public int getNotificationQueueDepth() {
+        return notificationQueue.size();
+    }
+
+    /**
+     * Re-queue readings whose evaluation was deferred or failed, e.g. after a full queue or a restart
+     */
+    @Scheduled(fixedDelayString = "${energy.alerts.pipeline.recovery-interval-ms:30000}")
+    public void recoverUnprocessedReadings() {
+        int freeCapacity = evaluationQueue.remainingCapacity();
+        if (freeCapacity < evaluationQueueCapacity / 2) {
+            // Workers are still catching up; sweeping now would only duplicate queued work
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<EnergyReading> pending = energyReadingRepository.findUnprocessedReadingsCreatedBetween(
+                now.minusHours(recoveryWindowHours), now.minusSeconds(recoveryGraceSeconds),
+                PageRequest.of(0, Math.max(1, freeCapacity / 2)));
+        if (!pending.isEmpty()) {
+            log.info("Recovering {} readings pending alert evaluation", pending.size());
+            pending.forEach(this::enqueueReading);
+        }
+    }
+
+    /**
+     * Re-queue alerts whose notification is due, either never attempted or waiting for a retry
+     */
+    @Scheduled(fixedDelayString = "${energy.alerts.pipeline.notification-retry-interval-ms:30000}")
+    public void retryDueNotifications() {
+        int freeCapacity = notificationQueue.remainingCapacity();
+        if (freeCapacity == 0) {
+            return;
+        }
+        List<UUID> due = energyAlertRepository.findDueNotificationIds(
+                maxNotificationAttempts, LocalDateTime.now(), PageRequest.of(0, freeCapacity));
+        due.forEach(this::enqueueNotification);
+    }
+
+    private void enqueueReading(EnergyReading reading) {
+        if (!queuedReadingIds.add(reading.getId())) {
+            return;
+        }
+        if (!evaluationQueue.offer(reading)) {
+            queuedReadingIds.remove(reading.getId());
+            evaluationRejected.increment();
+            log.debug("Alert evaluation queue full, reading {} left for the recovery sweep", reading.getId());
+        }
+    }
+
+    private void enqueueNotification(UUID alertId) {
+        if (!queuedAlertIds.add(alertId)) {
+            return;
+        }
+        if (!notificationQueue.offer(new QueuedNotification(alertId, System.nanoTime()))) {
+            queuedAlertIds.remove(alertId);
+            notificationRejected.increment();
+            log.debug("Notification queue full, alert {} left for the retry sweep", alertId);
+        }
+    }
+
+    private void runEvaluationWorker() {
+        List<EnergyReading> batch = new ArrayList<>(evaluationBatchSize);
+        while (running) {
+            try {
+                EnergyReading first = evaluationQueue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                evaluationQueue.drainTo(batch, evaluationBatchSize - 1);
+                evaluateBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Unexpected error in alert evaluation worker", e);
+            } finally {
+                batch.forEach(reading -> queuedReadingIds.remove(reading.getId()));
+                batch.clear();
+            }
+        }
+    }
+
+    private void evaluateBatch(List<EnergyReading> batch) {
+        try {
+            alertService.evaluateReadings(batch).forEach(this::enqueueNotification);
+            recordEvaluationLag(batch);
+        } catch (RuntimeException e) {
+            log.warn("Alert evaluation of {} readings failed, retrying individually: {}", batch.size(), e.getMessage());
+            for (EnergyReading reading : batch) {
+                try {
+                    alertService.evaluateReadings(List.of(reading)).forEach(this::enqueueNotification);
+                    recordEvaluationLag(List.of(reading));
+                } catch (RuntimeException readingError) {
+                    // The reading stays unprocessed and is picked up again by the recovery sweep
+                    evaluationFailures.increment();
+                    log.error("Alert evaluation failed for reading ID: {}", reading.getId(), readingError);
+                }
+            }
+        }
+    }
+
+    private void recordEvaluationLag(List<EnergyReading> readings) {
+        LocalDateTime now = LocalDateTime.now();
+        for (EnergyReading reading : readings) {
+            if (reading.getCreatedAt() != null) {
+                evaluationLag.record(Duration.between(reading.getCreatedAt(), now));
+            }
+        }
+    }
+
+    private void runNotificationWorker() {
+        while (running) {
+            QueuedNotification notification = null;
+            try {
+                notification = notificationQueue.poll(1, TimeUnit.SECONDS);
+                if (notification == null) {
+                    continue;
+                }
+                notificationLag.record(System.nanoTime() - notification.enqueuedAtNanos(), TimeUnit.NANOSECONDS);
+                if (!alertService.deliverNotification(notification.alertId())) {
+                    notificationFailures.increment();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // Attempt bookkeeping could not be saved; the retry sweep will pick the alert up again
+                notificationFailures.increment();
+                log.error("Notification delivery failed for alert ID: {}",
+                        notification != null ? notification.alertId() : null, e);
+            } finally {
+                if (notification != null) {
+                    queuedAlertIds.remove(notification.alertId());
+                }
+            }
+        }
+    }
+
+    private Thread startWorker(String name, Runnable task) {
+        Thread worker = new Thread(task, name);
+        worker.setDaemon(true);
+        worker.start();
+        return worker;
+    }
+
+    private record QueuedNotification(UUID alertId, long enqueuedAtNanos) {
+    }
+}
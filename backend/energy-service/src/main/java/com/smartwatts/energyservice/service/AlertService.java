@@ -3,14 +3,22 @@ package com.smartwatts.energyservice.service;
 import com.smartwatts.energyservice.model.EnergyAlert;
 import com.smartwatts.energyservice.model.EnergyReading;
 import com.smartwatts.energyservice.repository.EnergyAlertRepository;
+import com.smartwatts.energyservice.repository.EnergyReadingRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -18,7 +26,15 @@ import java.util.UUID;
 public class AlertService {
     
     private final EnergyAlertRepository energyAlertRepository;
+    private final EnergyReadingRepository energyReadingRepository;
     private final NotificationService notificationService;
+    private final ActiveAlertIndex activeAlertIndex;
+    
+    @Value("${energy.alerts.notification.retry-base-seconds:30}")
+    private long notificationRetryBaseSeconds;
+    
+    @Value("${energy.alerts.notification.retry-max-seconds:3600}")
+    private long notificationRetryMaxSeconds;
     
     // Alert thresholds (these could be configurable per user)
     private static final BigDecimal HIGH_CONSUMPTION_THRESHOLD = new BigDecimal("5000"); // 5kW
@@ -26,56 +42,83 @@ public class AlertService {
     private static final BigDecimal NORMAL_VOLTAGE = new BigDecimal("240"); // 240V
     private static final BigDecimal LOW_POWER_FACTOR_THRESHOLD = new BigDecimal("0.8"); // 0.8
     
+    /**
+     * Evaluate alert rules for a group of persisted readings and mark them as processed.
+     * Notifications are not sent here; the IDs of the alerts that were opened are returned so the
+     * caller can hand them to notification delivery once this transaction has committed.
+     */
+    @Transactional
+    public List<UUID> evaluateReadings(List<EnergyReading> readings) {
+        List<UUID> createdAlertIds = new ArrayList<>();
+        List<UUID> readingIds = new ArrayList<>(readings.size());
+        for (EnergyReading reading : readings) {
+            createdAlertIds.addAll(checkForAlerts(reading));
+            readingIds.add(reading.getId());
+        }
+        energyReadingRepository.markReadingsProcessed(readingIds, LocalDateTime.now());
+        return createdAlertIds;
+    }
+    
     @Transactional
-    public void checkForAlerts(EnergyReading reading) {
-        log.info("Checking for alerts on reading ID: {}", reading.getId());
+    public List<UUID> checkForAlerts(EnergyReading reading) {
+        log.debug("Checking for alerts on reading ID: {}", reading.getId());
+        List<UUID> createdAlertIds = new ArrayList<>();
         
         // Check for high consumption
         if (reading.getPower() != null && reading.getPower().compareTo(HIGH_CONSUMPTION_THRESHOLD) > 0) {
-            createAlert(reading, EnergyAlert.AlertType.HIGH_CONSUMPTION, EnergyAlert.Severity.HIGH,
+            addIfCreated(createdAlertIds, createAlert(reading, EnergyAlert.AlertType.HIGH_CONSUMPTION, EnergyAlert.Severity.HIGH,
                     "High Power Consumption", 
                     String.format("Power consumption of %.2f kW exceeds the threshold of %.2f kW", 
                             reading.getPower(), HIGH_CONSUMPTION_THRESHOLD),
-                    HIGH_CONSUMPTION_THRESHOLD, reading.getPower());
+                    HIGH_CONSUMPTION_THRESHOLD, reading.getPower()));
         }
         
         // Check for voltage fluctuations
         if (reading.getVoltage() != null) {
             BigDecimal voltageDifference = reading.getVoltage().subtract(NORMAL_VOLTAGE).abs();
             if (voltageDifference.compareTo(VOLTAGE_FLUCTUATION_THRESHOLD) > 0) {
-                createAlert(reading, EnergyAlert.AlertType.VOLTAGE_FLUCTUATION, EnergyAlert.Severity.MEDIUM,
+                addIfCreated(createdAlertIds, createAlert(reading, EnergyAlert.AlertType.VOLTAGE_FLUCTUATION, EnergyAlert.Severity.MEDIUM,
                         "Voltage Fluctuation",
                         String.format("Voltage of %.2f V is outside the normal range (%.2f ± %.2f V)",
                                 reading.getVoltage(), NORMAL_VOLTAGE, VOLTAGE_FLUCTUATION_THRESHOLD),
-                        VOLTAGE_FLUCTUATION_THRESHOLD, voltageDifference);
+                        VOLTAGE_FLUCTUATION_THRESHOLD, voltageDifference));
             }
         }
         
         // Check for low power factor
         if (reading.getPowerFactor() != null && reading.getPowerFactor().compareTo(LOW_POWER_FACTOR_THRESHOLD) < 0) {
-            createAlert(reading, EnergyAlert.AlertType.ENERGY_EFFICIENCY, EnergyAlert.Severity.MEDIUM,
+            addIfCreated(createdAlertIds, createAlert(reading, EnergyAlert.AlertType.ENERGY_EFFICIENCY, EnergyAlert.Severity.MEDIUM,
                     "Low Power Factor",
                     String.format("Power factor of %.2f is below the recommended threshold of %.2f",
                             reading.getPowerFactor(), LOW_POWER_FACTOR_THRESHOLD),
-                    LOW_POWER_FACTOR_THRESHOLD, reading.getPowerFactor());
+                    LOW_POWER_FACTOR_THRESHOLD, reading.getPowerFactor()));
         }
         
         // Check for power outage (zero power for extended period)
         if (reading.getPower() != null && reading.getPower().compareTo(BigDecimal.ZERO) == 0) {
-            createAlert(reading, EnergyAlert.AlertType.POWER_OUTAGE, EnergyAlert.Severity.CRITICAL,
+            addIfCreated(createdAlertIds, createAlert(reading, EnergyAlert.AlertType.POWER_OUTAGE, EnergyAlert.Severity.CRITICAL,
                     "Power Outage Detected",
                     "No power consumption detected - possible power outage",
-                    BigDecimal.ZERO, reading.getPower());
+                    BigDecimal.ZERO, reading.getPower()));
+        }
+        
+        return createdAlertIds;
+    }
+    
+    private void addIfCreated(List<UUID> createdAlertIds, UUID alertId) {
+        if (alertId != null) {
+            createdAlertIds.add(alertId);
         }
     }
     
-    private void createAlert(EnergyReading reading, EnergyAlert.AlertType alertType, EnergyAlert.Severity severity,
+    private UUID createAlert(EnergyReading reading, EnergyAlert.AlertType alertType, EnergyAlert.Severity severity,
                            String title, String message, BigDecimal thresholdValue, BigDecimal actualValue) {
         
         // Check if similar alert already exists and is unresolved
-        if (hasActiveAlert(reading.getUserId(), alertType)) {
-            log.debug("Active alert of type {} already exists for user {}", alertType, reading.getUserId());
-            return;
+        if (!activeAlertIndex.tryOpen(reading.getUserId(), reading.getDeviceId(), alertType)) {
+            log.debug("Active alert of type {} already exists for user {} on device {}",
+                    alertType, reading.getUserId(), reading.getDeviceId());
+            return null;
         }
         
         EnergyAlert alert = new EnergyAlert();
@@ -91,72 +134,66 @@ public class AlertService {
         alert.setIsAcknowledged(false);
         alert.setIsResolved(false);
         alert.setNotificationSent(false);
+        alert.setNotificationAttempts(0);
         
         EnergyAlert savedAlert = energyAlertRepository.save(alert);
+        activeAlertIndex.confirm(savedAlert);
         log.info("Created alert with ID: {} for user: {}, type: {}", 
                 savedAlert.getId(), reading.getUserId(), alertType);
         
-        // Send notification (email, SMS, push notification)
-        try {
-            notificationService.sendAlertNotification(savedAlert);
-            
-            // Mark notification as sent
-            savedAlert.setNotificationSent(true);
-            savedAlert.setNotificationSentAt(LocalDateTime.now());
-            energyAlertRepository.save(savedAlert);
-            
-        } catch (Exception e) {
-            log.error("Failed to send notification for alert ID: {}", savedAlert.getId(), e);
-            // Don't mark as sent if there was an error
-        }
-    }
-    
-    private boolean hasActiveAlert(UUID userId, EnergyAlert.AlertType alertType) {
-        // Check for unresolved alerts of the same type in the last hour
-        LocalDateTime oneHourAgo = LocalDateTime.now().minusHours(1);
-        return energyAlertRepository.findByUserIdAndAlertType(userId, alertType, null)
-                .stream()
-                .anyMatch(alert -> !alert.getIsResolved() && 
-                        alert.getAlertTimestamp().isAfter(oneHourAgo));
+        return savedAlert.getId();
     }
     
-
-    
+    /**
+     * Deliver the notification for an alert over every channel that has not succeeded yet.
+     * Delivered channels are recorded in {@code notificationChannels}; if any channel fails the
+     * next attempt is scheduled with exponential backoff.
+     *
+     * @return true when the alert notification is fully delivered
+     */
     @Transactional
-    public void processPendingNotifications() {
-        log.info("Processing pending notifications");
+    public boolean deliverNotification(UUID alertId) {
+        EnergyAlert alert = energyAlertRepository.findById(alertId).orElse(null);
+        if (alert == null) {
+            log.warn("Alert {} no longer exists, skipping notification", alertId);
+            return true;
+        }
+        if (Boolean.TRUE.equals(alert.getNotificationSent())) {
+            return true;
+        }
         
-        try {
-            // Find all alerts that haven't had notifications sent yet
-            LocalDateTime oneHourAgo = LocalDateTime.now().minusHours(1);
-            var pendingAlerts = energyAlertRepository.findAll()
-                    .stream()
-                    .filter(alert -> !alert.getNotificationSent() && 
-                            alert.getAlertTimestamp().isAfter(oneHourAgo))
-                    .toList();
-            
-            log.info("Found {} pending notifications to process", pendingAlerts.size());
-            
-            for (EnergyAlert alert : pendingAlerts) {
-                try {
-                    notificationService.sendAlertNotification(alert);
-                    
-                    // Mark notification as sent
-                    alert.setNotificationSent(true);
-                    alert.setNotificationSentAt(LocalDateTime.now());
-                    energyAlertRepository.save(alert);
-                    
-                    log.debug("Processed notification for alert ID: {}", alert.getId());
-                    
-                } catch (Exception e) {
-                    log.error("Failed to process notification for alert ID: {}", alert.getId(), e);
-                }
-            }
-            
-            log.info("Successfully processed {} pending notifications", pendingAlerts.size());
-            
-        } catch (Exception e) {
-            log.error("Error processing pending notifications", e);
+        Set<String> deliveredChannels = parseChannels(alert.getNotificationChannels());
+        List<String> failedChannels = notificationService.deliverAlertNotification(alert, deliveredChannels);
+        
+        alert.setNotificationChannels(deliveredChannels.isEmpty() ? null : String.join(",", deliveredChannels));
+        int attempts = (alert.getNotificationAttempts() == null ? 0 : alert.getNotificationAttempts()) + 1;
+        alert.setNotificationAttempts(attempts);
+        
+        if (failedChannels.isEmpty()) {
+            alert.setNotificationSent(true);
+            alert.setNotificationSentAt(LocalDateTime.now());
+            alert.setNextNotificationAttemptAt(null);
+            alert.setLastNotificationError(null);
+        } else {
+            long backoffSeconds = Math.min(notificationRetryMaxSeconds,
+                    notificationRetryBaseSeconds << Math.min(attempts - 1, 20));
+            alert.setNextNotificationAttemptAt(LocalDateTime.now().plusSeconds(backoffSeconds));
+            alert.setLastNotificationError("Failed channels: " + String.join(",", failedChannels));
+            log.warn("Notification for alert ID: {} failed on {} (attempt {}), retrying in {}s",
+                    alertId, failedChannels, attempts, backoffSeconds);
+        }
+        
+        energyAlertRepository.save(alert);
+        return failedChannels.isEmpty();
+    }
+    
+    private Set<String> parseChannels(String channels) {
+        if (channels == null || channels.isBlank()) {
+            return new LinkedHashSet<>();
         }
+        return Arrays.stream(channels.split(","))
+                .map(String::trim)
+                .filter(channel -> !channel.isEmpty())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
     }
-} 
\ No newline at end of file
+}
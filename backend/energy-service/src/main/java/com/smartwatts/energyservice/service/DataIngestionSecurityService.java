@@ -7,7 +7,6 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.client.ResourceAccessException;
 
 
@@ -16,7 +15,7 @@ import org.springframework.web.client.ResourceAccessException;
 @Slf4j
 public class DataIngestionSecurityService {
 
-    private final RestTemplate restTemplate;
+    private final DeviceVerificationCache deviceVerificationCache;
     
     @Value("${smartwatts.device-service.url:http://localhost:8083}")
     private String deviceServiceUrl;
@@ -74,13 +73,12 @@ public class DataIngestionSecurityService {
     }
 
     /**
-     * Check if device can send data (is verified and approved)
+     * Check if device can send data (is verified and approved).
+     * Decisions are served from the local verification cache; device-service is only called on a miss.
      */
     private boolean checkDeviceCanSendData(String deviceId) {
         try {
-            String url = deviceServiceUrl + "/api/v1/device-verification/" + deviceId + "/can-send-data";
-            Boolean result = restTemplate.getForObject(url, Boolean.class);
-            return result != null && result;
+            return deviceVerificationCache.canSendData(deviceId);
         } catch (ResourceAccessException e) {
             log.error("Cannot connect to device service to validate device: {}", deviceId, e);
             // If we can't reach the device service, we block the data for security
@@ -96,10 +94,7 @@ public class DataIngestionSecurityService {
      */
     private boolean validateDeviceAuthSecret(String deviceId, String authSecret) {
         try {
-            String url = deviceServiceUrl + "/api/v1/device-verification/validate-auth";
-            String requestUrl = url + "?deviceId=" + deviceId + "&authSecret=" + authSecret;
-            Boolean result = restTemplate.postForObject(requestUrl, null, Boolean.class);
-            return result != null && result;
+            return deviceVerificationCache.isValidAuthSecret(deviceId, authSecret);
         } catch (ResourceAccessException e) {
             log.error("Cannot connect to device service to validate auth secret for device: {}", deviceId, e);
             // If we can't reach the device service, we block the data for security
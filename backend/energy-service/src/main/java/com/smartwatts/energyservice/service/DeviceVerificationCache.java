@@ -0,0 +1,217 @@
+package com.smartwatts.energyservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local cache of device verification decisions made by device-service.
+ *
+ * Positive decisions are kept for {@code ttl-seconds} and refreshed in the background once they are
+ * older than {@code refresh-seconds}, so a known device never waits on device-service while its entry
+ * is being renewed. Negative decisions are cached for the shorter {@code negative-ttl-seconds}.
+ * Remote failures are never cached: a failed first lookup propagates to the caller (fail closed) and a
+ * failed background refresh keeps the previous decision until it expires.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DeviceVerificationCache {
+
+    private static final String KEY_SEPARATOR = "|";
+
+    private final RestTemplate restTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${smartwatts.device-service.url:http://localhost:8083}")
+    private String deviceServiceUrl;
+
+    @Value("${smartwatts.security.device-verification.cache.enabled:true}")
+    private boolean cacheEnabled;
+
+    @Value("${smartwatts.security.device-verification.cache.maximum-size:100000}")
+    private long maximumSize;
+
+    @Value("${smartwatts.security.device-verification.cache.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    @Value("${smartwatts.security.device-verification.cache.negative-ttl-seconds:30}")
+    private long negativeTtlSeconds;
+
+    @Value("${smartwatts.security.device-verification.cache.refresh-seconds:60}")
+    private long refreshSeconds;
+
+    private LoadingCache<String, Boolean> canSendDataCache;
+    private Cache<String, Boolean> authSecretCache;
+
+    @PostConstruct
+    public void init() {
+        canSendDataCache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(decisionExpiry())
+                .refreshAfterWrite(refreshSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build(this::fetchCanSendData);
+
+        authSecretCache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(decisionExpiry())
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, canSendDataCache, "device-verification.can-send-data");
+        CaffeineCacheMetrics.monitor(meterRegistry, authSecretCache, "device-verification.auth-secret");
+
+        log.info("Device verification cache initialized (enabled: {}, max size: {}, ttl: {}s, negative ttl: {}s, refresh: {}s)",
+                cacheEnabled, maximumSize, ttlSeconds, negativeTtlSeconds, refreshSeconds);
+    }
+
+    /**
+     * Check if device can send data (is verified and approved)
+     */
+    public boolean canSendData(String deviceId) {
+        if (!cacheEnabled) {
+            return fetchCanSendData(deviceId);
+        }
+        return canSendDataCache.get(deviceId);
+    }
+
+    /**
+     * Validate device authentication secret. Entries are keyed by a SHA-256 hash of the secret,
+     * the secret itself is never stored.
+     */
+    public boolean isValidAuthSecret(String deviceId, String authSecret) {
+        if (!cacheEnabled) {
+            return fetchAuthSecretValid(deviceId, authSecret);
+        }
+        return authSecretCache.get(deviceId + KEY_SEPARATOR + sha256(authSecret),
+                key -> fetchAuthSecretValid(deviceId, authSecret));
+    }
+
+    /**
+     * Drop all cached decisions for a device, e.g. after device-service changed its verification status
+     */
+    public void invalidate(String deviceId) {
+        canSendDataCache.invalidate(deviceId);
+        String prefix = deviceId + KEY_SEPARATOR;
+        authSecretCache.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+        log.info("Invalidated cached verification decisions for device: {}", deviceId);
+    }
+
+    public void invalidateAll() {
+        canSendDataCache.invalidateAll();
+        authSecretCache.invalidateAll();
+        log.info("Invalidated all cached device verification decisions");
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", cacheEnabled);
+        stats.put("canSendData", describe(canSendDataCache.estimatedSize(), canSendDataCache.stats()));
+        stats.put("authSecret", describe(authSecretCache.estimatedSize(), authSecretCache.stats()));
+        return stats;
+    }
+
+    private Boolean fetchCanSendData(String deviceId) {
+        String url = deviceServiceUrl + "/api/v1/device-verification/" + deviceId + "/can-send-data";
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            Boolean result = restTemplate.getForObject(url, Boolean.class);
+            outcome = "success";
+            return result != null && result;
+        } catch (HttpClientErrorException e) {
+            // Unknown or malformed device IDs are a definitive answer, not an outage
+            outcome = "rejected";
+            log.warn("Device service rejected can-send-data lookup for device {}: {}", deviceId, e.getStatusCode());
+            return false;
+        } finally {
+            sample.stop(remoteCallTimer("can-send-data", outcome));
+        }
+    }
+
+    private Boolean fetchAuthSecretValid(String deviceId, String authSecret) {
+        String url = deviceServiceUrl + "/api/v1/device-verification/validate-auth";
+        String requestUrl = url + "?deviceId=" + deviceId + "&authSecret=" + authSecret;
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            Boolean result = restTemplate.postForObject(requestUrl, null, Boolean.class);
+            outcome = "success";
+            return result != null && result;
+        } catch (HttpClientErrorException e) {
+            outcome = "rejected";
+            log.warn("Device service rejected auth validation for device {}: {}", deviceId, e.getStatusCode());
+            return false;
+        } finally {
+            sample.stop(remoteCallTimer("validate-auth", outcome));
+        }
+    }
+
+    private Timer remoteCallTimer(String operation, String outcome) {
+        return Timer.builder("smartwatts.device_verification.remote")
+                .description("Latency of device-service verification calls made on cache misses and refreshes")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private Expiry<String, Boolean> decisionExpiry() {
+        return new Expiry<>() {
+            @Override
+            public long expireAfterCreate(String key, Boolean allowed, long currentTime) {
+                return TimeUnit.SECONDS.toNanos(Boolean.TRUE.equals(allowed) ? ttlSeconds : negativeTtlSeconds);
+            }
+
+            @Override
+            public long expireAfterUpdate(String key, Boolean allowed, long currentTime, long currentDuration) {
+                return expireAfterCreate(key, allowed, currentTime);
+            }
+
+            @Override
+            public long expireAfterRead(String key, Boolean allowed, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+        };
+    }
+
+    private Map<String, Object> describe(long size, CacheStats cacheStats) {
+        Map<String, Object> description = new HashMap<>();
+        description.put("size", size);
+        description.put("hits", cacheStats.hitCount());
+        description.put("misses", cacheStats.missCount());
+        description.put("hitRate", cacheStats.hitRate());
+        description.put("loadFailures", cacheStats.loadFailureCount());
+        description.put("evictions", cacheStats.evictionCount());
+        return description;
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
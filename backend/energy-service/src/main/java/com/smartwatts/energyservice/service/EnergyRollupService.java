@@ -0,0 +1,382 @@
+package com.smartwatts.energyservice.service;
+
+import com.smartwatts.energyservice.model.EnergyConsumption;
+import com.smartwatts.energyservice.model.EnergyReading;
+import com.smartwatts.energyservice.repository.EnergyConsumptionRepository;
+import com.smartwatts.energyservice.repository.EnergyReadingRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Maintains per-device MINUTE, QUARTER_HOUR, HOUR and DAY rollups in {@code energy_consumption}
+ * ({@code is_rollup = true}) incrementally as readings are ingested.
+ *
+ * Each committed reading is added to an in-memory delta for every bucket it falls into. Deltas are
+ * flushed periodically by merging them into the stored bucket under a row lock, so the cost of a
+ * flush depends on the number of active buckets, not on the number of readings. Bucket totals are
+ * additive, which makes late data self-correcting: a reading that arrives hours late is merged into
+ * its historical buckets like any other. Deltas not yet flushed when the process dies are lost;
+ * {@link #rebuild} recomputes a range from raw readings for that case and after raw data is corrected.
+ *
+ * A rebuild replaces stored buckets with totals read from raw readings, so a delta for a reading the
+ * rebuild already counted must not be applied afterwards, whichever instance holds it. Each device and
+ * day has a rebuild generation in {@code rollup_rebuilds}, guarded by a transaction-scoped advisory
+ * lock: the transaction storing a reading takes it shared and tags the delta with the current
+ * generation, and a rebuild takes it exclusively and moves to the next generation. A rebuild therefore
+ * counts exactly the readings of older generations, and a flush, which reads the generation under the
+ * shared lock, drops their deltas. Only ingest and flushes for the day being rebuilt wait for it.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EnergyRollupService {
+
+    private final EnergyConsumptionRepository energyConsumptionRepository;
+    private final EnergyReadingRepository energyReadingRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${energy.rollup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${energy.rollup.flush-chunk-size:500}")
+    private int flushChunkSize;
+
+    @Value("${energy.rollup.late-threshold-minutes:5}")
+    private long lateThresholdMinutes;
+
+    private static final ResultSetExtractor<Void> IGNORE_RESULT = resultSet -> null;
+
+    private final Map<BucketKey, PendingBucket> pending = new ConcurrentHashMap<>();
+    private final Object guardedDaysKey = new Object();
+
+    private Timer flushTimer;
+    private Counter flushFailures;
+    private Counter lateReadings;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("smartwatts.rollups.pending_buckets", pending, Map::size)
+                .description("Rollup buckets with deltas waiting to be flushed")
+                .register(meterRegistry);
+        flushTimer = Timer.builder("smartwatts.rollups.flush")
+                .description("Time to merge pending rollup deltas into stored buckets")
+                .register(meterRegistry);
+        flushFailures = Counter.builder("smartwatts.rollups.flush.failures")
+                .description("Rollup flush chunks that failed and were kept for the next flush")
+                .register(meterRegistry);
+        lateReadings = Counter.builder("smartwatts.rollups.late_readings")
+                .description("Readings merged into buckets older than the late threshold")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Add a persisted reading to the pending rollup deltas. Call it in the transaction that stores the
+     * reading: the reading is then only counted after commit, and a rebuild of its day waits until the
+     * transaction has completed. Outside a transaction the reading is counted at once, and may be
+     * counted twice if its day is being rebuilt at the same moment.
+     */
+    public void record(EnergyReading reading) {
+        if (!enabled || reading.getReadingTimestamp() == null) {
+            return;
+        }
+        long generation = guardDay(RollupDay.of(reading));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accumulate(reading, generation);
+                }
+            });
+        } else {
+            accumulate(reading, generation);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${energy.rollup.flush-interval-ms:5000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        flushTimer.record(this::flushPending);
+    }
+
+    private void flushPending() {
+        // remove() is atomic with the compute() in accumulate, so no delta is lost or applied twice
+        List<Map.Entry<BucketKey, PendingBucket>> drained = new ArrayList<>(pending.size());
+        for (BucketKey key : pending.keySet()) {
+            PendingBucket bucket = pending.remove(key);
+            if (bucket != null) {
+                drained.add(Map.entry(key, bucket));
+            }
+        }
+        for (int from = 0; from < drained.size(); from += flushChunkSize) {
+            List<Map.Entry<BucketKey, PendingBucket>> chunk =
+                    drained.subList(from, Math.min(from + flushChunkSize, drained.size()));
+            try {
+                transactionTemplate.executeWithoutResult(status -> applyChunk(chunk));
+            } catch (RuntimeException e) {
+                // Put the deltas back; they are merged with anything recorded meanwhile and retried
+                flushFailures.increment();
+                log.warn("Failed to flush {} rollup buckets, keeping them for the next flush: {}", chunk.size(), e.getMessage());
+                chunk.forEach(entry -> pending.merge(entry.getKey(), entry.getValue(), PendingBucket::merge));
+            }
+        }
+    }
+
+    private void applyChunk(List<Map.Entry<BucketKey, PendingBucket>> chunk) {
+        Map<RollupDay, Long> generations = new HashMap<>();
+        for (Map.Entry<BucketKey, PendingBucket> entry : chunk) {
+            BucketKey key = entry.getKey();
+            long generation = generations.computeIfAbsent(key.day(), this::lockDayShared);
+            // A rebuild since the reading was stored has already counted it
+            if (key.generation() < generation) {
+                continue;
+            }
+            applyDelta(key, entry.getValue());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * Recompute all rollup levels for one device from raw readings. The range is widened to whole
+     * days so that every affected DAY bucket is rebuilt completely. Each day is rebuilt in its own
+     * transaction, during which ingestion for that device and day waits.
+     *
+     * @return number of raw readings that were rolled up
+     */
+    public long rebuild(UUID userId, String deviceId, LocalDateTime from, LocalDateTime to) {
+        LocalDateTime rangeStart = RollupLevel.DAY.floor(from);
+        LocalDateTime rangeEnd = RollupLevel.DAY.ceil(to);
+
+        long total = 0;
+        for (LocalDateTime day = rangeStart; day.isBefore(rangeEnd); day = day.plusDays(1)) {
+            LocalDateTime dayStart = day;
+            Long rebuilt = transactionTemplate.execute(status -> rebuildDay(userId, deviceId, dayStart));
+            total += rebuilt != null ? rebuilt : 0;
+        }
+        log.info("Rebuilt rollups for user: {}, device: {}, {} to {} from {} readings",
+                userId, deviceId, rangeStart, rangeEnd, total);
+        return total;
+    }
+
+    private long rebuildDay(UUID userId, String deviceId, LocalDateTime dayStart) {
+        LocalDateTime dayEnd = dayStart.plusDays(1);
+        RollupDay day = new RollupDay(userId, deviceId, dayStart.toLocalDate());
+        long generation = lockDayExclusive(day);
+
+        Map<BucketKey, PendingBucket> buckets = new HashMap<>();
+        long count = 0;
+        try (Stream<EnergyReadingRepository.ReadingAggregateRow> rows = energyReadingRepository.streamAggregateRows(
+                userId, deviceId, dayStart, dayEnd)) {
+            Iterator<EnergyReadingRepository.ReadingAggregateRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                EnergyReadingRepository.ReadingAggregateRow row = iterator.next();
+                // streamAggregateRows includes the end bound, which belongs to the next day
+                if (!row.getReadingTimestamp().isBefore(dayEnd)) {
+                    continue;
+                }
+                for (RollupLevel level : RollupLevel.values()) {
+                    buckets.computeIfAbsent(new BucketKey(userId, deviceId, level, level.floor(row.getReadingTimestamp()), generation),
+                                    key -> new PendingBucket(row.getSourceType()))
+                            .aggregator.accept(row.getEnergyConsumed(), row.getPower(), row.getQualityScore());
+                }
+                count++;
+            }
+        }
+
+        // Stored buckets are overwritten in place, so readers never see the day without its rollups
+        Map<Map.Entry<EnergyConsumption.PeriodType, LocalDateTime>, EnergyConsumption> stored = new HashMap<>();
+        for (EnergyConsumption rollup : energyConsumptionRepository.findRollupsForUpdate(userId, deviceId, dayStart, dayEnd)) {
+            stored.put(Map.entry(rollup.getPeriodType(), rollup.getPeriodStart()), rollup);
+        }
+        List<EnergyConsumption> rollups = new ArrayList<>(buckets.size());
+        buckets.forEach((key, bucket) -> {
+            EnergyConsumption rollup = stored.remove(Map.entry(key.level().getPeriodType(), key.periodStart()));
+            if (rollup == null) {
+                rollup = newRollup(key, bucket.sourceType);
+            }
+            writeTotals(rollup, bucket.aggregator);
+            rollups.add(rollup);
+        });
+        energyConsumptionRepository.saveAll(rollups);
+        // Buckets whose readings have all been removed since they were last written
+        energyConsumptionRepository.deleteAll(stored.values());
+        return count;
+    }
+
+    /**
+     * Generation of a day's rollups, holding the day's shared lock until the current transaction ends
+     * so that a rebuild of the day cannot start before the transaction's readings are committed
+     */
+    private long guardDay(RollupDay day) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return readGeneration(day);
+        }
+        @SuppressWarnings("unchecked")
+        Map<RollupDay, Long> guardedDays = (Map<RollupDay, Long>) TransactionSynchronizationManager.getResource(guardedDaysKey);
+        if (guardedDays == null) {
+            Map<RollupDay, Long> transactionDays = new HashMap<>();
+            TransactionSynchronizationManager.bindResource(guardedDaysKey, transactionDays);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(guardedDaysKey);
+                }
+            });
+            guardedDays = transactionDays;
+        }
+        return guardedDays.computeIfAbsent(day, this::lockDayShared);
+    }
+
+    private long lockDayShared(RollupDay day) {
+        jdbcTemplate.query("SELECT pg_advisory_xact_lock_shared(hashtextextended(?, 0))", IGNORE_RESULT, day.lockName());
+        // A separate statement, so its snapshot is taken after a rebuild holding the lock has committed
+        return readGeneration(day);
+    }
+
+    /**
+     * Wait for ingest and flushes of the day to finish, keep new ones out until the current
+     * transaction ends, and move the day to its next generation
+     */
+    private long lockDayExclusive(RollupDay day) {
+        jdbcTemplate.query("SELECT pg_advisory_xact_lock(hashtextextended(?, 0))", IGNORE_RESULT, day.lockName());
+        jdbcTemplate.update("INSERT INTO rollup_rebuilds (user_id, device_id, day, generation) VALUES (?, ?, ?, 1) " +
+                        "ON CONFLICT (user_id, device_id, day) DO UPDATE " +
+                        "SET generation = rollup_rebuilds.generation + 1, rebuilt_at = CURRENT_TIMESTAMP",
+                day.userId(), day.deviceId(), Date.valueOf(day.day()));
+        return readGeneration(day);
+    }
+
+    private long readGeneration(RollupDay day) {
+        List<Long> generation = jdbcTemplate.queryForList(
+                "SELECT generation FROM rollup_rebuilds WHERE user_id = ? AND device_id = ? AND day = ?",
+                Long.class, day.userId(), day.deviceId(), Date.valueOf(day.day()));
+        return generation.isEmpty() ? 0 : generation.get(0);
+    }
+
+    private void accumulate(EnergyReading reading, long generation) {
+        LocalDateTime timestamp = reading.getReadingTimestamp();
+        if (timestamp.isBefore(LocalDateTime.now().minusMinutes(lateThresholdMinutes))) {
+            lateReadings.increment();
+        }
+        for (RollupLevel level : RollupLevel.values()) {
+            BucketKey key = new BucketKey(reading.getUserId(), reading.getDeviceId(), level, level.floor(timestamp), generation);
+            pending.compute(key, (k, bucket) -> {
+                PendingBucket target = bucket != null ? bucket : new PendingBucket(reading.getSourceType());
+                target.aggregator.accept(reading.getEnergyConsumed(), reading.getPower(), reading.getQualityScore());
+                return target;
+            });
+        }
+    }
+
+    private void applyDelta(BucketKey key, PendingBucket delta) {
+        EnergyConsumption rollup = energyConsumptionRepository.findRollupForUpdate(
+                        key.userId(), key.deviceId(), key.level().getPeriodType(), key.periodStart())
+                .orElse(null);
+        ReadingAggregator merged;
+        if (rollup == null) {
+            rollup = newRollup(key, delta.sourceType);
+            merged = delta.aggregator;
+        } else {
+            merged = ReadingAggregator.fromTotals(
+                    rollup.getReadingCount() != null ? rollup.getReadingCount() : 0,
+                    rollup.getTotalEnergy(), rollup.getPowerSum(), rollup.getPeakPower(),
+                    rollup.getMinimumPower(), rollup.getQualitySum()).merge(delta.aggregator);
+        }
+        writeTotals(rollup, merged);
+        energyConsumptionRepository.save(rollup);
+    }
+
+    private EnergyConsumption newRollup(BucketKey key, EnergyReading.EnergySource sourceType) {
+        EnergyConsumption rollup = new EnergyConsumption();
+        rollup.setUserId(key.userId());
+        rollup.setDeviceId(key.deviceId());
+        rollup.setPeriodType(key.level().getPeriodType());
+        rollup.setPeriodStart(key.periodStart());
+        rollup.setPeriodEnd(key.periodStart().plus(key.level().getWidth()));
+        if (sourceType != null) {
+            rollup.setSourceType(EnergyConsumption.EnergySource.valueOf(sourceType.name()));
+        }
+        rollup.setIsRollup(true);
+        return rollup;
+    }
+
+    private void writeTotals(EnergyConsumption rollup, ReadingAggregator totals) {
+        rollup.setReadingCount(Math.toIntExact(totals.getCount()));
+        rollup.setTotalEnergy(totals.getTotalEnergy());
+        rollup.setPowerSum(totals.getPowerSum());
+        // Null rather than zero when there was no power value, so later merges keep peak/min correct
+        rollup.setPeakPower(totals.hasPower() ? totals.getPeakPower() : null);
+        rollup.setMinimumPower(totals.hasPower() ? totals.getMinimumPower() : null);
+        rollup.setAveragePower(totals.getAveragePower());
+        rollup.setQualitySum(totals.getQualitySum());
+        rollup.setQualityScore(totals.getAverageQualityScore());
+    }
+
+    /**
+     * A rollup bucket's deltas; those stored before and after a rebuild of its day are kept apart
+     */
+    private record BucketKey(UUID userId, String deviceId, RollupLevel level, LocalDateTime periodStart, long generation) {
+
+        private RollupDay day() {
+            return new RollupDay(userId, deviceId, periodStart.toLocalDate());
+        }
+    }
+
+    private record RollupDay(UUID userId, String deviceId, LocalDate day) {
+
+        private static RollupDay of(EnergyReading reading) {
+            return new RollupDay(reading.getUserId(), reading.getDeviceId(), reading.getReadingTimestamp().toLocalDate());
+        }
+
+        private String lockName() {
+            return "rollup:" + userId + ":" + deviceId + ":" + day;
+        }
+    }
+
+    private static final class PendingBucket {
+        private final EnergyReading.EnergySource sourceType;
+        private final ReadingAggregator aggregator = new ReadingAggregator();
+
+        private PendingBucket(EnergyReading.EnergySource sourceType) {
+            this.sourceType = sourceType;
+        }
+
+        private PendingBucket merge(PendingBucket other) {
+            aggregator.merge(other.aggregator);
+            return this;
+        }
+    }
+}
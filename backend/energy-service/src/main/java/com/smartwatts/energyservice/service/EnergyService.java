@@ -3,24 +3,37 @@ package com.smartwatts.energyservice.service;
 import com.smartwatts.energyservice.dto.EnergyReadingDto;
 import com.smartwatts.energyservice.dto.EnergyConsumptionDto;
 import com.smartwatts.energyservice.dto.EnergyAlertDto;
+import com.smartwatts.energyservice.dto.EnergyReadingBatchResultDto;
+import com.smartwatts.energyservice.dto.ConsumptionSummaryDto;
+import com.smartwatts.energyservice.exception.DeviceNotVerifiedException;
+import com.smartwatts.energyservice.exception.InvalidDeviceAuthException;
+import com.smartwatts.energyservice.exception.ReadingBatchTooLargeException;
 import com.smartwatts.energyservice.model.EnergyReading;
 import com.smartwatts.energyservice.model.EnergyConsumption;
 import com.smartwatts.energyservice.model.EnergyAlert;
 import com.smartwatts.energyservice.repository.EnergyReadingRepository;
 import com.smartwatts.energyservice.repository.EnergyConsumptionRepository;
 import com.smartwatts.energyservice.repository.EnergyAlertRepository;
+import com.smartwatts.energyservice.repository.AggregateTotals;
+import com.smartwatts.energyservice.mapper.EnergyMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -30,9 +43,21 @@ public class EnergyService {
     private final EnergyReadingRepository energyReadingRepository;
     private final EnergyConsumptionRepository energyConsumptionRepository;
     private final EnergyAlertRepository energyAlertRepository;
-    private final AlertService alertService;
+    private final AlertEvaluationPipeline alertEvaluationPipeline;
+    private final ActiveAlertIndex activeAlertIndex;
+    private final EnergyRollupService energyRollupService;
+    private final LiveReadingBroadcaster liveReadingBroadcaster;
     private final DataIngestionSecurityService dataIngestionSecurityService;
     private final DiscoMonitoringService discoMonitoringService;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final Validator validator;
+    
+    @Value("${energy.ingestion.batch.max-size:5000}")
+    private int maxBatchSize;
+    
+    @Value("${energy.ingestion.batch.chunk-size:500}")
+    private int batchChunkSize;
     
     @Transactional
     public EnergyReadingDto saveEnergyReading(EnergyReadingDto readingDto) {
@@ -41,35 +66,18 @@ public class EnergyService {
         // Security validation: Check if device is verified and can send data
         dataIngestionSecurityService.validateDeviceDataIngestion(readingDto, null);
         
-        EnergyReading reading = new EnergyReading();
-        BeanUtils.copyProperties(readingDto, reading);
-        
-        // Set default values
-        if (reading.getReadingTimestamp() == null) {
-            reading.setReadingTimestamp(LocalDateTime.now());
-        }
-        if (reading.getSourceType() == null) {
-            reading.setSourceType(EnergyReading.EnergySource.GRID);
-        }
-        if (reading.getReadingType() == null) {
-            reading.setReadingType(EnergyReading.ReadingType.REAL_TIME);
-        }
-        
-        // Calculate power if not provided
-        if (reading.getPower() == null && reading.getVoltage() != null && reading.getCurrent() != null) {
-            reading.setPower(reading.getVoltage().multiply(reading.getCurrent()));
-        }
-        
-        // Calculate quality score
-        reading.setQualityScore(calculateQualityScore(reading));
+        EnergyReading reading = toNewReading(readingDto);
         
         EnergyReading savedReading = energyReadingRepository.save(reading);
         log.info("Energy reading saved with ID: {}", savedReading.getId());
         
-        // Check for alerts
-        alertService.checkForAlerts(savedReading);
+        // Alerts, rollups and live streams are updated asynchronously once this transaction commits
+        alertEvaluationPipeline.submit(savedReading);
+        energyRollupService.record(savedReading);
         
-        return convertToDto(savedReading);
+        EnergyReadingDto savedDto = convertToDto(savedReading);
+        liveReadingBroadcaster.publish(savedDto);
+        return savedDto;
     }
     
     /**
@@ -95,6 +103,116 @@ public class EnergyService {
         return saveEnergyReading(readingDto);
     }
     
+    /**
+     * Save a batch of energy readings.
+     * Readings are validated as a group (bean validation per item, device verification once per
+     * distinct device) and persisted in chunks so Hibernate can send multi-row JDBC inserts.
+     * Each chunk commits in its own transaction; if a chunk fails its readings are retried one by one
+     * so a single bad row does not reject its neighbours. Results are returned per item in request order.
+     * Readings are checked without an auth secret, so with secret validation enabled use the variant that
+     * takes the device secrets.
+     */
+    public EnergyReadingBatchResultDto saveEnergyReadingsBatch(List<EnergyReadingDto> readingDtos) {
+        return saveEnergyReadingsBatch(readingDtos, Collections.emptyMap());
+    }
+    
+    /**
+     * Save a batch of energy readings, validating each device against its auth secret
+     *
+     * @param deviceAuthSecrets auth secret by device ID; devices without one are checked without a secret
+     */
+    public EnergyReadingBatchResultDto saveEnergyReadingsBatch(List<EnergyReadingDto> readingDtos,
+                                                               Map<String, String> deviceAuthSecrets) {
+        if (readingDtos.size() > maxBatchSize) {
+            throw new ReadingBatchTooLargeException("Batch of " + readingDtos.size()
+                    + " readings exceeds the maximum of " + maxBatchSize);
+        }
+        log.info("Saving batch of {} energy readings", readingDtos.size());
+        
+        EnergyReadingBatchResultDto.ItemResult[] results = new EnergyReadingBatchResultDto.ItemResult[readingDtos.size()];
+        List<Integer> validIndexes = new ArrayList<>(readingDtos.size());
+        
+        // Step 1: Bean validation per reading
+        for (int i = 0; i < readingDtos.size(); i++) {
+            EnergyReadingDto readingDto = readingDtos.get(i);
+            if (readingDto == null) {
+                results[i] = rejectedItem(i, null, EnergyReadingBatchResultDto.ItemStatus.INVALID, "Reading is required", false);
+                continue;
+            }
+            Set<ConstraintViolation<EnergyReadingDto>> violations = validator.validate(readingDto);
+            if (!violations.isEmpty()) {
+                String error = violations.stream()
+                        .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining("; "));
+                results[i] = rejectedItem(i, readingDto, EnergyReadingBatchResultDto.ItemStatus.INVALID, error, false);
+            } else {
+                validIndexes.add(i);
+            }
+        }
+        
+        // Step 2: Security validation once per distinct device in the batch
+        Map<String, RuntimeException> deviceRejections = new HashMap<>();
+        List<Integer> acceptedIndexes = new ArrayList<>(validIndexes.size());
+        for (Integer index : validIndexes) {
+            EnergyReadingDto readingDto = readingDtos.get(index);
+            String deviceId = readingDto.getDeviceId();
+            if (!deviceRejections.containsKey(deviceId)) {
+                try {
+                    dataIngestionSecurityService.validateDeviceDataIngestion(readingDto, deviceAuthSecrets.get(deviceId));
+                    deviceRejections.put(deviceId, null);
+                } catch (DeviceNotVerifiedException | InvalidDeviceAuthException e) {
+                    deviceRejections.put(deviceId, e);
+                }
+            }
+            RuntimeException rejection = deviceRejections.get(deviceId);
+            if (rejection != null) {
+                // Unverified devices may be approved later; bad credentials will not fix themselves
+                results[index] = rejectedItem(index, readingDto, EnergyReadingBatchResultDto.ItemStatus.DEVICE_REJECTED,
+                        rejection.getMessage(), rejection instanceof DeviceNotVerifiedException);
+            } else {
+                acceptedIndexes.add(index);
+            }
+        }
+        
+        // Step 3: Skip readings stored before, e.g. by a resend after the response to this batch was lost
+        acceptedIndexes = skipStoredReadings(readingDtos, acceptedIndexes, results);
+        
+        // Step 4: Persist in chunks
+        List<EnergyReading> savedReadings = new ArrayList<>(acceptedIndexes.size());
+        int chunkSize = Math.max(1, batchChunkSize);
+        for (int from = 0; from < acceptedIndexes.size(); from += chunkSize) {
+            List<Integer> chunkIndexes = acceptedIndexes.subList(from, Math.min(from + chunkSize, acceptedIndexes.size()));
+            List<EnergyReading> chunk = new ArrayList<>(chunkIndexes.size());
+            for (Integer index : chunkIndexes) {
+                EnergyReading reading = toNewReading(readingDtos.get(index));
+                reading.setId(null);
+                chunk.add(reading);
+            }
+            persistReadingChunk(chunkIndexes, chunk, results, savedReadings);
+        }
+        
+        // Step 5: Hand the persisted readings to alert evaluation and live streams; rollups were
+        // recorded in the transaction that stored each reading
+        savedReadings.forEach(alertEvaluationPipeline::submit);
+        savedReadings.stream()
+                .filter(reading -> liveReadingBroadcaster.hasSubscribers(reading.getUserId()))
+                .map(this::convertToDto)
+                .forEach(liveReadingBroadcaster::publish);
+        
+        int accepted = (int) Arrays.stream(results)
+                .filter(result -> result.getStatus() == EnergyReadingBatchResultDto.ItemStatus.ACCEPTED)
+                .count();
+        log.info("Energy reading batch processed: {} accepted, {} rejected", accepted, readingDtos.size() - accepted);
+        
+        return EnergyReadingBatchResultDto.builder()
+                .received(readingDtos.size())
+                .accepted(accepted)
+                .rejected(readingDtos.size() - accepted)
+                .results(Arrays.asList(results))
+                .build();
+    }
+    
     @Transactional(readOnly = true)
     public Page<EnergyReadingDto> getAllEnergyReadings(Pageable pageable) {
         log.info("Fetching all energy readings");
@@ -131,10 +249,22 @@ public class EnergyService {
         log.info("Aggregating energy consumption for user: {}, device: {}, period: {} to {}", 
                 userId, deviceId, periodStart, periodEnd);
         
-        List<EnergyReading> readings = energyReadingRepository.findByUserIdAndDeviceIdAndReadingTimestampBetween(
-                userId, deviceId, periodStart, periodEnd);
+        // Single pass over a streamed projection; no entities or per-row BigDecimals are kept in memory
+        ReadingAggregator aggregator = new ReadingAggregator();
+        EnergyReading.EnergySource sourceType = null;
+        try (Stream<EnergyReadingRepository.ReadingAggregateRow> rows = energyReadingRepository.streamAggregateRows(
+                userId, deviceId, periodStart, periodEnd)) {
+            Iterator<EnergyReadingRepository.ReadingAggregateRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                EnergyReadingRepository.ReadingAggregateRow row = iterator.next();
+                if (sourceType == null) {
+                    sourceType = row.getSourceType();
+                }
+                aggregator.accept(row.getEnergyConsumed(), row.getPower(), row.getQualityScore());
+            }
+        }
         
-        if (readings.isEmpty()) {
+        if (aggregator.isEmpty()) {
             throw new RuntimeException("No energy readings found for the specified period");
         }
         
@@ -144,45 +274,16 @@ public class EnergyService {
         consumption.setPeriodType(periodType);
         consumption.setPeriodStart(periodStart);
         consumption.setPeriodEnd(periodEnd);
-        consumption.setSourceType(EnergyConsumption.EnergySource.valueOf(readings.get(0).getSourceType().name()));
-        
-        // Calculate aggregated values
-        BigDecimal totalEnergy = readings.stream()
-                .map(EnergyReading::getEnergyConsumed)
-                .filter(energy -> energy != null)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        BigDecimal peakPower = readings.stream()
-                .map(EnergyReading::getPower)
-                .filter(power -> power != null)
-                .max(BigDecimal::compareTo)
-                .orElse(BigDecimal.ZERO);
-        
-        BigDecimal averagePower = readings.stream()
-                .map(EnergyReading::getPower)
-                .filter(power -> power != null)
-                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                .divide(BigDecimal.valueOf(readings.size()), 2, RoundingMode.HALF_UP);
-        
-        BigDecimal minimumPower = readings.stream()
-                .map(EnergyReading::getPower)
-                .filter(power -> power != null)
-                .min(BigDecimal::compareTo)
-                .orElse(BigDecimal.ZERO);
-        
-        consumption.setTotalEnergy(totalEnergy);
-        consumption.setPeakPower(peakPower);
-        consumption.setAveragePower(averagePower);
-        consumption.setMinimumPower(minimumPower);
-        consumption.setReadingCount(readings.size());
+        if (sourceType != null) {
+            consumption.setSourceType(EnergyConsumption.EnergySource.valueOf(sourceType.name()));
+        }
         
-        // Calculate quality score
-        BigDecimal avgQualityScore = readings.stream()
-                .map(EnergyReading::getQualityScore)
-                .filter(score -> score != null)
-                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                .divide(BigDecimal.valueOf(readings.size()), 2, RoundingMode.HALF_UP);
-        consumption.setQualityScore(avgQualityScore);
+        consumption.setTotalEnergy(aggregator.getTotalEnergy());
+        consumption.setPeakPower(aggregator.getPeakPower());
+        consumption.setAveragePower(aggregator.getAveragePower());
+        consumption.setMinimumPower(aggregator.getMinimumPower());
+        consumption.setReadingCount(Math.toIntExact(aggregator.getCount()));
+        consumption.setQualityScore(aggregator.getAverageQualityScore());
         
         EnergyConsumption savedConsumption = energyConsumptionRepository.save(consumption);
         log.info("Energy consumption aggregated and saved with ID: {}", savedConsumption.getId());
@@ -193,17 +294,112 @@ public class EnergyService {
     @Transactional(readOnly = true)
     public Page<EnergyConsumptionDto> getEnergyConsumptionByUserId(UUID userId, Pageable pageable) {
         log.info("Fetching energy consumption for user: {}", userId);
-        Page<EnergyConsumption> consumption = energyConsumptionRepository.findByUserId(userId, pageable);
+        Page<EnergyConsumption> consumption = energyConsumptionRepository.findByUserIdAndIsRollupFalse(userId, pageable);
         return consumption.map(this::convertToDto);
     }
     
     @Transactional(readOnly = true)
     public List<EnergyConsumptionDto> getEnergyConsumptionByUserIdAndTimeRange(UUID userId, LocalDateTime startTime, LocalDateTime endTime) {
         log.info("Fetching energy consumption for user: {} between {} and {}", userId, startTime, endTime);
-        List<EnergyConsumption> consumption = energyConsumptionRepository.findByUserIdAndPeriodStartBetween(userId, startTime, endTime);
+        List<EnergyConsumption> consumption = energyConsumptionRepository.findByUserIdAndIsRollupFalseAndPeriodStartBetween(userId, startTime, endTime);
         return consumption.stream().map(this::convertToDto).toList();
     }
     
+    /**
+     * Consumption totals for [startTime, endTime) of one device, or of all the user's devices when
+     * deviceId is null. The range is answered from the coarsest rollup buckets that fit inside it,
+     * with finer buckets at the edges and raw readings only for partial minutes.
+     */
+    @Transactional(readOnly = true)
+    public ConsumptionSummaryDto getConsumptionSummary(UUID userId, String deviceId, LocalDateTime startTime, LocalDateTime endTime) {
+        log.info("Fetching consumption summary for user: {}, device: {} between {} and {}", userId, deviceId, startTime, endTime);
+        if (!startTime.isBefore(endTime)) {
+            throw new IllegalArgumentException("Start time must be before end time");
+        }
+        
+        List<ConsumptionSummaryDto.Segment> segments = new ArrayList<>();
+        planRollupSegments(startTime, endTime, RollupLevel.values().length - 1, segments);
+        
+        ReadingAggregator totals = new ReadingAggregator();
+        for (ConsumptionSummaryDto.Segment segment : segments) {
+            AggregateTotals segmentTotals = segment.getPeriodType() == null
+                    ? energyReadingRepository.sumReadings(userId, deviceId, segment.getFrom(), segment.getTo())
+                    : energyConsumptionRepository.sumRollups(userId, deviceId, segment.getPeriodType(), segment.getFrom(), segment.getTo());
+            if (segmentTotals != null && segmentTotals.getReadingCount() != null) {
+                totals.merge(ReadingAggregator.fromTotals(segmentTotals.getReadingCount(), segmentTotals.getTotalEnergy(),
+                        segmentTotals.getPowerSum(), segmentTotals.getPeakPower(), segmentTotals.getMinimumPower(),
+                        segmentTotals.getQualitySum()));
+            }
+        }
+        
+        return ConsumptionSummaryDto.builder()
+                .userId(userId)
+                .deviceId(deviceId)
+                .periodStart(startTime)
+                .periodEnd(endTime)
+                .totalEnergy(totals.getTotalEnergy())
+                .peakPower(totals.getPeakPower())
+                .averagePower(totals.getAveragePower())
+                .minimumPower(totals.getMinimumPower())
+                .readingCount(totals.getCount())
+                .qualityScore(totals.getAverageQualityScore())
+                .segments(segments)
+                .build();
+    }
+    
+    /**
+     * Consumption time series for charts. Uses the finest rollup level that yields at most
+     * maxPoints buckets for the range, falling back to daily buckets.
+     */
+    @Transactional(readOnly = true)
+    public List<EnergyConsumptionDto> getConsumptionSeries(UUID userId, String deviceId, LocalDateTime startTime,
+                                                           LocalDateTime endTime, int maxPoints) {
+        RollupLevel level = RollupLevel.DAY;
+        for (RollupLevel candidate : RollupLevel.values()) {
+            if (candidate.bucketsBetween(startTime, endTime) <= maxPoints) {
+                level = candidate;
+                break;
+            }
+        }
+        log.info("Fetching {} consumption series for user: {}, device: {} between {} and {}",
+                level, userId, deviceId, startTime, endTime);
+        
+        List<EnergyConsumption> rollups = energyConsumptionRepository.findRollups(
+                userId, deviceId, level.getPeriodType(), level.floor(startTime), endTime);
+        if (deviceId != null) {
+            return rollups.stream().map(this::convertToDto).toList();
+        }
+        
+        // Combine the buckets of all devices into one series
+        Map<LocalDateTime, ReadingAggregator> byPeriod = new TreeMap<>();
+        for (EnergyConsumption rollup : rollups) {
+            byPeriod.computeIfAbsent(rollup.getPeriodStart(), start -> new ReadingAggregator())
+                    .merge(ReadingAggregator.fromTotals(rollup.getReadingCount() != null ? rollup.getReadingCount() : 0,
+                            rollup.getTotalEnergy(), rollup.getPowerSum(), rollup.getPeakPower(),
+                            rollup.getMinimumPower(), rollup.getQualitySum()));
+        }
+        RollupLevel seriesLevel = level;
+        return byPeriod.entrySet().stream()
+                .map(entry -> EnergyConsumptionDto.builder()
+                        .userId(userId)
+                        .periodType(seriesLevel.getPeriodType())
+                        .periodStart(entry.getKey())
+                        .periodEnd(entry.getKey().plus(seriesLevel.getWidth()))
+                        .totalEnergy(entry.getValue().getTotalEnergy())
+                        .peakPower(entry.getValue().getPeakPower())
+                        .averagePower(entry.getValue().getAveragePower())
+                        .minimumPower(entry.getValue().getMinimumPower())
+                        .readingCount(Math.toIntExact(entry.getValue().getCount()))
+                        .qualityScore(entry.getValue().getAverageQualityScore())
+                        .build())
+                .toList();
+    }
+    
+    public long rebuildRollups(UUID userId, String deviceId, LocalDateTime startTime, LocalDateTime endTime) {
+        log.info("Rebuilding rollups for user: {}, device: {} between {} and {}", userId, deviceId, startTime, endTime);
+        return energyRollupService.rebuild(userId, deviceId, startTime, endTime);
+    }
+    
     @Transactional(readOnly = true)
     public EnergyAlertDto getEnergyAlertById(UUID alertId) {
         log.info("Fetching energy alert with ID: {}", alertId);
@@ -230,6 +426,7 @@ public class EnergyService {
         alert.setAcknowledgedBy(acknowledgedBy);
         
         EnergyAlert savedAlert = energyAlertRepository.save(alert);
+        activeAlertIndex.record(savedAlert);
         return convertToDto(savedAlert);
     }
     
@@ -245,6 +442,7 @@ public class EnergyService {
         alert.setResolutionNotes(resolutionNotes);
         
         EnergyAlert savedAlert = energyAlertRepository.save(alert);
+        activeAlertIndex.record(savedAlert);
         return convertToDto(savedAlert);
     }
     
@@ -258,6 +456,194 @@ public class EnergyService {
         return energyAlertRepository.countUnresolvedAlertsByUserId(userId);
     }
     
+    /**
+     * Split [start, end) into the fewest aligned rollup segments: the coarsest level covers the
+     * aligned middle and the unaligned edges are split recursively with finer levels. Whatever is
+     * left below one minute is read from raw readings.
+     */
+    private void planRollupSegments(LocalDateTime start, LocalDateTime end, int levelIndex,
+                                    List<ConsumptionSummaryDto.Segment> segments) {
+        if (!start.isBefore(end)) {
+            return;
+        }
+        if (levelIndex < 0) {
+            segments.add(new ConsumptionSummaryDto.Segment(null, start, end));
+            return;
+        }
+        RollupLevel level = RollupLevel.values()[levelIndex];
+        LocalDateTime alignedStart = level.ceil(start);
+        LocalDateTime alignedEnd = level.floor(end);
+        if (!alignedStart.isBefore(alignedEnd)) {
+            planRollupSegments(start, end, levelIndex - 1, segments);
+            return;
+        }
+        planRollupSegments(start, alignedStart, levelIndex - 1, segments);
+        segments.add(new ConsumptionSummaryDto.Segment(level.getPeriodType(), alignedStart, alignedEnd));
+        planRollupSegments(alignedEnd, end, levelIndex - 1, segments);
+    }
+    
+    private void persistReadingChunk(List<Integer> chunkIndexes, List<EnergyReading> chunk,
+                                     EnergyReadingBatchResultDto.ItemResult[] results, List<EnergyReading> savedReadings) {
+        try {
+            List<EnergyReading> saved = transactionTemplate.execute(status -> {
+                List<EnergyReading> persisted = energyReadingRepository.saveAll(chunk);
+                entityManager.flush();
+                entityManager.clear();
+                persisted.forEach(energyRollupService::record);
+                return persisted;
+            });
+            for (int i = 0; i < chunkIndexes.size(); i++) {
+                EnergyReading reading = saved.get(i);
+                results[chunkIndexes.get(i)] = acceptedItem(chunkIndexes.get(i), reading);
+                savedReadings.add(reading);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Batch insert of {} readings failed, retrying individually: {}", chunk.size(), e.getMessage());
+            for (int i = 0; i < chunkIndexes.size(); i++) {
+                int index = chunkIndexes.get(i);
+                EnergyReading reading = chunk.get(i);
+                reading.setId(null);
+                try {
+                    EnergyReading saved = transactionTemplate.execute(status -> {
+                        EnergyReading persisted = energyReadingRepository.save(reading);
+                        energyRollupService.record(persisted);
+                        return persisted;
+                    });
+                    results[index] = acceptedItem(index, saved);
+                    savedReadings.add(saved);
+                } catch (RuntimeException itemError) {
+                    // A concurrent resend of the same reading may have won the unique source ID
+                    EnergyReading stored = findStoredReading(reading);
+                    if (stored != null) {
+                        results[index] = acceptedItem(index, stored);
+                        continue;
+                    }
+                    log.error("Failed to save reading {} of batch for device: {}", index, reading.getDeviceId(), itemError);
+                    results[index] = EnergyReadingBatchResultDto.ItemResult.builder()
+                            .index(index)
+                            .status(EnergyReadingBatchResultDto.ItemStatus.FAILED)
+                            .deviceId(reading.getDeviceId())
+                            .readingTimestamp(reading.getReadingTimestamp())
+                            .error("Failed to persist reading")
+                            .retryable(true)
+                            .build();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Report readings whose sender ID is already stored, or repeated within the batch, as accepted
+     * without storing them again
+     *
+     * @return the indexes still to be persisted
+     */
+    private List<Integer> skipStoredReadings(List<EnergyReadingDto> readingDtos, List<Integer> indexes,
+                                             EnergyReadingBatchResultDto.ItemResult[] results) {
+        Map<UUID, Integer> bySourceId = new HashMap<>();
+        LocalDateTime from = null;
+        LocalDateTime to = null;
+        for (Integer index : indexes) {
+            EnergyReadingDto readingDto = readingDtos.get(index);
+            if (readingDto.getSourceReadingId() != null
+                    && bySourceId.putIfAbsent(readingDto.getSourceReadingId(), index) == null) {
+                LocalDateTime timestamp = readingDto.getReadingTimestamp();
+                from = from == null || timestamp.isBefore(from) ? timestamp : from;
+                to = to == null || timestamp.isAfter(to) ? timestamp : to;
+            }
+        }
+        if (bySourceId.isEmpty()) {
+            return indexes;
+        }
+        
+        Map<UUID, EnergyReading> stored = new HashMap<>();
+        energyReadingRepository.findBySourceReadingIds(bySourceId.keySet(), from, to)
+                .forEach(reading -> stored.put(reading.getSourceReadingId(), reading));
+        List<Integer> remaining = new ArrayList<>(indexes.size());
+        for (Integer index : indexes) {
+            EnergyReadingDto readingDto = readingDtos.get(index);
+            UUID sourceId = readingDto.getSourceReadingId();
+            if (sourceId != null && stored.containsKey(sourceId)) {
+                results[index] = acceptedItem(index, stored.get(sourceId));
+            } else if (sourceId != null && !bySourceId.get(sourceId).equals(index)) {
+                results[index] = EnergyReadingBatchResultDto.ItemResult.builder()
+                        .index(index)
+                        .status(EnergyReadingBatchResultDto.ItemStatus.ACCEPTED)
+                        .deviceId(readingDto.getDeviceId())
+                        .readingTimestamp(readingDto.getReadingTimestamp())
+                        .build();
+            } else {
+                remaining.add(index);
+            }
+        }
+        if (remaining.size() < indexes.size()) {
+            log.info("Skipped {} readings of the batch that were already stored", indexes.size() - remaining.size());
+        }
+        return remaining;
+    }
+    
+    private EnergyReading findStoredReading(EnergyReading reading) {
+        if (reading.getSourceReadingId() == null) {
+            return null;
+        }
+        try {
+            return energyReadingRepository.findBySourceReadingIds(List.of(reading.getSourceReadingId()),
+                    reading.getReadingTimestamp(), reading.getReadingTimestamp()).stream().findFirst().orElse(null);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+    
+    private EnergyReadingBatchResultDto.ItemResult acceptedItem(int index, EnergyReading reading) {
+        return EnergyReadingBatchResultDto.ItemResult.builder()
+                .index(index)
+                .status(EnergyReadingBatchResultDto.ItemStatus.ACCEPTED)
+                .id(reading.getId())
+                .deviceId(reading.getDeviceId())
+                .readingTimestamp(reading.getReadingTimestamp())
+                .build();
+    }
+    
+    private EnergyReadingBatchResultDto.ItemResult rejectedItem(int index, EnergyReadingDto readingDto,
+                                                               EnergyReadingBatchResultDto.ItemStatus status,
+                                                               String error, boolean retryable) {
+        return EnergyReadingBatchResultDto.ItemResult.builder()
+                .index(index)
+                .status(status)
+                .deviceId(readingDto != null ? readingDto.getDeviceId() : null)
+                .readingTimestamp(readingDto != null ? readingDto.getReadingTimestamp() : null)
+                .error(error)
+                .retryable(retryable)
+                .build();
+    }
+    
+    private EnergyReading toNewReading(EnergyReadingDto readingDto) {
+        EnergyReading reading = EnergyMapper.INSTANCE.toEntity(readingDto);
+        
+        // Set default values
+        if (reading.getReadingTimestamp() == null) {
+            reading.setReadingTimestamp(LocalDateTime.now());
+        }
+        if (reading.getSourceType() == null) {
+            reading.setSourceType(EnergyReading.EnergySource.GRID);
+        }
+        if (reading.getReadingType() == null) {
+            reading.setReadingType(EnergyReading.ReadingType.REAL_TIME);
+        }
+        // Processing state is owned by the alert pipeline, not by the client
+        reading.setIsProcessed(false);
+        reading.setProcessingTimestamp(null);
+        
+        // Calculate power if not provided
+        if (reading.getPower() == null && reading.getVoltage() != null && reading.getCurrent() != null) {
+            reading.setPower(reading.getVoltage().multiply(reading.getCurrent()));
+        }
+        
+        // Calculate quality score
+        reading.setQualityScore(calculateQualityScore(reading));
+        return reading;
+    }
+    
     private BigDecimal calculateQualityScore(EnergyReading reading) {
         // Simple quality score calculation based on data completeness
         int score = 0;
@@ -292,21 +678,15 @@ public class EnergyService {
     }
     
     private EnergyReadingDto convertToDto(EnergyReading reading) {
-        EnergyReadingDto dto = new EnergyReadingDto();
-        BeanUtils.copyProperties(reading, dto);
-        return dto;
+        return EnergyMapper.INSTANCE.toDto(reading);
     }
     
     private EnergyConsumptionDto convertToDto(EnergyConsumption consumption) {
-        EnergyConsumptionDto dto = new EnergyConsumptionDto();
-        BeanUtils.copyProperties(consumption, dto);
-        return dto;
+        return EnergyMapper.INSTANCE.toDto(consumption);
     }
     
     private EnergyAlertDto convertToDto(EnergyAlert alert) {
-        EnergyAlertDto dto = new EnergyAlertDto();
-        BeanUtils.copyProperties(alert, dto);
-        return dto;
+        return EnergyMapper.INSTANCE.toDto(alert);
     }
     
     public Map<String, Object> getPowerQuality() {
@@ -0,0 +1,378 @@
+package com.smartwatts.energyservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartwatts.energyservice.dto.EnergyReadingDto;
+import com.smartwatts.energyservice.exception.LiveStreamLimitExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes accepted readings to dashboards over server-sent events.
+ *
+ * Readings are serialized once and offered to every matching subscription of their user. Each
+ * subscription has a bounded buffer with its own overflow policy and is drained by a small shared
+ * dispatcher pool, at most one drain per subscription at a time, so a slow client only ever delays
+ * itself. Publishing never blocks ingestion and costs nothing when the user has no subscribers.
+ * After readings were dropped, the client receives an {@code overflow} event with the number lost
+ * and can re-fetch the gap from the REST API.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LiveReadingBroadcaster {
+
+    public enum OverflowPolicy {
+        /** Discard the oldest buffered reading to make room */
+        DROP_OLDEST,
+        /** Discard the incoming reading */
+        DROP_NEWEST,
+        /** Keep only the latest buffered reading per device */
+        CONFLATE
+    }
+
+    private static final String READING_EVENT = "reading";
+    private static final String OVERFLOW_EVENT = "overflow";
+
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${energy.live.buffer-size:256}")
+    private int bufferSize;
+
+    @Value("${energy.live.max-subscribers:10000}")
+    private int maxSubscribers;
+
+    @Value("${energy.live.max-subscribers-per-user:20}")
+    private int maxSubscribersPerUser;
+
+    @Value("${energy.live.dispatch-threads:4}")
+    private int dispatchThreads;
+
+    @Value("${energy.live.drain-batch-size:64}")
+    private int drainBatchSize;
+
+    @Value("${energy.live.emitter-timeout-ms:1800000}")
+    private long emitterTimeoutMs;
+
+    private final Map<UUID, Set<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    private ExecutorService dispatcher;
+    private Counter delivered;
+    private Counter dropped;
+    private Counter conflated;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        dispatcher = Executors.newFixedThreadPool(dispatchThreads, runnable -> {
+            Thread thread = new Thread(runnable, "live-readings-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("smartwatts.live.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Open live reading streams")
+                .register(meterRegistry);
+        delivered = Counter.builder("smartwatts.live.delivered")
+                .description("Readings sent to live stream subscribers")
+                .register(meterRegistry);
+        dropped = Counter.builder("smartwatts.live.dropped")
+                .description("Readings discarded because a subscriber's buffer was full")
+                .register(meterRegistry);
+        conflated = Counter.builder("smartwatts.live.conflated")
+                .description("Buffered readings replaced by a newer reading of the same device")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscriptions.values().forEach(set -> set.forEach(subscription -> subscription.emitter.complete()));
+        dispatcher.shutdown();
+        try {
+            dispatcher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Open a live stream of a user's readings, optionally restricted to one device
+     */
+    public SseEmitter subscribe(UUID userId, String deviceId, OverflowPolicy policy) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        register(userId, deviceId, policy, emitter);
+        return emitter;
+    }
+
+    Subscription register(UUID userId, String deviceId, OverflowPolicy policy, SseEmitter emitter) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new LiveStreamLimitExceededException("Live stream capacity of " + maxSubscribers + " subscribers reached");
+        }
+        Subscription subscription = new Subscription(userId, deviceId, policy, emitter);
+        AtomicBoolean admitted = new AtomicBoolean();
+        subscriptions.compute(userId, (key, set) -> {
+            Set<Subscription> target = set != null ? set : ConcurrentHashMap.newKeySet();
+            if (target.size() < maxSubscribersPerUser) {
+                target.add(subscription);
+                admitted.set(true);
+            }
+            return target;
+        });
+        if (!admitted.get()) {
+            subscriberCount.decrementAndGet();
+            throw new LiveStreamLimitExceededException("User " + userId + " already has " + maxSubscribersPerUser + " live streams");
+        }
+        emitter.onCompletion(() -> unregister(subscription));
+        emitter.onTimeout(() -> unregister(subscription));
+        emitter.onError(error -> unregister(subscription));
+        log.debug("Live stream opened for user: {}, device: {}, policy: {}", userId, deviceId, policy);
+        return subscription;
+    }
+
+    public boolean hasSubscribers(UUID userId) {
+        return userId != null && subscriptions.containsKey(userId);
+    }
+
+    /**
+     * Fan a persisted reading out to its user's subscribers. Inside a transaction the reading is only
+     * published after commit.
+     */
+    public void publish(EnergyReadingDto reading) {
+        if (!hasSubscribers(reading.getUserId())) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    fanOut(reading);
+                }
+            });
+        } else {
+            fanOut(reading);
+        }
+    }
+
+    /**
+     * Comment line on every stream so proxies keep idle connections open and dead clients are noticed
+     */
+    @Scheduled(fixedDelayString = "${energy.live.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        subscriptions.values().forEach(set -> set.forEach(Subscription::requestHeartbeat));
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("subscribers", subscriberCount.get());
+        stats.put("users", subscriptions.size());
+        stats.put("delivered", (long) delivered.count());
+        stats.put("dropped", (long) dropped.count());
+        stats.put("conflated", (long) conflated.count());
+        return stats;
+    }
+
+    private void fanOut(EnergyReadingDto reading) {
+        Set<Subscription> targets = subscriptions.get(reading.getUserId());
+        if (targets == null) {
+            return;
+        }
+        LiveEvent event = null;
+        for (Subscription subscription : targets) {
+            if (subscription.deviceId != null && !subscription.deviceId.equals(reading.getDeviceId())) {
+                continue;
+            }
+            if (event == null) {
+                // Serialized once per reading, however many dashboards receive it
+                event = toEvent(reading);
+                if (event == null) {
+                    return;
+                }
+            }
+            subscription.offer(event);
+        }
+    }
+
+    private LiveEvent toEvent(EnergyReadingDto reading) {
+        try {
+            return new LiveEvent(reading.getId() != null ? reading.getId().toString() : null,
+                    reading.getDeviceId(), objectMapper.writeValueAsString(reading));
+        } catch (JsonProcessingException e) {
+            log.warn("Failed to serialize reading {} for live streams: {}", reading.getId(), e.getMessage());
+            return null;
+        }
+    }
+
+    private void unregister(Subscription subscription) {
+        if (!subscription.closed.compareAndSet(false, true)) {
+            return;
+        }
+        subscriptions.computeIfPresent(subscription.userId, (key, set) -> {
+            set.remove(subscription);
+            return set.isEmpty() ? null : set;
+        });
+        subscriberCount.decrementAndGet();
+        log.debug("Live stream closed for user: {}, device: {}", subscription.userId, subscription.deviceId);
+    }
+
+    private record LiveEvent(String id, String deviceId, String json) {
+    }
+
+    final class Subscription {
+        private final UUID userId;
+        private final String deviceId;
+        private final OverflowPolicy policy;
+        private final SseEmitter emitter;
+        private final ArrayDeque<LiveEvent> queue = new ArrayDeque<>();
+        private final LinkedHashMap<String, LiveEvent> latestByDevice = new LinkedHashMap<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile boolean heartbeatDue;
+        private long droppedSinceSend;
+
+        private Subscription(UUID userId, String deviceId, OverflowPolicy policy, SseEmitter emitter) {
+            this.userId = userId;
+            this.deviceId = deviceId;
+            this.policy = policy;
+            this.emitter = emitter;
+        }
+
+        private void offer(LiveEvent event) {
+            synchronized (this) {
+                switch (policy) {
+                    case DROP_OLDEST -> {
+                        if (queue.size() >= bufferSize) {
+                            queue.pollFirst();
+                            recordDrop();
+                        }
+                        queue.addLast(event);
+                    }
+                    case DROP_NEWEST -> {
+                        if (queue.size() >= bufferSize) {
+                            recordDrop();
+                        } else {
+                            queue.addLast(event);
+                        }
+                    }
+                    case CONFLATE -> {
+                        String key = event.deviceId() != null ? event.deviceId() : "";
+                        if (latestByDevice.containsKey(key)) {
+                            conflated.increment();
+                        } else if (latestByDevice.size() >= bufferSize) {
+                            Iterator<String> eldest = latestByDevice.keySet().iterator();
+                            eldest.next();
+                            eldest.remove();
+                            recordDrop();
+                        }
+                        latestByDevice.put(key, event);
+                    }
+                }
+            }
+            schedule();
+        }
+
+        private void requestHeartbeat() {
+            heartbeatDue = true;
+            schedule();
+        }
+
+        private void recordDrop() {
+            droppedSinceSend++;
+            dropped.increment();
+        }
+
+        private void schedule() {
+            if (closed.get() || !scheduled.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                dispatcher.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);
+            }
+        }
+
+        private void drain() {
+            try {
+                List<LiveEvent> batch = new ArrayList<>(drainBatchSize);
+                long lost;
+                synchronized (this) {
+                    for (int i = 0; i < drainBatchSize && !queue.isEmpty(); i++) {
+                        batch.add(queue.pollFirst());
+                    }
+                    Iterator<LiveEvent> latest = latestByDevice.values().iterator();
+                    while (batch.size() < drainBatchSize && latest.hasNext()) {
+                        batch.add(latest.next());
+                        latest.remove();
+                    }
+                    lost = droppedSinceSend;
+                    droppedSinceSend = 0;
+                }
+                if (lost > 0) {
+                    emitter.send(SseEmitter.event().name(OVERFLOW_EVENT)
+                            .data("{\"dropped\":" + lost + "}", MediaType.APPLICATION_JSON));
+                }
+                for (LiveEvent event : batch) {
+                    SseEmitter.SseEventBuilder builder = SseEmitter.event().name(READING_EVENT)
+                            .data(event.json(), MediaType.APPLICATION_JSON);
+                    if (event.id() != null) {
+                        builder.id(event.id());
+                    }
+                    emitter.send(builder);
+                    delivered.increment();
+                }
+                if (heartbeatDue) {
+                    heartbeatDue = false;
+                    if (batch.isEmpty() && lost == 0) {
+                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client went away or the emitter already completed
+                log.debug("Closing live stream for user {}: {}", userId, e.getMessage());
+                emitter.completeWithError(e);
+                unregister(this);
+                return;
+            } finally {
+                scheduled.set(false);
+            }
+            if (hasPending()) {
+                schedule();
+            }
+        }
+
+        private synchronized boolean hasPending() {
+            return !queue.isEmpty() || !latestByDevice.isEmpty() || droppedSinceSend > 0 || heartbeatDue;
+        }
+    }
+}
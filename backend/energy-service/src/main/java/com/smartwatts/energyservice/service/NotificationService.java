@@ -8,15 +8,25 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.BooleanSupplier;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class NotificationService {
     
+    public static final String CHANNEL_EMAIL = "EMAIL";
+    public static final String CHANNEL_SMS = "SMS";
+    public static final String CHANNEL_PUSH = "PUSH";
+    public static final String CHANNEL_WEBHOOK = "WEBHOOK";
+    
     private final RestTemplate restTemplate;
     
     @Value("${smartwatts.notifications.email.enabled:true}")
@@ -50,38 +60,63 @@ public class NotificationService {
         log.info("Sending notification for alert ID: {} to user: {}", alert.getId(), alert.getUserId());
         
         try {
-            // Send email notification
-            if (emailNotificationsEnabled) {
-                sendEmailNotification(alert);
-            }
-            
-            // Send SMS notification for critical alerts
-            if (smsNotificationsEnabled && alert.getSeverity() == EnergyAlert.Severity.CRITICAL) {
-                sendSmsNotification(alert);
-            }
-            
-            // Send push notification
-            if (pushNotificationsEnabled) {
-                sendPushNotification(alert);
-            }
-            
-            // Send webhook notification
-            if (webhookNotificationsEnabled && !webhookUrl.isEmpty()) {
-                sendWebhookNotification(alert);
+            List<String> failedChannels = deliverAlertNotification(alert, new HashSet<>());
+            if (failedChannels.isEmpty()) {
+                log.info("Successfully sent notification for alert ID: {}", alert.getId());
             }
-            
-            log.info("Successfully sent notification for alert ID: {}", alert.getId());
-            
         } catch (Exception e) {
             log.error("Failed to send notification for alert ID: {}", alert.getId(), e);
             // Don't throw exception to avoid breaking the alert creation process
         }
     }
     
+    /**
+     * Deliver an alert over every enabled channel that is not yet in {@code deliveredChannels}.
+     * Channels that succeed are added to {@code deliveredChannels}; the channels that failed are
+     * returned so the caller can retry just those later.
+     */
+    public List<String> deliverAlertNotification(EnergyAlert alert, Set<String> deliveredChannels) {
+        List<String> failedChannels = new ArrayList<>();
+        
+        // Send email notification
+        if (emailNotificationsEnabled) {
+            deliverChannel(CHANNEL_EMAIL, () -> sendEmailNotification(alert), deliveredChannels, failedChannels);
+        }
+        
+        // Send SMS notification for critical alerts
+        if (smsNotificationsEnabled && alert.getSeverity() == EnergyAlert.Severity.CRITICAL) {
+            deliverChannel(CHANNEL_SMS, () -> sendSmsNotification(alert), deliveredChannels, failedChannels);
+        }
+        
+        // Send push notification
+        if (pushNotificationsEnabled) {
+            deliverChannel(CHANNEL_PUSH, () -> sendPushNotification(alert), deliveredChannels, failedChannels);
+        }
+        
+        // Send webhook notification
+        if (webhookNotificationsEnabled && !webhookUrl.isEmpty()) {
+            deliverChannel(CHANNEL_WEBHOOK, () -> sendWebhookNotification(alert), deliveredChannels, failedChannels);
+        }
+        
+        return failedChannels;
+    }
+    
+    private void deliverChannel(String channel, BooleanSupplier sender,
+                                Set<String> deliveredChannels, List<String> failedChannels) {
+        if (deliveredChannels.contains(channel)) {
+            return;
+        }
+        if (sender.getAsBoolean()) {
+            deliveredChannels.add(channel);
+        } else {
+            failedChannels.add(channel);
+        }
+    }
+    
     /**
      * Send email notification
      */
-    private void sendEmailNotification(EnergyAlert alert) {
+    private boolean sendEmailNotification(EnergyAlert alert) {
         try {
             Map<String, Object> emailData = new HashMap<>();
             emailData.put("userId", alert.getUserId());
@@ -101,16 +136,18 @@ public class NotificationService {
             // Call email service
             restTemplate.postForObject(emailServiceUrl + "/api/v1/emails/send", emailData, String.class);
             log.debug("Email notification sent for alert ID: {}", alert.getId());
+            return true;
             
         } catch (Exception e) {
             log.error("Failed to send email notification for alert ID: {}", alert.getId(), e);
+            return false;
         }
     }
     
     /**
      * Send SMS notification
      */
-    private void sendSmsNotification(EnergyAlert alert) {
+    private boolean sendSmsNotification(EnergyAlert alert) {
         try {
             Map<String, Object> smsData = new HashMap<>();
             smsData.put("userId", alert.getUserId());
@@ -120,16 +157,18 @@ public class NotificationService {
             // Call SMS service
             restTemplate.postForObject(smsServiceUrl + "/api/v1/sms/send", smsData, String.class);
             log.debug("SMS notification sent for alert ID: {}", alert.getId());
+            return true;
             
         } catch (Exception e) {
             log.error("Failed to send SMS notification for alert ID: {}", alert.getId(), e);
+            return false;
         }
     }
     
     /**
      * Send push notification
      */
-    private void sendPushNotification(EnergyAlert alert) {
+    private boolean sendPushNotification(EnergyAlert alert) {
         try {
             Map<String, Object> pushData = new HashMap<>();
             pushData.put("userId", alert.getUserId());
@@ -145,16 +184,18 @@ public class NotificationService {
             // Call push notification service
             restTemplate.postForObject(pushServiceUrl + "/api/v1/push/send", pushData, String.class);
             log.debug("Push notification sent for alert ID: {}", alert.getId());
+            return true;
             
         } catch (Exception e) {
             log.error("Failed to send push notification for alert ID: {}", alert.getId(), e);
+            return false;
         }
     }
     
     /**
      * Send webhook notification
      */
-    private void sendWebhookNotification(EnergyAlert alert) {
+    private boolean sendWebhookNotification(EnergyAlert alert) {
         try {
             Map<String, Object> webhookData = new HashMap<>();
             webhookData.put("event", "energy_alert");
@@ -175,9 +216,11 @@ public class NotificationService {
             // Send webhook
             restTemplate.postForObject(webhookUrl, webhookData, String.class);
             log.debug("Webhook notification sent for alert ID: {}", alert.getId());
+            return true;
             
         } catch (Exception e) {
             log.error("Failed to send webhook notification for alert ID: {}", alert.getId(), e);
+            return false;
         }
     }
     
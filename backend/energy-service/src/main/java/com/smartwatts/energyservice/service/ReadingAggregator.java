@@ -0,0 +1,142 @@
+package com.smartwatts.energyservice.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Single-pass accumulator for energy reading statistics.
+ *
+ * Values are accumulated as fixed-point {@code long}s at the column scale of {@code energy_readings}
+ * (energy: 4 decimals, power and quality score: 2 decimals), so sums are exact and identical to
+ * {@link BigDecimal} arithmetic while no object is allocated per reading. {@link BigDecimal} results
+ * are only materialized when requested.
+ *
+ * Averages divide by the total reading count, including readings without a power or quality value.
+ * Instances are not thread-safe; combine per-thread aggregators with {@link #merge}.
+ */
+public final class ReadingAggregator {
+
+    public static final int ENERGY_SCALE = 4;
+    public static final int POWER_SCALE = 2;
+    public static final int QUALITY_SCALE = 2;
+
+    private static final double ENERGY_FACTOR = 10_000d;
+    private static final double POWER_FACTOR = 100d;
+    private static final double QUALITY_FACTOR = 100d;
+
+    private long count;
+    private long energyUnits;
+    private long powerUnits;
+    private boolean hasPower;
+    private long peakPowerUnits = Long.MIN_VALUE;
+    private long minimumPowerUnits = Long.MAX_VALUE;
+    private long qualityUnits;
+
+    /**
+     * Add one reading. Null values are skipped for the corresponding statistic but the reading
+     * still counts towards the total.
+     */
+    public void accept(Double energyConsumed, Double power, Double qualityScore) {
+        count++;
+        if (energyConsumed != null) {
+            energyUnits += Math.round(energyConsumed * ENERGY_FACTOR);
+        }
+        if (power != null) {
+            long units = Math.round(power * POWER_FACTOR);
+            powerUnits += units;
+            hasPower = true;
+            peakPowerUnits = Math.max(peakPowerUnits, units);
+            minimumPowerUnits = Math.min(minimumPowerUnits, units);
+        }
+        if (qualityScore != null) {
+            qualityUnits += Math.round(qualityScore * QUALITY_FACTOR);
+        }
+    }
+
+    public void accept(BigDecimal energyConsumed, BigDecimal power, BigDecimal qualityScore) {
+        accept(energyConsumed != null ? energyConsumed.doubleValue() : null,
+                power != null ? power.doubleValue() : null,
+                qualityScore != null ? qualityScore.doubleValue() : null);
+    }
+
+    /**
+     * Rebuild an aggregator from previously materialized totals, e.g. a stored rollup bucket or a
+     * SQL aggregate. A null peak power means the totals contain no power values.
+     */
+    public static ReadingAggregator fromTotals(long count, BigDecimal totalEnergy, BigDecimal powerSum,
+                                               BigDecimal peakPower, BigDecimal minimumPower, BigDecimal qualitySum) {
+        ReadingAggregator aggregator = new ReadingAggregator();
+        aggregator.count = count;
+        aggregator.energyUnits = toUnits(totalEnergy, ENERGY_SCALE);
+        aggregator.powerUnits = toUnits(powerSum, POWER_SCALE);
+        aggregator.qualityUnits = toUnits(qualitySum, QUALITY_SCALE);
+        if (peakPower != null) {
+            aggregator.hasPower = true;
+            aggregator.peakPowerUnits = toUnits(peakPower, POWER_SCALE);
+            aggregator.minimumPowerUnits = toUnits(minimumPower != null ? minimumPower : peakPower, POWER_SCALE);
+        }
+        return aggregator;
+    }
+
+    public ReadingAggregator merge(ReadingAggregator other) {
+        count += other.count;
+        energyUnits += other.energyUnits;
+        powerUnits += other.powerUnits;
+        hasPower |= other.hasPower;
+        peakPowerUnits = Math.max(peakPowerUnits, other.peakPowerUnits);
+        minimumPowerUnits = Math.min(minimumPowerUnits, other.minimumPowerUnits);
+        qualityUnits += other.qualityUnits;
+        return this;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public boolean hasPower() {
+        return hasPower;
+    }
+
+    public BigDecimal getTotalEnergy() {
+        return BigDecimal.valueOf(energyUnits, ENERGY_SCALE);
+    }
+
+    public BigDecimal getPeakPower() {
+        return !hasPower ? BigDecimal.ZERO : BigDecimal.valueOf(peakPowerUnits, POWER_SCALE);
+    }
+
+    public BigDecimal getMinimumPower() {
+        return !hasPower ? BigDecimal.ZERO : BigDecimal.valueOf(minimumPowerUnits, POWER_SCALE);
+    }
+
+    public BigDecimal getPowerSum() {
+        return BigDecimal.valueOf(powerUnits, POWER_SCALE);
+    }
+
+    public BigDecimal getQualitySum() {
+        return BigDecimal.valueOf(qualityUnits, QUALITY_SCALE);
+    }
+
+    public BigDecimal getAveragePower() {
+        return average(powerUnits, POWER_SCALE);
+    }
+
+    public BigDecimal getAverageQualityScore() {
+        return average(qualityUnits, QUALITY_SCALE);
+    }
+
+    private static long toUnits(BigDecimal value, int scale) {
+        return value == null ? 0 : value.setScale(scale, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private BigDecimal average(long units, int scale) {
+        if (count == 0) {
+            return BigDecimal.ZERO;
+        }
+        return BigDecimal.valueOf(units, scale).divide(BigDecimal.valueOf(count), 2, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,309 @@
+package com.smartwatts.energyservice.service;
+
+import com.smartwatts.energyservice.archive.ReadingArchiveReader;
+import com.smartwatts.energyservice.archive.ReadingArchiveWriter;
+import com.smartwatts.energyservice.dto.EnergyReadingDto;
+import com.smartwatts.energyservice.model.EnergyReading;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Exports closed months of {@code energy_readings} to columnar archive files and serves range
+ * queries over them without touching the database.
+ *
+ * A scheduled job exports every closed month within {@code lookback-months} that has no archive yet.
+ * Each month is read from a single repeatable-read snapshot and the written file is verified
+ * (checksum and row count) before it replaces any previous archive of that month. Readings that
+ * arrive for a month after it was exported are not picked up automatically; re-export the month
+ * through {@link #exportMonth} after a backfill.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReadingArchiveService {
+
+    private static final String FILE_PREFIX = "energy_readings_";
+    private static final String FILE_SUFFIX = ".swra";
+    private static final DateTimeFormatter FILE_MONTH = DateTimeFormatter.ofPattern("uuuu_MM");
+
+    private static final String EXPORT_QUERY =
+            "SELECT id, user_id, device_id, meter_number, reading_timestamp, voltage, current, power, " +
+            "energy_consumed, frequency, power_factor, source_type, reading_type, quality_score, is_processed, " +
+            "processing_timestamp, raw_data, created_at, updated_at FROM energy_readings " +
+            "WHERE reading_timestamp >= ? AND reading_timestamp < ? ORDER BY user_id, device_id, reading_timestamp";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${energy.archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${energy.archive.directory:./data/archive}")
+    private String directory;
+
+    @Value("${energy.archive.export-after-months:1}")
+    private int exportAfterMonths;
+
+    @Value("${energy.archive.lookback-months:12}")
+    private int lookbackMonths;
+
+    @Value("${energy.archive.fetch-size:5000}")
+    private int fetchSize;
+
+    private TransactionTemplate snapshotTemplate;
+
+    @PostConstruct
+    public void init() {
+        snapshotTemplate = new TransactionTemplate(transactionManager);
+        snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        snapshotTemplate.setReadOnly(true);
+    }
+
+    @Scheduled(cron = "${energy.archive.export-cron:0 45 2 * * *}")
+    public void scheduledExport() {
+        if (enabled) {
+            exportPendingMonths();
+        }
+    }
+
+    /**
+     * Export closed months in the lookback window that have no archive yet
+     */
+    public synchronized List<YearMonth> exportPendingMonths() {
+        List<YearMonth> exported = new ArrayList<>();
+        YearMonth newest = YearMonth.now().minusMonths(exportAfterMonths);
+        for (YearMonth month = newest.minusMonths(lookbackMonths - 1L); !month.isAfter(newest); month = month.plusMonths(1)) {
+            if (Files.exists(archivePath(month))) {
+                continue;
+            }
+            try {
+                if (exportMonth(month) > 0) {
+                    exported.add(month);
+                }
+            } catch (RuntimeException e) {
+                // Retried on the next run; the previous archive (if any) is left untouched
+                log.error("Failed to export readings of {} to the archive", month, e);
+            }
+        }
+        return exported;
+    }
+
+    /**
+     * Write (or rewrite) the archive of one closed month
+     *
+     * @return number of archived readings; 0 if the month has no readings, in which case no file is written
+     */
+    public synchronized long exportMonth(YearMonth month) {
+        if (!month.isBefore(YearMonth.now())) {
+            throw new IllegalArgumentException("Only closed months can be archived: " + month);
+        }
+        LocalDateTime start = month.atDay(1).atStartOfDay();
+        LocalDateTime end = month.plusMonths(1).atDay(1).atStartOfDay();
+        Path target = archivePath(month);
+        long startedAt = System.currentTimeMillis();
+
+        Long rows = snapshotTemplate.execute(status -> {
+            Long expected = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM energy_readings WHERE reading_timestamp >= ? AND reading_timestamp < ?",
+                    Long.class, start, end);
+            if (expected == null || expected == 0) {
+                return 0L;
+            }
+            try (ReadingArchiveWriter writer = ReadingArchiveWriter.create(target, month)) {
+                jdbcTemplate.query(connection -> {
+                    PreparedStatement statement = connection.prepareStatement(EXPORT_QUERY,
+                            ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    // A fetch size makes the driver stream the month instead of loading it at once
+                    statement.setFetchSize(fetchSize);
+                    statement.setTimestamp(1, Timestamp.valueOf(start));
+                    statement.setTimestamp(2, Timestamp.valueOf(end));
+                    return statement;
+                }, resultSet -> {
+                    try {
+                        writer.append(mapRow(resultSet));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                if (writer.getRowCount() != expected) {
+                    throw new IllegalStateException("Exported " + writer.getRowCount() + " readings of " + month +
+                            " but the snapshot holds " + expected);
+                }
+                writer.finish();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write archive " + target, e);
+            }
+            verify(target, expected);
+            return expected;
+        });
+
+        long archived = rows != null ? rows : 0;
+        if (archived > 0) {
+            log.info("Archived {} readings of {} to {} ({} bytes) in {} ms", archived, month, target,
+                    sizeOf(target), System.currentTimeMillis() - startedAt);
+        }
+        return archived;
+    }
+
+    /**
+     * Archived readings of a user in {@code [from, to)}, optionally for one device, ordered by month,
+     * then device, then timestamp. Archive files are opened lazily as the stream reaches their month;
+     * the stream must be closed to release them.
+     */
+    public Stream<EnergyReadingDto> readArchived(UUID userId, String deviceId, LocalDateTime from, LocalDateTime to) {
+        YearMonth first = YearMonth.from(from);
+        YearMonth last = YearMonth.from(to.minusNanos(1));
+        List<Path> files = new ArrayList<>();
+        for (YearMonth month = first; !month.isAfter(last); month = month.plusMonths(1)) {
+            Path path = archivePath(month);
+            if (Files.exists(path)) {
+                files.add(path);
+            }
+        }
+        List<ReadingArchiveReader> opened = new ArrayList<>();
+        return files.stream()
+                .flatMap(path -> {
+                    ReadingArchiveReader reader = open(path);
+                    opened.add(reader);
+                    return reader.read(userId, deviceId, from, to);
+                })
+                .onClose(() -> opened.forEach(this::closeQuietly));
+    }
+
+    /**
+     * Archived months with file size and row count
+     */
+    public List<Map<String, Object>> listArchives() {
+        List<Map<String, Object>> archives = new ArrayList<>();
+        Path root = Paths.get(directory);
+        if (!Files.isDirectory(root)) {
+            return archives;
+        }
+        try (Stream<Path> files = Files.list(root)) {
+            for (Path path : files.sorted().toList()) {
+                YearMonth month = archiveMonth(path.getFileName().toString());
+                if (month == null) {
+                    continue;
+                }
+                try (ReadingArchiveReader reader = ReadingArchiveReader.open(path)) {
+                    Map<String, Object> archive = new LinkedHashMap<>();
+                    archive.put("month", month.toString());
+                    archive.put("rows", reader.getRowCount());
+                    archive.put("bytes", Files.size(path));
+                    archives.add(archive);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list archives in " + root, e);
+        }
+        return archives;
+    }
+
+    Path archivePath(YearMonth month) {
+        return Paths.get(directory).resolve(FILE_PREFIX + month.format(FILE_MONTH) + FILE_SUFFIX);
+    }
+
+    /**
+     * Month of an archive file name, or null for other files (including unfinished temp files)
+     */
+    static YearMonth archiveMonth(String fileName) {
+        if (!fileName.startsWith(FILE_PREFIX) || !fileName.endsWith(FILE_SUFFIX)) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(fileName.substring(FILE_PREFIX.length(), fileName.length() - FILE_SUFFIX.length()),
+                    FILE_MONTH);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private void verify(Path target, long expected) {
+        try (ReadingArchiveReader reader = ReadingArchiveReader.open(target)) {
+            if (!reader.verify() || reader.getRowCount() != expected) {
+                throw new IllegalStateException("Archive " + target + " failed verification");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to verify archive " + target, e);
+        }
+    }
+
+    private ReadingArchiveReader open(Path path) {
+        try {
+            return ReadingArchiveReader.open(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open archive " + path, e);
+        }
+    }
+
+    private void closeQuietly(ReadingArchiveReader reader) {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            log.warn("Failed to close archive reader: {}", e.getMessage());
+        }
+    }
+
+    private static long sizeOf(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static EnergyReadingDto mapRow(ResultSet rs) throws SQLException {
+        EnergyReadingDto reading = new EnergyReadingDto();
+        reading.setId(rs.getObject("id", UUID.class));
+        reading.setUserId(rs.getObject("user_id", UUID.class));
+        reading.setDeviceId(rs.getString("device_id"));
+        reading.setMeterNumber(rs.getString("meter_number"));
+        reading.setReadingTimestamp(rs.getObject("reading_timestamp", LocalDateTime.class));
+        reading.setVoltage(rs.getBigDecimal("voltage"));
+        reading.setCurrent(rs.getBigDecimal("current"));
+        reading.setPower(rs.getBigDecimal("power"));
+        reading.setEnergyConsumed(rs.getBigDecimal("energy_consumed"));
+        reading.setFrequency(rs.getBigDecimal("frequency"));
+        reading.setPowerFactor(rs.getBigDecimal("power_factor"));
+        String sourceType = rs.getString("source_type");
+        reading.setSourceType(sourceType != null ? EnergyReading.EnergySource.valueOf(sourceType) : null);
+        String readingType = rs.getString("reading_type");
+        reading.setReadingType(readingType != null ? EnergyReading.ReadingType.valueOf(readingType) : null);
+        reading.setQualityScore(rs.getBigDecimal("quality_score"));
+        boolean processed = rs.getBoolean("is_processed");
+        reading.setIsProcessed(rs.wasNull() ? null : processed);
+        reading.setProcessingTimestamp(rs.getObject("processing_timestamp", LocalDateTime.class));
+        reading.setRawData(rs.getString("raw_data"));
+        reading.setCreatedAt(rs.getObject("created_at", LocalDateTime.class));
+        reading.setUpdatedAt(rs.getObject("updated_at", LocalDateTime.class));
+        return reading;
+    }
+}
@@ -0,0 +1,254 @@
+package com.smartwatts.energyservice.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Maintains the monthly partitions of {@code energy_readings} (see V4 migration) and enforces
+ * {@code energy.data.retention-days}.
+ *
+ * Partitions are created {@code premake-months} ahead so new readings never land in the default
+ * partition. Partitions older than {@code archive-after-months} are frozen and, if an archive
+ * tablespace is configured, moved to it. Partitions that lie entirely before the retention cutoff
+ * are detached and dropped, which is O(1) regardless of their size. Readings that landed in the default
+ * partition are not covered by any monthly partition, so expired ones are deleted from it in batches.
+ *
+ * When {@code energy_readings} is not partitioned (e.g. a schema generated by Hibernate in local
+ * development) retention falls back to deleting expired rows in batches.
+ *
+ * Startup and scheduled runs are handed to a dedicated thread: freezing or dropping large partitions
+ * can take minutes and must neither delay application startup nor hold up the shared scheduler
+ * thread that drives the rollup flushes.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReadingPartitionManager {
+
+    private static final String PARENT_TABLE = "energy_readings";
+    private static final String PARTITION_PREFIX = PARENT_TABLE + "_";
+    private static final String DEFAULT_PARTITION = PARENT_TABLE + "_default";
+    private static final String ARCHIVED_MARKER = "archived";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("uuuu_MM");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${energy.data.partitions.enabled:true}")
+    private boolean enabled;
+
+    @Value("${energy.data.retention-days:2555}")
+    private int retentionDays;
+
+    @Value("${energy.data.partitions.premake-months:3}")
+    private int premakeMonths;
+
+    @Value("${energy.data.partitions.archive-after-months:12}")
+    private int archiveAfterMonths;
+
+    @Value("${energy.data.partitions.archive-tablespace:}")
+    private String archiveTablespace;
+
+    @Value("${energy.data.partitions.fallback-delete-batch-size:10000}")
+    private int fallbackDeleteBatchSize;
+
+    private ExecutorService maintenanceExecutor;
+
+    @PostConstruct
+    public void init() {
+        maintenanceExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reading-partitions");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // A cycle cut short by shutdown is completed by the next one
+        maintenanceExecutor.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        submitMaintenance();
+    }
+
+    @Scheduled(cron = "${energy.data.partitions.maintenance-cron:0 15 2 * * *}")
+    public void scheduledMaintenance() {
+        submitMaintenance();
+    }
+
+    /**
+     * Queue a maintenance cycle on the maintenance thread
+     */
+    public Future<Map<String, Object>> submitMaintenance() {
+        return maintenanceExecutor.submit(this::runMaintenance);
+    }
+
+    /**
+     * Run one maintenance cycle and return a summary of what was done
+     */
+    public synchronized Map<String, Object> runMaintenance() {
+        Map<String, Object> result = new HashMap<>();
+        if (!enabled) {
+            result.put("enabled", false);
+            return result;
+        }
+        try {
+            if (!isPartitioned()) {
+                long deleted = deleteExpiredRows(PARENT_TABLE);
+                result.put("partitioned", false);
+                result.put("deletedRows", deleted);
+                return result;
+            }
+            result.put("partitioned", true);
+            result.put("created", createUpcomingPartitions());
+            result.put("dropped", dropExpiredPartitions());
+            result.put("deletedDefaultRows", listPartitions().contains(DEFAULT_PARTITION)
+                    ? deleteExpiredRows(DEFAULT_PARTITION) : 0L);
+            result.put("archived", archiveOldPartitions());
+            log.info("Reading partition maintenance finished: {}", result);
+        } catch (RuntimeException e) {
+            // Maintenance is retried on the next run; ingestion keeps working through the default partition
+            log.error("Reading partition maintenance failed", e);
+            result.put("error", e.getMessage());
+        }
+        return result;
+    }
+
+    private List<String> listPartitions() {
+        return jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE i.inhparent = to_regclass(?) ORDER BY c.relname",
+                String.class, PARENT_TABLE);
+    }
+
+    private boolean isPartitioned() {
+        Boolean partitioned = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass(?))",
+                Boolean.class, PARENT_TABLE);
+        return Boolean.TRUE.equals(partitioned);
+    }
+
+    private List<String> createUpcomingPartitions() {
+        List<String> created = new ArrayList<>();
+        List<String> existing = listPartitions();
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= premakeMonths; i++) {
+            YearMonth month = current.plusMonths(i);
+            String name = partitionName(month);
+            if (!existing.contains(name)) {
+                jdbcTemplate.queryForObject("SELECT ensure_energy_readings_partition(?)", String.class,
+                        Date.valueOf(month.atDay(1)));
+                created.add(name);
+            }
+        }
+        return created;
+    }
+
+    private List<String> archiveOldPartitions() {
+        List<String> archived = new ArrayList<>();
+        YearMonth archiveBefore = YearMonth.now().minusMonths(archiveAfterMonths);
+        for (String partition : listPartitions()) {
+            YearMonth month = partitionMonth(partition);
+            if (month == null || !month.isBefore(archiveBefore) || isArchived(partition)) {
+                continue;
+            }
+            if (!archiveTablespace.isBlank()) {
+                jdbcTemplate.execute("ALTER TABLE " + quote(partition) + " SET TABLESPACE " + quote(archiveTablespace));
+            }
+            // Old months no longer change; freezing them once avoids repeated anti-wraparound vacuums
+            jdbcTemplate.execute("VACUUM (FREEZE, ANALYZE) " + quote(partition));
+            jdbcTemplate.execute("COMMENT ON TABLE " + quote(partition) + " IS '" + ARCHIVED_MARKER + "'");
+            archived.add(partition);
+        }
+        return archived;
+    }
+
+    private List<String> dropExpiredPartitions() {
+        List<String> dropped = new ArrayList<>();
+        LocalDate cutoff = LocalDate.now().minusDays(retentionDays);
+        for (String partition : listPartitions()) {
+            YearMonth month = partitionMonth(partition);
+            // Only drop months that end before the cutoff; the month containing it is kept whole
+            if (month == null || month.plusMonths(1).atDay(1).isAfter(cutoff)) {
+                continue;
+            }
+            jdbcTemplate.execute("ALTER TABLE " + PARENT_TABLE + " DETACH PARTITION " + quote(partition));
+            jdbcTemplate.execute("DROP TABLE " + quote(partition));
+            dropped.add(partition);
+            log.info("Dropped expired reading partition {} (retention: {} days)", partition, retentionDays);
+        }
+        return dropped;
+    }
+
+    /**
+     * Delete readings older than the retention cutoff from a table in batches, so no single
+     * transaction holds locks on a large share of it
+     */
+    private long deleteExpiredRows(String table) {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+        long total = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(
+                    "DELETE FROM " + quote(table) + " WHERE id IN (SELECT id FROM " + quote(table) +
+                    " WHERE reading_timestamp < ? LIMIT ?)", cutoff, fallbackDeleteBatchSize);
+            total += deleted;
+        } while (deleted == fallbackDeleteBatchSize);
+        if (total > 0) {
+            log.info("Deleted {} readings older than {} from {}", total, cutoff, table);
+        }
+        return total;
+    }
+
+    private boolean isArchived(String partition) {
+        String comment = jdbcTemplate.queryForObject(
+                "SELECT obj_description(to_regclass(?), 'pg_class')", String.class, partition);
+        return ARCHIVED_MARKER.equals(comment);
+    }
+
+    static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(PARTITION_SUFFIX);
+    }
+
+    /**
+     * Month covered by a partition, or null for the default partition and foreign tables
+     */
+    static YearMonth partitionMonth(String partition) {
+        if (!partition.startsWith(PARTITION_PREFIX)) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(partition.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static String quote(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+}
@@ -0,0 +1,57 @@
+package com.smartwatts.energyservice.service;
+
+import com.smartwatts.energyservice.model.EnergyConsumption;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Fixed-width rollup bucket sizes maintained for every device, from finest to coarsest.
+ * Buckets are aligned to local midnight.
+ */
+public enum RollupLevel {
+
+    MINUTE(EnergyConsumption.PeriodType.MINUTE, Duration.ofMinutes(1)),
+    QUARTER_HOUR(EnergyConsumption.PeriodType.QUARTER_HOUR, Duration.ofMinutes(15)),
+    HOUR(EnergyConsumption.PeriodType.HOUR, Duration.ofHours(1)),
+    DAY(EnergyConsumption.PeriodType.DAY, Duration.ofDays(1));
+
+    private final EnergyConsumption.PeriodType periodType;
+    private final Duration width;
+
+    RollupLevel(EnergyConsumption.PeriodType periodType, Duration width) {
+        this.periodType = periodType;
+        this.width = width;
+    }
+
+    public EnergyConsumption.PeriodType getPeriodType() {
+        return periodType;
+    }
+
+    public Duration getWidth() {
+        return width;
+    }
+
+    /**
+     * Start of the bucket containing the given timestamp
+     */
+    public LocalDateTime floor(LocalDateTime timestamp) {
+        LocalDateTime day = timestamp.truncatedTo(ChronoUnit.DAYS);
+        long bucketMinutes = width.toMinutes();
+        long minuteOfDay = ChronoUnit.MINUTES.between(day, timestamp);
+        return day.plusMinutes(minuteOfDay / bucketMinutes * bucketMinutes);
+    }
+
+    /**
+     * First bucket boundary at or after the given timestamp
+     */
+    public LocalDateTime ceil(LocalDateTime timestamp) {
+        LocalDateTime floor = floor(timestamp);
+        return floor.equals(timestamp) ? floor : floor.plus(width);
+    }
+
+    public long bucketsBetween(LocalDateTime start, LocalDateTime end) {
+        return ChronoUnit.MINUTES.between(floor(start), ceil(end)) / width.toMinutes();
+    }
+}
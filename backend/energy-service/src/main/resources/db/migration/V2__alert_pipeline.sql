@@ -0,0 +1,11 @@
+-- Notification delivery state for the asynchronous alert pipeline.
+-- energy_alerts rows with notification_sent = false act as the notification outbox,
+-- energy_readings rows with is_processed = false act as the alert evaluation outbox.
+ALTER TABLE energy_alerts ADD COLUMN notification_attempts INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE energy_alerts ADD COLUMN next_notification_attempt_at TIMESTAMP;
+ALTER TABLE energy_alerts ADD COLUMN last_notification_error TEXT;
+
+CREATE INDEX idx_energy_alerts_notification_due ON energy_alerts(next_notification_attempt_at)
+    WHERE notification_sent = false;
+CREATE INDEX idx_energy_readings_unprocessed ON energy_readings(created_at)
+    WHERE is_processed = false;
@@ -0,0 +1,10 @@
+-- Incremental MINUTE / QUARTER_HOUR / HOUR / DAY rollups stored in energy_consumption.
+-- power_sum and quality_sum keep buckets mergeable; averages are derived from them and reading_count.
+ALTER TABLE energy_consumption ADD COLUMN power_sum DECIMAL(18,2);
+ALTER TABLE energy_consumption ADD COLUMN quality_sum DECIMAL(14,2);
+ALTER TABLE energy_consumption ADD COLUMN is_rollup BOOLEAN NOT NULL DEFAULT false;
+
+-- One bucket per device, level and start; also serves the range lookups of the query planner
+CREATE UNIQUE INDEX uq_energy_consumption_rollup_bucket
+    ON energy_consumption(user_id, period_type, period_start, device_id)
+    WHERE is_rollup = true;
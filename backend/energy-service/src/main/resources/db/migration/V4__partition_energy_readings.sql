@@ -0,0 +1,83 @@
+-- Convert energy_readings into a table range-partitioned by month on reading_timestamp.
+-- Range queries on reading_timestamp only touch the matching partitions, and expired months
+-- are removed by dropping a partition instead of running DELETEs.
+-- Partitions are named energy_readings_YYYY_MM; ReadingPartitionManager relies on this naming.
+
+ALTER TABLE energy_readings RENAME TO energy_readings_unpartitioned;
+
+CREATE TABLE energy_readings (
+    id UUID NOT NULL DEFAULT gen_random_uuid(),
+    user_id UUID NOT NULL,
+    device_id VARCHAR(100) NOT NULL,
+    meter_number VARCHAR(50),
+    reading_timestamp TIMESTAMP NOT NULL,
+    voltage DECIMAL(10,2),
+    current DECIMAL(10,2),
+    power DECIMAL(10,2),
+    energy_consumed DECIMAL(10,4),
+    frequency DECIMAL(5,2),
+    power_factor DECIMAL(3,2),
+    source_type VARCHAR(20) NOT NULL DEFAULT 'GRID',
+    reading_type VARCHAR(20) NOT NULL DEFAULT 'REAL_TIME',
+    quality_score DECIMAL(3,2),
+    is_processed BOOLEAN DEFAULT false,
+    processing_timestamp TIMESTAMP,
+    raw_data TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    -- The partition key has to be part of every unique constraint
+    PRIMARY KEY (id, reading_timestamp)
+) PARTITION BY RANGE (reading_timestamp);
+
+-- Catches readings outside the pre-created months (e.g. devices with a wrong clock)
+CREATE TABLE energy_readings_default PARTITION OF energy_readings DEFAULT;
+
+-- Create the monthly partition containing p_month if it does not exist yet. Rows for that month
+-- that already landed in the default partition are moved into the new partition first.
+CREATE OR REPLACE FUNCTION ensure_energy_readings_partition(p_month DATE) RETURNS TEXT AS $$
+DECLARE
+    v_start DATE := date_trunc('month', p_month)::date;
+    v_end DATE := (date_trunc('month', p_month) + INTERVAL '1 month')::date;
+    v_name TEXT := 'energy_readings_' || to_char(v_start, 'YYYY_MM');
+BEGIN
+    IF to_regclass(v_name) IS NOT NULL THEN
+        RETURN v_name;
+    END IF;
+    EXECUTE format('CREATE TABLE %I (LIKE energy_readings INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', v_name);
+    EXECUTE format('ALTER TABLE %I ADD CONSTRAINT %I CHECK (reading_timestamp >= %L AND reading_timestamp < %L)',
+                   v_name, v_name || '_range', v_start, v_end);
+    EXECUTE format('WITH moved AS (DELETE FROM energy_readings_default WHERE reading_timestamp >= %L AND reading_timestamp < %L RETURNING *) '
+                   'INSERT INTO %I SELECT * FROM moved', v_start, v_end, v_name);
+    -- The CHECK constraint lets ATTACH skip the validation scan
+    EXECUTE format('ALTER TABLE energy_readings ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)', v_name, v_start, v_end);
+    EXECUTE format('ALTER TABLE %I DROP CONSTRAINT %I', v_name, v_name || '_range');
+    RETURN v_name;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Partitions for every month that has data, plus the next three months
+DO $$
+DECLARE
+    v_month DATE;
+    v_last DATE := (date_trunc('month', CURRENT_DATE) + INTERVAL '3 months')::date;
+BEGIN
+    SELECT COALESCE(date_trunc('month', MIN(reading_timestamp))::date, date_trunc('month', CURRENT_DATE)::date)
+    INTO v_month FROM energy_readings_unpartitioned;
+    WHILE v_month <= v_last LOOP
+        PERFORM ensure_energy_readings_partition(v_month);
+        v_month := (v_month + INTERVAL '1 month')::date;
+    END LOOP;
+END;
+$$;
+
+INSERT INTO energy_readings SELECT * FROM energy_readings_unpartitioned;
+DROP TABLE energy_readings_unpartitioned;
+
+-- Indexes on the parent are created on every partition, including future ones
+CREATE INDEX idx_energy_readings_user_id ON energy_readings(user_id);
+CREATE INDEX idx_energy_readings_device_id ON energy_readings(device_id);
+CREATE INDEX idx_energy_readings_timestamp ON energy_readings(reading_timestamp);
+CREATE INDEX idx_energy_readings_source_type ON energy_readings(source_type);
+CREATE INDEX idx_energy_readings_is_processed ON energy_readings(is_processed);
+CREATE INDEX idx_energy_readings_user_device_time ON energy_readings(user_id, device_id, reading_timestamp);
+CREATE INDEX idx_energy_readings_unprocessed ON energy_readings(created_at) WHERE is_processed = false;
@@ -0,0 +1,38 @@
+-- One-time backfill of the rollups introduced in V3 from readings stored before they were
+-- maintained on ingest. Totals match what EnergyRollupService.rebuild computes: averages divide by
+-- the total reading count, and peak/minimum power stay NULL for buckets without power values.
+-- Buckets that already exist are left alone; use the rebuild endpoint to recompute them.
+INSERT INTO energy_consumption (user_id, device_id, period_start, period_end, period_type, source_type,
+                                total_energy, peak_power, average_power, minimum_power, reading_count,
+                                quality_score, power_sum, quality_sum, is_rollup)
+SELECT b.user_id,
+       b.device_id,
+       b.period_start,
+       b.period_start + b.width,
+       b.period_type,
+       MIN(b.source_type),
+       COALESCE(SUM(b.energy_consumed), 0),
+       MAX(b.power),
+       ROUND(COALESCE(SUM(b.power), 0) / COUNT(*), 2),
+       MIN(b.power),
+       COUNT(*),
+       ROUND(COALESCE(SUM(b.quality_score), 0) / COUNT(*), 2),
+       COALESCE(SUM(b.power), 0),
+       COALESCE(SUM(b.quality_score), 0),
+       true
+FROM (
+    SELECT r.user_id, r.device_id, r.source_type, r.energy_consumed, r.power, r.quality_score,
+           level.period_type, level.width,
+           CASE level.period_type
+               WHEN 'QUARTER_HOUR' THEN date_trunc('hour', r.reading_timestamp)
+                   + FLOOR(EXTRACT(MINUTE FROM r.reading_timestamp) / 15) * INTERVAL '15 minutes'
+               ELSE date_trunc(level.unit, r.reading_timestamp)
+           END AS period_start
+    FROM energy_readings r
+    CROSS JOIN (VALUES ('MINUTE', 'minute', INTERVAL '1 minute'),
+                       ('QUARTER_HOUR', 'hour', INTERVAL '15 minutes'),
+                       ('HOUR', 'hour', INTERVAL '1 hour'),
+                       ('DAY', 'day', INTERVAL '1 day')) AS level(period_type, unit, width)
+) b
+GROUP BY b.user_id, b.device_id, b.period_type, b.width, b.period_start
+ON CONFLICT (user_id, period_type, period_start, device_id) WHERE is_rollup = true DO NOTHING;
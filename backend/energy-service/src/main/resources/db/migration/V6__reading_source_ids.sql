@@ -0,0 +1,7 @@
+-- ID the sender (e.g. an edge gateway) assigned to a reading. A batch that is sent again because its
+-- response was lost is recognised by it and not stored twice; readings without one are not deduplicated.
+ALTER TABLE energy_readings ADD COLUMN source_reading_id UUID;
+
+-- The partition key has to be part of every unique index; a resent reading keeps its timestamp
+CREATE UNIQUE INDEX uq_energy_readings_source_reading
+    ON energy_readings(source_reading_id, reading_timestamp);
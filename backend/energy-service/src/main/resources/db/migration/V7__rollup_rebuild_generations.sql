@@ -0,0 +1,11 @@
+-- Number of times the rollups of a device and day have been rebuilt from raw readings. Ingest and
+-- flush tag rollup deltas with the generation current when the reading was stored; a flush drops
+-- deltas of an older generation because the rebuild that replaced it already counted them.
+CREATE TABLE rollup_rebuilds (
+    user_id UUID NOT NULL,
+    device_id VARCHAR(100) NOT NULL,
+    day DATE NOT NULL,
+    generation BIGINT NOT NULL,
+    rebuilt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (user_id, device_id, day)
+);
@@ -0,0 +1,190 @@
+package com.smartwatts.energyservice.archive;
+
+import com.smartwatts.energyservice.dto.EnergyReadingDto;
+import com.smartwatts.energyservice.model.EnergyReading;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadingArchiveTest {
+
+    private static final YearMonth MONTH = YearMonth.of(2024, 3);
+
+    @TempDir
+    Path tempDir;
+
+    private final UUID userId = UUID.randomUUID();
+
+    @Test
+    void roundTrip_RestoresEveryField() throws Exception {
+        // Given
+        List<EnergyReadingDto> readings = new ArrayList<>();
+        readings.addAll(series("meter-1", 500));
+        readings.addAll(series("meter-2", 500));
+        Path file = tempDir.resolve("readings.swra");
+
+        // When
+        write(file, readings);
+
+        // Then
+        try (ReadingArchiveReader reader = ReadingArchiveReader.open(file);
+             Stream<EnergyReadingDto> restored = reader.read(null, null, null, null)) {
+            assertEquals(MONTH, reader.getMonth());
+            assertEquals(1000, reader.getRowCount());
+            assertTrue(reader.verify());
+            assertEquals(readings, restored.collect(Collectors.toList()));
+        }
+        assertFalse(Files.exists(tempDir.resolve("readings.swra.tmp")));
+    }
+
+    @Test
+    void read_RangeAndDevice_ReturnsOnlyMatchingReadings() throws Exception {
+        // Given
+        List<EnergyReadingDto> readings = new ArrayList<>();
+        readings.addAll(series("meter-1", 300));
+        readings.addAll(series("meter-2", 300));
+        Path file = tempDir.resolve("readings.swra");
+        write(file, readings);
+        LocalDateTime from = MONTH.atDay(1).atTime(1, 0);
+        LocalDateTime to = MONTH.atDay(1).atTime(2, 0);
+
+        // When
+        List<EnergyReadingDto> result;
+        try (ReadingArchiveReader reader = ReadingArchiveReader.open(file)) {
+            result = reader.read(userId, "meter-2", from, to).collect(Collectors.toList());
+        }
+
+        // Then
+        List<EnergyReadingDto> expected = readings.stream()
+                .filter(r -> r.getDeviceId().equals("meter-2"))
+                .filter(r -> !r.getReadingTimestamp().isBefore(from) && r.getReadingTimestamp().isBefore(to))
+                .collect(Collectors.toList());
+        assertEquals(60, expected.size());
+        assertEquals(expected, result);
+    }
+
+    @Test
+    void roundTrip_UnorderedInput_IsStillRestored() throws Exception {
+        // Given
+        List<EnergyReadingDto> readings = new ArrayList<>(series("meter-1", 50));
+        readings.add(readings.remove(10));
+        readings.add(5, series("meter-2", 1).get(0));
+        Path file = tempDir.resolve("readings.swra");
+
+        // When
+        write(file, readings);
+
+        // Then
+        try (ReadingArchiveReader reader = ReadingArchiveReader.open(file)) {
+            assertEquals(readings, reader.read(null, null, null, null).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void verify_CorruptedFile_ReturnsFalse() throws Exception {
+        // Given
+        Path file = tempDir.resolve("readings.swra");
+        write(file, series("meter-1", 100));
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[64] ^= 1;
+        Files.write(file, bytes);
+
+        // When / Then
+        try (ReadingArchiveReader reader = ReadingArchiveReader.open(file)) {
+            assertFalse(reader.verify());
+        }
+    }
+
+    @Test
+    void typeCodes_ArePinnedAndCoverEveryConstant() {
+        // Codes are part of the file format; archives written before must keep decoding the same
+        assertEquals(1, ArchiveFormat.sourceTypeCode(EnergyReading.EnergySource.GRID));
+        assertEquals(5, ArchiveFormat.sourceTypeCode(EnergyReading.EnergySource.HYBRID));
+        assertEquals(1, ArchiveFormat.readingTypeCode(EnergyReading.ReadingType.REAL_TIME));
+        assertEquals(5, ArchiveFormat.readingTypeCode(EnergyReading.ReadingType.MINIMUM));
+        assertEquals(0, ArchiveFormat.sourceTypeCode(null));
+        for (EnergyReading.EnergySource sourceType : EnergyReading.EnergySource.values()) {
+            assertEquals(sourceType, ArchiveFormat.sourceType(ArchiveFormat.sourceTypeCode(sourceType)));
+        }
+        for (EnergyReading.ReadingType readingType : EnergyReading.ReadingType.values()) {
+            assertEquals(readingType, ArchiveFormat.readingType(ArchiveFormat.readingTypeCode(readingType)));
+        }
+        assertThrows(IllegalArgumentException.class, () -> ArchiveFormat.sourceType(6));
+    }
+
+    @Test
+    void close_WithoutFinish_LeavesNoFile() throws Exception {
+        // Given
+        Path file = tempDir.resolve("readings.swra");
+
+        // When
+        try (ReadingArchiveWriter writer = ReadingArchiveWriter.create(file, MONTH)) {
+            writer.append(series("meter-1", 1).get(0));
+        }
+
+        // Then
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    private void write(Path file, List<EnergyReadingDto> readings) throws Exception {
+        try (ReadingArchiveWriter writer = ReadingArchiveWriter.create(file, MONTH)) {
+            for (EnergyReadingDto reading : readings) {
+                writer.append(reading);
+            }
+            writer.finish();
+        }
+    }
+
+    /**
+     * One reading per minute with jittered timestamps, drifting values and occasional nulls
+     */
+    private List<EnergyReadingDto> series(String deviceId, int count) {
+        Random random = new Random(deviceId.hashCode());
+        List<EnergyReadingDto> readings = new ArrayList<>(count);
+        LocalDateTime timestamp = MONTH.atDay(1).atStartOfDay();
+        double voltage = 230;
+        BigDecimal energy = BigDecimal.ZERO;
+        for (int i = 0; i < count; i++) {
+            voltage += random.nextGaussian();
+            energy = energy.add(BigDecimal.valueOf(random.nextInt(5000), 4));
+            LocalDateTime readingTime = timestamp.plusMinutes(i).plusNanos(random.nextInt(1000) * 1_000L);
+            readings.add(EnergyReadingDto.builder()
+                    .id(UUID.randomUUID())
+                    .userId(userId)
+                    .deviceId(deviceId)
+                    .meterNumber(i % 100 == 99 ? null : "MTR-" + deviceId)
+                    .readingTimestamp(readingTime)
+                    .voltage(BigDecimal.valueOf(Math.round(voltage * 100), 2))
+                    .current(BigDecimal.valueOf(random.nextInt(2000), 2))
+                    .power(i % 7 == 0 ? null : BigDecimal.valueOf(random.nextInt(500000), 2))
+                    .energyConsumed(energy)
+                    .frequency(new BigDecimal("50.00"))
+                    .powerFactor(new BigDecimal("0.95"))
+                    .sourceType(i % 50 == 0 ? EnergyReading.EnergySource.SOLAR : EnergyReading.EnergySource.GRID)
+                    .readingType(EnergyReading.ReadingType.REAL_TIME)
+                    .qualityScore(new BigDecimal("1.00"))
+                    .isProcessed(i % 3 == 0 ? null : i % 3 == 1)
+                    .processingTimestamp(i % 2 == 0 ? readingTime.plusSeconds(5) : null)
+                    .rawData(i % 4 == 0 ? null : "{\"seq\":" + i + ",\"fw\":\"1.4.2\"}")
+                    .createdAt(readingTime.plusNanos(random.nextInt(500_000) * 1_000L))
+                    .updatedAt(readingTime.plusSeconds(1))
+                    .build());
+        }
+        return readings;
+    }
+}
@@ -0,0 +1,120 @@
+package com.smartwatts.energyservice.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GzipRequestFilterTest {
+
+    private static final String BODY = "{\"readings\":[{\"deviceId\":\"meter-1\",\"energyConsumed\":1.5}]}";
+
+    private GzipRequestFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new GzipRequestFilter();
+        ReflectionTestUtils.setField(filter, "maxInflatedBytes", 1024L);
+    }
+
+    @Test
+    void doFilter_GzipBody_IsInflatedWithoutEncodingHeader() throws Exception {
+        // Given
+        MockHttpServletRequest request = gzipRequest(BODY);
+        AtomicReference<String> body = new AtomicReference<>();
+        AtomicReference<String> encoding = new AtomicReference<>("unset");
+        FilterChain chain = (req, res) -> {
+            HttpServletRequest forwarded = (HttpServletRequest) req;
+            encoding.set(forwarded.getHeader(HttpHeaders.CONTENT_ENCODING));
+            body.set(new String(forwarded.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+        };
+
+        // When
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        // Then
+        assertEquals(BODY, body.get());
+        assertNull(encoding.get());
+    }
+
+    @Test
+    void doFilter_InflatedBodyOverLimit_Returns413() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(filter, "maxInflatedBytes", 16L);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = (req, res) -> req.getInputStream().readAllBytes();
+
+        // When
+        filter.doFilter(gzipRequest(BODY), response, chain);
+
+        // Then
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE.value(), response.getStatus());
+    }
+
+    @Test
+    void setReadListener_DeliversBodyAndSignalsEnd() throws Exception {
+        // Given
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        List<String> events = new ArrayList<>();
+        FilterChain chain = (req, res) -> {
+            ServletInputStream in = req.getInputStream();
+            in.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    events.add("data");
+                    byte[] buffer = new byte[8];
+                    int read;
+                    while (in.isReady() && (read = in.read(buffer)) >= 0) {
+                        received.write(buffer, 0, read);
+                    }
+                }
+
+                @Override
+                public void onAllDataRead() {
+                    events.add("end");
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    events.add("error");
+                }
+            });
+        };
+
+        // When
+        filter.doFilter(gzipRequest(BODY), new MockHttpServletResponse(), chain);
+
+        // Then
+        assertEquals(BODY, received.toString(StandardCharsets.UTF_8));
+        assertEquals(List.of("data", "end"), events);
+    }
+
+    private static MockHttpServletRequest gzipRequest(String json) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(json.getBytes(StandardCharsets.UTF_8));
+        }
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/energy/readings/batch/secure");
+        request.addHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        request.setContentType("application/json");
+        request.setContent(compressed.toByteArray());
+        return request;
+    }
+}
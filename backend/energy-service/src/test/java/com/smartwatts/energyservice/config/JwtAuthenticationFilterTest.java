@@ -0,0 +1,86 @@
+package com.smartwatts.energyservice.config;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtAuthenticationFilterTest {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+    private JwtAuthenticationFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new JwtAuthenticationFilter();
+        ReflectionTestUtils.setField(filter, "secretKey", SECRET);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void doFilter_ValidToken_AuthenticatesSubjectAsUser() throws Exception {
+        // Given
+        MockFilterChain chain = new MockFilterChain();
+
+        // When
+        filter.doFilter(request(token(SECRET, new Date(System.currentTimeMillis() + 60_000))),
+                new MockHttpServletResponse(), chain);
+
+        // Then
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertEquals("user-1", ((UserDetails) authentication.getPrincipal()).getUsername());
+        assertTrue(authentication.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_USER")));
+        assertNotNull(chain.getRequest());
+    }
+
+    @Test
+    void doFilter_ExpiredOrForeignToken_StaysAnonymous() throws Exception {
+        // Given
+        String expired = token(SECRET, new Date(System.currentTimeMillis() - 120_000));
+        String foreign = token("fedcba9876543210fedcba9876543210", new Date(System.currentTimeMillis() + 60_000));
+
+        // When
+        filter.doFilter(request(expired), new MockHttpServletResponse(), new MockFilterChain());
+        Authentication afterExpired = SecurityContextHolder.getContext().getAuthentication();
+        filter.doFilter(request(foreign), new MockHttpServletResponse(), new MockFilterChain());
+
+        // Then
+        assertNull(afterExpired);
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    private static MockHttpServletRequest request(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/energy/readings/user/user-1");
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        return request;
+    }
+
+    private static String token(String secret, Date expiresAt) throws Exception {
+        SignedJWT jwt = new SignedJWT(new JWSHeader(JWSAlgorithm.HS256),
+                new JWTClaimsSet.Builder().subject("user-1").issueTime(new Date()).expirationTime(expiresAt).build());
+        jwt.sign(new MACSigner(secret.getBytes(StandardCharsets.UTF_8)));
+        return jwt.serialize();
+    }
+}
@@ -0,0 +1,78 @@
+package com.smartwatts.energyservice.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServiceAuthenticationFilterTest {
+
+    private ServiceAuthenticationFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new ServiceAuthenticationFilter();
+        ReflectionTestUtils.setField(filter, "serviceToken", "service-token-1");
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void doFilter_ValidToken_AuthenticatesAsService() throws Exception {
+        // Given
+        MockFilterChain chain = new MockFilterChain();
+
+        // When
+        filter.doFilter(invalidation("service-token-1"), new MockHttpServletResponse(), chain);
+
+        // Then
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertTrue(authentication.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_SERVICE")));
+        assertNotNull(chain.getRequest());
+    }
+
+    @Test
+    void doFilter_WrongToken_Returns401() throws Exception {
+        // Given
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        // When
+        filter.doFilter(invalidation("service-token-2"), response, chain);
+
+        // Then
+        assertEquals(401, response.getStatus());
+        assertNull(chain.getRequest());
+    }
+
+    @Test
+    void doFilter_NoTokenConfigured_RefusesEveryToken() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(filter, "serviceToken", "");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        filter.doFilter(invalidation(""), response, new MockFilterChain());
+
+        // Then
+        assertEquals(401, response.getStatus());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    private static MockHttpServletRequest invalidation(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST",
+                "/api/v1/energy/device-verification/meter-1/invalidate");
+        request.addHeader(ServiceAuthenticationFilter.SERVICE_TOKEN_HEADER, token);
+        return request;
+    }
+}
@@ -3,6 +3,8 @@ package com.smartwatts.energyservice.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.smartwatts.energyservice.dto.EnergyReadingDto;
 import com.smartwatts.energyservice.dto.EnergyConsumptionDto;
+import com.smartwatts.energyservice.dto.EnergyReadingBatchRequestDto;
+import com.smartwatts.energyservice.dto.EnergyReadingBatchResultDto;
 import com.smartwatts.energyservice.model.EnergyConsumption;
 import com.smartwatts.energyservice.service.EnergyService;
 import org.junit.jupiter.api.BeforeEach;
@@ -21,6 +23,7 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import static org.mockito.ArgumentMatchers.*;
@@ -95,6 +98,60 @@ class EnergyControllerTest {
         verify(energyService).saveEnergyReading(any(EnergyReadingDto.class));
     }
 
+    @Test
+    void saveEnergyReadingsBatch_PartialFailure_ReturnsMultiStatus() throws Exception {
+        // Given
+        EnergyReadingBatchResultDto result = EnergyReadingBatchResultDto.builder()
+                .received(2)
+                .accepted(1)
+                .rejected(1)
+                .results(Arrays.asList(
+                        EnergyReadingBatchResultDto.ItemResult.builder()
+                                .index(0).status(EnergyReadingBatchResultDto.ItemStatus.ACCEPTED).id(testReadingId).build(),
+                        EnergyReadingBatchResultDto.ItemResult.builder()
+                                .index(1).status(EnergyReadingBatchResultDto.ItemStatus.FAILED).retryable(true).build()))
+                .build();
+        when(energyService.saveEnergyReadingsBatch(anyList())).thenReturn(result);
+
+        // When & Then
+        mockMvc.perform(post("/api/v1/energy/readings/batch")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Arrays.asList(testReadingDto, testReadingDto))))
+                .andExpect(status().isMultiStatus())
+                .andExpect(jsonPath("$.accepted").value(1))
+                .andExpect(jsonPath("$.results[1].status").value("FAILED"))
+                .andExpect(jsonPath("$.results[1].retryable").value(true));
+
+        verify(energyService).saveEnergyReadingsBatch(anyList());
+    }
+
+    @Test
+    void saveEnergyReadingsBatchWithAuth_PassesDeviceSecrets() throws Exception {
+        // Given
+        EnergyReadingBatchResultDto result = EnergyReadingBatchResultDto.builder()
+                .received(1)
+                .accepted(1)
+                .results(Arrays.asList(EnergyReadingBatchResultDto.ItemResult.builder()
+                        .index(0).status(EnergyReadingBatchResultDto.ItemStatus.ACCEPTED).id(testReadingId).build()))
+                .build();
+        EnergyReadingBatchRequestDto request = EnergyReadingBatchRequestDto.builder()
+                .readings(Arrays.asList(testReadingDto))
+                .deviceAuthSecrets(Map.of("DEVICE-001", "secret-token"))
+                .build();
+        when(energyService.saveEnergyReadingsBatch(anyList(), anyMap())).thenReturn(result);
+
+        // When & Then
+        mockMvc.perform(post("/api/v1/energy/readings/batch/secure")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.accepted").value(1));
+
+        verify(energyService).saveEnergyReadingsBatch(anyList(), eq(Map.of("DEVICE-001", "secret-token")));
+    }
+
     @Test
     void saveEnergyReadingWithAuth_Success_ReturnsCreated() throws Exception {
         // Given
@@ -0,0 +1,120 @@
+package com.smartwatts.energyservice.mapper;
+
+import com.smartwatts.energyservice.dto.EnergyAlertDto;
+import com.smartwatts.energyservice.dto.EnergyConsumptionDto;
+import com.smartwatts.energyservice.dto.EnergyReadingDto;
+import com.smartwatts.energyservice.model.EnergyAlert;
+import com.smartwatts.energyservice.model.EnergyConsumption;
+import com.smartwatts.energyservice.model.EnergyReading;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EnergyMapperTest {
+
+    private final EnergyMapper mapper = EnergyMapper.INSTANCE;
+
+    @Test
+    void readingRoundTrip_PreservesEveryField() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        EnergyReadingDto readingDto = EnergyReadingDto.builder()
+                .id(UUID.randomUUID())
+                .userId(UUID.randomUUID())
+                .deviceId("SMART-METER-001")
+                .meterNumber("MTR-0001")
+                .readingTimestamp(now)
+                .voltage(new BigDecimal("230.15"))
+                .current(new BigDecimal("12.40"))
+                .power(new BigDecimal("2853.86"))
+                .energyConsumed(new BigDecimal("1520.4375"))
+                .frequency(new BigDecimal("50.00"))
+                .powerFactor(new BigDecimal("0.95"))
+                .sourceType(EnergyReading.EnergySource.SOLAR)
+                .readingType(EnergyReading.ReadingType.REAL_TIME)
+                .qualityScore(new BigDecimal("1.00"))
+                .isProcessed(true)
+                .processingTimestamp(now.plusSeconds(5))
+                .rawData("{\"fw\":\"1.4.2\"}")
+                .createdAt(now)
+                .updatedAt(now.plusSeconds(1))
+                .build();
+
+        // When
+        EnergyReading reading = mapper.toEntity(readingDto);
+        EnergyReadingDto restored = mapper.toDto(reading);
+
+        // Then
+        assertEquals(readingDto, restored);
+    }
+
+    @Test
+    void toEntity_NullProperties_OverrideEntityDefaults() {
+        // Given
+        EnergyReadingDto readingDto = EnergyReadingDto.builder()
+                .deviceId("SMART-METER-001")
+                .build();
+
+        // When
+        EnergyReading reading = mapper.toEntity(readingDto);
+
+        // Then
+        assertNull(reading.getSourceType());
+        assertNull(reading.getIsProcessed());
+    }
+
+    @Test
+    void consumptionToDto_CopiesSharedFieldsOnly() {
+        // Given
+        EnergyConsumption consumption = new EnergyConsumption();
+        consumption.setId(UUID.randomUUID());
+        consumption.setDeviceId("SMART-METER-001");
+        consumption.setPeriodType(EnergyConsumption.PeriodType.HOUR);
+        consumption.setTotalEnergy(new BigDecimal("1.2500"));
+        consumption.setReadingCount(60);
+        consumption.setPowerSum(new BigDecimal("4500.00"));
+
+        // When
+        EnergyConsumptionDto dto = mapper.toDto(consumption);
+
+        // Then
+        assertEquals(consumption.getId(), dto.getId());
+        assertEquals("SMART-METER-001", dto.getDeviceId());
+        assertEquals(EnergyConsumption.PeriodType.HOUR, dto.getPeriodType());
+        assertEquals(new BigDecimal("1.2500"), dto.getTotalEnergy());
+        assertEquals(60, dto.getReadingCount());
+    }
+
+    @Test
+    void alertToDto_CopiesSharedFieldsOnly() {
+        // Given
+        EnergyAlert alert = new EnergyAlert();
+        alert.setId(UUID.randomUUID());
+        alert.setDeviceId("SMART-METER-001");
+        alert.setAlertType(EnergyAlert.AlertType.PEAK_DEMAND);
+        alert.setSeverity(EnergyAlert.Severity.HIGH);
+        alert.setActualValue(new BigDecimal("7.50"));
+        alert.setIsAcknowledged(true);
+        alert.setNotificationAttempts(3);
+
+        // When
+        EnergyAlertDto dto = mapper.toDto(alert);
+
+        // Then
+        assertEquals(alert.getId(), dto.getId());
+        assertEquals(EnergyAlert.AlertType.PEAK_DEMAND, dto.getAlertType());
+        assertEquals(EnergyAlert.Severity.HIGH, dto.getSeverity());
+        assertEquals(new BigDecimal("7.50"), dto.getActualValue());
+        assertTrue(dto.getIsAcknowledged());
+    }
+
+    @Test
+    void toDto_NullSource_ReturnsNull() {
+        assertNull(mapper.toDto((EnergyReading) null));
+        assertNull(mapper.toEntity(null));
+    }
+}
@@ -0,0 +1,87 @@
+package com.smartwatts.energyservice.service;
+
+import com.smartwatts.energyservice.model.EnergyAlert;
+import com.smartwatts.energyservice.repository.EnergyAlertRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ActiveAlertIndexTest {
+
+    private static final String DEVICE_ID = "TEST_DEVICE_001";
+
+    private EnergyAlertRepository energyAlertRepository;
+    private ActiveAlertIndex activeAlertIndex;
+    private UUID userId;
+
+    @BeforeEach
+    void setUp() {
+        energyAlertRepository = mock(EnergyAlertRepository.class);
+        when(energyAlertRepository.findUnresolvedAlertsSince(any(LocalDateTime.class))).thenReturn(List.of());
+        activeAlertIndex = new ActiveAlertIndex(energyAlertRepository, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(activeAlertIndex, "windowMinutes", 60L);
+        activeAlertIndex.init();
+        userId = UUID.randomUUID();
+    }
+
+    @Test
+    void tryOpen_SuppressesDuplicatesPerUserDeviceAndType() {
+        assertTrue(activeAlertIndex.tryOpen(userId, DEVICE_ID, EnergyAlert.AlertType.HIGH_CONSUMPTION));
+        assertFalse(activeAlertIndex.tryOpen(userId, DEVICE_ID, EnergyAlert.AlertType.HIGH_CONSUMPTION));
+
+        // Other devices and alert types are tracked independently
+        assertTrue(activeAlertIndex.tryOpen(userId, "TEST_DEVICE_002", EnergyAlert.AlertType.HIGH_CONSUMPTION));
+        assertTrue(activeAlertIndex.tryOpen(userId, DEVICE_ID, EnergyAlert.AlertType.POWER_OUTAGE));
+    }
+
+    @Test
+    void record_ResolvedAlertReopensKey_AcknowledgedAlertDoesNot() {
+        EnergyAlert alert = alert(LocalDateTime.now());
+        assertTrue(activeAlertIndex.tryOpen(userId, DEVICE_ID, alert.getAlertType()));
+        activeAlertIndex.confirm(alert);
+
+        alert.setIsAcknowledged(true);
+        activeAlertIndex.record(alert);
+        assertFalse(activeAlertIndex.tryOpen(userId, DEVICE_ID, alert.getAlertType()));
+
+        alert.setIsResolved(true);
+        activeAlertIndex.record(alert);
+        assertTrue(activeAlertIndex.tryOpen(userId, DEVICE_ID, alert.getAlertType()));
+    }
+
+    @Test
+    void init_SeedsOpenAlertsAndIgnoresThoseOutsideWindow() {
+        EnergyAlert recent = alert(LocalDateTime.now().minusMinutes(10));
+        EnergyAlert stale = alert(LocalDateTime.now().minusMinutes(90));
+        stale.setAlertType(EnergyAlert.AlertType.POWER_OUTAGE);
+        when(energyAlertRepository.findUnresolvedAlertsSince(any(LocalDateTime.class))).thenReturn(List.of(recent, stale));
+
+        ActiveAlertIndex seeded = new ActiveAlertIndex(energyAlertRepository, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(seeded, "windowMinutes", 60L);
+        seeded.init();
+
+        assertFalse(seeded.tryOpen(userId, DEVICE_ID, EnergyAlert.AlertType.HIGH_CONSUMPTION));
+        assertTrue(seeded.tryOpen(userId, DEVICE_ID, EnergyAlert.AlertType.POWER_OUTAGE));
+    }
+
+    private EnergyAlert alert(LocalDateTime timestamp) {
+        EnergyAlert alert = new EnergyAlert();
+        alert.setId(UUID.randomUUID());
+        alert.setUserId(userId);
+        alert.setDeviceId(DEVICE_ID);
+        alert.setAlertType(EnergyAlert.AlertType.HIGH_CONSUMPTION);
+        alert.setAlertTimestamp(timestamp);
+        alert.setIsAcknowledged(false);
+        alert.setIsResolved(false);
+        return alert;
+    }
+}
@@ -0,0 +1,153 @@
+package com.smartwatts.energyservice.service;
+
+import com.smartwatts.energyservice.model.EnergyAlert;
+import com.smartwatts.energyservice.model.EnergyReading;
+import com.smartwatts.energyservice.repository.EnergyAlertRepository;
+import com.smartwatts.energyservice.repository.EnergyReadingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AlertServiceTest {
+
+    @Mock
+    private EnergyAlertRepository energyAlertRepository;
+
+    @Mock
+    private EnergyReadingRepository energyReadingRepository;
+
+    @Mock
+    private NotificationService notificationService;
+
+    @Mock
+    private ActiveAlertIndex activeAlertIndex;
+
+    @InjectMocks
+    private AlertService alertService;
+
+    private EnergyAlert testAlert;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(alertService, "notificationRetryBaseSeconds", 30L);
+        ReflectionTestUtils.setField(alertService, "notificationRetryMaxSeconds", 3600L);
+
+        testAlert = new EnergyAlert();
+        testAlert.setId(UUID.randomUUID());
+        testAlert.setUserId(UUID.randomUUID());
+        testAlert.setDeviceId("TEST_DEVICE_001");
+        testAlert.setAlertType(EnergyAlert.AlertType.HIGH_CONSUMPTION);
+        testAlert.setSeverity(EnergyAlert.Severity.HIGH);
+        testAlert.setAlertTimestamp(LocalDateTime.now());
+        testAlert.setNotificationSent(false);
+        testAlert.setNotificationAttempts(0);
+    }
+
+    @Test
+    void evaluateReadings_CreatesAlertAndMarksReadingsProcessed() {
+        // Given
+        EnergyReading reading = new EnergyReading();
+        reading.setId(UUID.randomUUID());
+        reading.setUserId(testAlert.getUserId());
+        reading.setDeviceId("TEST_DEVICE_001");
+        reading.setPower(new BigDecimal("6000"));
+
+        when(activeAlertIndex.tryOpen(testAlert.getUserId(), "TEST_DEVICE_001", EnergyAlert.AlertType.HIGH_CONSUMPTION))
+                .thenReturn(true);
+        when(energyAlertRepository.save(any(EnergyAlert.class))).thenReturn(testAlert);
+
+        // When
+        List<UUID> alertIds = alertService.evaluateReadings(List.of(reading));
+
+        // Then
+        assertEquals(List.of(testAlert.getId()), alertIds);
+        verify(activeAlertIndex).confirm(testAlert);
+        verify(energyReadingRepository).markReadingsProcessed(
+                argThat((Collection<UUID> ids) -> ids.contains(reading.getId())), any(LocalDateTime.class));
+        verifyNoInteractions(notificationService);
+    }
+
+    @Test
+    void evaluateReadings_AlertAlreadyOpen_DoesNotCreateAlert() {
+        // Given
+        EnergyReading reading = new EnergyReading();
+        reading.setId(UUID.randomUUID());
+        reading.setUserId(testAlert.getUserId());
+        reading.setDeviceId("TEST_DEVICE_001");
+        reading.setPower(new BigDecimal("6000"));
+
+        when(activeAlertIndex.tryOpen(testAlert.getUserId(), "TEST_DEVICE_001", EnergyAlert.AlertType.HIGH_CONSUMPTION))
+                .thenReturn(false);
+
+        // When
+        List<UUID> alertIds = alertService.evaluateReadings(List.of(reading));
+
+        // Then
+        assertTrue(alertIds.isEmpty());
+        verify(energyAlertRepository, never()).save(any(EnergyAlert.class));
+        verify(energyAlertRepository, never()).findByUserIdAndAlertType(any(), any(), any());
+    }
+
+    @Test
+    void deliverNotification_AllChannelsDelivered_MarksAlertSent() {
+        // Given
+        when(energyAlertRepository.findById(testAlert.getId())).thenReturn(Optional.of(testAlert));
+        when(notificationService.deliverAlertNotification(eq(testAlert), anySet())).thenAnswer(invocation -> {
+            Set<String> delivered = invocation.getArgument(1);
+            delivered.add(NotificationService.CHANNEL_EMAIL);
+            return List.of();
+        });
+
+        // When
+        boolean delivered = alertService.deliverNotification(testAlert.getId());
+
+        // Then
+        assertTrue(delivered);
+        assertTrue(testAlert.getNotificationSent());
+        assertEquals(NotificationService.CHANNEL_EMAIL, testAlert.getNotificationChannels());
+        assertEquals(1, testAlert.getNotificationAttempts());
+        assertNull(testAlert.getNextNotificationAttemptAt());
+        verify(energyAlertRepository).save(testAlert);
+    }
+
+    @Test
+    void deliverNotification_ChannelFails_SchedulesRetryWithBackoff() {
+        // Given
+        testAlert.setNotificationAttempts(2);
+        testAlert.setNotificationChannels(NotificationService.CHANNEL_EMAIL);
+        when(energyAlertRepository.findById(testAlert.getId())).thenReturn(Optional.of(testAlert));
+        when(notificationService.deliverAlertNotification(eq(testAlert), anySet()))
+                .thenReturn(List.of(NotificationService.CHANNEL_PUSH));
+
+        // When
+        boolean delivered = alertService.deliverNotification(testAlert.getId());
+
+        // Then
+        assertFalse(delivered);
+        assertFalse(testAlert.getNotificationSent());
+        assertEquals(3, testAlert.getNotificationAttempts());
+        assertEquals(NotificationService.CHANNEL_EMAIL, testAlert.getNotificationChannels());
+        // Third attempt: 30s << 2 = 120s
+        assertTrue(testAlert.getNextNotificationAttemptAt().isAfter(LocalDateTime.now().plusSeconds(110)));
+        assertTrue(testAlert.getNextNotificationAttemptAt().isBefore(LocalDateTime.now().plusSeconds(130)));
+        verify(notificationService).deliverAlertNotification(eq(testAlert),
+                argThat((Set<String> channels) -> channels.contains(NotificationService.CHANNEL_EMAIL)));
+    }
+}
@@ -0,0 +1,105 @@
+package com.smartwatts.energyservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DeviceVerificationCacheTest {
+
+    @Mock
+    private RestTemplate restTemplate;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private DeviceVerificationCache cache;
+
+    private String deviceId;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new DeviceVerificationCache(restTemplate, meterRegistry);
+        ReflectionTestUtils.setField(cache, "deviceServiceUrl", "http://device-service:8083");
+        ReflectionTestUtils.setField(cache, "cacheEnabled", true);
+        ReflectionTestUtils.setField(cache, "maximumSize", 100L);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 600L);
+        ReflectionTestUtils.setField(cache, "negativeTtlSeconds", 30L);
+        ReflectionTestUtils.setField(cache, "refreshSeconds", 60L);
+        cache.init();
+        deviceId = UUID.randomUUID().toString();
+    }
+
+    @Test
+    void canSendData_SecondCallServedFromCache() {
+        when(restTemplate.getForObject(contains("/" + deviceId + "/can-send-data"), eq(Boolean.class))).thenReturn(true);
+
+        assertTrue(cache.canSendData(deviceId));
+        assertTrue(cache.canSendData(deviceId));
+
+        verify(restTemplate, times(1)).getForObject(anyString(), eq(Boolean.class));
+        assertEquals(1.0, meterRegistry.get("smartwatts.device_verification.remote")
+                .tag("operation", "can-send-data").tag("outcome", "success").timer().count());
+    }
+
+    @Test
+    void canSendData_NegativeDecisionIsCached() {
+        when(restTemplate.getForObject(anyString(), eq(Boolean.class))).thenReturn(false);
+
+        assertFalse(cache.canSendData(deviceId));
+        assertFalse(cache.canSendData(deviceId));
+
+        verify(restTemplate, times(1)).getForObject(anyString(), eq(Boolean.class));
+    }
+
+    @Test
+    void canSendData_RemoteFailureIsNotCached() {
+        when(restTemplate.getForObject(anyString(), eq(Boolean.class)))
+                .thenThrow(new ResourceAccessException("Connection refused"))
+                .thenReturn(true);
+
+        assertThrows(ResourceAccessException.class, () -> cache.canSendData(deviceId));
+        assertTrue(cache.canSendData(deviceId));
+
+        verify(restTemplate, times(2)).getForObject(anyString(), eq(Boolean.class));
+    }
+
+    @Test
+    void invalidate_ForcesFreshLookup() {
+        when(restTemplate.getForObject(anyString(), eq(Boolean.class))).thenReturn(true, false);
+        when(restTemplate.postForObject(anyString(), isNull(), eq(Boolean.class))).thenReturn(true);
+
+        assertTrue(cache.canSendData(deviceId));
+        assertTrue(cache.isValidAuthSecret(deviceId, "secret"));
+        cache.invalidate(deviceId);
+
+        assertFalse(cache.canSendData(deviceId));
+        assertTrue(cache.isValidAuthSecret(deviceId, "secret"));
+        verify(restTemplate, times(2)).getForObject(anyString(), eq(Boolean.class));
+        verify(restTemplate, times(2)).postForObject(anyString(), isNull(), eq(Boolean.class));
+    }
+
+    @Test
+    void isValidAuthSecret_CachedPerSecret() {
+        when(restTemplate.postForObject(contains("authSecret=good"), isNull(), eq(Boolean.class))).thenReturn(true);
+        when(restTemplate.postForObject(contains("authSecret=bad"), isNull(), eq(Boolean.class))).thenReturn(false);
+
+        assertTrue(cache.isValidAuthSecret(deviceId, "good"));
+        assertTrue(cache.isValidAuthSecret(deviceId, "good"));
+        assertFalse(cache.isValidAuthSecret(deviceId, "bad"));
+
+        verify(restTemplate, times(2)).postForObject(anyString(), isNull(), eq(Boolean.class));
+    }
+}
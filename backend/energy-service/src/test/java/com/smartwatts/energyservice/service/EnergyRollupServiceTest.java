@@ -0,0 +1,263 @@
+package com.smartwatts.energyservice.service;
+
+import com.smartwatts.energyservice.model.EnergyConsumption;
+import com.smartwatts.energyservice.model.EnergyReading;
+import com.smartwatts.energyservice.repository.EnergyConsumptionRepository;
+import com.smartwatts.energyservice.repository.EnergyReadingRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EnergyRollupServiceTest {
+
+    @Mock
+    private EnergyConsumptionRepository energyConsumptionRepository;
+
+    @Mock
+    private EnergyReadingRepository energyReadingRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private EnergyRollupService energyRollupService;
+    private UUID userId;
+
+    @BeforeEach
+    void setUp() {
+        energyRollupService = new EnergyRollupService(energyConsumptionRepository, energyReadingRepository,
+                transactionTemplate, jdbcTemplate, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(energyRollupService, "enabled", true);
+        ReflectionTestUtils.setField(energyRollupService, "flushChunkSize", 500);
+        ReflectionTestUtils.setField(energyRollupService, "lateThresholdMinutes", 5L);
+        energyRollupService.init();
+        userId = UUID.randomUUID();
+
+        lenient().doAnswer(invocation -> {
+            invocation.<Consumer<Object>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @Test
+    void flush_NewBuckets_CreatesRollupPerLevel() {
+        // Given
+        LocalDateTime timestamp = LocalDateTime.of(2024, 1, 1, 10, 7, 30);
+        energyRollupService.record(reading(timestamp, "1.2500", "500.00"));
+        energyRollupService.record(reading(timestamp.plusSeconds(10), "0.7500", "300.00"));
+        when(energyConsumptionRepository.findRollupForUpdate(any(), any(), any(), any())).thenReturn(Optional.empty());
+
+        // When
+        energyRollupService.flush();
+
+        // Then
+        ArgumentCaptor<EnergyConsumption> saved = ArgumentCaptor.forClass(EnergyConsumption.class);
+        verify(energyConsumptionRepository, times(4)).save(saved.capture());
+        EnergyConsumption quarterHour = saved.getAllValues().stream()
+                .filter(rollup -> rollup.getPeriodType() == EnergyConsumption.PeriodType.QUARTER_HOUR)
+                .findFirst().orElseThrow();
+        assertTrue(quarterHour.getIsRollup());
+        assertEquals(LocalDateTime.of(2024, 1, 1, 10, 0), quarterHour.getPeriodStart());
+        assertEquals(LocalDateTime.of(2024, 1, 1, 10, 15), quarterHour.getPeriodEnd());
+        assertEquals(2, quarterHour.getReadingCount());
+        assertEquals(0, new BigDecimal("2.0").compareTo(quarterHour.getTotalEnergy()));
+        assertEquals(0, new BigDecimal("400").compareTo(quarterHour.getAveragePower()));
+        assertEquals(0, new BigDecimal("500").compareTo(quarterHour.getPeakPower()));
+        assertEquals(0, new BigDecimal("300").compareTo(quarterHour.getMinimumPower()));
+    }
+
+    @Test
+    void flush_LateReading_MergesIntoExistingBucket() {
+        // Given
+        LocalDateTime timestamp = LocalDateTime.now().minusDays(2);
+        EnergyConsumption existing = new EnergyConsumption();
+        existing.setUserId(userId);
+        existing.setDeviceId("DEVICE-001");
+        existing.setIsRollup(true);
+        existing.setReadingCount(3);
+        existing.setTotalEnergy(new BigDecimal("3.0000"));
+        existing.setPowerSum(new BigDecimal("600.00"));
+        existing.setPeakPower(new BigDecimal("250.00"));
+        existing.setMinimumPower(new BigDecimal("150.00"));
+        existing.setQualitySum(new BigDecimal("3.00"));
+        when(energyConsumptionRepository.findRollupForUpdate(eq(userId), eq("DEVICE-001"), any(), any()))
+                .thenReturn(Optional.of(existing), Optional.empty());
+        energyRollupService.record(reading(timestamp, "1.0000", "1000.00"));
+
+        // When
+        energyRollupService.flush();
+
+        // Then
+        assertEquals(4, existing.getReadingCount());
+        assertEquals(0, new BigDecimal("4.0").compareTo(existing.getTotalEnergy()));
+        assertEquals(0, new BigDecimal("400").compareTo(existing.getAveragePower()));
+        assertEquals(0, new BigDecimal("1000").compareTo(existing.getPeakPower()));
+        assertEquals(0, new BigDecimal("150").compareTo(existing.getMinimumPower()));
+    }
+
+    @Test
+    void flush_Failure_KeepsDeltasForNextFlush() {
+        // Given
+        energyRollupService.record(reading(LocalDateTime.now(), "1.0000", "100.00"));
+        doThrow(new RuntimeException("database unavailable")).when(transactionTemplate).executeWithoutResult(any());
+
+        // When
+        energyRollupService.flush();
+
+        // Then
+        doAnswer(invocation -> {
+            invocation.<Consumer<Object>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        when(energyConsumptionRepository.findRollupForUpdate(any(), any(), any(), any())).thenReturn(Optional.empty());
+        energyRollupService.flush();
+        verify(energyConsumptionRepository, times(4)).save(any(EnergyConsumption.class));
+    }
+
+    @Test
+    void rebuild_DeltasStoredBeforeRebuild_AreDroppedNotAddedAgain() {
+        // Given
+        LocalDateTime timestamp = LocalDateTime.of(2024, 1, 1, 10, 7, 30);
+        when(jdbcTemplate.queryForList(contains("rollup_rebuilds"), eq(Long.class), any(), any(), any()))
+                .thenReturn(List.of(), List.of(1L));
+        energyRollupService.record(reading(timestamp, "1.0000", "100.00"));
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<Object>>getArgument(0).doInTransaction(null));
+        when(energyReadingRepository.streamAggregateRows(eq(userId), eq("DEVICE-001"), any(), any()))
+                .thenReturn(Stream.of(row(timestamp, 1.0, 100.0)));
+
+        // When
+        long rebuilt = energyRollupService.rebuild(userId, "DEVICE-001", timestamp, timestamp);
+        energyRollupService.flush();
+
+        // Then
+        assertEquals(1, rebuilt);
+        verify(jdbcTemplate).query(eq("SELECT pg_advisory_xact_lock(hashtextextended(?, 0))"),
+                any(ResultSetExtractor.class), anyString());
+        verify(jdbcTemplate).update(startsWith("INSERT INTO rollup_rebuilds"), eq(userId), eq("DEVICE-001"), any());
+        verify(energyConsumptionRepository, never()).findRollupForUpdate(any(), any(), any(), any());
+        verify(energyConsumptionRepository, never()).save(any(EnergyConsumption.class));
+    }
+
+    @Test
+    void flush_DeltaStoredAfterRebuild_IsApplied() {
+        // Given
+        when(jdbcTemplate.queryForList(contains("rollup_rebuilds"), eq(Long.class), any(), any(), any()))
+                .thenReturn(List.of(1L));
+        energyRollupService.record(reading(LocalDateTime.of(2024, 1, 1, 10, 7, 30), "1.0000", "100.00"));
+        when(energyConsumptionRepository.findRollupForUpdate(any(), any(), any(), any())).thenReturn(Optional.empty());
+
+        // When
+        energyRollupService.flush();
+
+        // Then
+        verify(energyConsumptionRepository, times(4)).save(any(EnergyConsumption.class));
+    }
+
+    @Test
+    void rebuild_StoredRollups_AreOverwrittenInPlace() {
+        // Given
+        LocalDateTime timestamp = LocalDateTime.of(2024, 1, 1, 10, 7, 30);
+        EnergyConsumption day = storedRollup(EnergyConsumption.PeriodType.DAY, LocalDateTime.of(2024, 1, 1, 0, 0));
+        EnergyConsumption emptiedMinute = storedRollup(EnergyConsumption.PeriodType.MINUTE, LocalDateTime.of(2024, 1, 1, 9, 0));
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<Object>>getArgument(0).doInTransaction(null));
+        when(energyReadingRepository.streamAggregateRows(eq(userId), eq("DEVICE-001"), any(), any()))
+                .thenReturn(Stream.of(row(timestamp, 1.0, 100.0)));
+        when(energyConsumptionRepository.findRollupsForUpdate(userId, "DEVICE-001",
+                LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 1, 2, 0, 0)))
+                .thenReturn(List.of(day, emptiedMinute));
+
+        // When
+        energyRollupService.rebuild(userId, "DEVICE-001", timestamp, timestamp);
+
+        // Then
+        assertEquals(1, day.getReadingCount());
+        assertEquals(0, new BigDecimal("1.0").compareTo(day.getTotalEnergy()));
+        ArgumentCaptor<List<EnergyConsumption>> saved = ArgumentCaptor.forClass(List.class);
+        verify(energyConsumptionRepository).saveAll(saved.capture());
+        assertEquals(4, saved.getValue().size());
+        assertTrue(saved.getValue().contains(day));
+        ArgumentCaptor<Iterable<EnergyConsumption>> deleted = ArgumentCaptor.forClass(Iterable.class);
+        verify(energyConsumptionRepository).deleteAll(deleted.capture());
+        assertIterableEquals(List.of(emptiedMinute), deleted.getValue());
+    }
+
+    private EnergyConsumption storedRollup(EnergyConsumption.PeriodType periodType, LocalDateTime periodStart) {
+        EnergyConsumption rollup = new EnergyConsumption();
+        rollup.setUserId(userId);
+        rollup.setDeviceId("DEVICE-001");
+        rollup.setIsRollup(true);
+        rollup.setPeriodType(periodType);
+        rollup.setPeriodStart(periodStart);
+        rollup.setReadingCount(7);
+        rollup.setTotalEnergy(new BigDecimal("7.0000"));
+        return rollup;
+    }
+
+    private EnergyReadingRepository.ReadingAggregateRow row(LocalDateTime timestamp, double energy, double power) {
+        return new EnergyReadingRepository.ReadingAggregateRow() {
+            @Override
+            public EnergyReading.EnergySource getSourceType() {
+                return EnergyReading.EnergySource.GRID;
+            }
+
+            @Override
+            public LocalDateTime getReadingTimestamp() {
+                return timestamp;
+            }
+
+            @Override
+            public Double getEnergyConsumed() {
+                return energy;
+            }
+
+            @Override
+            public Double getPower() {
+                return power;
+            }
+
+            @Override
+            public Double getQualityScore() {
+                return 1.0;
+            }
+        };
+    }
+
+    private EnergyReading reading(LocalDateTime timestamp, String energy, String power) {
+        EnergyReading reading = new EnergyReading();
+        reading.setId(UUID.randomUUID());
+        reading.setUserId(userId);
+        reading.setDeviceId("DEVICE-001");
+        reading.setReadingTimestamp(timestamp);
+        reading.setEnergyConsumed(new BigDecimal(energy));
+        reading.setPower(new BigDecimal(power));
+        reading.setQualityScore(new BigDecimal("1.00"));
+        reading.setSourceType(EnergyReading.EnergySource.GRID);
+        return reading;
+    }
+}
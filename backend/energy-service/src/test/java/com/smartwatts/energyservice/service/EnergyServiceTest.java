@@ -2,28 +2,43 @@ package com.smartwatts.energyservice.service;
 
 import com.smartwatts.energyservice.dto.EnergyReadingDto;
 import com.smartwatts.energyservice.dto.EnergyConsumptionDto;
+import com.smartwatts.energyservice.dto.EnergyReadingBatchResultDto;
+import com.smartwatts.energyservice.dto.ConsumptionSummaryDto;
+import com.smartwatts.energyservice.exception.DeviceNotVerifiedException;
+import com.smartwatts.energyservice.exception.ReadingBatchTooLargeException;
 import com.smartwatts.energyservice.model.EnergyReading;
 import com.smartwatts.energyservice.model.EnergyConsumption;
 import com.smartwatts.energyservice.repository.EnergyReadingRepository;
 import com.smartwatts.energyservice.repository.EnergyConsumptionRepository;
 import com.smartwatts.energyservice.repository.EnergyAlertRepository;
+import com.smartwatts.energyservice.repository.AggregateTotals;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -42,7 +57,16 @@ class EnergyServiceTest {
     private EnergyAlertRepository energyAlertRepository;
 
     @Mock
-    private AlertService alertService;
+    private AlertEvaluationPipeline alertEvaluationPipeline;
+
+    @Mock
+    private ActiveAlertIndex activeAlertIndex;
+
+    @Mock
+    private EnergyRollupService energyRollupService;
+
+    @Mock
+    private LiveReadingBroadcaster liveReadingBroadcaster;
 
     @Mock
     private DataIngestionSecurityService dataIngestionSecurityService;
@@ -50,6 +74,18 @@ class EnergyServiceTest {
     @Mock
     private DiscoMonitoringService discoMonitoringService;
 
+    @Mock
+    private DeviceVerificationCache deviceVerificationCache;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
     @InjectMocks
     private EnergyService energyService;
 
@@ -92,7 +128,6 @@ class EnergyServiceTest {
         // Given
         doNothing().when(dataIngestionSecurityService).validateDeviceDataIngestion(any(), any());
         when(energyReadingRepository.save(any(EnergyReading.class))).thenReturn(testReading);
-        doNothing().when(alertService).checkForAlerts(any(EnergyReading.class));
 
         // When
         EnergyReadingDto result = energyService.saveEnergyReading(testReadingDto);
@@ -101,7 +136,7 @@ class EnergyServiceTest {
         assertNotNull(result);
         assertEquals(testReadingId, result.getId());
         verify(energyReadingRepository).save(any(EnergyReading.class));
-        verify(alertService).checkForAlerts(any(EnergyReading.class));
+        verify(alertEvaluationPipeline).submit(any(EnergyReading.class));
     }
 
     @Test
@@ -110,7 +145,6 @@ class EnergyServiceTest {
         testReadingDto.setPower(null);
         doNothing().when(dataIngestionSecurityService).validateDeviceDataIngestion(any(), any());
         when(energyReadingRepository.save(any(EnergyReading.class))).thenReturn(testReading);
-        doNothing().when(alertService).checkForAlerts(any(EnergyReading.class));
 
         // When
         EnergyReadingDto result = energyService.saveEnergyReading(testReadingDto);
@@ -126,7 +160,6 @@ class EnergyServiceTest {
         String deviceAuthSecret = "secret-token";
         doNothing().when(dataIngestionSecurityService).validateDeviceDataIngestion(any(), eq(deviceAuthSecret));
         when(energyReadingRepository.save(any(EnergyReading.class))).thenReturn(testReading);
-        doNothing().when(alertService).checkForAlerts(any(EnergyReading.class));
 
         // When
         EnergyReadingDto result = energyService.saveEnergyReadingWithAuth(testReadingDto, deviceAuthSecret);
@@ -219,6 +252,8 @@ class EnergyServiceTest {
         consumption.setTotalEnergy(new BigDecimal("1000.0"));
         consumption.setPeriodType(EnergyConsumption.PeriodType.DAY);
         
+        when(energyReadingRepository.streamAggregateRows(eq(testUserId), eq("DEVICE-001"), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(Stream.of(aggregateRow(1.5, 1200.0, 0.9), aggregateRow(2.25, 800.0, 0.8), aggregateRow(null, null, null)));
         when(energyConsumptionRepository.save(any(EnergyConsumption.class))).thenReturn(consumption);
 
         // When
@@ -228,7 +263,228 @@ class EnergyServiceTest {
 
         // Then
         assertNotNull(result);
-        verify(energyConsumptionRepository).save(any(EnergyConsumption.class));
+        verify(energyConsumptionRepository).save(argThat((EnergyConsumption saved) ->
+                saved.getTotalEnergy().compareTo(new BigDecimal("3.75")) == 0
+                        && saved.getPeakPower().compareTo(new BigDecimal("1200")) == 0
+                        && saved.getMinimumPower().compareTo(new BigDecimal("800")) == 0
+                        && saved.getAveragePower().compareTo(new BigDecimal("666.67")) == 0
+                        && saved.getQualityScore().compareTo(new BigDecimal("0.57")) == 0
+                        && saved.getReadingCount() == 3));
+    }
+
+    @Test
+    void aggregateEnergyConsumption_NoReadings_ThrowsException() {
+        // Given
+        when(energyReadingRepository.streamAggregateRows(any(UUID.class), anyString(), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(Stream.empty());
+
+        // When & Then
+        assertThrows(RuntimeException.class, () -> energyService.aggregateEnergyConsumption(
+                testUserId, "DEVICE-001", EnergyConsumption.PeriodType.DAY,
+                LocalDateTime.now().minusDays(1), LocalDateTime.now()));
+        verify(energyConsumptionRepository, never()).save(any(EnergyConsumption.class));
+    }
+
+    @Test
+    void getConsumptionSummary_PlansCoarsestRollupsAndMergesTotals() {
+        // Given
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 10, 0, 30);
+        LocalDateTime end = LocalDateTime.of(2024, 1, 3, 0, 0);
+        AggregateTotals dayTotals = mock(AggregateTotals.class);
+        when(dayTotals.getReadingCount()).thenReturn(10L);
+        when(dayTotals.getTotalEnergy()).thenReturn(new BigDecimal("12.5000"));
+        when(dayTotals.getPowerSum()).thenReturn(new BigDecimal("1000.00"));
+        when(dayTotals.getPeakPower()).thenReturn(new BigDecimal("300.00"));
+        when(dayTotals.getMinimumPower()).thenReturn(new BigDecimal("20.00"));
+        when(dayTotals.getQualitySum()).thenReturn(new BigDecimal("9.00"));
+        when(energyConsumptionRepository.sumRollups(testUserId, "DEVICE-001", EnergyConsumption.PeriodType.DAY,
+                LocalDateTime.of(2024, 1, 2, 0, 0), end)).thenReturn(dayTotals);
+
+        // When
+        ConsumptionSummaryDto result = energyService.getConsumptionSummary(testUserId, "DEVICE-001", start, end);
+
+        // Then
+        List<EnergyConsumption.PeriodType> plan = result.getSegments().stream()
+                .map(ConsumptionSummaryDto.Segment::getPeriodType)
+                .toList();
+        assertEquals(Arrays.asList(null, EnergyConsumption.PeriodType.MINUTE, EnergyConsumption.PeriodType.QUARTER_HOUR,
+                EnergyConsumption.PeriodType.HOUR, EnergyConsumption.PeriodType.DAY), plan);
+        assertEquals(LocalDateTime.of(2024, 1, 1, 10, 1), result.getSegments().get(0).getTo());
+        assertEquals(10L, result.getReadingCount());
+        assertEquals(0, new BigDecimal("12.5").compareTo(result.getTotalEnergy()));
+        assertEquals(0, new BigDecimal("100").compareTo(result.getAveragePower()));
+        assertEquals(0, new BigDecimal("300").compareTo(result.getPeakPower()));
+        verify(energyReadingRepository).sumReadings(testUserId, "DEVICE-001", start, LocalDateTime.of(2024, 1, 1, 10, 1));
+    }
+
+    @Test
+    void saveEnergyReadingsBatch_AllValid_PersistsInChunks() {
+        // Given
+        ReflectionTestUtils.setField(energyService, "maxBatchSize", 100);
+        ReflectionTestUtils.setField(energyService, "batchChunkSize", 2);
+        List<EnergyReadingDto> batch = Arrays.asList(batchReading("DEVICE-001"), batchReading("DEVICE-001"), batchReading("DEVICE-002"));
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(energyReadingRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        EnergyReadingBatchResultDto result = energyService.saveEnergyReadingsBatch(batch);
+
+        // Then
+        assertEquals(3, result.getReceived());
+        assertEquals(3, result.getAccepted());
+        assertEquals(0, result.getRejected());
+        assertTrue(result.getResults().stream()
+                .allMatch(item -> item.getStatus() == EnergyReadingBatchResultDto.ItemStatus.ACCEPTED));
+        verify(energyReadingRepository, times(2)).saveAll(anyList());
+        verify(dataIngestionSecurityService, times(2)).validateDeviceDataIngestion(any(), isNull());
+        verify(alertEvaluationPipeline, times(3)).submit(any(EnergyReading.class));
+    }
+
+    @Test
+    void saveEnergyReadingsBatch_InvalidAndRejectedItems_ReportedPerItem() {
+        // Given
+        ReflectionTestUtils.setField(energyService, "maxBatchSize", 100);
+        ReflectionTestUtils.setField(energyService, "batchChunkSize", 500);
+        EnergyReadingDto invalid = batchReading("DEVICE-001");
+        invalid.setUserId(null);
+        List<EnergyReadingDto> batch = Arrays.asList(batchReading("DEVICE-001"), invalid, batchReading("DEVICE-BLOCKED"));
+        doAnswer(invocation -> {
+            EnergyReadingDto dto = invocation.getArgument(0);
+            if ("DEVICE-BLOCKED".equals(dto.getDeviceId())) {
+                throw new DeviceNotVerifiedException("Device DEVICE-BLOCKED is not verified or cannot send data");
+            }
+            return null;
+        }).when(dataIngestionSecurityService).validateDeviceDataIngestion(any(), isNull());
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(energyReadingRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        EnergyReadingBatchResultDto result = energyService.saveEnergyReadingsBatch(batch);
+
+        // Then
+        assertEquals(1, result.getAccepted());
+        assertEquals(2, result.getRejected());
+        assertEquals(EnergyReadingBatchResultDto.ItemStatus.ACCEPTED, result.getResults().get(0).getStatus());
+        assertEquals(EnergyReadingBatchResultDto.ItemStatus.INVALID, result.getResults().get(1).getStatus());
+        assertFalse(result.getResults().get(1).isRetryable());
+        assertEquals(EnergyReadingBatchResultDto.ItemStatus.DEVICE_REJECTED, result.getResults().get(2).getStatus());
+        assertTrue(result.getResults().get(2).isRetryable());
+    }
+
+    @Test
+    void saveEnergyReadingsBatch_AuthSecretValidationEnabled_ChecksSecretPerDevice() {
+        // Given a real security gate with secret validation on, as shipped
+        DataIngestionSecurityService securityService = new DataIngestionSecurityService(deviceVerificationCache);
+        ReflectionTestUtils.setField(securityService, "deviceVerificationEnabled", true);
+        ReflectionTestUtils.setField(securityService, "authSecretValidationEnabled", true);
+        ReflectionTestUtils.setField(energyService, "dataIngestionSecurityService", securityService);
+        ReflectionTestUtils.setField(energyService, "maxBatchSize", 100);
+        ReflectionTestUtils.setField(energyService, "batchChunkSize", 500);
+        List<EnergyReadingDto> batch = Arrays.asList(batchReading("DEVICE-001"), batchReading("DEVICE-002"),
+                batchReading("DEVICE-003"));
+        when(deviceVerificationCache.canSendData(anyString())).thenReturn(true);
+        when(deviceVerificationCache.isValidAuthSecret("DEVICE-001", "secret-1")).thenReturn(true);
+        when(deviceVerificationCache.isValidAuthSecret("DEVICE-002", "stale-secret")).thenReturn(false);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(energyReadingRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        EnergyReadingBatchResultDto result = energyService.saveEnergyReadingsBatch(batch,
+                Map.of("DEVICE-001", "secret-1", "DEVICE-002", "stale-secret"));
+
+        // Then
+        assertEquals(1, result.getAccepted());
+        assertEquals(EnergyReadingBatchResultDto.ItemStatus.ACCEPTED, result.getResults().get(0).getStatus());
+        assertEquals(EnergyReadingBatchResultDto.ItemStatus.DEVICE_REJECTED, result.getResults().get(1).getStatus());
+        assertEquals(EnergyReadingBatchResultDto.ItemStatus.DEVICE_REJECTED, result.getResults().get(2).getStatus());
+        assertTrue(result.getResults().get(2).getError().contains("secret is required"));
+    }
+
+    @Test
+    void saveEnergyReadingsBatch_ResentReadings_AreAcceptedWithoutStoringAgain() {
+        // Given a batch resent after its response was lost: the first reading made it, the other is repeated
+        ReflectionTestUtils.setField(energyService, "maxBatchSize", 100);
+        ReflectionTestUtils.setField(energyService, "batchChunkSize", 500);
+        EnergyReadingDto stored = batchReading("DEVICE-001");
+        stored.setSourceReadingId(UUID.randomUUID());
+        EnergyReadingDto pending = batchReading("DEVICE-001");
+        pending.setSourceReadingId(UUID.randomUUID());
+        EnergyReadingDto repeated = batchReading("DEVICE-001");
+        repeated.setSourceReadingId(pending.getSourceReadingId());
+        repeated.setReadingTimestamp(pending.getReadingTimestamp());
+        EnergyReading storedReading = new EnergyReading();
+        storedReading.setId(UUID.randomUUID());
+        storedReading.setSourceReadingId(stored.getSourceReadingId());
+        when(energyReadingRepository.findBySourceReadingIds(anyCollection(), any(), any())).thenReturn(List.of(storedReading));
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(energyReadingRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        EnergyReadingBatchResultDto result = energyService.saveEnergyReadingsBatch(Arrays.asList(stored, pending, repeated));
+
+        // Then
+        assertEquals(3, result.getAccepted());
+        assertEquals(0, result.getRejected());
+        assertEquals(storedReading.getId(), result.getResults().get(0).getId());
+        ArgumentCaptor<List<EnergyReading>> saved = ArgumentCaptor.forClass(List.class);
+        verify(energyReadingRepository).saveAll(saved.capture());
+        assertEquals(1, saved.getValue().size());
+        assertEquals(pending.getSourceReadingId(), saved.getValue().get(0).getSourceReadingId());
+        verify(alertEvaluationPipeline, times(1)).submit(any(EnergyReading.class));
+    }
+
+    @Test
+    void saveEnergyReadingsBatch_ExceedsMaxSize_ThrowsException() {
+        // Given
+        ReflectionTestUtils.setField(energyService, "maxBatchSize", 1);
+        List<EnergyReadingDto> batch = Arrays.asList(batchReading("DEVICE-001"), batchReading("DEVICE-001"));
+
+        // When & Then
+        assertThrows(ReadingBatchTooLargeException.class, () -> energyService.saveEnergyReadingsBatch(batch));
+        verifyNoInteractions(energyReadingRepository);
+    }
+
+    private EnergyReadingRepository.ReadingAggregateRow aggregateRow(Double energy, Double power, Double quality) {
+        return new EnergyReadingRepository.ReadingAggregateRow() {
+            @Override
+            public EnergyReading.EnergySource getSourceType() {
+                return EnergyReading.EnergySource.GRID;
+            }
+
+            @Override
+            public LocalDateTime getReadingTimestamp() {
+                return LocalDateTime.now();
+            }
+
+            @Override
+            public Double getEnergyConsumed() {
+                return energy;
+            }
+
+            @Override
+            public Double getPower() {
+                return power;
+            }
+
+            @Override
+            public Double getQualityScore() {
+                return quality;
+            }
+        };
+    }
+
+    private EnergyReadingDto batchReading(String deviceId) {
+        return EnergyReadingDto.builder()
+                .userId(testUserId)
+                .deviceId(deviceId)
+                .voltage(new BigDecimal("230.0"))
+                .current(new BigDecimal("4.0"))
+                .readingTimestamp(LocalDateTime.now())
+                .build();
     }
 
 }
@@ -0,0 +1,215 @@
+package com.smartwatts.energyservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartwatts.energyservice.dto.EnergyReadingDto;
+import com.smartwatts.energyservice.exception.LiveStreamLimitExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LiveReadingBroadcasterTest {
+
+    private LiveReadingBroadcaster broadcaster;
+    private ExecutorService dispatcher;
+    private UUID userId;
+
+    @BeforeEach
+    void setUp() {
+        broadcaster = new LiveReadingBroadcaster(new ObjectMapper().findAndRegisterModules(), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(broadcaster, "bufferSize", 3);
+        ReflectionTestUtils.setField(broadcaster, "maxSubscribers", 100);
+        ReflectionTestUtils.setField(broadcaster, "maxSubscribersPerUser", 2);
+        ReflectionTestUtils.setField(broadcaster, "dispatchThreads", 1);
+        ReflectionTestUtils.setField(broadcaster, "drainBatchSize", 100);
+        ReflectionTestUtils.setField(broadcaster, "emitterTimeoutMs", 0L);
+        broadcaster.init();
+        dispatcher = (ExecutorService) ReflectionTestUtils.getField(broadcaster, "dispatcher");
+        userId = UUID.randomUUID();
+    }
+
+    @AfterEach
+    void tearDown() {
+        broadcaster.shutdown();
+    }
+
+    @Test
+    void publish_DeliversToMatchingSubscribersOnly() throws Exception {
+        // Given
+        RecordingEmitter allDevices = new RecordingEmitter();
+        RecordingEmitter deviceTwo = new RecordingEmitter();
+        RecordingEmitter otherUser = new RecordingEmitter();
+        broadcaster.register(userId, null, LiveReadingBroadcaster.OverflowPolicy.DROP_OLDEST, allDevices);
+        broadcaster.register(userId, "DEVICE-2", LiveReadingBroadcaster.OverflowPolicy.DROP_OLDEST, deviceTwo);
+        broadcaster.register(UUID.randomUUID(), null, LiveReadingBroadcaster.OverflowPolicy.DROP_OLDEST, otherUser);
+
+        // When
+        broadcaster.publish(reading("DEVICE-1", "1.0"));
+        broadcaster.publish(reading("DEVICE-2", "2.0"));
+        awaitDispatch();
+
+        // Then
+        assertEquals(2, allDevices.readings().size());
+        assertEquals(1, deviceTwo.readings().size());
+        assertTrue(deviceTwo.readings().get(0).contains("DEVICE-2"));
+        assertTrue(otherUser.events.isEmpty());
+    }
+
+    @Test
+    void publish_DropOldest_KeepsNewestAndReportsOverflow() throws Exception {
+        // Given
+        RecordingEmitter emitter = new RecordingEmitter();
+        broadcaster.register(userId, null, LiveReadingBroadcaster.OverflowPolicy.DROP_OLDEST, emitter);
+
+        // When
+        CountDownLatch release = pauseDispatcher();
+        for (int i = 1; i <= 5; i++) {
+            broadcaster.publish(reading("DEVICE-1", i + ".0"));
+        }
+        release.countDown();
+        awaitDispatch();
+
+        // Then
+        assertTrue(emitter.events.get(0).contains("overflow"));
+        assertTrue(emitter.events.get(0).contains("\"dropped\":2"));
+        List<String> readings = emitter.readings();
+        assertEquals(3, readings.size());
+        assertTrue(readings.get(0).contains("\"power\":3.0"));
+        assertTrue(readings.get(2).contains("\"power\":5.0"));
+        assertEquals(2L, broadcaster.getStats().get("dropped"));
+    }
+
+    @Test
+    void publish_DropNewest_KeepsOldest() throws Exception {
+        // Given
+        RecordingEmitter emitter = new RecordingEmitter();
+        broadcaster.register(userId, null, LiveReadingBroadcaster.OverflowPolicy.DROP_NEWEST, emitter);
+
+        // When
+        CountDownLatch release = pauseDispatcher();
+        for (int i = 1; i <= 5; i++) {
+            broadcaster.publish(reading("DEVICE-1", i + ".0"));
+        }
+        release.countDown();
+        awaitDispatch();
+
+        // Then
+        List<String> readings = emitter.readings();
+        assertEquals(3, readings.size());
+        assertTrue(readings.get(0).contains("\"power\":1.0"));
+        assertTrue(readings.get(2).contains("\"power\":3.0"));
+    }
+
+    @Test
+    void publish_Conflate_KeepsLatestReadingPerDevice() throws Exception {
+        // Given
+        RecordingEmitter emitter = new RecordingEmitter();
+        broadcaster.register(userId, null, LiveReadingBroadcaster.OverflowPolicy.CONFLATE, emitter);
+
+        // When
+        CountDownLatch release = pauseDispatcher();
+        broadcaster.publish(reading("DEVICE-1", "1.0"));
+        broadcaster.publish(reading("DEVICE-2", "2.0"));
+        broadcaster.publish(reading("DEVICE-1", "3.0"));
+        release.countDown();
+        awaitDispatch();
+
+        // Then
+        List<String> readings = emitter.readings();
+        assertEquals(2, readings.size());
+        assertTrue(readings.get(0).contains("DEVICE-1") && readings.get(0).contains("\"power\":3.0"));
+        assertTrue(readings.get(1).contains("DEVICE-2"));
+        assertEquals(1L, broadcaster.getStats().get("conflated"));
+    }
+
+    @Test
+    void register_PerUserLimitReached_ThrowsException() {
+        // Given
+        broadcaster.register(userId, null, LiveReadingBroadcaster.OverflowPolicy.DROP_OLDEST, new RecordingEmitter());
+        broadcaster.register(userId, null, LiveReadingBroadcaster.OverflowPolicy.DROP_OLDEST, new RecordingEmitter());
+
+        // When / Then
+        assertThrows(LiveStreamLimitExceededException.class, () ->
+                broadcaster.register(userId, null, LiveReadingBroadcaster.OverflowPolicy.DROP_OLDEST, new RecordingEmitter()));
+        assertEquals(2, broadcaster.getStats().get("subscribers"));
+    }
+
+    @Test
+    void publish_SendFails_RemovesSubscriber() throws Exception {
+        // Given
+        RecordingEmitter emitter = new RecordingEmitter();
+        emitter.failing = true;
+        broadcaster.register(userId, null, LiveReadingBroadcaster.OverflowPolicy.DROP_OLDEST, emitter);
+
+        // When
+        broadcaster.publish(reading("DEVICE-1", "1.0"));
+        awaitDispatch();
+
+        // Then
+        assertFalse(broadcaster.hasSubscribers(userId));
+        assertEquals(0, broadcaster.getStats().get("subscribers"));
+    }
+
+    private CountDownLatch pauseDispatcher() {
+        CountDownLatch release = new CountDownLatch(1);
+        dispatcher.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        return release;
+    }
+
+    private void awaitDispatch() throws Exception {
+        // The single dispatcher thread runs tasks in order, so this returns after every queued drain
+        dispatcher.submit(() -> { }).get();
+    }
+
+    private EnergyReadingDto reading(String deviceId, String power) {
+        return EnergyReadingDto.builder()
+                .id(UUID.randomUUID())
+                .userId(userId)
+                .deviceId(deviceId)
+                .readingTimestamp(LocalDateTime.now())
+                .power(new BigDecimal(power))
+                .build();
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<String> events = new CopyOnWriteArrayList<>();
+        private volatile boolean failing;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (failing) {
+                throw new IOException("Broken pipe");
+            }
+            events.add(builder.build().stream()
+                    .map(ResponseBodyEmitter.DataWithMediaType::getData)
+                    .map(Object::toString)
+                    .collect(Collectors.joining()));
+        }
+
+        private List<String> readings() {
+            return events.stream().filter(event -> event.startsWith("event:reading")).collect(Collectors.toList());
+        }
+    }
+}
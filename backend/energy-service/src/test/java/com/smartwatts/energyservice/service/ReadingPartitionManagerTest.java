@@ -0,0 +1,120 @@
+package com.smartwatts.energyservice.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReadingPartitionManagerTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private ReadingPartitionManager partitionManager;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(partitionManager, "enabled", true);
+        ReflectionTestUtils.setField(partitionManager, "retentionDays", 365);
+        ReflectionTestUtils.setField(partitionManager, "premakeMonths", 1);
+        ReflectionTestUtils.setField(partitionManager, "archiveAfterMonths", 6);
+        ReflectionTestUtils.setField(partitionManager, "archiveTablespace", "");
+        ReflectionTestUtils.setField(partitionManager, "fallbackDeleteBatchSize", 2);
+    }
+
+    @Test
+    void partitionMonth_ParsesMonthlyPartitionsOnly() {
+        assertEquals(YearMonth.of(2024, 3), ReadingPartitionManager.partitionMonth("energy_readings_2024_03"));
+        assertEquals("energy_readings_2024_03", ReadingPartitionManager.partitionName(YearMonth.of(2024, 3)));
+        assertNull(ReadingPartitionManager.partitionMonth("energy_readings_default"));
+    }
+
+    @Test
+    void runMaintenance_Partitioned_CreatesUpcomingAndDropsExpiredPartitions() {
+        // Given
+        String expired = ReadingPartitionManager.partitionName(YearMonth.now().minusMonths(14));
+        String current = ReadingPartitionManager.partitionName(YearMonth.now());
+        String next = ReadingPartitionManager.partitionName(YearMonth.now().plusMonths(1));
+        lenient().when(jdbcTemplate.queryForObject(contains("pg_partitioned_table"), eq(Boolean.class), any())).thenReturn(true);
+        when(jdbcTemplate.queryForList(contains("pg_inherits"), eq(String.class), any()))
+                .thenReturn(List.of(expired, current, "energy_readings_default"));
+        lenient().when(jdbcTemplate.queryForObject(contains("obj_description"), eq(String.class), any())).thenReturn(null);
+
+        // When
+        Map<String, Object> result = partitionManager.runMaintenance();
+
+        // Then
+        assertEquals(List.of(next), result.get("created"));
+        assertEquals(List.of(expired), result.get("dropped"));
+        verify(jdbcTemplate).execute("ALTER TABLE energy_readings DETACH PARTITION \"" + expired + "\"");
+        verify(jdbcTemplate).execute("DROP TABLE \"" + expired + "\"");
+        verify(jdbcTemplate, never()).execute(contains("DROP TABLE \"" + current));
+    }
+
+    @Test
+    void runMaintenance_NotPartitioned_DeletesExpiredRowsInBatches() {
+        // Given
+        when(jdbcTemplate.queryForObject(contains("pg_partitioned_table"), eq(Boolean.class), any())).thenReturn(false);
+        when(jdbcTemplate.update(startsWith("DELETE FROM \"energy_readings\""), any(), any())).thenReturn(2, 1);
+
+        // When
+        Map<String, Object> result = partitionManager.runMaintenance();
+
+        // Then
+        assertEquals(false, result.get("partitioned"));
+        assertEquals(3L, result.get("deletedRows"));
+        verify(jdbcTemplate, times(2)).update(startsWith("DELETE FROM \"energy_readings\""), any(), any());
+    }
+
+    @Test
+    void runMaintenance_Partitioned_DeletesExpiredRowsFromDefaultPartition() {
+        // Given
+        when(jdbcTemplate.queryForObject(contains("pg_partitioned_table"), eq(Boolean.class), any())).thenReturn(true);
+        when(jdbcTemplate.queryForList(contains("pg_inherits"), eq(String.class), any()))
+                .thenReturn(List.of(ReadingPartitionManager.partitionName(YearMonth.now()), "energy_readings_default"));
+        when(jdbcTemplate.update(startsWith("DELETE FROM \"energy_readings_default\""), any(), any())).thenReturn(2, 0);
+
+        // When
+        Map<String, Object> result = partitionManager.runMaintenance();
+
+        // Then
+        assertEquals(2L, result.get("deletedDefaultRows"));
+        verify(jdbcTemplate, times(2)).update(startsWith("DELETE FROM \"energy_readings_default\""), any(), any());
+        verify(jdbcTemplate, never()).update(startsWith("DELETE FROM \"energy_readings\""), any(), any());
+    }
+
+    @Test
+    void submitMaintenance_RunsOnMaintenanceThread() throws Exception {
+        // Given
+        partitionManager.init();
+        AtomicReference<String> maintenanceThread = new AtomicReference<>();
+        when(jdbcTemplate.queryForObject(contains("pg_partitioned_table"), eq(Boolean.class), any())).thenAnswer(invocation -> {
+            maintenanceThread.set(Thread.currentThread().getName());
+            return false;
+        });
+
+        // When
+        Map<String, Object> result = partitionManager.submitMaintenance().get(5, TimeUnit.SECONDS);
+        partitionManager.shutdown();
+
+        // Then
+        assertEquals("reading-partitions", maintenanceThread.get());
+        assertEquals(0L, result.get("deletedRows"));
+    }
+}